@@ -0,0 +1,123 @@
+package com.airtribe.meditrack.benchmarks;
+
+import com.airtribe.meditrack.entities.AppointmentHistoryEvent;
+import com.airtribe.meditrack.enums.AppointmentHistoryType;
+import com.airtribe.meditrack.enums.AppointmentStatus;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy;
+import org.hibernate.cfg.Configuration;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write side of the appointment history: appends eventCount events through hibernate the way
+ * AppointmentHistoryRecorder does, eventsPerTransaction at a time. 1 is a booking / confirm / cancel request
+ * (one event in the request's transaction), 50 a bulk cancellation. Append rate = eventCount / score.
+ * Every appointment gets BOOKED, CONFIRMED and COMPLETED (one in ten CANCELLED instead).
+ * Run with: gradle jmh -PjmhIncludes=AppointmentHistoryAppendBenchmark
+ * In-memory h2 by default, see AppointmentHistorySchema for running it against postgres.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class AppointmentHistoryAppendBenchmark {
+
+    private static final int BATCH_SIZE = 50;
+    private static final LocalDateTime START = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+    @Param({"1", "50"})
+    int eventsPerTransaction;
+
+    @Param({"1000000"})
+    int eventCount;
+
+    private SessionFactory sessionFactory;
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+        AppointmentHistorySchema.create();
+        sessionFactory = new Configuration()
+                .addAnnotatedClass(AppointmentHistoryEvent.class)
+                .setPhysicalNamingStrategy(new CamelCaseToUnderscoresNamingStrategy())
+                .setProperty("hibernate.connection.url", AppointmentHistorySchema.URL)
+                .setProperty("hibernate.connection.username", AppointmentHistorySchema.USER)
+                .setProperty("hibernate.connection.password", AppointmentHistorySchema.PASSWORD)
+                .setProperty("hibernate.hbm2ddl.auto", "none")
+                .setProperty("hibernate.cache.use_second_level_cache", "false")
+                .setProperty("jakarta.persistence.validation.mode", "none")
+                .setProperty("hibernate.id.optimizer.pooled.preferred", "pooled-lo")
+                //same batching as the app (application.properties)
+                .setProperty("hibernate.jdbc.batch_size", String.valueOf(BATCH_SIZE))
+                .setProperty("hibernate.order_inserts", "true")
+                .buildSessionFactory();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Setup(Level.Iteration)
+    public void emptyHistory() throws SQLException {
+        try (Connection connection = AppointmentHistorySchema.connect();
+             Statement statement = connection.createStatement()) {
+            statement.execute("delete from appointment_history");
+        }
+    }
+
+    @Benchmark
+    public int appendEvents() {
+        int appended = 0;
+        while (appended < eventCount) {
+            try (Session session = sessionFactory.openSession()) {
+                session.beginTransaction();
+                int end = Math.min(eventCount, appended + eventsPerTransaction);
+                for (; appended < end; appended++) {
+                    session.persist(event(appended));
+                    if ((appended + 1) % BATCH_SIZE == 0) {
+                        session.flush();
+                        session.clear();
+                    }
+                }
+                session.getTransaction().commit();
+            }
+        }
+        return appended;
+    }
+
+    static AppointmentHistoryEvent event(int i) {
+        long appointmentId = i / 3 + 1;
+        AppointmentHistoryEvent.AppointmentHistoryEventBuilder event = AppointmentHistoryEvent.builder()
+                .appointmentId(appointmentId)
+                .occurredAt(START.plusSeconds(i));
+        switch (i % 3) {
+            case 0 -> {
+                LocalTime start = LocalTime.of(9, 0).plusMinutes((appointmentId % 16) * 30);
+                event.type(AppointmentHistoryType.BOOKED).status(AppointmentStatus.PAYMENT_PENDING)
+                        .doctorId(appointmentId % 50 + 1).patientId(appointmentId % 5000 + 1)
+                        .startDate(LocalDate.of(2026, 1, 1).plusDays(appointmentId / 1000))
+                        .startTime(start).endTime(start.plusMinutes(30)).paymentAmount(500.0);
+            }
+            case 1 -> event.type(AppointmentHistoryType.CONFIRMED).status(AppointmentStatus.SCHEDULED).paymentAmount(590.0);
+            default -> {
+                if (appointmentId % 10 == 0) {
+                    event.type(AppointmentHistoryType.CANCELLED).status(AppointmentStatus.CANCELLED).cancellationReason("benchmark");
+                } else {
+                    event.type(AppointmentHistoryType.COMPLETED).status(AppointmentStatus.COMPLETED).docObservations("benchmark");
+                }
+            }
+        }
+        return event.build();
+    }
+}
@@ -0,0 +1,110 @@
+package com.airtribe.meditrack.benchmarks;
+
+import com.airtribe.meditrack.entities.AppointmentHistoryEvent;
+import com.airtribe.meditrack.entities.AppointmentSnapshot;
+import com.airtribe.meditrack.enums.AppointmentStatus;
+import com.airtribe.meditrack.history.AppointmentHistoryReplayer;
+import com.airtribe.meditrack.history.AppointmentProjection;
+import com.airtribe.meditrack.history.AppointmentState;
+import com.airtribe.meditrack.history.StatusCountProjection;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read side of the appointment history: rebuilds the status counts projection over eventCount events
+ * (AppointmentHistoryAppendBenchmark's events) with AppointmentHistoryReplayer, once through the whole history
+ * and once from a snapshot that covers all but the last tenth. Replay rate = events / score.
+ * Run with: gradle jmh -PjmhIncludes=AppointmentHistoryReplayBenchmark
+ * In-memory h2 by default, see AppointmentHistorySchema for running it against postgres.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class AppointmentHistoryReplayBenchmark {
+
+    private static final int BATCH_SIZE = 1000;
+    private static final LocalDateTime END = LocalDateTime.of(2100, 1, 1, 0, 0);
+
+    @Param({"scratch", "snapshot"})
+    String from;
+
+    @Param({"1000000"})
+    int eventCount;
+
+    private SingleConnectionDataSource dataSource;
+    private TransactionTemplate transactionTemplate;
+    private AppointmentHistoryReplayer replayer;
+    private AppointmentSnapshot snapshot;
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+        AppointmentHistorySchema.create();
+        dataSource = new SingleConnectionDataSource(AppointmentHistorySchema.URL, AppointmentHistorySchema.USER,
+                AppointmentHistorySchema.PASSWORD, true);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        replayer = new AppointmentHistoryReplayer(dataSource);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+        List<Object[]> rows = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < eventCount; i++) {
+            AppointmentHistoryEvent event = AppointmentHistoryAppendBenchmark.event(i);
+            rows.add(new Object[]{i + 1L, event.getAppointmentId(), event.getType().name(), event.getStatus().name(),
+                    event.getDoctorId(), event.getPatientId(), event.getStartDate(), event.getStartTime(), event.getEndTime(),
+                    event.getPaymentAmount(), event.getDocObservations(), event.getCancellationReason(), event.getOccurredAt()});
+            if (rows.size() == BATCH_SIZE || i == eventCount - 1) {
+                jdbcTemplate.batchUpdate("""
+                        insert into appointment_history (id, appointment_id, type, status, doctor_id, patient_id, start_date,
+                            start_time, end_time, payment_amount, doc_observations, cancellation_reason, occurred_at)
+                        values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)""", rows);
+                rows.clear();
+            }
+        }
+
+        //the snapshot the way AppointmentHistoryService takes one: every appointment's state as of coversBefore
+        LocalDateTime coversBefore = AppointmentHistoryAppendBenchmark.event(eventCount - eventCount / 10).getOccurredAt();
+        snapshot = AppointmentSnapshot.builder().id(1L).coversBefore(coversBefore).createdAt(LocalDateTime.now()).build();
+        List<Object[]> states = new ArrayList<>();
+        transactionTemplate.executeWithoutResult(status -> replayer.replay(null, coversBefore, new AppointmentProjection() {
+            @Override
+            public void apply(AppointmentHistoryEvent event, AppointmentStatus previous, AppointmentState state) {
+            }
+
+            @Override
+            public void finish(AppointmentState state) {
+                states.add(new Object[]{snapshot.getId(), state.getAppointmentId(), state.getStatus().name(),
+                        state.getDoctorId(), state.getPatientId(), state.getStartDate(), state.getStartTime(),
+                        state.getEndTime(), state.getPaymentAmount(), state.getDocObservations(),
+                        state.getCancellationReason(), state.getUpdatedAt()});
+            }
+        }));
+        jdbcTemplate.batchUpdate("""
+                insert into appointment_snapshot_state (snapshot_id, appointment_id, status, doctor_id, patient_id, start_date,
+                    start_time, end_time, payment_amount, doc_observations, cancellation_reason, updated_at)
+                values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)""", states);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dataSource.destroy();
+    }
+
+    @Benchmark
+    public long replay() {
+        StatusCountProjection projection = new StatusCountProjection();
+        AppointmentHistoryReplayer.Result result = transactionTemplate.execute(status ->
+                replayer.replay("snapshot".equals(from) ? snapshot : null, END, projection));
+        return result.appointments() + projection.counts().get(AppointmentStatus.COMPLETED);
+    }
+}
@@ -0,0 +1,50 @@
+package com.airtribe.meditrack.benchmarks;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+//appointment_history and the snapshot tables as hibernate creates them, hand written so they also exist on h2.
+//target database is the same as AppointmentInsertBenchmark's: in-memory h2 unless MEDITRACK_BENCH_URL is set
+final class AppointmentHistorySchema {
+
+    static final String URL = System.getenv().getOrDefault("MEDITRACK_BENCH_URL", "jdbc:h2:mem:meditrack_bench;MODE=PostgreSQL;DB_CLOSE_DELAY=-1");
+    static final String USER = System.getenv().getOrDefault("MEDITRACK_BENCH_USER", "sa");
+    static final String PASSWORD = System.getenv().getOrDefault("MEDITRACK_BENCH_PASSWORD", "");
+
+    private AppointmentHistorySchema() {
+    }
+
+    static Connection connect() throws SQLException {
+        return DriverManager.getConnection(URL, USER, PASSWORD);
+    }
+
+    static void create() throws SQLException {
+        try (Connection connection = connect();
+             Statement statement = connection.createStatement()) {
+            statement.execute("drop table if exists appointment_history");
+            statement.execute("drop table if exists appointment_snapshot_state");
+            statement.execute("drop table if exists appointment_snapshot");
+            statement.execute("drop sequence if exists appointment_history_seq");
+            statement.execute("drop sequence if exists appointment_snapshot_seq");
+            statement.execute("create sequence appointment_history_seq start with 1 increment by 50");
+            statement.execute("create sequence appointment_snapshot_seq start with 1 increment by 1");
+            statement.execute("""
+                    create table appointment_history (id bigint primary key, appointment_id bigint not null,
+                        type varchar(32) not null, status varchar(32) not null, doctor_id bigint, patient_id bigint,
+                        start_date date, start_time time, end_time time, payment_amount float8, doc_observations text,
+                        cancellation_reason varchar(255), occurred_at timestamp not null)""");
+            statement.execute("create index idx_appointment_history_appointment on appointment_history (appointment_id, occurred_at)");
+            statement.execute("create index idx_appointment_history_occurred on appointment_history (occurred_at)");
+            statement.execute("""
+                    create table appointment_snapshot (id bigint primary key, covers_before timestamp not null,
+                        appointments bigint not null, events_applied bigint not null, created_at timestamp not null)""");
+            statement.execute("""
+                    create table appointment_snapshot_state (snapshot_id bigint not null, appointment_id bigint not null,
+                        status varchar(32) not null, doctor_id bigint, patient_id bigint, start_date date, start_time time,
+                        end_time time, payment_amount float8, doc_observations text, cancellation_reason varchar(255),
+                        updated_at timestamp not null, primary key (snapshot_id, appointment_id))""");
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.airtribe.meditrack.benchmarks;
+
+import com.airtribe.meditrack.entities.Appointment;
+import com.airtribe.meditrack.entities.Doctor;
+import com.airtribe.meditrack.entities.Patient;
+import com.airtribe.meditrack.entities.Person;
+import com.airtribe.meditrack.enums.AppointmentStatus;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy;
+import org.hibernate.cfg.Configuration;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inserts 100k appointments through hibernate, the way the app did it before (one save per row, each in its
+ * own transaction, ids generated by the database so every insert waits for its id, no jdbc batching) and the way
+ * BulkWriteService does it now (pooled sequence, one transaction, batch_size 50, ordered inserts, flush + clear per
+ * batch). Insert rate = appointmentCount / score.
+ * Run with: gradle jmh -PjmhIncludes=AppointmentInsertBenchmark
+ * Uses in-memory h2 by default, which has no network round trips, so the gap is smaller than on a real server.
+ * To measure against postgres set MEDITRACK_BENCH_URL (and MEDITRACK_BENCH_USER / MEDITRACK_BENCH_PASSWORD)
+ * to a scratch database, the benchmark drops and recreates its tables there.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class AppointmentInsertBenchmark {
+
+    private static final int BATCH_SIZE = 50;
+    private static final long DOCTOR_ID = 1L;
+    private static final long PATIENT_ID = 2L;
+
+    @Param({"before", "after"})
+    String mode;
+
+    @Param({"100000"})
+    int appointmentCount;
+
+    private String url;
+    private String user;
+    private String password;
+    private SessionFactory sessionFactory;
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+        url = System.getenv().getOrDefault("MEDITRACK_BENCH_URL", "jdbc:h2:mem:meditrack_bench;MODE=PostgreSQL;DB_CLOSE_DELAY=-1");
+        user = System.getenv().getOrDefault("MEDITRACK_BENCH_USER", "sa");
+        password = System.getenv().getOrDefault("MEDITRACK_BENCH_PASSWORD", "");
+        createSchema();
+
+        Configuration configuration = new Configuration()
+                .addAnnotatedClass(Person.class)
+                .addAnnotatedClass(Doctor.class)
+                .addAnnotatedClass(Patient.class)
+                .addAnnotatedClass(Appointment.class)
+                .addAnnotatedClass(BaselineAppointment.class)
+                .setPhysicalNamingStrategy(new CamelCaseToUnderscoresNamingStrategy()) //same snake_case columns spring boot uses
+                .setProperty("hibernate.connection.url", url)
+                .setProperty("hibernate.connection.username", user)
+                .setProperty("hibernate.connection.password", password)
+                .setProperty("hibernate.hbm2ddl.auto", "none")
+                .setProperty("hibernate.cache.use_second_level_cache", "false")
+                .setProperty("jakarta.persistence.validation.mode", "none");
+        if ("after".equals(mode)) {
+            configuration
+                    .setProperty("hibernate.id.optimizer.pooled.preferred", "pooled-lo")
+                    .setProperty("hibernate.jdbc.batch_size", String.valueOf(BATCH_SIZE))
+                    .setProperty("hibernate.order_inserts", "true")
+                    .setProperty("hibernate.order_updates", "true");
+        }
+        sessionFactory = configuration.buildSessionFactory();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Setup(Level.Iteration)
+    public void emptyAppointments() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url, user, password);
+             Statement statement = connection.createStatement()) {
+            statement.execute("delete from appointment");
+        }
+    }
+
+    @Benchmark
+    public int insertAppointments() {
+        return "after".equals(mode) ? insertBatched() : insertOneByOne();
+    }
+
+    //old path: repository.save per row outside a transaction, so every row is its own transaction and round trip
+    private int insertOneByOne() {
+        for (int i = 0; i < appointmentCount; i++) {
+            try (Session session = sessionFactory.openSession()) {
+                session.beginTransaction();
+                session.persist(baselineAppointment(session, i));
+                session.getTransaction().commit();
+            }
+        }
+        return appointmentCount;
+    }
+
+    //BulkWriteService.persistAll: one transaction, flush + clear every batch
+    private int insertBatched() {
+        try (Session session = sessionFactory.openSession()) {
+            session.beginTransaction();
+            for (int i = 0; i < appointmentCount; i++) {
+                session.persist(appointment(session, i));
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    session.flush();
+                    session.clear();
+                }
+            }
+            session.getTransaction().commit();
+        }
+        return appointmentCount;
+    }
+
+    private Appointment appointment(Session session, int i) {
+        LocalTime start = LocalTime.of(9, 0).plusMinutes((i % 16) * 30L);
+        return Appointment.builder()
+                .doctor(session.getReference(Doctor.class, DOCTOR_ID))
+                .patient(session.getReference(Patient.class, PATIENT_ID))
+                .startDate(LocalDate.of(2026, 1, 1).plusDays(i / 16))
+                .startTime(start)
+                .endTime(start.plusMinutes(30))
+                .status(AppointmentStatus.SCHEDULED)
+                .patientSymptoms("benchmark")
+                .paymentAmount(500.0)
+                .build();
+    }
+
+    private BaselineAppointment baselineAppointment(Session session, int i) {
+        Appointment appointment = appointment(session, i);
+        BaselineAppointment baseline = new BaselineAppointment();
+        baseline.doctor = appointment.getDoctor();
+        baseline.patient = appointment.getPatient();
+        baseline.startDate = appointment.getStartDate();
+        baseline.startTime = appointment.getStartTime();
+        baseline.endTime = appointment.getEndTime();
+        baseline.status = appointment.getStatus();
+        baseline.patientSymptoms = appointment.getPatientSymptoms();
+        baseline.paymentAmount = appointment.getPaymentAmount();
+        return baseline;
+    }
+
+    //the appointment mapping before sequences: the database generates the id on insert, hibernate needs it back from
+    //every insert, which also rules out jdbc batching. same table as Appointment
+    @Entity(name = "BaselineAppointment")
+    @Table(name = "appointment")
+    public static class BaselineAppointment {
+
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        Long id;
+
+        @ManyToOne(fetch = FetchType.LAZY)
+        @JoinColumn(name = "doctor_id", nullable = false)
+        Doctor doctor;
+
+        @ManyToOne(fetch = FetchType.LAZY)
+        @JoinColumn(name = "patient_id", nullable = false)
+        Patient patient;
+
+        LocalDate startDate;
+
+        LocalTime startTime;
+
+        LocalTime endTime;
+
+        @Enumerated(EnumType.STRING)
+        AppointmentStatus status;
+
+        String patientSymptoms;
+
+        Double paymentAmount;
+    }
+
+    //hand written ddl so the benchmark also runs on h2, which has no vector type for doctor.embedding
+    //(hibernate never reads or writes doctor here, appointments only reference it by id)
+    private void createSchema() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url, user, password);
+             Statement statement = connection.createStatement()) {
+            statement.execute("drop table if exists appointment");
+            statement.execute("drop table if exists doctor");
+            statement.execute("drop table if exists patient");
+            statement.execute("drop table if exists person");
+            statement.execute("drop sequence if exists appointment_seq");
+            statement.execute("drop sequence if exists person_seq");
+            statement.execute("create sequence appointment_seq start with 1 increment by 50");
+            statement.execute("create sequence person_seq start with 1 increment by 50");
+            statement.execute("""
+                    create table person (id bigint primary key, email varchar(100) not null unique,
+                        phone varchar(15) not null, address varchar(255), role varchar(32),
+                        created_at timestamp not null, updated_at timestamp not null)""");
+            statement.execute("""
+                    create table doctor (id bigint primary key references person(id), name varchar(255),
+                        is_available boolean not null, specialist varchar(32), consultation_fee float8 not null,
+                        description varchar(1000))""");
+            statement.execute("""
+                    create table patient (id bigint primary key references person(id), name varchar(50), age integer)""");
+            statement.execute("""
+                    create table appointment (id bigint generated by default as identity primary key,
+                        doctor_id bigint not null references doctor(id), patient_id bigint not null references patient(id),
+                        start_date date not null, start_time time, end_time time, status varchar(32),
+                        patient_symptoms varchar(1000), doc_observations varchar(1000), payment_amount float8,
+                        cancellation_reason varchar(255))""");
+            statement.execute("insert into person values (1, 'bench-doctor@meditrack.com', '9000000000', 'Pune', 'DOCTOR', current_timestamp, current_timestamp)");
+            statement.execute("insert into doctor values (1, 'Dr. Bench', true, 'CARDIOLOGIST', 500, 'benchmark doctor')");
+            statement.execute("insert into person values (2, 'bench-patient@meditrack.com', '9000000001', 'Pune', 'PATIENT', current_timestamp, current_timestamp)");
+            statement.execute("insert into patient values (2, 'Bench Patient', 30)");
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.airtribe.meditrack.benchmarks;
+
+import com.airtribe.meditrack.dto.AppointmentDTO;
+import com.airtribe.meditrack.dto.DoctorDto;
+import com.airtribe.meditrack.entities.Appointment;
+import com.airtribe.meditrack.entities.Doctor;
+import com.airtribe.meditrack.entities.Patient;
+import com.airtribe.meditrack.enums.AppointmentStatus;
+import com.airtribe.meditrack.enums.Role;
+import com.airtribe.meditrack.enums.Specialist;
+import com.airtribe.meditrack.mapper.AppointmentMapper;
+import com.airtribe.meditrack.mapper.DoctorMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.mapstruct.factory.Mappers;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Old read path (reflective ModelMapper, entity in the json) vs new one (mapstruct, flat dto).
+ * Run with: gradle jmh
+ * The *Payload benchmarks return the serialized size too, so the gc profiler shows allocation per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DtoMappingBenchmark {
+
+    @Param({"100"})
+    int doctorCount;
+
+    private ModelMapper modelMapper;
+    private DoctorMapper doctorMapper;
+    private AppointmentMapper appointmentMapper;
+    private ObjectMapper objectMapper;
+
+    private List<Doctor> doctors;
+    private Appointment appointment;
+
+    @Setup
+    public void setup() {
+        modelMapper = new ModelMapper();
+        doctorMapper = Mappers.getMapper(DoctorMapper.class);
+        appointmentMapper = Mappers.getMapper(AppointmentMapper.class);
+        objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        Random random = new Random(42);
+        doctors = new ArrayList<>();
+        for (int i = 0; i < doctorCount; i++) {
+            float[] embedding = new float[768];
+            for (int j = 0; j < embedding.length; j++) {
+                embedding[j] = random.nextFloat();
+            }
+            Doctor doctor = Doctor.builder()
+                    .name("Dr. " + i)
+                    .email("doc" + i + "@meditrack.com")
+                    .phone("98765" + i)
+                    .address("Delhi")
+                    .role(Role.DOCTOR)
+                    .consultationFee(500.0 + i)
+                    .specialist(Specialist.values()[i % Specialist.values().length])
+                    .description("Specialist number " + i)
+                    .isAvailable(true)
+                    .embedding(embedding)
+                    .build();
+            doctor.setId((long) i);
+            doctors.add(doctor);
+        }
+
+        Patient patient = Patient.builder()
+                .name("Ravi")
+                .email("ravi@meditrack.com")
+                .phone("9000000000")
+                .role(Role.PATIENT)
+                .age(30)
+                .build();
+        patient.setId(1000L);
+
+        appointment = Appointment.builder()
+                .id(1L)
+                .doctor(doctors.get(0))
+                .patient(patient)
+                .startDate(LocalDate.of(2026, 1, 5))
+                .startTime(LocalTime.of(10, 0))
+                .endTime(LocalTime.of(10, 30))
+                .status(AppointmentStatus.SCHEDULED)
+                .patientSymptoms("chest pain")
+                .paymentAmount(944.0)
+                .build();
+    }
+
+    @Benchmark
+    public List<DoctorDto> doctorsModelMapper() {
+        List<DoctorDto> result = new ArrayList<>(doctors.size());
+        for (Doctor d : doctors) {
+            result.add(modelMapper.map(d, DoctorDto.class));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<DoctorDto> doctorsMapStruct() {
+        return doctorMapper.toDtos(doctors);
+    }
+
+    @Benchmark
+    public AppointmentDTO appointmentModelMapper() {
+        return modelMapper.map(appointment, AppointmentDTO.class);
+    }
+
+    @Benchmark
+    public AppointmentDTO appointmentMapStruct() {
+        return appointmentMapper.toDto(appointment);
+    }
+
+    //what the old AppointmentDTO put on the wire: the whole appointment with doctor (and its embedding) and patient inside
+    @Benchmark
+    public int appointmentPayloadEntity() throws Exception {
+        return objectMapper.writeValueAsBytes(appointment).length;
+    }
+
+    @Benchmark
+    public int appointmentPayloadFlat() throws Exception {
+        return objectMapper.writeValueAsBytes(appointmentMapper.toDto(appointment)).length;
+    }
+}
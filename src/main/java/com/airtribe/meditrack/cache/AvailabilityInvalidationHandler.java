@@ -0,0 +1,31 @@
+package com.airtribe.meditrack.cache;
+
+import com.airtribe.meditrack.enums.CacheInvalidationType;
+import com.airtribe.meditrack.services.AvailabilitySummaryService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+//slots booked or freed through another node are read again into this node's availability summary
+@Component
+@RequiredArgsConstructor
+public class AvailabilityInvalidationHandler implements CacheInvalidationHandler {
+
+    private final AvailabilitySummaryService availabilitySummaryService;
+
+    @Override
+    public void onInvalidation(CacheInvalidationEvent event) {
+        if (event.type() != CacheInvalidationType.SCHEDULE) {
+            return;
+        }
+        if (event.id() == null) {
+            availabilitySummaryService.allChanged();
+        } else {
+            availabilitySummaryService.scheduleChanged(event.id());
+        }
+    }
+
+    @Override
+    public void evictAll() {
+        availabilitySummaryService.allChanged();
+    }
+}
@@ -0,0 +1,38 @@
+package com.airtribe.meditrack.cache;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+//hit ratio per second level cache region, shows up as meditrack.cache.hit.ratio{region=...} in /actuator/metrics
+//the raw hit/miss counters are exported by hibernate-micrometer as hibernate.second.level.cache.requests
+@Component
+public class CacheHitRatioMetrics {
+
+    public CacheHitRatioMetrics(EntityManagerFactory entityManagerFactory, MeterRegistry registry) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        Gauge.builder("meditrack.cache.hit.ratio", statistics, s -> ratio(s.getCacheRegionStatistics("person")))
+                .tag("region", "person")
+                .description("Hit ratio of the doctor/person entity cache")
+                .register(registry);
+
+        Gauge.builder("meditrack.cache.hit.ratio", statistics, s -> ratio(s.getCacheRegionStatistics("doctor-queries")))
+                .tag("region", "doctor-queries")
+                .description("Hit ratio of the specialist lookup query cache")
+                .register(registry);
+    }
+
+    private static double ratio(CacheRegionStatistics region) {
+        if (region == null) {
+            return 0.0;
+        }
+        long hits = region.getHitCount();
+        long total = hits + region.getMissCount();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+}
@@ -0,0 +1,13 @@
+package com.airtribe.meditrack.cache;
+
+import com.airtribe.meditrack.enums.CacheInvalidationType;
+
+import java.time.LocalDate;
+
+/**
+ * Payload sent over the postgres NOTIFY channel.
+ * id == null means "everything of this type" (e.g. after a bulk doctor import).
+ * date is only set for SCHEDULE and DOCTOR_AGENDA events (doctor id + day whose slots / agenda changed).
+ */
+public record CacheInvalidationEvent(String nodeId, CacheInvalidationType type, Long id, LocalDate date) {
+}
@@ -0,0 +1,10 @@
+package com.airtribe.meditrack.cache;
+
+//implemented by every component that keeps a local cache, CacheInvalidationListener calls all of them
+public interface CacheInvalidationHandler {
+
+    void onInvalidation(CacheInvalidationEvent event);
+
+    //called after the listener lost its connection, events may have been missed in between
+    void evictAll();
+}
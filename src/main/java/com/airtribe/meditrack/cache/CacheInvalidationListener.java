@@ -0,0 +1,130 @@
+package com.airtribe.meditrack.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Receives the NOTIFY messages of the other nodes and hands them to every CacheInvalidationHandler.
+ * Uses its own JDBC connection (not one from the pool) because LISTEN is bound to the session.
+ * getNotifications(timeout) blocks until a message arrives, so eviction happens within milliseconds of the commit.
+ */
+@Slf4j
+@Component
+public class CacheInvalidationListener implements SmartLifecycle {
+
+    private static final int POLL_TIMEOUT_MS = 500;
+    private static final long RECONNECT_DELAY_MS = 2000;
+
+    private final CacheInvalidationPublisher publisher;
+    private final List<CacheInvalidationHandler> handlers;
+    private final DataSourceProperties dataSourceProperties;
+    private final ObjectMapper objectMapper;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    public CacheInvalidationListener(CacheInvalidationPublisher publisher, List<CacheInvalidationHandler> handlers,
+                                     DataSourceProperties dataSourceProperties, ObjectMapper objectMapper) {
+        this.publisher = publisher;
+        this.handlers = handlers;
+        this.dataSourceProperties = dataSourceProperties;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void start() {
+        if (!publisher.isEnabled()) {
+            return;
+        }
+        running = true;
+        worker = Thread.ofPlatform().daemon().name("cache-invalidation-listener").start(this::listenLoop);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void listenLoop() {
+        boolean reconnect = false;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(
+                    dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(),
+                    dataSourceProperties.determinePassword())) {
+
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CacheInvalidationPublisher.CHANNEL);
+                }
+                if (reconnect) {
+                    //we were deaf for a while, anything could have changed
+                    handlers.forEach(CacheInvalidationHandler::evictAll);
+                }
+                log.debug("Cache invalidation listener connected, node {}", publisher.getNodeId());
+
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MS);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        dispatch(notification.getParameter());
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Cache invalidation listener lost connection, reconnecting in {} ms: {}", RECONNECT_DELAY_MS, e.getMessage());
+                reconnect = true;
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MS);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+    void dispatch(String payload) {
+        CacheInvalidationEvent event;
+        try {
+            event = objectMapper.readValue(payload, CacheInvalidationEvent.class);
+        } catch (Exception e) {
+            log.warn("Ignoring malformed cache invalidation message: {}", payload);
+            return;
+        }
+        //our own writes already updated the local caches
+        if (publisher.getNodeId().equals(event.nodeId())) {
+            return;
+        }
+        for (CacheInvalidationHandler handler : handlers) {
+            try {
+                handler.onInvalidation(event);
+            } catch (RuntimeException e) {
+                log.warn("Cache invalidation handler {} failed, evicting everything it caches", handler.getClass().getSimpleName(), e);
+                handler.evictAll();
+            }
+        }
+    }
+}
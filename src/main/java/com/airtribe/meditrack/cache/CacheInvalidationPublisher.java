@@ -0,0 +1,85 @@
+package com.airtribe.meditrack.cache;
+
+import com.airtribe.meditrack.enums.CacheInvalidationType;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Tells the other MediTrack nodes that something changed, using postgres NOTIFY (no extra infrastructure).
+ * NOTIFY is transactional: when called inside a transaction the message is only delivered after commit,
+ * so other nodes never evict and reload before the new row is visible.
+ */
+@Component
+public class CacheInvalidationPublisher {
+
+    public static final String CHANNEL = "meditrack_cache";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final String nodeId;
+    private final boolean enabled;
+
+    public CacheInvalidationPublisher(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper, DataSourceProperties dataSourceProperties,
+                                      @Value("${meditrack.node-id:#{null}}") String nodeId,
+                                      @Value("${meditrack.cache-coherence.enabled:true}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.nodeId = nodeId != null ? nodeId : UUID.randomUUID().toString();
+        //LISTEN/NOTIFY only exists on postgres, on anything else (e.g. h2 in tests) this node just works alone
+        this.enabled = enabled && isPostgres(dataSourceProperties.getUrl());
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void doctorChanged(Long doctorId) {
+        publish(new CacheInvalidationEvent(nodeId, CacheInvalidationType.DOCTOR, doctorId, null));
+    }
+
+    public void allDoctorsChanged() {
+        publish(new CacheInvalidationEvent(nodeId, CacheInvalidationType.DOCTOR, null, null));
+    }
+
+    public void appointmentChanged(Long appointmentId) {
+        publish(new CacheInvalidationEvent(nodeId, CacheInvalidationType.APPOINTMENT, appointmentId, null));
+    }
+
+    public void scheduleChanged(Long doctorId, LocalDate date) {
+        publish(new CacheInvalidationEvent(nodeId, CacheInvalidationType.SCHEDULE, doctorId, date));
+    }
+
+    public void patientDashboardChanged(Long patientId) {
+        publish(new CacheInvalidationEvent(nodeId, CacheInvalidationType.PATIENT_DASHBOARD, patientId, null));
+    }
+
+    public void doctorAgendaChanged(Long doctorId, LocalDate date) {
+        publish(new CacheInvalidationEvent(nodeId, CacheInvalidationType.DOCTOR_AGENDA, doctorId, date));
+    }
+
+    private void publish(CacheInvalidationEvent event) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            jdbcTemplate.queryForObject("select pg_notify(?, ?)", Object.class, CHANNEL, objectMapper.writeValueAsString(event));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize cache invalidation event", e);
+        }
+    }
+
+    static boolean isPostgres(String url) {
+        return url != null && url.startsWith("jdbc:postgresql:");
+    }
+}
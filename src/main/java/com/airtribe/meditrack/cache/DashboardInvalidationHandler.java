@@ -0,0 +1,28 @@
+package com.airtribe.meditrack.cache;
+
+import com.airtribe.meditrack.dashboards.DashboardService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+//dashboards rewritten by another node's projector are read again from the database on the next request
+@Component
+@RequiredArgsConstructor
+public class DashboardInvalidationHandler implements CacheInvalidationHandler {
+
+    private final DashboardService dashboardService;
+
+    @Override
+    public void onInvalidation(CacheInvalidationEvent event) {
+        switch (event.type()) {
+            case PATIENT_DASHBOARD -> dashboardService.evictPatientDashboard(event.id());
+            case DOCTOR_AGENDA -> dashboardService.evictDoctorAgenda(event.id(), event.date());
+            default -> {
+            }
+        }
+    }
+
+    @Override
+    public void evictAll() {
+        dashboardService.evictAll();
+    }
+}
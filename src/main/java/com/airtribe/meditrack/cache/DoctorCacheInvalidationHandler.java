@@ -0,0 +1,39 @@
+package com.airtribe.meditrack.cache;
+
+import com.airtribe.meditrack.entities.Doctor;
+import com.airtribe.meditrack.enums.CacheInvalidationType;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.springframework.stereotype.Component;
+
+//drops doctors changed on another node from the local hibernate second level cache
+@Component
+public class DoctorCacheInvalidationHandler implements CacheInvalidationHandler {
+
+    private final Cache cache;
+
+    public DoctorCacheInvalidationHandler(EntityManagerFactory entityManagerFactory) {
+        this.cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+    }
+
+    @Override
+    public void onInvalidation(CacheInvalidationEvent event) {
+        if (event.type() != CacheInvalidationType.DOCTOR) {
+            return;
+        }
+        if (event.id() == null) {
+            cache.evictEntityData(Doctor.class);
+        } else {
+            cache.evictEntityData(Doctor.class, event.id());
+        }
+        //the cached specialist lookups may now include/exclude this doctor
+        cache.evictQueryRegion("doctor-queries");
+    }
+
+    @Override
+    public void evictAll() {
+        cache.evictEntityData(Doctor.class);
+        cache.evictQueryRegion("doctor-queries");
+    }
+}
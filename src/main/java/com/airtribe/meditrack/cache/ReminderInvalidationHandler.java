@@ -0,0 +1,31 @@
+package com.airtribe.meditrack.cache;
+
+import com.airtribe.meditrack.enums.CacheInvalidationType;
+import com.airtribe.meditrack.reminders.ReminderScheduler;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+//appointments booked, rescheduled or cancelled through another node update this node's reminder queue
+@Component
+@RequiredArgsConstructor
+public class ReminderInvalidationHandler implements CacheInvalidationHandler {
+
+    private final ReminderScheduler reminderScheduler;
+
+    @Override
+    public void onInvalidation(CacheInvalidationEvent event) {
+        if (event.type() != CacheInvalidationType.APPOINTMENT) {
+            return;
+        }
+        if (event.id() == null) {
+            reminderScheduler.reloadAll();
+        } else {
+            reminderScheduler.appointmentChanged(event.id());
+        }
+    }
+
+    @Override
+    public void evictAll() {
+        reminderScheduler.reloadAll();
+    }
+}
@@ -0,0 +1,27 @@
+package com.airtribe.meditrack.cache;
+
+import com.airtribe.meditrack.enums.CacheInvalidationType;
+import com.airtribe.meditrack.services.SlotPushService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+//slots booked or freed through another node reach the websocket subscribers connected to this one
+@Component
+@RequiredArgsConstructor
+public class SlotPushInvalidationHandler implements CacheInvalidationHandler {
+
+    private final SlotPushService slotPushService;
+
+    @Override
+    public void onInvalidation(CacheInvalidationEvent event) {
+        if (event.type() != CacheInvalidationType.SCHEDULE || event.id() == null || event.date() == null) {
+            return;
+        }
+        slotPushService.scheduleChanged(event.id(), event.date());
+    }
+
+    @Override
+    public void evictAll() {
+        slotPushService.allChanged();
+    }
+}
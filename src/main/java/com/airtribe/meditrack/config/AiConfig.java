@@ -6,8 +6,10 @@ import org.springframework.ai.openai.OpenAiChatModel;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
 
 @Configuration
+@Profile("!offline") //OfflineAiConfig provides these beans when running without ollama/groq
 public class AiConfig {
 
     /**
@@ -0,0 +1,13 @@
+package com.airtribe.meditrack.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+//short lived results for dashboard endpoints that scan all appointments. spring's cache manager is the jcache one
+//(spring.cache.jcache.*), each cache is the ehcache.xml region of the same name, which sets its size and TTL
+@Configuration
+@EnableCaching
+public class AnalyticsCacheConfig {
+
+    public static final String SPECIALIZATION_STATS = "specialization-stats";
+}
@@ -1,14 +0,0 @@
-package com.airtribe.meditrack.config;
-
-import org.modelmapper.ModelMapper;
-import org.springframework.context.annotation.Bean;
-import org.springframework.context.annotation.Configuration;
-
-@Configuration
-public class Config {
-
-    @Bean
-    ModelMapper modelMapper() {
-        return new ModelMapper();
-    }
-}
@@ -4,22 +4,28 @@ import com.airtribe.meditrack.entities.Doctor;
 import com.airtribe.meditrack.enums.Role;
 import com.airtribe.meditrack.enums.Specialist;
 import com.airtribe.meditrack.repositories.PersonRepository;
+import com.airtribe.meditrack.services.BulkWriteService;
 import org.springframework.ai.embedding.EmbeddingModel;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 @Component
 public class DataLoader implements CommandLineRunner {
 
     private final PersonRepository personRepository;
     private final EmbeddingModel embeddingModel;
+    private final BulkWriteService bulkWriteService;
 
     // Use constructor injection with @Qualifier to avoid the "2 beans found" error
     public DataLoader(PersonRepository personRepository,
-                      @Qualifier("ollamaEmbeddingModel") EmbeddingModel embeddingModel) {
+                      @Qualifier("ollamaEmbeddingModel") EmbeddingModel embeddingModel,
+                      BulkWriteService bulkWriteService) {
         this.personRepository = personRepository;
         this.embeddingModel = embeddingModel;
+        this.bulkWriteService = bulkWriteService;
     }
 
     @Override
@@ -42,7 +48,6 @@ public class DataLoader implements CommandLineRunner {
 
         // Generate and set embedding
         doctor1.setEmbedding(embeddingModel.embed(doctor1.getSpecialist() + " " + doctor1.getDescription()));
-        personRepository.save(doctor1);
 
         // Doctor 2
         Doctor doctor2 = Doctor.builder()
@@ -59,7 +64,8 @@ public class DataLoader implements CommandLineRunner {
 
         // Generate and set embedding
         doctor2.setEmbedding(embeddingModel.embed(doctor2.getSpecialist() + " " + doctor2.getDescription()));
-        personRepository.save(doctor2);
+
+        bulkWriteService.persistAll(List.of(doctor1, doctor2));
 
         System.out.println("Doctors with embeddings loaded successfully 🚀");
     }
@@ -0,0 +1,24 @@
+package com.airtribe.meditrack.config;
+
+import com.airtribe.meditrack.enums.NotificationChannel;
+import com.airtribe.meditrack.notificationService.delivery.LoggingNotificationGateway;
+import com.airtribe.meditrack.notificationService.delivery.NotificationGateway;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+//no sms / email provider is wired yet, the notifications are only logged. a real gateway replaces the bean of its channel
+@Configuration
+@Profile("!offline") //OfflineNotificationGatewayConfig provides the stub gateways when running offline and in tests
+public class NotificationGatewayConfig {
+
+    @Bean
+    NotificationGateway smsGateway() {
+        return new LoggingNotificationGateway(NotificationChannel.SMS);
+    }
+
+    @Bean
+    NotificationGateway emailGateway() {
+        return new LoggingNotificationGateway(NotificationChannel.EMAIL);
+    }
+}
@@ -0,0 +1,58 @@
+package com.airtribe.meditrack.config;
+
+import com.airtribe.meditrack.services.offlineai.FaultInjector;
+import com.airtribe.meditrack.services.offlineai.OfflineChatModel;
+import com.airtribe.meditrack.services.offlineai.OfflineEmbeddingModel;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Replaces AiConfig when the app runs with the "offline" profile.
+ * The beans keep the same names the services inject with @Qualifier (ollamaEmbeddingModel, ollamaChatModel, ollamaChatClient),
+ * so nothing else changes. The real ollama/openai auto-configuration is switched off in application-offline.properties.
+ */
+@Configuration
+@Profile("offline")
+public class OfflineAiConfig {
+
+    @Bean
+    public EmbeddingModel ollamaEmbeddingModel(
+            @Value("${meditrack.offline-ai.embedding.dimensions:768}") int dimensions,
+            @Value("${meditrack.offline-ai.embedding.latency-ms:0}") long latencyMs,
+            @Value("${meditrack.offline-ai.embedding.jitter-ms:0}") long jitterMs,
+            @Value("${meditrack.offline-ai.embedding.error-rate:0.0}") double errorRate) {
+        return new OfflineEmbeddingModel(dimensions, new FaultInjector("embedding", latencyMs, jitterMs, errorRate));
+    }
+
+    @Bean
+    public ChatModel ollamaChatModel(
+            @Value("${meditrack.offline-ai.chat.latency-ms:0}") long latencyMs,
+            @Value("${meditrack.offline-ai.chat.jitter-ms:0}") long jitterMs,
+            @Value("${meditrack.offline-ai.chat.error-rate:0.0}") double errorRate) {
+        return new OfflineChatModel(new FaultInjector("chat", latencyMs, jitterMs, errorRate));
+    }
+
+    //same builder AiController asks for, backed by the offline chat model instead of groq
+    @Bean
+    public ChatClient.Builder chatClientBuilder(@Qualifier("ollamaChatModel") ChatModel chatModel) {
+        return ChatClient.builder(chatModel);
+    }
+
+    @Bean
+    @Primary
+    public ChatClient groqChatClient(ChatClient.Builder builder) {
+        return builder.build();
+    }
+
+    @Bean
+    public ChatClient ollamaChatClient(@Qualifier("ollamaChatModel") ChatModel chatModel) {
+        return ChatClient.builder(chatModel).build();
+    }
+}
@@ -0,0 +1,26 @@
+package com.airtribe.meditrack.config;
+
+import com.airtribe.meditrack.enums.NotificationChannel;
+import com.airtribe.meditrack.notificationService.delivery.NotificationGateway;
+import com.airtribe.meditrack.notificationService.delivery.StubNotificationGateway;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+//replaces NotificationGatewayConfig with the "offline" profile: stubs that take stub-latency-ms per batch like a remote
+//call would, keep what they sent and can be made to fail, for load tests and the tests
+@Configuration
+@Profile("offline")
+public class OfflineNotificationGatewayConfig {
+
+    @Bean
+    NotificationGateway smsGateway(@Value("${meditrack.notifications.stub-latency-ms:20}") long latencyMs) {
+        return new StubNotificationGateway(NotificationChannel.SMS, latencyMs);
+    }
+
+    @Bean
+    NotificationGateway emailGateway(@Value("${meditrack.notifications.stub-latency-ms:20}") long latencyMs) {
+        return new StubNotificationGateway(NotificationChannel.EMAIL, latencyMs);
+    }
+}
@@ -0,0 +1,85 @@
+package com.airtribe.meditrack.config;
+
+import com.airtribe.meditrack.datasource.ReadYourWrites;
+import com.airtribe.meditrack.datasource.ReadYourWritesFilter;
+import com.airtribe.meditrack.datasource.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+//only active when meditrack.replicas.urls is set, otherwise boot's single datasource is used as before
+//replicas use the primary's username, password and hikari settings
+@Configuration
+@ConditionalOnProperty("meditrack.replicas.urls")
+public class ReadReplicaConfig {
+
+    @Bean
+    ReplicaRoutingDataSource replicaRoutingDataSource(DataSourceProperties properties, Environment environment, MeterRegistry registry,
+                                                      @Value("${meditrack.replicas.urls}") List<String> urls,
+                                                      @Value("${meditrack.replicas.max-lag-ms:1000}") long maxLagMs) {
+        HikariDataSource primary = pool(properties, properties.determineUrl(), "primary", environment);
+        List<ReplicaRoutingDataSource.Replica> replicas = new ArrayList<>();
+        for (int i = 0; i < urls.size(); i++) {
+            String name = "replica-" + (i + 1);
+            ReplicaRoutingDataSource.Replica replica =
+                    new ReplicaRoutingDataSource.Replica(name, pool(properties, urls.get(i).trim(), name, environment));
+            Gauge.builder("meditrack.datasource.replica.lag", replica, ReplicaRoutingDataSource.Replica::getLagMs)
+                    .tag("replica", name)
+                    .description("Replication lag in ms as last measured, -1 while unreachable")
+                    .baseUnit("milliseconds")
+                    .register(registry);
+            replicas.add(replica);
+        }
+        return new ReplicaRoutingDataSource(primary, replicas, maxLagMs);
+    }
+
+    //the transaction manager asks for a connection before the transaction is marked read-only,
+    //the lazy proxy holds off until the first statement so the routing sees @Transactional(readOnly = true)
+    @Bean
+    @Primary
+    DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    //spring keeps the jdbc connection for the whole session by default, with open-in-view that is the whole request
+    //and every transaction after the first would reuse the first one's (replica or primary) connection
+    @Bean
+    HibernatePropertiesCustomizer connectionPerTransaction() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+    @Bean
+    ReadYourWrites readYourWrites(@Value("${meditrack.replicas.sticky-ms:5000}") long stickyMs) {
+        return new ReadYourWrites(stickyMs);
+    }
+
+    @Bean
+    ReadYourWritesFilter readYourWritesFilter() {
+        return new ReadYourWritesFilter();
+    }
+
+    private static HikariDataSource pool(DataSourceProperties properties, String url, String name, Environment environment) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).url(url).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        pool.setPoolName("meditrack-" + name);
+        return pool;
+    }
+}
@@ -0,0 +1,10 @@
+package com.airtribe.meditrack.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+//turns on @Scheduled methods (job heartbeats and resume)
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
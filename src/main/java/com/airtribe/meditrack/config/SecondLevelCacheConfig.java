@@ -0,0 +1,30 @@
+package com.airtribe.meditrack.config;
+
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ResourceLoader;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+@Configuration
+public class SecondLevelCacheConfig {
+
+    //hibernate opens hibernate.javax.cache.uri as a java.net.URL, and "classpath:" only works as a URL once embedded
+    //tomcat has registered its handler (not the case in mock web tests). resolve it through spring instead
+    @Bean
+    HibernatePropertiesCustomizer ehcacheConfigUri(ResourceLoader resourceLoader) {
+        return properties -> {
+            Object uri = properties.get(ConfigSettings.CONFIG_URI);
+            if (uri instanceof String location && location.startsWith("classpath:")) {
+                try {
+                    properties.put(ConfigSettings.CONFIG_URI, resourceLoader.getResource(location).getURI().toString());
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not find the second level cache config " + location, e);
+                }
+            }
+        };
+    }
+}
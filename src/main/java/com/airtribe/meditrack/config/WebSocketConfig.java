@@ -0,0 +1,53 @@
+package com.airtribe.meditrack.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
+import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
+import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
+import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+
+//STOMP over websocket at /ws for the booking UI: SUBSCRIBE /topic/slots/{doctorId}/{date} for slot changes,
+///app/slots/{doctorId}/{date} for the current slots (SlotPushService). in-memory broker, a node only pushes to its own clients
+@Configuration
+@EnableWebSocketMessageBroker
+public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
+
+    private final String[] allowedOrigins;
+    private final int outboundThreads;
+
+    public WebSocketConfig(@Value("${meditrack.websocket.allowed-origins:*}") String[] allowedOrigins,
+                           @Value("${meditrack.websocket.outbound-threads:8}") int outboundThreads) {
+        this.allowedOrigins = allowedOrigins;
+        this.outboundThreads = outboundThreads;
+    }
+
+    @Override
+    public void registerStompEndpoints(StompEndpointRegistry registry) {
+        registry.addEndpoint("/ws").setAllowedOriginPatterns(allowedOrigins);
+    }
+
+    @Override
+    public void configureMessageBroker(MessageBrokerRegistry registry) {
+        ThreadPoolTaskScheduler heartbeats = new ThreadPoolTaskScheduler();
+        heartbeats.setPoolSize(1);
+        heartbeats.setThreadNamePrefix("ws-heartbeat-");
+        heartbeats.initialize();
+        registry.enableSimpleBroker("/topic")
+                .setHeartbeatValue(new long[]{10000, 10000})
+                .setTaskScheduler(heartbeats);
+        registry.setApplicationDestinationPrefixes("/app");
+        //one (doctor, day) destination per open calendar, the default of 1024 cached destinations is too small
+        registry.setCacheLimit(10_000);
+        //a client sees the deltas of a day in the order they were sent
+        registry.setPreservePublishOrder(true);
+    }
+
+    //a delta is serialized once and written to every subscriber's session from this pool
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.taskExecutor().corePoolSize(outboundThreads).maxPoolSize(outboundThreads);
+    }
+}
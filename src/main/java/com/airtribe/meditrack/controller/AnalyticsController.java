@@ -0,0 +1,43 @@
+package com.airtribe.meditrack.controller;
+
+import com.airtribe.meditrack.dto.DistinctPatientsDto;
+import com.airtribe.meditrack.dto.QuantileSummaryDto;
+import com.airtribe.meditrack.dto.SymptomCountDto;
+import com.airtribe.meditrack.enums.Specialist;
+import com.airtribe.meditrack.services.AnalyticsSketchService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+//approximate analytics served from memory, every response carries its error bound
+@RestController
+@RequiredArgsConstructor
+public class AnalyticsController {
+
+    private final AnalyticsSketchService analyticsSketchService;
+
+    @GetMapping("/analytics/doctor/{id}/distinct-patients")
+    public ResponseEntity<DistinctPatientsDto> getDistinctPatients(@PathVariable Long id) {
+        return ResponseEntity.ok(analyticsSketchService.getDistinctPatients(id));
+    }
+
+    @GetMapping("/analytics/specialization/{specialist}/fees")
+    public ResponseEntity<QuantileSummaryDto> getFeeQuantiles(@PathVariable Specialist specialist) {
+        return ResponseEntity.ok(analyticsSketchService.getFeeQuantiles(specialist));
+    }
+
+    @GetMapping("/analytics/specialization/{specialist}/durations")
+    public ResponseEntity<QuantileSummaryDto> getDurationQuantiles(@PathVariable Specialist specialist) {
+        return ResponseEntity.ok(analyticsSketchService.getDurationQuantiles(specialist));
+    }
+
+    @GetMapping("/analytics/symptoms/top")
+    public ResponseEntity<List<SymptomCountDto>> getTopSymptoms(@RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(analyticsSketchService.getTopSymptoms(limit));
+    }
+}
@@ -1,12 +1,14 @@
 package com.airtribe.meditrack.controller;
 
 import com.airtribe.meditrack.dto.AppointmentDTO;
+import com.airtribe.meditrack.dto.BatchCancellationDto;
 import com.airtribe.meditrack.dto.DocObservationDto;
 import com.airtribe.meditrack.dto.PaymentDto;
 import com.airtribe.meditrack.entities.Appointment;
 import com.airtribe.meditrack.entities.Payment;
 import com.airtribe.meditrack.services.AppointmentService;
 import io.micrometer.core.ipc.http.HttpSender;
+import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -37,6 +39,11 @@ public class AppointmentController {
         return ResponseEntity.ok(appointmentService.cancelAppointment(id,reason));
     }
 
+    @PostMapping("/appointments/cancel")
+    public ResponseEntity<String> cancelAppointments(@Valid @RequestBody BatchCancellationDto batchCancellationDto) {
+        return ResponseEntity.ok(appointmentService.cancelAppointments(batchCancellationDto.getAppointmentIds(), batchCancellationDto.getReason()));
+    }
+
     @PostMapping("/appointments/doc/{id}")
     ResponseEntity<String> doctorConsultationCompletion(@PathVariable Long id, @RequestBody DocObservationDto docObservationDto) {
         return ResponseEntity.ok(appointmentService.doctorConsultationCompletion(id,docObservationDto));
@@ -0,0 +1,50 @@
+package com.airtribe.meditrack.controller;
+
+import com.airtribe.meditrack.dto.AppointmentStatusCountsDto;
+import com.airtribe.meditrack.entities.AppointmentHistoryEvent;
+import com.airtribe.meditrack.entities.AppointmentSnapshot;
+import com.airtribe.meditrack.history.AppointmentHistoryService;
+import com.airtribe.meditrack.history.AppointmentState;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+public class AppointmentHistoryController {
+
+    private final AppointmentHistoryService appointmentHistoryService;
+
+    //every transition of the appointment, oldest first
+    @GetMapping("/appointments/{id}/history")
+    public ResponseEntity<List<AppointmentHistoryEvent>> getHistory(@PathVariable Long id) {
+        return ResponseEntity.ok(appointmentHistoryService.getHistory(id));
+    }
+
+    @GetMapping("/appointments/{id}/history/state")
+    public ResponseEntity<AppointmentState> getStateAt(@PathVariable Long id,
+                                                       @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        return ResponseEntity.ok(appointmentHistoryService.getStateAt(id, at));
+    }
+
+    //appointments per status at that moment (now when at is left out), replayed from the latest snapshot before it
+    @GetMapping("/appointments/history/status-counts")
+    public ResponseEntity<AppointmentStatusCountsDto> getStatusCounts(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        return ResponseEntity.ok(appointmentHistoryService.getStatusCounts(at != null ? at : LocalDateTime.now()));
+    }
+
+    //admin only: takes a snapshot now instead of waiting for min-events
+    @PostMapping("/appointments/history/snapshots")
+    public ResponseEntity<AppointmentSnapshot> takeSnapshot() {
+        return ResponseEntity.ok(appointmentHistoryService.snapshot());
+    }
+}
@@ -0,0 +1,34 @@
+package com.airtribe.meditrack.controller;
+
+import com.airtribe.meditrack.dashboards.DashboardService;
+import com.airtribe.meditrack.dto.DoctorAgendaDto;
+import com.airtribe.meditrack.dto.PatientDashboardDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+
+@RestController
+@RequiredArgsConstructor
+public class DashboardController {
+
+    private final DashboardService dashboardService;
+
+    //the patient's upcoming and latest past appointments, empty for a patient without any
+    @GetMapping("/patients/{id}/appointments")
+    public ResponseEntity<PatientDashboardDto> getPatientDashboard(@PathVariable Long id) {
+        return ResponseEntity.ok(dashboardService.getPatientDashboard(id));
+    }
+
+    //the doctor's appointments of that day (today when date is left out)
+    @GetMapping("/doctor/{id}/agenda")
+    public ResponseEntity<DoctorAgendaDto> getDoctorAgenda(@PathVariable Long id,
+                                                           @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return ResponseEntity.ok(dashboardService.getDoctorAgenda(id, date != null ? date : LocalDate.now()));
+    }
+}
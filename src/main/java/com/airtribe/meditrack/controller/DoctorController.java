@@ -1,18 +1,24 @@
 package com.airtribe.meditrack.controller;
+import com.airtribe.meditrack.dto.CursorPage;
 import com.airtribe.meditrack.dto.DoctorAppointmentCount;
 import com.airtribe.meditrack.dto.DoctorDto;
+import com.airtribe.meditrack.dto.DoctorRecommendationDto;
+import com.airtribe.meditrack.dto.SpecializationFeeStats;
 import com.airtribe.meditrack.entities.Doctor;
 import com.airtribe.meditrack.enums.Specialist;
 import com.airtribe.meditrack.repositories.DoctorRepo;
+import com.airtribe.meditrack.services.DoctorRecommendationService;
 import com.airtribe.meditrack.services.DoctorService;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.Map;
@@ -24,25 +30,47 @@ import java.util.stream.Collectors;
 public class DoctorController {
 
     private final DoctorRepo doctorRepo;
-    private final ModelMapper modelMapper;
 
     private final DoctorService doctorService;
 
+    private final DoctorRecommendationService doctorRecommendationService;
+
     @GetMapping("/doctor/{id}")
     public ResponseEntity<DoctorDto> getDocByID(@PathVariable Integer id) {
 
         return ResponseEntity.ok(doctorService.getDocById(id));
     }
 
+    @PatchMapping("/doctor/{id}/availability")
+    public ResponseEntity<DoctorDto> updateAvailability(@PathVariable Long id, @RequestParam boolean available) {
+        return ResponseEntity.ok(doctorService.updateAvailability(id, available));
+    }
+
     @GetMapping("/doctors")
     public ResponseEntity<List<DoctorDto>> getAllDoc() {
 
         return ResponseEntity.ok(doctorService.getAllDoctors());
     }
 
+    //keyset paginated list, pass the returned nextCursor back to get the next page
+    @GetMapping("/doctors/page")
+    public ResponseEntity<CursorPage<DoctorDto>> getDocPage(@RequestParam(required = false) String cursor,
+                                                            @RequestParam(defaultValue = "50") int size) {
+        return ResponseEntity.ok(doctorService.getDoctorPage(cursor, size));
+    }
+
+    //every doctor as newline delimited json, written while the rows are read
+    @GetMapping(value = "/doctors/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllDoc() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(doctorService::streamAllDoctors);
+    }
+
+    //the closest doctors by embedding that have a free slot soon, ranked on similarity, wait and fee
     @GetMapping("/recommend")
-    public ResponseEntity<List<DoctorDto>> recommend(@RequestParam String symptoms) {
-        return ResponseEntity.ok(doctorService.recommendDoctors(symptoms));
+    public ResponseEntity<List<DoctorRecommendationDto>> recommend(@RequestParam String symptoms) {
+        return ResponseEntity.ok(doctorRecommendationService.recommendDoctors(symptoms));
     }
 
 
@@ -56,13 +84,30 @@ public class DoctorController {
         return new ResponseEntity<>(doctorService.getAppointmentsPerDoctor(), HttpStatus.OK);
     }
 
+    @GetMapping("getAppointmentCountByDoctor/page")
+    public ResponseEntity<CursorPage<DoctorAppointmentCount>> getAppointmentCountByDoctorPage(
+            @RequestParam(required = false) String cursor, @RequestParam(defaultValue = "50") int size) {
+        return new ResponseEntity<>(doctorService.getAppointmentsPerDoctorPage(cursor, size), HttpStatus.OK);
+    }
+
     @GetMapping("getAverageFeeByDoctor")
     public ResponseEntity<List<Map<String, Object>>> getAverageFeePerDoctor() {
         return new ResponseEntity<>(doctorService.getAverageFeePerDoctor(), HttpStatus.OK);
     }
 
+    @GetMapping("getAverageFeeByDoctor/page")
+    public ResponseEntity<CursorPage<Map<String, Object>>> getAverageFeePerDoctorPage(
+            @RequestParam(required = false) String cursor, @RequestParam(defaultValue = "50") int size) {
+        return new ResponseEntity<>(doctorService.getAverageFeePerDoctorPage(cursor, size), HttpStatus.OK);
+    }
+
     @GetMapping("getAverageFeeBySpecialization")
     public ResponseEntity<List<Map<String, Object>>> getAverageFeePerDoctorSpecialization() {
         return new ResponseEntity<>(doctorService.getAverageFeePerDoctorSpecialization(), HttpStatus.OK);
     }
+
+    @GetMapping("getFeeStatsBySpecialization")
+    public ResponseEntity<List<SpecializationFeeStats>> getFeeStatsBySpecialization() {
+        return new ResponseEntity<>(doctorService.getFeeStatsBySpecialization(), HttpStatus.OK);
+    }
 }
@@ -0,0 +1,34 @@
+package com.airtribe.meditrack.controller;
+
+import com.airtribe.meditrack.dto.JobStatusDto;
+import com.airtribe.meditrack.jobs.JobService;
+import com.airtribe.meditrack.services.AppointmentHousekeepingService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.net.URI;
+
+@RestController
+@RequiredArgsConstructor
+public class JobController {
+
+    private final JobService jobService;
+    private final AppointmentHousekeepingService appointmentHousekeepingService;
+
+    //admin only: runs the no-show / unpaid housekeeping now instead of waiting for its schedule
+    @PostMapping("/jobs/appointment-housekeeping")
+    public ResponseEntity<JobStatusDto> runHousekeeping() {
+        JobStatusDto job = appointmentHousekeepingService.submit();
+        return ResponseEntity.accepted().location(URI.create("/jobs/" + job.getId())).body(job);
+    }
+
+    //progress, throughput and eta of a background job (e.g. the one returned by /register/addAllDoc)
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<JobStatusDto> getJob(@PathVariable Long id) {
+        return ResponseEntity.ok(jobService.getStatus(id));
+    }
+}
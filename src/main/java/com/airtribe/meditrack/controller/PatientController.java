@@ -1,15 +1,18 @@
 package com.airtribe.meditrack.controller;
 
+import com.airtribe.meditrack.dto.CursorPage;
 import com.airtribe.meditrack.dto.PatientDto;
 import com.airtribe.meditrack.entities.Patient;
 import com.airtribe.meditrack.repositories.PatientRepo;
 import com.airtribe.meditrack.services.PatientService;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.Optional;
@@ -20,7 +23,6 @@ import java.util.stream.Collectors;
 public class PatientController {
 
     private final PatientRepo patientRepo;
-    private final ModelMapper modelMapper;
 
     private final PatientService patientService;
 
@@ -38,4 +40,18 @@ public class PatientController {
        return ResponseEntity.ok(patientService.getAllPatient());
     }
 
+    @GetMapping("/patients/page")
+    public ResponseEntity<CursorPage<PatientDto>> getPatientPage(@RequestParam(required = false) String cursor,
+                                                                 @RequestParam(defaultValue = "50") int size) {
+        return ResponseEntity.ok(patientService.getPatientPage(cursor, size));
+    }
+
+    //constant memory export of the whole patient table as newline delimited json
+    @GetMapping(value = "/patients/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllPatients() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(patientService::streamAllPatients);
+    }
+
 }
@@ -1,11 +1,16 @@
 package com.airtribe.meditrack.controller;
 
 import com.airtribe.meditrack.dto.DoctorDetailDTO;
+import com.airtribe.meditrack.dto.JobStatusDto;
 import com.airtribe.meditrack.dto.PatientDetailDTO;
+import com.airtribe.meditrack.dto.PatientImportReport;
 import com.airtribe.meditrack.entities.Doctor;
 import com.airtribe.meditrack.entities.Patient;
 import com.airtribe.meditrack.entities.Person;
+import com.airtribe.meditrack.jobs.DoctorImportJobHandler;
+import com.airtribe.meditrack.jobs.JobService;
 import com.airtribe.meditrack.repositories.PersonRepository;
+import com.airtribe.meditrack.services.PatientImportService;
 import com.airtribe.meditrack.services.PersonService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.ai.embedding.Embedding;
@@ -14,6 +19,9 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
 import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -25,15 +33,19 @@ public class PersonController {
 
     private final PersonService personService;
     private final PersonRepository personRepository;
+    private final PatientImportService patientImportService;
+    private final JobService jobService;
 
     private final EmbeddingModel embeddingModel;
 
     // Manual constructor to resolve the ambiguity
     public PersonController(
-            PersonService personService, PersonRepository personRepository,
-            @Qualifier("ollamaEmbeddingModel") EmbeddingModel embeddingModel) {
+            PersonService personService, PersonRepository personRepository, PatientImportService patientImportService,
+            JobService jobService, @Qualifier("ollamaEmbeddingModel") EmbeddingModel embeddingModel) {
         this.personService = personService;
         this.personRepository = personRepository;
+        this.patientImportService = patientImportService;
+        this.jobService = jobService;
         this.embeddingModel = embeddingModel;
     }
 
@@ -51,11 +63,33 @@ public class PersonController {
     }
 
 
-    //admin only
+    //bulk onboarding, body is a json array (or ndjson) of patients or a csv file with a header row
+    //streamed, so the upload can be any size. curl -H "Content-Type: text/csv" --data-binary @patients.csv
+    @PostMapping(value = "/register/patient/bulk", consumes = {"application/json", "application/x-ndjson", "text/csv"})
+    ResponseEntity<PatientImportReport> importPatients(InputStream body, @RequestHeader("Content-Type") String contentType) throws IOException {
+
+        return ResponseEntity.ok(patientImportService.importPatients(body, contentType));
+    }
+
+    @GetMapping("/register/patient/bulk")
+    ResponseEntity<List<PatientImportReport>> getPatientImports() {
+
+        return ResponseEntity.ok(patientImportService.getImports());
+    }
+
+    @GetMapping("/register/patient/bulk/{importId}")
+    ResponseEntity<PatientImportReport> getPatientImport(@PathVariable String importId) {
+
+        return ResponseEntity.ok(patientImportService.getImport(importId));
+    }
+
+
+    //admin only, runs as a background job: returns the job id right away, poll GET /jobs/{id} for progress
     @PostMapping("/register/addAllDoc")
-    ResponseEntity<String> createDoc(@RequestBody List<DoctorDetailDTO> dto) {
+    ResponseEntity<JobStatusDto> createDoc(@RequestBody List<DoctorDetailDTO> dto) {
 
-        return ResponseEntity.ok(personService.addAllDoc(dto));
+        JobStatusDto job = jobService.submit(DoctorImportJobHandler.TYPE, dto);
+        return ResponseEntity.accepted().location(URI.create("/jobs/" + job.getId())).body(job);
     }
 
 }
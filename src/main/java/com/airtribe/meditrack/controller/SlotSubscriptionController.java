@@ -0,0 +1,26 @@
+package com.airtribe.meditrack.controller;
+
+import com.airtribe.meditrack.dto.SlotSnapshot;
+import com.airtribe.meditrack.services.SlotPushService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.simp.annotation.SubscribeMapping;
+import org.springframework.stereotype.Controller;
+
+import java.time.LocalDate;
+
+//STOMP: SUBSCRIBE /app/slots/{doctorId}/{date} answers once with the current slots (and their version),
+//SUBSCRIBE /topic/slots/{doctorId}/{date} then receives a SlotDelta whenever they change
+@Controller
+@RequiredArgsConstructor
+public class SlotSubscriptionController {
+
+    private final SlotPushService slotPushService;
+
+    @SubscribeMapping("/slots/{doctorId}/{date}")
+    public SlotSnapshot getSlots(@DestinationVariable Long doctorId,
+                                 @DestinationVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return slotPushService.snapshot(doctorId, date);
+    }
+}
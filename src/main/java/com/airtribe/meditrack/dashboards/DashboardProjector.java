@@ -0,0 +1,199 @@
+package com.airtribe.meditrack.dashboards;
+
+import com.airtribe.meditrack.cache.CacheInvalidationPublisher;
+import com.airtribe.meditrack.dto.DoctorAgendaDto;
+import com.airtribe.meditrack.dto.DoctorAgendaItem;
+import com.airtribe.meditrack.dto.PatientDashboardDto;
+import com.airtribe.meditrack.dto.PatientDashboardItem;
+import com.airtribe.meditrack.notificationService.AppointmentEvent;
+import com.airtribe.meditrack.notificationService.AppointmentStatusChange;
+import com.airtribe.meditrack.notificationService.Observer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * The write side of the dashboards: an observer that folds every appointment event into the patient's dashboard
+ * and the doctor's agenda of that day, in one transaction with the NOTIFY that evicts them on the other nodes.
+ * A document row is locked while its json is rewritten, so nodes relaying events of the same patient or doctor
+ * take turns. Events can still come in late (another node's relay, a retry): an item is only changed by an event
+ * at least as recent as the one that last changed it, which also makes a redelivered event a no-op.
+ * When the database can't be written the DataAccessException goes up to ObserverEventBus, which hands the event
+ * back to the outbox, it is projected again later.
+ */
+@Component
+@RequiredArgsConstructor
+public class DashboardProjector implements Observer {
+
+    private static final String CREATE_PATIENT_DASHBOARD = """
+            insert into patient_dashboard (patient_id, patient_name, appointments, updated_at) values (?, ?, '[]', ?)
+            on conflict do nothing
+            """;
+    private static final String LOCK_PATIENT_DASHBOARD =
+            "select patient_name, appointments from patient_dashboard where patient_id = ? for update";
+    private static final String UPDATE_PATIENT_DASHBOARD =
+            "update patient_dashboard set patient_name = ?, appointments = ?, updated_at = ? where patient_id = ?";
+
+    private static final String CREATE_DOCTOR_AGENDA = """
+            insert into doctor_agenda (doctor_id, day, doctor_name, appointments, updated_at) values (?, ?, ?, '[]', ?)
+            on conflict do nothing
+            """;
+    private static final String LOCK_DOCTOR_AGENDA =
+            "select doctor_name, appointments from doctor_agenda where doctor_id = ? and day = ? for update";
+    private static final String UPDATE_DOCTOR_AGENDA =
+            "update doctor_agenda set doctor_name = ?, appointments = ?, updated_at = ? where doctor_id = ? and day = ?";
+
+    private static final Comparator<PatientDashboardItem> BY_START = Comparator
+            .comparing(PatientDashboardItem::getStartDate)
+            .thenComparing(PatientDashboardItem::getStartTime, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(PatientDashboardItem::getAppointmentId);
+    private static final Comparator<DoctorAgendaItem> BY_START_TIME = Comparator
+            .comparing(DoctorAgendaItem::getStartTime, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(DoctorAgendaItem::getAppointmentId);
+
+    private final DashboardService dashboardService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CacheInvalidationPublisher cacheInvalidationPublisher;
+
+    //what a transaction wrote, either one is null when that document was left alone
+    private record Written(PatientDashboardDto dashboard, DoctorAgendaDto agenda) {
+    }
+
+    //booked, confirmed, completed or cancelled: the event carries the whole appointment, a missing item is added
+    @Override
+    public CompletableFuture<Void> updateAppointment(AppointmentEvent event) {
+        return project(() -> new Written(
+                patientDashboard(event.patientId(), event.patientName(), event.appointmentId(), event.occurredAt(),
+                        current -> new PatientDashboardItem(event.appointmentId(), event.doctorId(), event.doctorName(),
+                                event.startDate(), event.startTime(), event.endTime(), event.status(), event.occurredAt())),
+                doctorAgenda(event.doctorId(), event.startDate(), event.doctorName(), event.appointmentId(), event.occurredAt(),
+                        current -> new DoctorAgendaItem(event.appointmentId(), event.patientId(), event.patientName(),
+                                event.startTime(), event.endTime(), event.status(), event.occurredAt()))));
+    }
+
+    //housekeeping only changes the status of appointments the dashboards already have
+    @Override
+    public CompletableFuture<Void> updateAppointmentStatus(AppointmentStatusChange change) {
+        return project(() -> new Written(
+                patientDashboard(change.patientId(), null, change.appointmentId(), change.occurredAt(),
+                        current -> current == null ? null : new PatientDashboardItem(current.getAppointmentId(),
+                                current.getDoctorId(), current.getDoctorName(), current.getStartDate(), current.getStartTime(),
+                                current.getEndTime(), change.status(), change.occurredAt())),
+                doctorAgenda(change.doctorId(), change.startDate(), null, change.appointmentId(), change.occurredAt(),
+                        current -> current == null ? null : new DoctorAgendaItem(current.getAppointmentId(),
+                                current.getPatientId(), current.getPatientName(), current.getStartTime(), current.getEndTime(),
+                                change.status(), change.occurredAt()))));
+    }
+
+    @Override
+    public CompletableFuture<Void> updateDoctorMessage(long eventId, String message) {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    //the caches are only refreshed once the rows are committed, the event is done with once they are
+    private CompletableFuture<Void> project(Supplier<Written> write) {
+        Written written = transactionTemplate.execute(status -> write.get());
+        if (written.dashboard() != null) {
+            dashboardService.patientDashboardWritten(written.dashboard());
+        }
+        if (written.agenda() != null) {
+            dashboardService.doctorAgendaWritten(written.agenda());
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    //patientName == null: only an existing dashboard is changed
+    private PatientDashboardDto patientDashboard(Long patientId, String patientName, Long appointmentId, LocalDateTime occurredAt,
+                                                 UnaryOperator<PatientDashboardItem> change) {
+        LocalDateTime now = LocalDateTime.now();
+        if (patientName != null) {
+            jdbcTemplate.update(CREATE_PATIENT_DASHBOARD, patientId, patientName, now);
+        }
+        List<String[]> rows = jdbcTemplate.query(LOCK_PATIENT_DASHBOARD, (resultSet, rowNum) ->
+                new String[]{resultSet.getString("patient_name"), resultSet.getString("appointments")}, patientId);
+        if (rows.isEmpty()) {
+            return null;
+        }
+        List<PatientDashboardItem> items = merge(dashboardService.read(rows.get(0)[1], DashboardService.PATIENT_ITEMS),
+                appointmentId, occurredAt, PatientDashboardItem::getAppointmentId, PatientDashboardItem::getUpdatedAt, change);
+        if (items == null) {
+            return null;
+        }
+        items.sort(BY_START);
+        //past items sort first, the oldest ones beyond pastKept go
+        LocalDate today = now.toLocalDate();
+        long past = items.stream().filter(item -> item.getStartDate().isBefore(today)).count();
+        if (past > dashboardService.getPastKept()) {
+            items.subList(0, (int) (past - dashboardService.getPastKept())).clear();
+        }
+        String name = patientName != null ? patientName : rows.get(0)[0];
+        jdbcTemplate.update(UPDATE_PATIENT_DASHBOARD, name, dashboardService.write(items), now, patientId);
+        cacheInvalidationPublisher.patientDashboardChanged(patientId);
+        return new PatientDashboardDto(patientId, name, items, now);
+    }
+
+    //doctorName == null: only an existing agenda is changed
+    private DoctorAgendaDto doctorAgenda(Long doctorId, LocalDate date, String doctorName, Long appointmentId, LocalDateTime occurredAt,
+                                         UnaryOperator<DoctorAgendaItem> change) {
+        LocalDateTime now = LocalDateTime.now();
+        if (doctorName != null) {
+            jdbcTemplate.update(CREATE_DOCTOR_AGENDA, doctorId, date, doctorName, now);
+        }
+        List<String[]> rows = jdbcTemplate.query(LOCK_DOCTOR_AGENDA, (resultSet, rowNum) ->
+                new String[]{resultSet.getString("doctor_name"), resultSet.getString("appointments")}, doctorId, date);
+        if (rows.isEmpty()) {
+            return null;
+        }
+        List<DoctorAgendaItem> items = merge(dashboardService.read(rows.get(0)[1], DashboardService.AGENDA_ITEMS),
+                appointmentId, occurredAt, DoctorAgendaItem::getAppointmentId, DoctorAgendaItem::getUpdatedAt, change);
+        if (items == null) {
+            return null;
+        }
+        items.sort(BY_START_TIME);
+        String name = doctorName != null ? doctorName : rows.get(0)[0];
+        jdbcTemplate.update(UPDATE_DOCTOR_AGENDA, name, dashboardService.write(items), now, doctorId, date);
+        cacheInvalidationPublisher.doctorAgendaChanged(doctorId, date);
+        return new DoctorAgendaDto(doctorId, name, date, items, now);
+    }
+
+    //the items with the appointment's one replaced or added, null when the event changes nothing: the item was
+    //changed by a later event already, or change has nothing to say about it
+    private static <T> List<T> merge(List<T> items, Long appointmentId, LocalDateTime occurredAt,
+                                     Function<T, Long> idOf, Function<T, LocalDateTime> updatedAtOf, UnaryOperator<T> change) {
+        List<T> merged = new ArrayList<>(items);
+        int index = -1;
+        for (int i = 0; i < merged.size(); i++) {
+            if (Objects.equals(idOf.apply(merged.get(i)), appointmentId)) {
+                index = i;
+                break;
+            }
+        }
+        T current = index >= 0 ? merged.get(index) : null;
+        if (current != null && updatedAtOf.apply(current) != null && updatedAtOf.apply(current).isAfter(occurredAt)) {
+            return null;
+        }
+        T next = change.apply(current);
+        if (next == null) {
+            return null;
+        }
+        if (index >= 0) {
+            merged.set(index, next);
+        } else {
+            merged.add(next);
+        }
+        return merged;
+    }
+}
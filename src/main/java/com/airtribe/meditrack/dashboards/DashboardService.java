@@ -0,0 +1,204 @@
+package com.airtribe.meditrack.dashboards;
+
+import com.airtribe.meditrack.dto.DoctorAgendaDto;
+import com.airtribe.meditrack.dto.DoctorAgendaItem;
+import com.airtribe.meditrack.dto.PatientDashboardDto;
+import com.airtribe.meditrack.dto.PatientDashboardItem;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Serves the dashboards, the read side of the appointments: a patient's appointments and a doctor's agenda for a day,
+ * each one row of patient_dashboard / doctor_agenda read by its primary key, nothing is joined or loaded through
+ * the Patient and Doctor entities. DashboardProjector keeps the rows up to date from the appointment events in the
+ * outbox, so a dashboard can lag a change by the relay's delay.
+ * Recently read dashboards are kept in the patient-dashboards and doctor-agendas caches (ehcache.xml regions, sized and
+ * expired there). The projector puts what it wrote after commit, the other nodes evict it when they hear about the
+ * change (DashboardInvalidationHandler). A dashboard is loaded under its key's lock, so a put or evict waits for a load
+ * in progress and a slow read can't put back a dashboard that was just replaced.
+ * On startup, dashboards and agendas that don't exist yet are built from the appointments that already exist.
+ */
+@Slf4j
+@Service
+public class DashboardService implements SmartInitializingSingleton {
+
+    public static final String PATIENT_DASHBOARDS = "patient-dashboards";
+    public static final String DOCTOR_AGENDAS = "doctor-agendas";
+
+    static final TypeReference<List<PatientDashboardItem>> PATIENT_ITEMS = new TypeReference<>() {
+    };
+    static final TypeReference<List<DoctorAgendaItem>> AGENDA_ITEMS = new TypeReference<>() {
+    };
+
+    private static final String SELECT_PATIENT_DASHBOARD =
+            "select patient_name, appointments, updated_at from patient_dashboard where patient_id = ?";
+    private static final String SELECT_DOCTOR_AGENDA =
+            "select doctor_name, appointments, updated_at from doctor_agenda where doctor_id = ? and day = ?";
+
+    //upcoming appointments and the latest pastKept past ones of every patient, items are built like jackson writes them
+    private static final String BACKFILL_PATIENT_DASHBOARDS = """
+            insert into patient_dashboard (patient_id, patient_name, appointments, updated_at)
+            select p.id, p.name,
+                   json_agg(json_build_object('appointmentId', a.id, 'doctorId', a.doctor_id, 'doctorName', d.name,
+                                              'startDate', a.start_date, 'startTime', a.start_time, 'endTime', a.end_time,
+                                              'status', coalesce(a.status, 'PAYMENT_PENDING'), 'updatedAt', null)
+                            order by a.start_date, a.start_time, a.id)::text, ?
+            from (select *, row_number() over (partition by patient_id, start_date < ?
+                                                order by start_date desc, start_time desc, id desc) as recent
+                  from appointment) a
+            join patient p on p.id = a.patient_id
+            join doctor d on d.id = a.doctor_id
+            where (a.start_date >= ? or a.recent <= ?)
+              and not exists (select 1 from patient_dashboard pd where pd.patient_id = p.id)
+            group by p.id, p.name
+            """;
+
+    private static final String BACKFILL_DOCTOR_AGENDAS = """
+            insert into doctor_agenda (doctor_id, day, doctor_name, appointments, updated_at)
+            select d.id, a.start_date, d.name,
+                   json_agg(json_build_object('appointmentId', a.id, 'patientId', a.patient_id, 'patientName', p.name,
+                                              'startTime', a.start_time, 'endTime', a.end_time,
+                                              'status', coalesce(a.status, 'PAYMENT_PENDING'), 'updatedAt', null)
+                            order by a.start_time, a.id)::text, ?
+            from appointment a
+            join doctor d on d.id = a.doctor_id
+            join patient p on p.id = a.patient_id
+            where not exists (select 1 from doctor_agenda da where da.doctor_id = d.id and da.day = a.start_date)
+            group by d.id, a.start_date, d.name
+            """;
+
+    private record AgendaKey(Long doctorId, LocalDate date) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final boolean postgres;
+    private final int pastKept;
+    private final Cache patientDashboards;
+    private final Cache doctorAgendas;
+
+    public DashboardService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, ObjectMapper objectMapper,
+                            DataSourceProperties dataSourceProperties, CacheManager cacheManager,
+                            @Value("${meditrack.dashboards.patient-past-kept:20}") int pastKept) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.postgres = dataSourceProperties.getUrl() != null && dataSourceProperties.getUrl().startsWith("jdbc:postgresql:");
+        this.pastKept = pastKept;
+        this.patientDashboards = Objects.requireNonNull(cacheManager.getCache(PATIENT_DASHBOARDS), "No " + PATIENT_DASHBOARDS + " cache");
+        this.doctorAgendas = Objects.requireNonNull(cacheManager.getCache(DOCTOR_AGENDAS), "No " + DOCTOR_AGENDAS + " cache");
+    }
+
+    public int getPastKept() {
+        return pastKept;
+    }
+
+    public PatientDashboardDto getPatientDashboard(Long patientId) {
+        return patientDashboards.get(patientId, () -> {
+            List<PatientDashboardDto> rows = jdbcTemplate.query(SELECT_PATIENT_DASHBOARD, (resultSet, rowNum) ->
+                            new PatientDashboardDto(patientId, resultSet.getString("patient_name"),
+                                    read(resultSet.getString("appointments"), PATIENT_ITEMS),
+                                    resultSet.getObject("updated_at", LocalDateTime.class)),
+                    patientId);
+            return rows.isEmpty() ? new PatientDashboardDto(patientId, null, List.of(), null) : rows.get(0);
+        });
+    }
+
+    public DoctorAgendaDto getDoctorAgenda(Long doctorId, LocalDate date) {
+        return doctorAgendas.get(new AgendaKey(doctorId, date), () -> {
+            List<DoctorAgendaDto> rows = jdbcTemplate.query(SELECT_DOCTOR_AGENDA, (resultSet, rowNum) ->
+                            new DoctorAgendaDto(doctorId, resultSet.getString("doctor_name"), date,
+                                    read(resultSet.getString("appointments"), AGENDA_ITEMS),
+                                    resultSet.getObject("updated_at", LocalDateTime.class)),
+                    doctorId, date);
+            return rows.isEmpty() ? new DoctorAgendaDto(doctorId, null, date, List.of(), null) : rows.get(0);
+        });
+    }
+
+    //DashboardProjector, after its write committed
+    void patientDashboardWritten(PatientDashboardDto dashboard) {
+        patientDashboards.put(dashboard.getPatientId(), dashboard);
+    }
+
+    void doctorAgendaWritten(DoctorAgendaDto agenda) {
+        doctorAgendas.put(new AgendaKey(agenda.getDoctorId(), agenda.getDate()), agenda);
+    }
+
+    //DashboardInvalidationHandler, a null id drops every dashboard of that kind
+    public void evictPatientDashboard(Long patientId) {
+        if (patientId == null) {
+            patientDashboards.clear();
+        } else {
+            patientDashboards.evict(patientId);
+        }
+    }
+
+    public void evictDoctorAgenda(Long doctorId, LocalDate date) {
+        if (doctorId == null || date == null) {
+            doctorAgendas.clear();
+        } else {
+            doctorAgendas.evict(new AgendaKey(doctorId, date));
+        }
+    }
+
+    public void evictAll() {
+        patientDashboards.clear();
+        doctorAgendas.clear();
+    }
+
+    //once every bean exists (the schema too) and before the lifecycle beans start, so OutboxRelay can't project an event
+    //into a dashboard first. a dashboard or agenda that is missing is built, existing ones are left to the projector
+    @Override
+    public void afterSingletonsInstantiated() {
+        backfill();
+    }
+
+    //every node may try it, the table lock makes the others wait and then find the rows there
+    public void backfill() {
+        if (!postgres) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("lock table patient_dashboard, doctor_agenda in exclusive mode");
+            LocalDateTime now = LocalDateTime.now();
+            LocalDate today = now.toLocalDate();
+            int patients = jdbcTemplate.update(BACKFILL_PATIENT_DASHBOARDS, now, today, today, pastKept);
+            int agendas = jdbcTemplate.update(BACKFILL_DOCTOR_AGENDAS, now);
+            if (patients > 0 || agendas > 0) {
+                log.info("Built {} patient dashboards and {} doctor agendas from the existing appointments", patients, agendas);
+            }
+        });
+    }
+
+    <T> List<T> read(String json, TypeReference<List<T>> type) {
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not read dashboard json", e);
+        }
+    }
+
+    String write(Object items) {
+        try {
+            return objectMapper.writeValueAsString(items);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not write dashboard json", e);
+        }
+    }
+}
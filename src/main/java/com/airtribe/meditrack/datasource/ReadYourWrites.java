@@ -0,0 +1,60 @@
+package com.airtribe.meditrack.datasource;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * Sticky reads after a write: once a read-write transaction commits, the rest of the request and the client's next
+ * requests for stickyMs read from the primary, so nobody reads their own booking back from a replica that is behind.
+ * The deadline travels in the PRIMARY_UNTIL cookie (ReadYourWritesFilter reads it back), any node can honour it.
+ * Registered as a transaction execution listener, spring boot hands those to the transaction manager.
+ */
+public class ReadYourWrites implements TransactionExecutionListener {
+
+    public static final String COOKIE = "MEDITRACK_PRIMARY_UNTIL";
+
+    private static final ThreadLocal<Boolean> PINNED = new ThreadLocal<>();
+
+    private final long stickyMs;
+
+    public ReadYourWrites(long stickyMs) {
+        this.stickyMs = stickyMs;
+    }
+
+    public static boolean isPinnedToPrimary() {
+        return Boolean.TRUE.equals(PINNED.get());
+    }
+
+    static void pinToPrimary() {
+        PINNED.set(Boolean.TRUE);
+    }
+
+    static void clear() {
+        PINNED.remove();
+    }
+
+    @Override
+    public void afterCommit(TransactionExecution transaction, Throwable commitFailure) {
+        if (commitFailure != null || transaction.isReadOnly() || !transaction.isNewTransaction()) {
+            return;
+        }
+        pinToPrimary();
+        //outside a request (jobs, scheduled work) only this thread is pinned, and ReadYourWritesFilter isn't there to clear it
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+            clear();
+            return;
+        }
+        HttpServletResponse response = attributes.getResponse();
+        if (response != null && !response.isCommitted()) {
+            Cookie cookie = new Cookie(COOKIE, Long.toString(System.currentTimeMillis() + stickyMs));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) Math.max(1, stickyMs / 1000));
+            response.addCookie(cookie);
+        }
+    }
+}
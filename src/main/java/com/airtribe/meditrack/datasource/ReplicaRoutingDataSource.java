@@ -0,0 +1,190 @@
+package com.airtribe.meditrack.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Picks the database for each new connection: inside a read-only transaction one of the replicas, otherwise the primary.
+ * ReadReplicaConfig puts it behind a LazyConnectionDataSourceProxy, the real connection is only taken on the first
+ * statement, once the transaction (and with it isCurrentTransactionReadOnly) has started.
+ * Replicas are used round robin, one that lags more than maxLagMs (or can't be reached) is skipped until it catches up,
+ * with none left the primary serves the reads. After a write in the same session reads stay on the primary too (ReadYourWrites).
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+    //wal positions as plain numbers, so they can be compared in java
+    private static final String PRIMARY_LSN = "select pg_wal_lsn_diff(pg_current_wal_lsn(), '0/0')::bigint";
+    private static final String REPLAYED_LSN = "select pg_wal_lsn_diff(pg_last_wal_replay_lsn(), '0/0')::bigint";
+    private static final int KEEP_SAMPLES = 600;
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final long maxLagMs;
+    private final AtomicInteger next = new AtomicInteger();
+    //the primary's wal position at each check, oldest first. only touched by checkLag
+    private final Deque<long[]> primarySamples = new ArrayDeque<>();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<Replica> replicas, long maxLagMs) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.maxLagMs = maxLagMs;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return select().getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return select().getConnection(username, password);
+    }
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    DataSource select() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || ReadYourWrites.isPinnedToPrimary()) {
+            return primary;
+        }
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(replicas.size(), 1));
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (replica.isHealthy()) {
+                return replica.getDataSource();
+            }
+        }
+        return primary;
+    }
+
+    //lag is measured against the primary's wal position over time: a replica that has not replayed what the primary had
+    //written at some earlier check is at least that old. (pg_last_xact_replay_timestamp alone reads as minutes of lag
+    //the moment a write arrives after a quiet period.) the precision is the check interval
+    @Scheduled(fixedDelayString = "${meditrack.replicas.lag-check-ms:1000}")
+    public void checkLag() {
+        long now = System.currentTimeMillis();
+        Long primaryLsn = samplePrimary(now);
+        for (Replica replica : replicas) {
+            boolean wasHealthy = replica.isHealthy();
+            try {
+                replica.lagMs = measureLag(replica, primaryLsn, now);
+                replica.healthy = replica.lagMs <= maxLagMs;
+            } catch (SQLException e) {
+                replica.lagMs = -1;
+                replica.healthy = false;
+            }
+            if (wasHealthy != replica.isHealthy()) {
+                log.warn("Replica {} is {} (lag {} ms, max {} ms)", replica.getName(),
+                        replica.isHealthy() ? "back in use" : "skipped, reads fall back", replica.getLagMs(), maxLagMs);
+            }
+        }
+    }
+
+    //null when the primary isn't postgres (h2 in tests) or can't be reached
+    private Long samplePrimary(long now) {
+        try (Connection connection = primary.getConnection();
+             Statement statement = connection.createStatement()) {
+            if (!isPostgres(connection)) {
+                return null;
+            }
+            try (ResultSet resultSet = statement.executeQuery(PRIMARY_LSN)) {
+                resultSet.next();
+                long lsn = resultSet.getLong(1);
+                primarySamples.addLast(new long[]{lsn, now});
+                if (primarySamples.size() > KEEP_SAMPLES) {
+                    primarySamples.removeFirst();
+                }
+                return lsn;
+            }
+        } catch (SQLException e) {
+            log.warn("Could not read the primary's wal position: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    //without a primary position there is nothing to compare with, a replica that answers counts as current
+    private long measureLag(Replica replica, Long primaryLsn, long now) throws SQLException {
+        try (Connection connection = replica.getDataSource().getConnection();
+             Statement statement = connection.createStatement()) {
+            if (primaryLsn == null || !isPostgres(connection)) {
+                statement.execute("select 1");
+                return 0;
+            }
+            long replayed;
+            try (ResultSet resultSet = statement.executeQuery(REPLAYED_LSN)) {
+                resultSet.next();
+                replayed = resultSet.getLong(1);
+            }
+            if (replayed >= primaryLsn) {
+                return 0;
+            }
+            //the first check at which the primary was past the replica's position
+            for (long[] sample : primarySamples) {
+                if (sample[0] > replayed) {
+                    return now - sample[1];
+                }
+            }
+            return 0;
+        }
+    }
+
+    private static boolean isPostgres(Connection connection) throws SQLException {
+        return connection.getMetaData().getDatabaseProductName().equals("PostgreSQL");
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (Replica replica : replicas) {
+            if (replica.getDataSource() instanceof AutoCloseable pool) {
+                pool.close();
+            }
+        }
+        if (primary instanceof AutoCloseable pool) {
+            pool.close();
+        }
+    }
+
+    public static class Replica {
+
+        private final String name;
+        private final DataSource dataSource;
+        private volatile boolean healthy = true;
+        private volatile long lagMs;
+
+        public Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public DataSource getDataSource() {
+            return dataSource;
+        }
+
+        public boolean isHealthy() {
+            return healthy;
+        }
+
+        //-1 while the replica can't be reached
+        public long getLagMs() {
+            return lagMs;
+        }
+    }
+}
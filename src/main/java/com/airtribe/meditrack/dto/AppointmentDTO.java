@@ -1,10 +1,7 @@
 package com.airtribe.meditrack.dto;
 
-import com.airtribe.meditrack.entities.Doctor;
-import com.airtribe.meditrack.entities.Patient;
 import com.airtribe.meditrack.enums.AppointmentStatus;
-import jakarta.persistence.*;
-import jakarta.validation.constraints.NotNull;
+import com.airtribe.meditrack.enums.Specialist;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -12,6 +9,8 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDate;
 import java.time.LocalTime;
 
+//flat view of an appointment, doctor and patient are reduced to id + name
+//the field order is also the constructor order used by the JPQL "select new" in AppointmentRepo
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -19,27 +18,26 @@ public class AppointmentDTO {
 
     private Long id;
 
-    private Doctor doctor;
+    private Long doctorId;
 
+    private String doctorName;
 
-    private Patient patient;
+    private Specialist specialist;
 
+    private Long patientId;
 
-    private LocalDate startDate;
+    private String patientName;
 
+    private LocalDate startDate;
 
     private LocalTime startTime;
 
-
     private LocalTime endTime;
 
-    @Enumerated(EnumType.STRING)
     private AppointmentStatus status;
 
-    @Column(columnDefinition = "TEXT")
     private String patientSymptoms;
 
-    @Column(columnDefinition = "TEXT")
     private String docObservations;
 
     private Double paymentAmount;
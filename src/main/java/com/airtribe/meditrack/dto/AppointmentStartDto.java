@@ -0,0 +1,20 @@
+package com.airtribe.meditrack.dto;
+
+import com.airtribe.meditrack.enums.AppointmentStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+//what the reminder scheduler needs of an appointment
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AppointmentStartDto {
+    private Long id;
+    private AppointmentStatus status;
+    private LocalDate startDate;
+    private LocalTime startTime;
+}
@@ -0,0 +1,23 @@
+package com.airtribe.meditrack.dto;
+
+import com.airtribe.meditrack.enums.AppointmentStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+//appointments per status as of a point in time, rebuilt from the history. snapshotId is the snapshot the replay
+//started from (null when it went through the whole history), eventsReplayed the events applied after it
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AppointmentStatusCountsDto {
+    private LocalDateTime asOf;
+    private Long snapshotId;
+    private long appointments;
+    private long eventsReplayed;
+    private long elapsedMs;
+    private Map<AppointmentStatus, Long> counts;
+}
@@ -0,0 +1,19 @@
+package com.airtribe.meditrack.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchCancellationDto {
+
+    @NotEmpty
+    private List<Long> appointmentIds;
+
+    private String reason;
+}
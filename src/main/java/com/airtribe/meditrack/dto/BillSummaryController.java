@@ -1,21 +1,45 @@
 package com.airtribe.meditrack.dto;
 
 import com.airtribe.meditrack.entities.BillSummary;
+import com.airtribe.meditrack.enums.RevenueGranularity;
 import com.airtribe.meditrack.repositories.BillRep;
+import com.airtribe.meditrack.services.RevenueRollupService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 @RestController
 public class BillSummaryController {
 
     @Autowired
     private BillRep billRep1;
 
+    @Autowired
+    private RevenueRollupService revenueRollupService;
+
     @GetMapping("/bill-summary/{appointmentId}")
     ResponseEntity<BillSummary> getBillSummary(@PathVariable Long appointmentId) {
         return billRep1.findByAppointmentId(appointmentId);
     }
+
+    //e.g. /bill-summary/revenue?granularity=DAY&from=2026-01-01T00:00&to=2026-02-01T00:00&paymentType=upi
+    @GetMapping("/bill-summary/revenue")
+    ResponseEntity<List<RevenueBucketDto>> getRevenue(
+            @RequestParam(defaultValue = "DAY") RevenueGranularity granularity,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Long doctorId,
+            @RequestParam(required = false) String billType,
+            @RequestParam(required = false) String paymentType) {
+        return new ResponseEntity<>(revenueRollupService.getRevenue(granularity, from, to, doctorId, billType, paymentType),
+                HttpStatus.OK);
+    }
 }
@@ -0,0 +1,56 @@
+package com.airtribe.meditrack.dto;
+
+import com.airtribe.meditrack.exceptions.InvalidCursorException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+//one page of a keyset (seek) paginated list
+//nextCursor is an opaque token holding the last id of this page, pass it back as ?cursor= to get the next page
+//nextCursor is null on the last page
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CursorPage<T> {
+
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private List<T> items;
+
+    private String nextCursor;
+
+    //rows must be fetched with size + 1, the extra row only tells us there is another page
+    public static <T> CursorPage<T> of(List<T> rows, int size, Function<T, Long> idOf) {
+        if (rows.size() <= size) {
+            return new CursorPage<>(rows, null);
+        }
+        List<T> page = rows.subList(0, size);
+        return new CursorPage<>(page, encodeCursor(idOf.apply(page.get(size - 1))));
+    }
+
+    public static int pageSize(int requested) {
+        return Math.max(1, Math.min(requested, MAX_PAGE_SIZE));
+    }
+
+    public static String encodeCursor(Long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(String.valueOf(lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    //no cursor means start from the beginning
+    public static Long decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Invalid cursor: " + cursor);
+        }
+    }
+}
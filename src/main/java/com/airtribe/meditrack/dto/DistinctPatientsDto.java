@@ -0,0 +1,15 @@
+package com.airtribe.meditrack.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//distinctPatients is a HyperLogLog estimate, standardError is relative (0.016 = 1.6%)
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DistinctPatientsDto {
+    private Long doctorId;
+    private long distinctPatients;
+    private double standardError;
+}
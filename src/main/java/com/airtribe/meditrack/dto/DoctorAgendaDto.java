@@ -0,0 +1,21 @@
+package com.airtribe.meditrack.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+//a doctor's appointments of one day by start time, cancelled ones included. updatedAt is null for a day without any
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DoctorAgendaDto {
+    private Long doctorId;
+    private String doctorName;
+    private LocalDate date;
+    private List<DoctorAgendaItem> appointments;
+    private LocalDateTime updatedAt;
+}
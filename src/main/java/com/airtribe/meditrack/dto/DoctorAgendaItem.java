@@ -0,0 +1,23 @@
+package com.airtribe.meditrack.dto;
+
+import com.airtribe.meditrack.enums.AppointmentStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+//one appointment in a doctor's agenda, updatedAt as in PatientDashboardItem
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DoctorAgendaItem {
+    private Long appointmentId;
+    private Long patientId;
+    private String patientName;
+    private LocalTime startTime;
+    private LocalTime endTime;
+    private AppointmentStatus status;
+    private LocalDateTime updatedAt;
+}
@@ -3,8 +3,10 @@ package com.airtribe.meditrack.dto;
 import com.airtribe.meditrack.enums.Role;
 import com.airtribe.meditrack.enums.Specialist;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 @Data
+@NoArgsConstructor
 public class DoctorDto {
 
     private Long id;
@@ -24,4 +26,18 @@ public class DoctorDto {
     private String description;
 
     private String consultationFee;
+
+    //used by the JPQL "select new" projections in DoctorRepo, reads only these columns and never the embedding
+    public DoctorDto(Long id, String name, String email, String phone, String address,
+                     Role role, Specialist specialist, String description, Double consultationFee) {
+        this.id = id;
+        this.name = name;
+        this.email = email;
+        this.phone = phone;
+        this.address = address;
+        this.role = role;
+        this.specialist = specialist;
+        this.description = description;
+        this.consultationFee = consultationFee == null ? null : String.valueOf(consultationFee);
+    }
 }
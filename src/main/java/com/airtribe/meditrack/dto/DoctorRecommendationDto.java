@@ -0,0 +1,21 @@
+package com.airtribe.meditrack.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+//a recommended doctor with the first slot that can be booked and its ranking score, higher is better
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DoctorRecommendationDto {
+    private DoctorDto doctor;
+    private double score;
+    private double distance;
+    private LocalDate nextAvailableDate;
+    private LocalTime nextAvailableTime;
+    private int freeSlots;
+}
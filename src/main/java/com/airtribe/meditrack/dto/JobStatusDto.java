@@ -0,0 +1,42 @@
+package com.airtribe.meditrack.dto;
+
+import com.airtribe.meditrack.enums.JobStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+//GET /jobs/{id}. itemsPerSecond and etaSeconds are for the current run (a resumed job starts measuring again)
+//etaSeconds is null until the job has made some progress
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class JobStatusDto {
+
+    private Long id;
+
+    private String type;
+
+    private JobStatus status;
+
+    private long totalItems;
+
+    private long processedItems;
+
+    private double percentDone;
+
+    private double itemsPerSecond;
+
+    private Long etaSeconds;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime startedAt;
+
+    private LocalDateTime finishedAt;
+
+    private String result;
+
+    private String error;
+}
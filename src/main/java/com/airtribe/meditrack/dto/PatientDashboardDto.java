@@ -0,0 +1,19 @@
+package com.airtribe.meditrack.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+//a patient's appointments by start, all upcoming ones and the latest past ones. updatedAt is null when the patient has none
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PatientDashboardDto {
+    private Long patientId;
+    private String patientName;
+    private List<PatientDashboardItem> appointments;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,26 @@
+package com.airtribe.meditrack.dto;
+
+import com.airtribe.meditrack.enums.AppointmentStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+//one appointment in a patient's dashboard. updatedAt is when the event it was last changed by occurred,
+//null for items rebuilt from the appointment table
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PatientDashboardItem {
+    private Long appointmentId;
+    private Long doctorId;
+    private String doctorName;
+    private LocalDate startDate;
+    private LocalTime startTime;
+    private LocalTime endTime;
+    private AppointmentStatus status;
+    private LocalDateTime updatedAt;
+}
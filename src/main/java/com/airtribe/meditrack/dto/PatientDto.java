@@ -1,8 +1,11 @@
 package com.airtribe.meditrack.dto;
 
+import com.airtribe.meditrack.enums.Role;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 @Data
+@NoArgsConstructor
 public class PatientDto {
     private Long id;
     private String name;
@@ -11,5 +14,15 @@ public class PatientDto {
     private String address;
     private String age;
     private String role;
-}
 
+    //used by the JPQL "select new" projections in PatientRepo
+    public PatientDto(Long id, String name, String email, String phone, String address, Integer age, Role role) {
+        this.id = id;
+        this.name = name;
+        this.email = email;
+        this.phone = phone;
+        this.address = address;
+        this.age = age == null ? null : String.valueOf(age);
+        this.role = role == null ? null : role.name();
+    }
+}
@@ -0,0 +1,32 @@
+package com.airtribe.meditrack.dto;
+
+import com.airtribe.meditrack.enums.ImportStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+//progress / result of one POST /register/patient/bulk upload
+//rejected = rows that failed validation or whose email was already registered, errors holds the first few reasons
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PatientImportReport {
+
+    private String importId;
+
+    private ImportStatus status;
+
+    private long rowsRead;
+
+    private long imported;
+
+    private long rejected;
+
+    private long elapsedMs;
+
+    private double rowsPerSecond;
+
+    private List<String> errors;
+}
@@ -0,0 +1,24 @@
+package com.airtribe.meditrack.dto;
+
+import com.airtribe.meditrack.enums.Specialist;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//KLL estimates of a metric per specialization, rankError is the approximate error in rank (0.017 = p90 is p88.3 to p91.7).
+//the quantiles are null while nothing was recorded
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class QuantileSummaryDto {
+    private Specialist specialist;
+    private String metric;
+    private long count;
+    private Double min;
+    private Double median;
+    private Double p90;
+    private Double p95;
+    private Double p99;
+    private Double max;
+    private double rankError;
+}
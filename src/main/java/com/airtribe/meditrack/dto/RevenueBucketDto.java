@@ -0,0 +1,20 @@
+package com.airtribe.meditrack.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+//one bucket of GET /bill-summary/revenue, summed over whatever dimensions were not filtered on.
+//the field order is also the constructor order used by the JPQL "select new" in RevenueBucketRepo
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RevenueBucketDto {
+    private LocalDateTime bucketStart;
+    private Long billCount;
+    private Double baseAmount;
+    private Double taxAmount;
+    private Double finalAmount;
+}
@@ -0,0 +1,22 @@
+package com.airtribe.meditrack.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+//pushed on /topic/slots/{doctorId}/{date}: the slots taken and freed since the previous version.
+//versions go up by one per delta, a gap means a delta was missed and the client should fetch the snapshot again
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SlotDelta {
+    private Long doctorId;
+    private LocalDate date;
+    private long version;
+    private List<LocalTime> taken;
+    private List<LocalTime> freed;
+}
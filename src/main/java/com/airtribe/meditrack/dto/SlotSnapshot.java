@@ -0,0 +1,20 @@
+package com.airtribe.meditrack.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+//reply to SUBSCRIBE /app/slots/{doctorId}/{date}: the free slots of the day, deltas with a higher version come after it
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SlotSnapshot {
+    private Long doctorId;
+    private LocalDate date;
+    private long version;
+    private List<LocalTime> available;
+}
@@ -0,0 +1,33 @@
+package com.airtribe.meditrack.dto;
+
+import com.airtribe.meditrack.enums.AppointmentStatus;
+import com.airtribe.meditrack.enums.Specialist;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//GET /getFeeStatsBySpecialization, one row per specialization and appointment status plus one with status null for all of them.
+//appointmentCount counts every appointment, the fee figures only those with a payment amount (null when there are none)
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SpecializationFeeStats {
+
+    private Specialist specialist;
+
+    private AppointmentStatus status;
+
+    private Long appointmentCount;
+
+    private Double averageFee;
+
+    private Double minFee;
+
+    private Double maxFee;
+
+    private Double medianFee;
+
+    private Double p90Fee;
+
+    private Double p99Fee;
+}
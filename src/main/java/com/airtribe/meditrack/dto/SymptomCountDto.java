@@ -0,0 +1,15 @@
+package com.airtribe.meditrack.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//count-min estimate: never below the real count, above it by at most maxOverestimate
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SymptomCountDto {
+    private String symptom;
+    private long estimatedCount;
+    private long maxOverestimate;
+}
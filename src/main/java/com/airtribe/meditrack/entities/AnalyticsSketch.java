@@ -0,0 +1,42 @@
+package com.airtribe.meditrack.entities;
+
+import com.airtribe.meditrack.sketches.SketchType;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+//persisted state of one sketch (AnalyticsSketchService), every node merges its new updates into it periodically
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AnalyticsSketch {
+
+    //e.g. "patients:doctor:12", "fee:CARDIOLOGIST", "symptoms"
+    @Id
+    @Column(length = 100)
+    private String name;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private SketchType type;
+
+    @Column(nullable = false)
+    private byte[] data;
+
+    private LocalDateTime updatedAt;
+
+    //id of the database transaction that wrote the row, what refresh() reads changes by instead of clock times
+    private Long writtenBy;
+}
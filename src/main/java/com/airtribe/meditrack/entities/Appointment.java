@@ -13,22 +13,37 @@ import org.springframework.core.SpringVersion;
 import java.time.LocalDate;
 import java.time.LocalTime;
 
+//doctor and patient are lazy, each use case asks for what it needs: the participants graph when the
+//appointment is changed and notified, dto / scalar queries for listings and analytics (see AppointmentRepo)
 @Entity
+//conflict check and slot listing filter on doctor + day and compare the times, the index answers both without the table
+//(start_date, status) finds the rows AppointmentArchiveService moves out
+@Table(indexes = {
+        @Index(name = "idx_appointment_doctor_day", columnList = "doctor_id, start_date, start_time, end_time"),
+        @Index(name = "idx_appointment_day_status", columnList = "start_date, status")
+})
+@NamedEntityGraph(name = Appointment.WITH_PARTICIPANTS, attributeNodes = {
+        @NamedAttributeNode("doctor"),
+        @NamedAttributeNode("patient")
+})
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
 public class Appointment {
 
+    public static final String WITH_PARTICIPANTS = "Appointment.withParticipants";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "appointment_seq")
+    @SequenceGenerator(name = "appointment_seq", sequenceName = "appointment_seq", allocationSize = 50)
     private Long id;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "doctor_id", nullable = false)
     Doctor doctor;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "patient_id", nullable = false)
     Patient patient;
 
@@ -0,0 +1,78 @@
+package com.airtribe.meditrack.entities;
+
+import com.airtribe.meditrack.enums.AppointmentHistoryType;
+import com.airtribe.meditrack.enums.AppointmentStatus;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+//one transition of an appointment, appended in the transaction that made it and never updated (see com.airtribe.meditrack.history).
+//status is the status after the event, the other fields are only set when the event changed them (null = unchanged),
+//so folding an appointment's events in order gives its state at any point
+@Entity
+//(appointment_id, occurred_at) reads one appointment's history, occurred_at finds what happened after a snapshot
+@Table(name = "appointment_history", indexes = {
+        @Index(name = "idx_appointment_history_appointment", columnList = "appointment_id, occurred_at"),
+        @Index(name = "idx_appointment_history_occurred", columnList = "occurred_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AppointmentHistoryEvent {
+
+    @Id
+    //sequence instead of identity, hibernate can't batch inserts when the db generates the id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "appointment_history_seq")
+    @SequenceGenerator(name = "appointment_history_seq", sequenceName = "appointment_history_seq", allocationSize = 50)
+    private Long id;
+
+    //no foreign key, the history outlives the row when it is archived
+    @Column(nullable = false)
+    private Long appointmentId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private AppointmentHistoryType type;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private AppointmentStatus status;
+
+    private Long doctorId;
+
+    private Long patientId;
+
+    private LocalDate startDate;
+
+    private LocalTime startTime;
+
+    private LocalTime endTime;
+
+    private Double paymentAmount;
+
+    @Column(columnDefinition = "TEXT")
+    private String docObservations;
+
+    private String cancellationReason;
+
+    @Column(nullable = false)
+    private LocalDateTime occurredAt;
+}
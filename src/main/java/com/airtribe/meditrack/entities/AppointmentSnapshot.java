@@ -0,0 +1,42 @@
+package com.airtribe.meditrack.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+//the state of every appointment after all history events that occurred before coversBefore,
+//one AppointmentSnapshotState row per appointment. a replay starts from the latest snapshot instead of the first event
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AppointmentSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "appointment_snapshot_seq")
+    @SequenceGenerator(name = "appointment_snapshot_seq", sequenceName = "appointment_snapshot_seq", allocationSize = 1)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDateTime coversBefore;
+
+    private long appointments;
+
+    //events folded in since the previous snapshot
+    private long eventsApplied;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,69 @@
+package com.airtribe.meditrack.entities;
+
+import com.airtribe.meditrack.enums.AppointmentStatus;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+//one appointment in an AppointmentSnapshot. only mapped so hibernate creates the table,
+//AppointmentHistoryService writes and AppointmentHistoryReplayer reads the rows with plain jdbc
+@Entity
+@IdClass(AppointmentSnapshotState.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class AppointmentSnapshotState {
+
+    @Id
+    private Long snapshotId;
+
+    @Id
+    private Long appointmentId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private AppointmentStatus status;
+
+    private Long doctorId;
+
+    private Long patientId;
+
+    private LocalDate startDate;
+
+    private LocalTime startTime;
+
+    private LocalTime endTime;
+
+    private Double paymentAmount;
+
+    @Column(columnDefinition = "TEXT")
+    private String docObservations;
+
+    private String cancellationReason;
+
+    //when the last event folded into this state occurred
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long snapshotId;
+        private Long appointmentId;
+    }
+}
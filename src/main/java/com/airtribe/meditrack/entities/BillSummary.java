@@ -1,9 +1,6 @@
 package com.airtribe.meditrack.entities;
 
-import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
-import jakarta.persistence.Id;
+import jakarta.persistence.*;
 import lombok.*;
 
 import java.time.LocalDateTime;
@@ -17,10 +14,15 @@ import java.time.LocalDateTime;
 public class BillSummary {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    //sequence instead of identity, hibernate can't batch inserts when the db generates the id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "bill_summary_seq")
+    @SequenceGenerator(name = "bill_summary_seq", sequenceName = "bill_summary_seq", allocationSize = 50)
     private Long id;
 
     private Long appointmentId;
+    //dimensions of the revenue rollup (RevenueRollupService)
+    private Long doctorId;
+    private String paymentType;
     private String patientName;
     private String doctorName;
     private String billType;
@@ -0,0 +1,48 @@
+package com.airtribe.meditrack.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+//read model behind GET /doctor/{id}/agenda: one doctor's appointments of one day as a json document (DoctorAgendaItem
+//list), kept up to date by DashboardProjector. only mapped so hibernate creates the table, it is read and written with jdbc
+@Entity
+@IdClass(DoctorAgenda.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class DoctorAgenda {
+
+    @Id
+    private Long doctorId;
+
+    @Id
+    private LocalDate day;
+
+    private String doctorName;
+
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String appointments;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long doctorId;
+        private LocalDate day;
+    }
+}
@@ -0,0 +1,35 @@
+package com.airtribe.meditrack.entities;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+//running totals per doctor for the analytics endpoints, kept up to date by DoctorStatsService
+//counts include archived appointments, feeSum counts a missing payment amount as 0
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DoctorStats {
+
+    @Id
+    private Long doctorId;
+
+    private long appointmentCount;
+
+    private long completedCount;
+
+    private long cancelledCount;
+
+    private double feeSum;
+
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,61 @@
+package com.airtribe.meditrack.entities;
+
+import com.airtribe.meditrack.enums.JobStatus;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+//one long running admin operation (e.g. a doctor import), see com.airtribe.meditrack.jobs
+//payload is the job input as json, checkpoint + processedItems are what a restarted job resumes from
+@Entity
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class Job {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "job_seq")
+    @SequenceGenerator(name = "job_seq", sequenceName = "job_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false, length = 50)
+    private String type;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private JobStatus status;
+
+    @Column(columnDefinition = "TEXT")
+    private String payload;
+
+    private long totalItems;
+
+    private long processedItems;
+
+    //processedItems when the current run started, throughput only counts this run's work
+    private long processedAtStart;
+
+    @Column(columnDefinition = "TEXT")
+    private String checkpoint;
+
+    @Column(columnDefinition = "TEXT")
+    private String result;
+
+    @Column(columnDefinition = "TEXT")
+    private String error;
+
+    //node running the job
+    private String owner;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime startedAt;
+
+    //heartbeat, a RUNNING job that stops updating is taken over by another node (or this one after a restart)
+    private LocalDateTime updatedAt;
+
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,55 @@
+package com.airtribe.meditrack.entities;
+
+import com.airtribe.meditrack.enums.OutboxEventType;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+//a notification waiting to be delivered, written in the same transaction as the change it announces (OutboxPublisher)
+//and deleted by OutboxRelay once the observers handled it. the id is also the deduplication key
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OutboxEvent {
+
+    @Id
+    //sequence instead of identity, hibernate can't batch inserts when the db generates the id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_event_seq")
+    @SequenceGenerator(name = "outbox_event_seq", sequenceName = "outbox_event_seq", allocationSize = 50)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private OutboxEventType type;
+
+    //appointment id for APPOINTMENT events
+    private Long aggregateId;
+
+    //json of an AppointmentEvent or of the message string
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String payload;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    //set while a relay is delivering the event, other relays leave it alone until the lease ran out (db clock)
+    private LocalDateTime leasedUntil;
+
+    //the claim holding the lease, only that relay deletes or releases the event
+    private String leaseToken;
+}
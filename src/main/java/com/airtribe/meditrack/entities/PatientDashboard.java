@@ -0,0 +1,32 @@
+package com.airtribe.meditrack.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+//read model behind GET /patients/{id}/appointments: the patient's appointments as one json document (PatientDashboardItem
+//list), kept up to date by DashboardProjector. only mapped so hibernate creates the table, it is read and written with jdbc
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class PatientDashboard {
+
+    @Id
+    private Long patientId;
+
+    private String patientName;
+
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String appointments;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+}
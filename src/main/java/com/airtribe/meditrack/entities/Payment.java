@@ -15,7 +15,9 @@ import lombok.NoArgsConstructor;
 public class Payment {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    //sequence instead of identity, hibernate can't batch inserts when the db generates the id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "payment_seq")
+    @SequenceGenerator(name = "payment_seq", sequenceName = "payment_seq", allocationSize = 50)
     private Long id;
 
     private Double amount;
@@ -25,7 +27,8 @@ public class Payment {
 
     private String paymentType; // upi/card
 
-    @OneToOne
+    //once the appointment is old the payment moves into its appointment_archive row with it (AppointmentArchiveService)
+    @OneToOne(fetch = FetchType.LAZY)
     private Appointment appointment;
 
 }
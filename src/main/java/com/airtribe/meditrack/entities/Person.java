@@ -6,6 +6,8 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import lombok.*;
 import lombok.experimental.SuperBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDateTime;
 
@@ -21,6 +23,10 @@ import java.time.LocalDateTime;
 //and inheritance and jpa will take care of the rest, we just need to define the common fields in the parent class and the specific fields in the child classes, and jpa will take care of the rest, we just need to use the correct annotations and strategies, which is what we have done in this case since we want to treat this purely for code reusability, not as an entity like USER for login and authentication
 //IMP:Always save the data to parent table first and then to child table, otherwise it will throw an error since the child table will have a foreign key to the parent table, which is what we want in this case since we want to treat this purely for code reusability, not as an entity like USER for login and authentication
 //add data thru child table, it will automatically save data to parent table as well, which is what we want in this case since we want to treat this purely for code reusability, not as an entity like USER for login and authentication
+//second level cache lives on the root of the hierarchy, so doctors (and patients) share the "person" region from ehcache.xml
+//hibernate keeps it in sync on every save through jpa, so createDoctor and availability changes evict/update exactly that entry
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "person")
 @Getter
 @Setter
 @NoArgsConstructor
@@ -28,8 +34,13 @@ import java.time.LocalDateTime;
 @SuperBuilder
 public class Person {  //treat this purely for code reusability, not as an entity like USER for login and authentication
 
+    //ids per person_seq call, PatientImportWriter hands out ids from the same blocks when it COPYs patients in
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    //one sequence call hands out 50 ids (pooled-lo, see application.properties), doctors and patients share it
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "person_seq")
+    @SequenceGenerator(name = "person_seq", sequenceName = "person_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     @Column(nullable = false, unique = true, length = 100)
@@ -0,0 +1,70 @@
+package com.airtribe.meditrack.entities;
+
+import com.airtribe.meditrack.enums.RevenueGranularity;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+//revenue totals of the bills generated in one hour / day / month for one doctor, bill type and payment type,
+//kept up to date by RevenueRollupService. range queries read these rows instead of bill_summary
+@Entity
+@IdClass(RevenueBucket.Key.class)
+@Table(indexes = @Index(name = "idx_revenue_bucket_range", columnList = "granularity, bucket_start"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RevenueBucket {
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    private RevenueGranularity granularity;
+
+    @Id
+    private LocalDateTime bucketStart;
+
+    //bills written before doctorId / paymentType were recorded are counted under doctor 0 and payment type "unknown"
+    @Id
+    private Long doctorId;
+
+    @Id
+    private String billType;
+
+    @Id
+    private String paymentType;
+
+    private long billCount;
+
+    private double baseAmount;
+
+    private double taxAmount;
+
+    private double finalAmount;
+
+    private LocalDateTime updatedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private RevenueGranularity granularity;
+        private LocalDateTime bucketStart;
+        private Long doctorId;
+        private String billType;
+        private String paymentType;
+    }
+}
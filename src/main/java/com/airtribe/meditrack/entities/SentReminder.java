@@ -0,0 +1,40 @@
+package com.airtribe.meditrack.entities;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+//one row per reminder sent: every node holds the same reminders in memory, the node whose insert wins sends it.
+//ReminderScheduler deletes rows once their appointments are over
+@Entity
+@IdClass(SentReminder.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class SentReminder {
+
+    @Id
+    private Long appointmentId;
+
+    @Id
+    private int offsetMinutes;
+
+    private LocalDateTime sentAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long appointmentId;
+        private int offsetMinutes;
+    }
+}
@@ -0,0 +1,12 @@
+package com.airtribe.meditrack.enums;
+
+//what happened to an appointment, one appointment_history row per transition.
+//IMPORTED is the state of an appointment that existed before the history was recorded
+public enum AppointmentHistoryType {
+    IMPORTED,
+    BOOKED,
+    CONFIRMED,
+    COMPLETED,
+    CANCELLED,
+    NO_SHOW
+}
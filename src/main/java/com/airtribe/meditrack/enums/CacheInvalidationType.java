@@ -0,0 +1,9 @@
+package com.airtribe.meditrack.enums;
+
+public enum CacheInvalidationType {
+    DOCTOR,
+    APPOINTMENT,
+    SCHEDULE,
+    PATIENT_DASHBOARD,
+    DOCTOR_AGENDA
+}
@@ -0,0 +1,7 @@
+package com.airtribe.meditrack.enums;
+
+public enum ImportStatus {
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
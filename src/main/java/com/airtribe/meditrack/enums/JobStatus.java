@@ -0,0 +1,8 @@
+package com.airtribe.meditrack.enums;
+
+public enum JobStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
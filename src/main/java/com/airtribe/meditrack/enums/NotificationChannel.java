@@ -0,0 +1,7 @@
+package com.airtribe.meditrack.enums;
+
+//one gateway, ring buffer and batching dispatcher per channel in NotificationPipeline
+public enum NotificationChannel {
+    SMS,
+    EMAIL
+}
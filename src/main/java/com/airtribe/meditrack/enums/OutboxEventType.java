@@ -0,0 +1,8 @@
+package com.airtribe.meditrack.enums;
+
+public enum OutboxEventType {
+    APPOINTMENT,
+    DOCTOR_MESSAGE,
+    REMINDER,
+    APPOINTMENT_STATUS
+}
@@ -0,0 +1,8 @@
+package com.airtribe.meditrack.enums;
+
+//bucket sizes kept by the revenue rollup, RevenueBucketRepo's upserts list each one with its date_trunc field
+public enum RevenueGranularity {
+    HOUR,
+    DAY,
+    MONTH
+}
@@ -0,0 +1,7 @@
+package com.airtribe.meditrack.exceptions;
+
+public class InvalidImportException extends RuntimeException {
+    public InvalidImportException(String message) {
+        super(message);
+    }
+}
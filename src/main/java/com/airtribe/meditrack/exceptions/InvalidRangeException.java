@@ -0,0 +1,7 @@
+package com.airtribe.meditrack.exceptions;
+
+public class InvalidRangeException extends RuntimeException {
+    public InvalidRangeException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,9 @@
+package com.airtribe.meditrack.exceptions;
+
+//an observer can't take the event now (a notification channel's buffer is full, the gateway gave up on it),
+//ObserverEventBus fails the delivery so the outbox retries the event later
+public class NotificationBacklogException extends RuntimeException {
+    public NotificationBacklogException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,66 @@
+package com.airtribe.meditrack.history;
+
+import com.airtribe.meditrack.entities.Appointment;
+import com.airtribe.meditrack.entities.AppointmentHistoryEvent;
+import com.airtribe.meditrack.enums.AppointmentHistoryType;
+import com.airtribe.meditrack.repositories.AppointmentHistoryEventRepo;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+//appends appointment_history rows, only inside the transaction of the change: a transition is in the history
+//if and only if it committed. the housekeeping job appends its NO_SHOW / CANCELLED rows itself, in its chunk statement
+@Component
+@RequiredArgsConstructor
+public class AppointmentHistoryRecorder {
+
+    private final AppointmentHistoryEventRepo appointmentHistoryEventRepo;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void booked(Appointment appointment) {
+        appointmentHistoryEventRepo.save(event(appointment, AppointmentHistoryType.BOOKED)
+                .doctorId(appointment.getDoctor().getId())
+                .patientId(appointment.getPatient().getId())
+                .startDate(appointment.getStartDate())
+                .startTime(appointment.getStartTime())
+                .endTime(appointment.getEndTime())
+                .paymentAmount(appointment.getPaymentAmount())
+                .build());
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void confirmed(Appointment appointment) {
+        appointmentHistoryEventRepo.save(event(appointment, AppointmentHistoryType.CONFIRMED)
+                .paymentAmount(appointment.getPaymentAmount())
+                .build());
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void completed(Appointment appointment) {
+        appointmentHistoryEventRepo.save(event(appointment, AppointmentHistoryType.COMPLETED)
+                .docObservations(appointment.getDocObservations())
+                .build());
+    }
+
+    //saveAll goes out in jdbc batches with the rest of a bulk cancellation
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void cancelled(List<Appointment> appointments) {
+        appointmentHistoryEventRepo.saveAll(appointments.stream()
+                .map(appointment -> event(appointment, AppointmentHistoryType.CANCELLED)
+                        .cancellationReason(appointment.getCancellationReason())
+                        .build())
+                .toList());
+    }
+
+    private static AppointmentHistoryEvent.AppointmentHistoryEventBuilder event(Appointment appointment, AppointmentHistoryType type) {
+        return AppointmentHistoryEvent.builder()
+                .appointmentId(appointment.getId())
+                .type(type)
+                .status(appointment.getStatus())
+                .occurredAt(LocalDateTime.now());
+    }
+}
@@ -0,0 +1,139 @@
+package com.airtribe.meditrack.history;
+
+import com.airtribe.meditrack.entities.AppointmentHistoryEvent;
+import com.airtribe.meditrack.entities.AppointmentSnapshot;
+import com.airtribe.meditrack.enums.AppointmentHistoryType;
+import com.airtribe.meditrack.enums.AppointmentStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Rebuilds a projection from appointment_history, starting from a snapshot when there is one.
+ * Snapshot states and the events after them come back from one query sorted by appointment, then time,
+ * and are streamed with a cursor, so memory does not grow with the size of the history.
+ * Must run inside a transaction, postgres only streams with a cursor in one.
+ * Plain jdbc on purpose: no entity is managed, an event is mapped, applied and dropped.
+ */
+@Component
+public class AppointmentHistoryReplayer {
+
+    static final int FETCH_SIZE = 10_000;
+
+    private static final String EVENT_COLUMNS =
+            "doctor_id, patient_id, start_date, start_time, end_time, payment_amount, doc_observations, cancellation_reason";
+
+    //part 0 is the snapshot state, part 1 the events after it
+    private static final String SNAPSHOT_PART = """
+            select appointment_id, 0 as part, null as id, null as type, status, %s, updated_at as occurred_at
+            from appointment_snapshot_state s where snapshot_id = ?
+            """.formatted(EVENT_COLUMNS);
+
+    //only appointments with events in the range, AppointmentHistoryService copies the others to a new snapshot in sql
+    private static final String CHANGED_FILTER = """
+              and exists (select 1 from appointment_history h where h.appointment_id = s.appointment_id
+                          and h.occurred_at >= ? and h.occurred_at < ?)
+            """;
+
+    private static final String ALL_EVENTS = """
+            select appointment_id, 1 as part, id, type, status, %s, occurred_at
+            from appointment_history where occurred_at < ?
+            """.formatted(EVENT_COLUMNS);
+
+    private static final String EVENTS_AFTER_SNAPSHOT = ALL_EVENTS + " and occurred_at >= ?";
+
+    private static final String ORDER = " order by appointment_id, part, occurred_at, id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    //what a replay went through
+    public record Result(Long snapshotId, long appointments, long events, long elapsedMs) {
+    }
+
+    public AppointmentHistoryReplayer(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(FETCH_SIZE);
+    }
+
+    //every appointment as of until: the snapshot's states (none when snapshot is null) plus the events since it
+    public Result replay(AppointmentSnapshot snapshot, LocalDateTime until, AppointmentProjection projection) {
+        return replay(snapshot, until, false, projection);
+    }
+
+    //changedOnly leaves out appointments that have no events after the snapshot
+    public Result replay(AppointmentSnapshot snapshot, LocalDateTime until, boolean changedOnly, AppointmentProjection projection) {
+        long start = System.nanoTime();
+        Fold fold = new Fold(projection);
+        if (snapshot == null) {
+            jdbcTemplate.query(ALL_EVENTS + ORDER, fold, until);
+        } else if (changedOnly) {
+            jdbcTemplate.query(SNAPSHOT_PART + CHANGED_FILTER + " union all " + EVENTS_AFTER_SNAPSHOT + ORDER, fold,
+                    snapshot.getId(), snapshot.getCoversBefore(), until, until, snapshot.getCoversBefore());
+        } else {
+            jdbcTemplate.query(SNAPSHOT_PART + " union all " + EVENTS_AFTER_SNAPSHOT + ORDER, fold,
+                    snapshot.getId(), until, snapshot.getCoversBefore());
+        }
+        fold.end();
+        return new Result(snapshot == null ? null : snapshot.getId(), fold.appointments, fold.events,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static class Fold implements RowCallbackHandler {
+
+        private final AppointmentProjection projection;
+        private AppointmentState state;
+        private long appointments;
+        private long events;
+
+        Fold(AppointmentProjection projection) {
+            this.projection = projection;
+        }
+
+        @Override
+        public void processRow(ResultSet resultSet) throws SQLException {
+            long appointmentId = resultSet.getLong("appointment_id");
+            if (state == null || state.getAppointmentId() != appointmentId) {
+                end();
+                state = new AppointmentState(appointmentId);
+                appointments++;
+            }
+            AppointmentHistoryEvent event = AppointmentHistoryEvent.builder()
+                    .id(resultSet.getObject("id", Long.class))
+                    .appointmentId(appointmentId)
+                    .status(AppointmentStatus.valueOf(resultSet.getString("status")))
+                    .doctorId(resultSet.getObject("doctor_id", Long.class))
+                    .patientId(resultSet.getObject("patient_id", Long.class))
+                    .startDate(resultSet.getObject("start_date", LocalDate.class))
+                    .startTime(resultSet.getObject("start_time", LocalTime.class))
+                    .endTime(resultSet.getObject("end_time", LocalTime.class))
+                    .paymentAmount(resultSet.getObject("payment_amount", Double.class))
+                    .docObservations(resultSet.getString("doc_observations"))
+                    .cancellationReason(resultSet.getString("cancellation_reason"))
+                    .occurredAt(resultSet.getObject("occurred_at", LocalDateTime.class))
+                    .build();
+            AppointmentStatus previous = state.getStatus();
+            state.apply(event);
+            if (resultSet.getInt("part") == 0) {
+                projection.restore(state);
+            } else {
+                event.setType(AppointmentHistoryType.valueOf(resultSet.getString("type")));
+                events++;
+                projection.apply(event, previous, state);
+            }
+        }
+
+        void end() {
+            if (state != null) {
+                projection.finish(state);
+                state = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.airtribe.meditrack.history;
+
+import com.airtribe.meditrack.dto.AppointmentStatusCountsDto;
+import com.airtribe.meditrack.entities.AppointmentHistoryEvent;
+import com.airtribe.meditrack.entities.AppointmentSnapshot;
+import com.airtribe.meditrack.enums.AppointmentStatus;
+import com.airtribe.meditrack.exceptions.ResourceNotFoundException;
+import com.airtribe.meditrack.repositories.AppointmentHistoryEventRepo;
+import com.airtribe.meditrack.repositories.AppointmentSnapshotRepo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Appointment history: the append only log of transitions (AppointmentHistoryRecorder writes it) and what is read from it.
+ * One appointment's history or state at a time is folded from its few events. Projections over all appointments
+ * replay from the latest snapshot, which holds every appointment's state as of its coversBefore.
+ * Snapshots are taken every snapshot-check-ms once min-events events have been appended since the last one;
+ * a new snapshot copies the states that did not change in sql and replays only the appointments that did.
+ * It covers events older than lag, so transactions still in flight when it is taken can't be missed.
+ */
+@Slf4j
+@Service
+public class AppointmentHistoryService {
+
+    //appointments booked before the history existed get one IMPORTED event with their current state
+    private static final String IMPORT_EXISTING = """
+            insert into appointment_history (id, appointment_id, type, status, doctor_id, patient_id, start_date,
+                                             start_time, end_time, payment_amount, doc_observations, cancellation_reason, occurred_at)
+            select nextval('appointment_history_seq'), a.id, 'IMPORTED', coalesce(a.status, 'PAYMENT_PENDING'), a.doctor_id,
+                   a.patient_id, a.start_date, a.start_time, a.end_time, a.payment_amount, a.doc_observations,
+                   a.cancellation_reason, ?
+            from appointment a
+            where not exists (select 1 from appointment_history h where h.appointment_id = a.id)
+            """;
+
+    private static final String COPY_UNCHANGED = """
+            insert into appointment_snapshot_state (snapshot_id, appointment_id, status, doctor_id, patient_id, start_date,
+                                                    start_time, end_time, payment_amount, doc_observations,
+                                                    cancellation_reason, updated_at)
+            select ?, appointment_id, status, doctor_id, patient_id, start_date, start_time, end_time, payment_amount,
+                   doc_observations, cancellation_reason, updated_at
+            from appointment_snapshot_state s
+            where snapshot_id = ?
+              and not exists (select 1 from appointment_history h where h.appointment_id = s.appointment_id
+                              and h.occurred_at >= ? and h.occurred_at < ?)
+            """;
+
+    private static final String INSERT_STATE = """
+            insert into appointment_snapshot_state (snapshot_id, appointment_id, status, doctor_id, patient_id, start_date,
+                                                    start_time, end_time, payment_amount, doc_observations,
+                                                    cancellation_reason, updated_at)
+            values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    //one node takes a snapshot at a time, the others skip it
+    private static final long SNAPSHOT_LOCK = 0x6d656469L;
+    private static final int WRITE_BATCH = 1000;
+
+    private final AppointmentHistoryEventRepo appointmentHistoryEventRepo;
+    private final AppointmentSnapshotRepo appointmentSnapshotRepo;
+    private final AppointmentHistoryReplayer appointmentHistoryReplayer;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean postgres;
+    private final long minEvents;
+    private final Duration lag;
+    private final int keep;
+
+    public AppointmentHistoryService(AppointmentHistoryEventRepo appointmentHistoryEventRepo,
+                                     AppointmentSnapshotRepo appointmentSnapshotRepo,
+                                     AppointmentHistoryReplayer appointmentHistoryReplayer,
+                                     JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                     DataSourceProperties dataSourceProperties,
+                                     @Value("${meditrack.history.snapshot-min-events:10000}") long minEvents,
+                                     @Value("${meditrack.history.snapshot-lag:5m}") Duration lag,
+                                     @Value("${meditrack.history.snapshots-kept:3}") int keep) {
+        if (keep < 1) {
+            throw new IllegalArgumentException("meditrack.history.snapshots-kept must be at least 1, got " + keep);
+        }
+        this.appointmentHistoryEventRepo = appointmentHistoryEventRepo;
+        this.appointmentSnapshotRepo = appointmentSnapshotRepo;
+        this.appointmentHistoryReplayer = appointmentHistoryReplayer;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.postgres = dataSourceProperties.getUrl() != null && dataSourceProperties.getUrl().startsWith("jdbc:postgresql:");
+        this.minEvents = minEvents;
+        this.lag = lag;
+        this.keep = keep;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void importExisting() {
+        int imported = jdbcTemplate.update(IMPORT_EXISTING, LocalDateTime.now());
+        if (imported > 0) {
+            log.info("Recorded the current state of {} appointments that had no history", imported);
+        }
+    }
+
+    public List<AppointmentHistoryEvent> getHistory(Long appointmentId) {
+        List<AppointmentHistoryEvent> events = appointmentHistoryEventRepo.findByAppointmentIdOrderByOccurredAtAscIdAsc(appointmentId);
+        if (events.isEmpty()) {
+            throw new ResourceNotFoundException("No history for appointment " + appointmentId);
+        }
+        return events;
+    }
+
+    //the appointment as it was at that moment, folded from its own events, no snapshot needed for one appointment
+    public AppointmentState getStateAt(Long appointmentId, LocalDateTime at) {
+        List<AppointmentHistoryEvent> events = appointmentHistoryEventRepo
+                .findByAppointmentIdAndOccurredAtLessThanEqualOrderByOccurredAtAscIdAsc(appointmentId, at);
+        if (events.isEmpty()) {
+            throw new ResourceNotFoundException("Appointment " + appointmentId + " had no history at " + at);
+        }
+        AppointmentState state = new AppointmentState(appointmentId);
+        events.forEach(state::apply);
+        return state;
+    }
+
+    public AppointmentStatusCountsDto getStatusCounts(LocalDateTime at) {
+        StatusCountProjection projection = new StatusCountProjection();
+        AppointmentHistoryReplayer.Result result = rebuild(at, projection);
+        return new AppointmentStatusCountsDto(at, result.snapshotId(), result.appointments(), result.events(),
+                result.elapsedMs(), projection.counts());
+    }
+
+    //replays everything that occurred before until into the projection, from the latest snapshot taken before it
+    public AppointmentHistoryReplayer.Result rebuild(LocalDateTime until, AppointmentProjection projection) {
+        return transactionTemplate.execute(status -> {
+            AppointmentSnapshot snapshot = appointmentSnapshotRepo.findFirstByCoversBeforeLessThanEqualOrderByCoversBeforeDesc(until).orElse(null);
+            return appointmentHistoryReplayer.replay(snapshot, until, projection);
+        });
+    }
+
+    @Scheduled(initialDelayString = "${meditrack.history.snapshot-check-ms:600000}", fixedDelayString = "${meditrack.history.snapshot-check-ms:600000}")
+    public void snapshotOnSchedule() {
+        LocalDateTime coversBefore = LocalDateTime.now().minus(lag);
+        long pending = appointmentSnapshotRepo.findFirstByOrderByCoversBeforeDesc()
+                .map(latest -> appointmentHistoryEventRepo.countByOccurredAtGreaterThanEqualAndOccurredAtLessThan(latest.getCoversBefore(), coversBefore))
+                .orElseGet(() -> appointmentHistoryEventRepo.countByOccurredAtLessThan(coversBefore));
+        if (pending >= minEvents) {
+            snapshot();
+        }
+    }
+
+    //returns the new snapshot, or the latest one when there is nothing newer to cover or another node is taking one
+    public AppointmentSnapshot snapshot() {
+        return transactionTemplate.execute(status -> {
+            AppointmentSnapshot previous = appointmentSnapshotRepo.findFirstByOrderByCoversBeforeDesc().orElse(null);
+            if (postgres && !Boolean.TRUE.equals(jdbcTemplate.queryForObject("select pg_try_advisory_xact_lock(?)", Boolean.class, SNAPSHOT_LOCK))) {
+                return previous;
+            }
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime coversBefore = now.minus(lag);
+            if (previous != null && !coversBefore.isAfter(previous.getCoversBefore())) {
+                return previous;
+            }
+            AppointmentSnapshot snapshot = appointmentSnapshotRepo.save(AppointmentSnapshot.builder()
+                    .coversBefore(coversBefore)
+                    .createdAt(now)
+                    .build());
+            long copied = previous == null ? 0 : jdbcTemplate.update(COPY_UNCHANGED, snapshot.getId(), previous.getId(),
+                    previous.getCoversBefore(), coversBefore);
+            StateWriter writer = new StateWriter(snapshot.getId());
+            AppointmentHistoryReplayer.Result result = appointmentHistoryReplayer.replay(previous, coversBefore, true, writer);
+            writer.flush();
+            snapshot.setAppointments(copied + result.appointments());
+            snapshot.setEventsApplied(result.events());
+            prune(snapshot.getId());
+            log.info("Snapshot {} of {} appointments as of {}: {} copied, {} rebuilt from {} events in {} ms", snapshot.getId(),
+                    snapshot.getAppointments(), coversBefore, copied, result.appointments(), result.events(), result.elapsedMs());
+            return snapshot;
+        });
+    }
+
+    //older snapshots than the last keep go, with their states
+    private void prune(Long newest) {
+        List<AppointmentSnapshot> older = appointmentSnapshotRepo.findAllByOrderByCoversBeforeDesc().stream()
+                .filter(snapshot -> !snapshot.getId().equals(newest))
+                .skip(keep - 1)
+                .toList();
+        for (AppointmentSnapshot snapshot : older) {
+            jdbcTemplate.update("delete from appointment_snapshot_state where snapshot_id = ?", snapshot.getId());
+            appointmentSnapshotRepo.delete(snapshot);
+        }
+    }
+
+    //writes each rebuilt appointment into the new snapshot in jdbc batches, while the replay cursor is still open
+    private class StateWriter implements AppointmentProjection {
+
+        private final Long snapshotId;
+        private final List<Object[]> rows = new ArrayList<>(WRITE_BATCH);
+
+        StateWriter(Long snapshotId) {
+            this.snapshotId = snapshotId;
+        }
+
+        @Override
+        public void apply(AppointmentHistoryEvent event, AppointmentStatus previous, AppointmentState state) {
+        }
+
+        @Override
+        public void finish(AppointmentState state) {
+            rows.add(new Object[]{snapshotId, state.getAppointmentId(), state.getStatus().name(), state.getDoctorId(),
+                    state.getPatientId(), state.getStartDate(), state.getStartTime(), state.getEndTime(),
+                    state.getPaymentAmount(), state.getDocObservations(), state.getCancellationReason(), state.getUpdatedAt()});
+            if (rows.size() == WRITE_BATCH) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (!rows.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_STATE, rows);
+                rows.clear();
+            }
+        }
+    }
+}
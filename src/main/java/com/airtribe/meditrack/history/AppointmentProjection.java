@@ -0,0 +1,22 @@
+package com.airtribe.meditrack.history;
+
+import com.airtribe.meditrack.entities.AppointmentHistoryEvent;
+import com.airtribe.meditrack.enums.AppointmentStatus;
+
+/**
+ * A read model rebuilt by AppointmentHistoryReplayer. The replay goes appointment by appointment (ascending id):
+ * restore() with the appointment's snapshot state if it has one, apply() for each of its later events in the order
+ * they occurred, then finish(). Only one appointment is in memory at a time, so projections should not depend on
+ * the order of different appointments' events (counts and sums per doctor, day, status... don't).
+ */
+public interface AppointmentProjection {
+
+    default void restore(AppointmentState state) {
+    }
+
+    //state already includes the event, previous is the status before it (null for the appointment's first event)
+    void apply(AppointmentHistoryEvent event, AppointmentStatus previous, AppointmentState state);
+
+    default void finish(AppointmentState state) {
+    }
+}
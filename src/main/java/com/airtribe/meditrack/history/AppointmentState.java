@@ -0,0 +1,63 @@
+package com.airtribe.meditrack.history;
+
+import com.airtribe.meditrack.entities.AppointmentHistoryEvent;
+import com.airtribe.meditrack.enums.AppointmentStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+//an appointment rebuilt from its history: a snapshot state (or nothing) with the later events applied in order
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AppointmentState {
+    private Long appointmentId;
+    private AppointmentStatus status;
+    private Long doctorId;
+    private Long patientId;
+    private LocalDate startDate;
+    private LocalTime startTime;
+    private LocalTime endTime;
+    private Double paymentAmount;
+    private String docObservations;
+    private String cancellationReason;
+    private LocalDateTime updatedAt;
+
+    public AppointmentState(Long appointmentId) {
+        this.appointmentId = appointmentId;
+    }
+
+    //events only carry what they changed
+    public void apply(AppointmentHistoryEvent event) {
+        status = event.getStatus();
+        if (event.getDoctorId() != null) {
+            doctorId = event.getDoctorId();
+        }
+        if (event.getPatientId() != null) {
+            patientId = event.getPatientId();
+        }
+        if (event.getStartDate() != null) {
+            startDate = event.getStartDate();
+        }
+        if (event.getStartTime() != null) {
+            startTime = event.getStartTime();
+        }
+        if (event.getEndTime() != null) {
+            endTime = event.getEndTime();
+        }
+        if (event.getPaymentAmount() != null) {
+            paymentAmount = event.getPaymentAmount();
+        }
+        if (event.getDocObservations() != null) {
+            docObservations = event.getDocObservations();
+        }
+        if (event.getCancellationReason() != null) {
+            cancellationReason = event.getCancellationReason();
+        }
+        updatedAt = event.getOccurredAt();
+    }
+}
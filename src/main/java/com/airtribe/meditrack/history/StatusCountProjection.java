@@ -0,0 +1,34 @@
+package com.airtribe.meditrack.history;
+
+import com.airtribe.meditrack.entities.AppointmentHistoryEvent;
+import com.airtribe.meditrack.enums.AppointmentStatus;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+//how many appointments were in each status
+public class StatusCountProjection implements AppointmentProjection {
+
+    private final long[] counts = new long[AppointmentStatus.values().length];
+
+    @Override
+    public void restore(AppointmentState state) {
+        counts[state.getStatus().ordinal()]++;
+    }
+
+    @Override
+    public void apply(AppointmentHistoryEvent event, AppointmentStatus previous, AppointmentState state) {
+        if (previous != null) {
+            counts[previous.ordinal()]--;
+        }
+        counts[state.getStatus().ordinal()]++;
+    }
+
+    public Map<AppointmentStatus, Long> counts() {
+        Map<AppointmentStatus, Long> result = new EnumMap<>(AppointmentStatus.class);
+        for (AppointmentStatus status : AppointmentStatus.values()) {
+            result.put(status, counts[status.ordinal()]);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,294 @@
+package com.airtribe.meditrack.jobs;
+
+import com.airtribe.meditrack.repositories.DoctorStatsRepo;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Status housekeeping for past appointments, submitted by AppointmentHousekeepingService:
+ * SCHEDULED ones that ended before noShowBefore become NO_SHOW, PAYMENT_PENDING ones whose start passed unpaid are
+ * CANCELLED with UNPAID_REASON. Their times are kept like for every cancellation, and a past slot frees nothing.
+ * The doctors with such rows are split into partitions (doctor id mod partitions) worked on in parallel. Each
+ * partition goes through its doctors' appointments in (start_date, id) order on idx_appointment_doctor_day,
+ * chunkSize rows per transaction with one update statement. Rows locked by a request are skipped, not waited for,
+ * the next run gets them. The last key of every partition is checkpointed with its chunk, a resumed job continues
+ * from there. After each chunk a partition pauses so it keeps the database busy at most duty-cycle of the time,
+ * and at least busy-pause-ms while requests are waiting for a pooled connection.
+ * The rows are in the past: no notifications, reminders or slot pushes are involved. Unpaid closures count as
+ * cancellations in doctor_stats. Every changed row gets its appointment_history event and an APPOINTMENT_STATUS
+ * outbox event (for the dashboards, nobody is notified) in the same statement.
+ */
+@Slf4j
+@Component
+public class AppointmentHousekeepingJobHandler implements JobHandler {
+
+    public static final String TYPE = "appointment-housekeeping";
+    static final String UNPAID_REASON = "Payment not received before the appointment";
+    private static final LocalDate FIRST_DAY = LocalDate.of(1, 1, 1);
+    private static final TypeReference<Map<Integer, Position>> POSITIONS = new TypeReference<>() {
+    };
+
+    private static final String COUNT_CANDIDATES = """
+            select count(*) from appointment
+            where start_date <= ? and status in ('SCHEDULED', 'PAYMENT_PENDING')
+            """;
+
+    private static final String DOCTORS_WITH_CANDIDATES = """
+            select distinct doctor_id from appointment
+            where start_date <= ? and status in ('SCHEDULED', 'PAYMENT_PENDING')
+            """;
+
+    //the chunk is the next rows of the doctor in key order, updated are the ones that are due. every chunk row comes
+    //back (status null when it was left alone) so the keyset moves past rows that are not due yet.
+    //history and outbox ids are whole pooled-lo blocks like PatientImportWriter's, hibernate never hands them out again
+    private static final String PROCESS_CHUNK = """
+            with chunk as (
+                select id, start_date from appointment
+                where doctor_id = ? and start_date <= ? and status in ('SCHEDULED', 'PAYMENT_PENDING')
+                  and (start_date, id) > (?, ?)
+                order by start_date, id
+                limit ?
+                for update skip locked
+            ), updated as (
+                update appointment a set
+                    status = case when a.status = 'SCHEDULED' then 'NO_SHOW' else 'CANCELLED' end,
+                    cancellation_reason = case when a.status = 'PAYMENT_PENDING' then ? else a.cancellation_reason end
+                from chunk c
+                where a.id = c.id
+                  and ((a.status = 'SCHEDULED' and a.start_date + a.end_time < ?)
+                    or (a.status = 'PAYMENT_PENDING' and a.start_date + a.start_time < ?))
+                returning a.id, a.doctor_id, a.patient_id, a.start_date, a.status, a.cancellation_reason
+            ), history as (
+                insert into appointment_history (id, appointment_id, type, status, cancellation_reason, occurred_at)
+                select nextval('appointment_history_seq'), id, status, status,
+                       case when status = 'CANCELLED' then cancellation_reason end, ?
+                from updated
+            ), status_events as (
+                insert into outbox_event (id, type, aggregate_id, payload, created_at)
+                select nextval('outbox_event_seq'), 'APPOINTMENT_STATUS', id,
+                       json_build_object('appointmentId', id, 'doctorId', doctor_id, 'patientId', patient_id,
+                                         'startDate', start_date, 'status', status, 'occurredAt', ?::timestamp)::text, ?
+                from updated
+            )
+            select c.id, c.start_date, u.status from chunk c left join updated u on u.id = c.id
+            order by c.start_date, c.id
+            """;
+
+    private final ObjectMapper objectMapper;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final DoctorStatsRepo doctorStatsRepo;
+    private final MeterRegistry registry;
+    private final int chunkSize;
+    private final double dutyCycle;
+    private final long busyPauseMs;
+
+    //fixed when the job is submitted, a resumed job works with the same cut-offs and partitions
+    public record Input(LocalDateTime asOf, LocalDateTime noShowBefore, int partitions) {
+    }
+
+    //last key done in a partition
+    record Position(Long doctorId, LocalDate startDate, Long id) {
+    }
+
+    private record Chunk(int rows, int noShows, int closed, Position last) {
+    }
+
+    public AppointmentHousekeepingJobHandler(ObjectMapper objectMapper, JdbcTemplate jdbcTemplate,
+                                             TransactionTemplate transactionTemplate, DoctorStatsRepo doctorStatsRepo,
+                                             MeterRegistry registry,
+                                             @Value("${meditrack.housekeeping.chunk-size:500}") int chunkSize,
+                                             @Value("${meditrack.housekeeping.duty-cycle:0.25}") double dutyCycle,
+                                             @Value("${meditrack.housekeeping.busy-pause-ms:1000}") long busyPauseMs) {
+        if (dutyCycle <= 0 || dutyCycle > 1) {
+            throw new IllegalArgumentException("meditrack.housekeeping.duty-cycle must be in (0, 1], got " + dutyCycle);
+        }
+        this.objectMapper = objectMapper;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.doctorStatsRepo = doctorStatsRepo;
+        this.registry = registry;
+        this.chunkSize = chunkSize;
+        this.dutyCycle = dutyCycle;
+        this.busyPauseMs = busyPauseMs;
+    }
+
+    @Override
+    public String type() {
+        return TYPE;
+    }
+
+    @Override
+    public long countItems(String payload) throws Exception {
+        Input input = objectMapper.readValue(payload, Input.class);
+        Long count = jdbcTemplate.queryForObject(COUNT_CANDIDATES, Long.class, input.asOf().toLocalDate());
+        return count == null ? 0 : count;
+    }
+
+    @Override
+    public String run(String payload, JobContext context) throws Exception {
+        Input input = objectMapper.readValue(payload, Input.class);
+        Map<Integer, Position> committed = new ConcurrentHashMap<>();
+        if (context.getCheckpoint() != null) {
+            committed.putAll(objectMapper.readValue(context.getCheckpoint(), POSITIONS));
+        }
+        Map<Integer, List<Long>> partitions = jdbcTemplate
+                .queryForList(DOCTORS_WITH_CANDIDATES, Long.class, input.asOf().toLocalDate()).stream()
+                .sorted()
+                .collect(Collectors.groupingBy(doctorId -> (int) Math.floorMod(doctorId, input.partitions())));
+
+        Run run = new Run(input, context, committed);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            partitions.forEach((partition, doctors) -> futures.add(executor.submit(() -> {
+                run.partition(partition, doctors);
+                return null;
+            })));
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    run.failed.set(true);
+                    throw e.getCause() instanceof Exception cause ? cause : e;
+                }
+            }
+        }
+        return "Marked " + run.noShows.get() + " appointments NO_SHOW and cancelled " + run.closed.get()
+                + " unpaid ones (as of " + input.asOf() + ", " + partitions.size() + " partitions)";
+    }
+
+    //state shared by the partitions of one run
+    private class Run {
+
+        private final Input input;
+        private final JobContext context;
+        private final Map<Integer, Position> committed;
+        private final AtomicLong processed;
+        private final AtomicLong noShows = new AtomicLong();
+        private final AtomicLong closed = new AtomicLong();
+        private final AtomicBoolean failed = new AtomicBoolean();
+
+        Run(Input input, JobContext context, Map<Integer, Position> committed) {
+            this.input = input;
+            this.context = context;
+            this.committed = committed;
+            this.processed = new AtomicLong(context.getProcessedItems());
+        }
+
+        boolean stopping() {
+            return failed.get() || context.isStopping();
+        }
+
+        void partition(int partition, List<Long> doctors) throws Exception {
+            for (Long doctorId : doctors) {
+                Position position = committed.get(partition);
+                if (position != null && doctorId < position.doctorId()) {
+                    continue;
+                }
+                if (position == null || !doctorId.equals(position.doctorId())) {
+                    position = new Position(doctorId, FIRST_DAY, 0L);
+                }
+                while (!stopping()) {
+                    long start = System.nanoTime();
+                    Chunk chunk = chunk(partition, position);
+                    throttle(System.nanoTime() - start);
+                    if (chunk.rows() < chunkSize) {
+                        break;
+                    }
+                    position = chunk.last();
+                }
+                if (stopping()) {
+                    return;
+                }
+            }
+        }
+
+        private Chunk chunk(int partition, Position from) {
+            LocalDateTime now = LocalDateTime.now();
+            Chunk chunk = transactionTemplate.execute(status -> {
+                List<Object[]> rows = jdbcTemplate.query(PROCESS_CHUNK, (resultSet, rowNum) -> new Object[]{
+                                resultSet.getLong("id"), resultSet.getObject("start_date", LocalDate.class), resultSet.getString("status")},
+                        from.doctorId(), input.asOf().toLocalDate(), from.startDate(), from.id(), chunkSize,
+                        UNPAID_REASON, input.noShowBefore(), input.asOf(), now, now, now);
+                if (rows.isEmpty()) {
+                    return new Chunk(0, 0, 0, from);
+                }
+                int noShowCount = 0;
+                int closedCount = 0;
+                for (Object[] row : rows) {
+                    if ("NO_SHOW".equals(row[2])) {
+                        noShowCount++;
+                    } else if ("CANCELLED".equals(row[2])) {
+                        closedCount++;
+                    }
+                }
+                if (closedCount > 0) {
+                    doctorStatsRepo.add(from.doctorId(), 0, 0, closedCount, 0);
+                }
+                Object[] lastRow = rows.get(rows.size() - 1);
+                Position last = new Position(from.doctorId(), (LocalDate) lastRow[1], (Long) lastRow[0]);
+                //only positions that already committed go into the checkpoint, a resumed job may redo a chunk but never skips one
+                Map<Integer, Position> positions = new HashMap<>(committed);
+                positions.put(partition, last);
+                synchronized (context) {
+                    context.checkpoint(processed.get() + rows.size(), toJson(positions));
+                }
+                return new Chunk(rows.size(), noShowCount, closedCount, last);
+            });
+            if (chunk.rows() > 0) {
+                committed.put(partition, chunk.last());
+                processed.addAndGet(chunk.rows());
+                noShows.addAndGet(chunk.noShows());
+                closed.addAndGet(chunk.closed());
+            }
+            return chunk;
+        }
+
+        private void throttle(long busyNanos) throws InterruptedException {
+            long pauseMs = TimeUnit.NANOSECONDS.toMillis((long) (busyNanos * (1 - dutyCycle) / dutyCycle));
+            if (connectionsPending() > 0) {
+                pauseMs = Math.max(pauseMs, busyPauseMs);
+            }
+            long until = System.currentTimeMillis() + pauseMs;
+            for (long left = pauseMs; left > 0 && !stopping(); left = until - System.currentTimeMillis()) {
+                Thread.sleep(Math.min(100, left));
+            }
+        }
+    }
+
+    //requests waiting for a connection in any of the hikari pools, 0 when their metrics are not registered
+    private double connectionsPending() {
+        return registry.find("hikaricp.connections.pending").gauges().stream().mapToDouble(Gauge::value).sum();
+    }
+
+    private String toJson(Map<Integer, Position> positions) {
+        try {
+            return objectMapper.writeValueAsString(positions);
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not write the housekeeping checkpoint", e);
+        }
+    }
+}
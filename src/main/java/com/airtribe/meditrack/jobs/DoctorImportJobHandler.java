@@ -0,0 +1,61 @@
+package com.airtribe.meditrack.jobs;
+
+import com.airtribe.meditrack.cache.CacheInvalidationPublisher;
+import com.airtribe.meditrack.dto.DoctorDetailDTO;
+import com.airtribe.meditrack.entities.Doctor;
+import com.airtribe.meditrack.repositories.DoctorRepo;
+import com.airtribe.meditrack.services.BulkWriteService;
+import com.airtribe.meditrack.services.PersonService;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+//POST /register/addAllDoc: embeds and saves the doctors CHUNK_SIZE at a time
+//each chunk and its checkpoint commit together, so a resumed job skips exactly the doctors already saved
+@Component
+@RequiredArgsConstructor
+public class DoctorImportJobHandler implements JobHandler {
+
+    public static final String TYPE = "doctor-import";
+    private static final int CHUNK_SIZE = 100;
+    private static final TypeReference<List<DoctorDetailDTO>> DOCTORS = new TypeReference<>() {
+    };
+
+    private final ObjectMapper objectMapper;
+    private final PersonService personService;
+    private final BulkWriteService bulkWriteService;
+    private final TransactionTemplate transactionTemplate;
+    private final CacheInvalidationPublisher cacheInvalidationPublisher;
+    private final DoctorRepo doctorRepo;
+
+    @Override
+    public String type() {
+        return TYPE;
+    }
+
+    @Override
+    public long countItems(String payload) throws Exception {
+        return objectMapper.readValue(payload, DOCTORS).size();
+    }
+
+    @Override
+    public String run(String payload, JobContext context) throws Exception {
+        List<DoctorDetailDTO> doctors = objectMapper.readValue(payload, DOCTORS);
+        int from = (int) context.getProcessedItems();
+        while (from < doctors.size() && !context.isStopping()) {
+            int to = Math.min(from + CHUNK_SIZE, doctors.size());
+            List<Doctor> chunk = personService.toDoctorsWithEmbeddings(doctors.subList(from, to));
+            transactionTemplate.executeWithoutResult(status -> {
+                bulkWriteService.persistAll(chunk);
+                context.checkpoint(to, null);
+            });
+            cacheInvalidationPublisher.allDoctorsChanged();
+            from = to;
+        }
+        return "All doctors added successfully. Total doctors in the system: " + doctorRepo.count();
+    }
+}
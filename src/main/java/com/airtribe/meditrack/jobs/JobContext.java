@@ -0,0 +1,60 @@
+package com.airtribe.meditrack.jobs;
+
+import com.airtribe.meditrack.entities.Job;
+import com.airtribe.meditrack.repositories.JobRepo;
+
+import java.time.LocalDateTime;
+import java.util.function.BooleanSupplier;
+
+//what a running JobHandler sees of its job: where to resume from, how to record progress, whether to stop
+public class JobContext {
+
+    private final Long jobId;
+    private final String owner;
+    private final JobRepo jobRepo;
+    private final BooleanSupplier stopping;
+    private long processedItems;
+    private String checkpoint;
+    private volatile boolean takenOver;
+
+    JobContext(Job job, String owner, JobRepo jobRepo, BooleanSupplier stopping) {
+        this.jobId = job.getId();
+        this.owner = owner;
+        this.jobRepo = jobRepo;
+        this.stopping = stopping;
+        this.processedItems = job.getProcessedItems();
+        this.checkpoint = job.getCheckpoint();
+    }
+
+    public Long getJobId() {
+        return jobId;
+    }
+
+    public long getProcessedItems() {
+        return processedItems;
+    }
+
+    public String getCheckpoint() {
+        return checkpoint;
+    }
+
+    //call inside the transaction that wrote the chunk, then the chunk and the checkpoint commit (or roll back) together.
+    //throws JobTakenOverException when another node owns the job now, which rolls the chunk back
+    public void checkpoint(long processedItems, String checkpoint) {
+        if (jobRepo.updateProgress(jobId, owner, processedItems, checkpoint, LocalDateTime.now()) == 0) {
+            takenOver = true;
+            throw new JobTakenOverException(jobId);
+        }
+        this.processedItems = processedItems;
+        this.checkpoint = checkpoint;
+    }
+
+    boolean isTakenOver() {
+        return takenOver;
+    }
+
+    //true once the application is shutting down or the job was taken over, handlers should return after the current chunk
+    public boolean isStopping() {
+        return takenOver || stopping.getAsBoolean() || Thread.currentThread().isInterrupted();
+    }
+}
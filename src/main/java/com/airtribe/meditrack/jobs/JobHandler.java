@@ -0,0 +1,18 @@
+package com.airtribe.meditrack.jobs;
+
+/**
+ * One kind of background job. Implementations are spring beans, JobService finds them by type().
+ * run() must be restartable: after a crash or shutdown it is called again with the same payload and must
+ * continue from context.getProcessedItems() / context.getCheckpoint() instead of starting over.
+ */
+public interface JobHandler {
+
+    //stored on the job row, must stay stable across releases
+    String type();
+
+    //for progress and ETA, called once when the job is submitted
+    long countItems(String payload) throws Exception;
+
+    //does the work, calling context.checkpoint after every committed chunk. returns a short result message
+    String run(String payload, JobContext context) throws Exception;
+}
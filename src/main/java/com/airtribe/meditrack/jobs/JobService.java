@@ -0,0 +1,214 @@
+package com.airtribe.meditrack.jobs;
+
+import com.airtribe.meditrack.dto.JobStatusDto;
+import com.airtribe.meditrack.entities.Job;
+import com.airtribe.meditrack.enums.JobStatus;
+import com.airtribe.meditrack.exceptions.ResourceNotFoundException;
+import com.airtribe.meditrack.repositories.JobRepo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Runs long admin operations in the background: submit() stores the job and returns right away,
+ * a fixed pool of workers (bounded queue) runs it, progress lives on the job row so any node can report it.
+ * Jobs left QUEUED (pool was full, or stopped by a shutdown) or RUNNING on a node that died are picked up again
+ * by resumeJobs(), the handler continues from its last checkpoint.
+ */
+@Slf4j
+@Service
+public class JobService {
+
+    private final JobRepo jobRepo;
+    private final ObjectMapper objectMapper;
+    private final Map<String, JobHandler> handlers;
+    private final ThreadPoolExecutor executor;
+    private final Duration staleAfter;
+    private final String nodeId;
+
+    //jobs queued in or running on this node's pool
+    private final Set<Long> localJobs = ConcurrentHashMap.newKeySet();
+    private volatile boolean stopping;
+
+    public JobService(JobRepo jobRepo, ObjectMapper objectMapper, List<JobHandler> handlers,
+                      @Value("${meditrack.jobs.workers:2}") int workers,
+                      @Value("${meditrack.jobs.queue-capacity:100}") int queueCapacity,
+                      @Value("${meditrack.jobs.stale-after-ms:60000}") long staleAfterMs,
+                      @Value("${meditrack.node-id:#{null}}") String nodeId) {
+        this.jobRepo = jobRepo;
+        this.objectMapper = objectMapper;
+        this.handlers = handlers.stream().collect(Collectors.toMap(JobHandler::type, Function.identity()));
+        this.staleAfter = Duration.ofMillis(staleAfterMs);
+        this.nodeId = nodeId != null ? nodeId : UUID.randomUUID().toString();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> new Thread(runnable, "job-worker-" + threadNumber.incrementAndGet()));
+    }
+
+    public JobStatusDto submit(String type, Object input) {
+        JobHandler handler = handlers.get(type);
+        if (handler == null) {
+            throw new IllegalArgumentException("Unknown job type " + type);
+        }
+        String payload;
+        long totalItems;
+        try {
+            payload = objectMapper.writeValueAsString(input);
+            totalItems = handler.countItems(payload);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid input for job " + type + ": " + e.getMessage(), e);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Job job = jobRepo.save(Job.builder()
+                .type(type)
+                .status(JobStatus.QUEUED)
+                .payload(payload)
+                .totalItems(totalItems)
+                .createdAt(now)
+                .updatedAt(now)
+                .build());
+        //submitted inside the caller's transaction (AppointmentHousekeepingService): a worker can only claim it once committed
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(job.getId());
+                }
+            });
+        } else {
+            enqueue(job.getId());
+        }
+        return toStatus(job);
+    }
+
+    public JobStatusDto getStatus(Long id) {
+        return jobRepo.findById(id)
+                .map(this::toStatus)
+                .orElseThrow(() -> new ResourceNotFoundException("Job not found with ID: " + id));
+    }
+
+    //on startup and then periodically: heartbeat our running jobs, take over queued and abandoned ones
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${meditrack.jobs.resume-interval-ms:15000}", fixedDelayString = "${meditrack.jobs.resume-interval-ms:15000}")
+    public void resumeJobs() {
+        if (stopping) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        if (!localJobs.isEmpty()) {
+            jobRepo.heartbeat(Set.copyOf(localJobs), nodeId, now);
+        }
+        for (Long id : jobRepo.findResumable(JobStatus.QUEUED, JobStatus.RUNNING, now.minus(staleAfter))) {
+            enqueue(id);
+        }
+    }
+
+    //a full pool just leaves the job QUEUED in the db, resumeJobs tries again later
+    private void enqueue(Long jobId) {
+        if (!localJobs.add(jobId)) {
+            return;
+        }
+        try {
+            executor.execute(() -> run(jobId));
+        } catch (RejectedExecutionException e) {
+            localJobs.remove(jobId);
+        }
+    }
+
+    private void run(Long jobId) {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            if (stopping || jobRepo.claim(jobId, nodeId, now, now.minus(staleAfter), JobStatus.QUEUED, JobStatus.RUNNING) == 0) {
+                return;
+            }
+            Job job = jobRepo.findById(jobId).orElseThrow();
+            JobHandler handler = handlers.get(job.getType());
+            if (handler == null) {
+                jobRepo.finish(jobId, nodeId, JobStatus.FAILED, null, "No handler for job type " + job.getType(), LocalDateTime.now());
+                return;
+            }
+            log.info("Job {} ({}) started at {}/{} items", jobId, job.getType(), job.getProcessedItems(), job.getTotalItems());
+            JobContext context = new JobContext(job, nodeId, jobRepo, () -> stopping);
+            int updated;
+            try {
+                String result = handler.run(job.getPayload(), context);
+                if (context.isTakenOver()) {
+                    updated = 0;
+                } else if (stopping) {
+                    updated = jobRepo.requeue(jobId, nodeId, JobStatus.QUEUED, LocalDateTime.now());
+                } else {
+                    updated = jobRepo.finish(jobId, nodeId, JobStatus.COMPLETED, result, null, LocalDateTime.now());
+                    if (updated > 0) {
+                        log.info("Job {} ({}) completed: {}", jobId, job.getType(), result);
+                    }
+                }
+            } catch (Exception e) {
+                //the partitioned handlers rethrow the failing partition's cause, so the takeover surfaces as is
+                if (context.isTakenOver() || e instanceof JobTakenOverException) {
+                    updated = 0;
+                } else if (stopping) {
+                    updated = jobRepo.requeue(jobId, nodeId, JobStatus.QUEUED, LocalDateTime.now());
+                } else {
+                    log.error("Job {} ({}) failed", jobId, job.getType(), e);
+                    updated = jobRepo.finish(jobId, nodeId, JobStatus.FAILED, null, e.getMessage(), LocalDateTime.now());
+                }
+            }
+            //0 rows means another node claimed the job while this one stalled, its run owns the outcome
+            if (updated == 0) {
+                log.warn("Job {} ({}) was taken over by another node, dropping this run", jobId, job.getType());
+            }
+        } finally {
+            localJobs.remove(jobId);
+        }
+    }
+
+    //handlers return after their current chunk, their jobs go back to QUEUED and resume on the next start
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        stopping = true;
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+    }
+
+    private JobStatusDto toStatus(Job job) {
+        LocalDateTime end = job.getFinishedAt() != null ? job.getFinishedAt() : LocalDateTime.now();
+        long doneThisRun = job.getProcessedItems() - job.getProcessedAtStart();
+        double seconds = job.getStartedAt() == null ? 0 : Duration.between(job.getStartedAt(), end).toMillis() / 1000.0;
+        double itemsPerSecond = seconds > 0 ? doneThisRun / seconds : 0;
+        Long etaSeconds = null;
+        if (job.getStatus() == JobStatus.COMPLETED) {
+            etaSeconds = 0L;
+        } else if (job.getStatus() == JobStatus.RUNNING && itemsPerSecond > 0) {
+            etaSeconds = Math.round((job.getTotalItems() - job.getProcessedItems()) / itemsPerSecond);
+        }
+        double percentDone = job.getTotalItems() == 0 ? 100.0 : job.getProcessedItems() * 100.0 / job.getTotalItems();
+        return new JobStatusDto(job.getId(), job.getType(), job.getStatus(), job.getTotalItems(), job.getProcessedItems(),
+                percentDone, itemsPerSecond, etaSeconds, job.getCreatedAt(), job.getStartedAt(), job.getFinishedAt(),
+                job.getResult(), job.getError());
+    }
+}
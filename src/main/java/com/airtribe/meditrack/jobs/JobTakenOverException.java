@@ -0,0 +1,9 @@
+package com.airtribe.meditrack.jobs;
+
+//the job row is owned by another node now (this one stalled past stale-after-ms and the job was claimed again),
+//the chunk that noticed it rolls back and this node lets go of the job without finishing it
+public class JobTakenOverException extends RuntimeException {
+    public JobTakenOverException(Long jobId) {
+        super("Job " + jobId + " was taken over by another node");
+    }
+}
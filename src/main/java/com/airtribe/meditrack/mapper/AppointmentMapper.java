@@ -0,0 +1,18 @@
+package com.airtribe.meditrack.mapper;
+
+import com.airtribe.meditrack.dto.AppointmentDTO;
+import com.airtribe.meditrack.entities.Appointment;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+//only the ids and names of doctor and patient are copied, so the embedding and lazy collections never reach the json
+@Mapper(componentModel = "spring")
+public interface AppointmentMapper {
+
+    @Mapping(target = "doctorId", source = "doctor.id")
+    @Mapping(target = "doctorName", source = "doctor.name")
+    @Mapping(target = "specialist", source = "doctor.specialist")
+    @Mapping(target = "patientId", source = "patient.id")
+    @Mapping(target = "patientName", source = "patient.name")
+    AppointmentDTO toDto(Appointment appointment);
+}
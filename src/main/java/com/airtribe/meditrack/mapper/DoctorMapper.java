@@ -0,0 +1,16 @@
+package com.airtribe.meditrack.mapper;
+
+import com.airtribe.meditrack.dto.DoctorDto;
+import com.airtribe.meditrack.entities.Doctor;
+import org.mapstruct.Mapper;
+
+import java.util.List;
+
+//mapstruct generates DoctorMapperImpl at compile time, plain getters/setters instead of ModelMapper reflection
+@Mapper(componentModel = "spring")
+public interface DoctorMapper {
+
+    DoctorDto toDto(Doctor doctor);
+
+    List<DoctorDto> toDtos(List<Doctor> doctors);
+}
@@ -0,0 +1,15 @@
+package com.airtribe.meditrack.mapper;
+
+import com.airtribe.meditrack.dto.PatientDto;
+import com.airtribe.meditrack.entities.Patient;
+import org.mapstruct.Mapper;
+
+import java.util.List;
+
+@Mapper(componentModel = "spring")
+public interface PatientMapper {
+
+    PatientDto toDto(Patient patient);
+
+    List<PatientDto> toDtos(List<Patient> patients);
+}
@@ -0,0 +1,84 @@
+package com.airtribe.meditrack.monitoring;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+//sql statements per request: X-SQL-Statement-Count response header, and meditrack.http.sql.statements{method,uri} in /actuator/metrics
+//the header is written when the body starts, by then the handler's queries have run (streamed bodies report the count so far)
+@Component
+public class SqlStatementCountFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "X-SQL-Statement-Count";
+
+    private final MeterRegistry registry;
+
+    public SqlStatementCountFilter(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        SqlStatementCounter.reset();
+        try {
+            filterChain.doFilter(request, new CountHeaderResponse(response));
+        } finally {
+            long statements = SqlStatementCounter.get();
+            if (!response.isCommitted()) {
+                response.setHeader(HEADER, Long.toString(statements));
+            }
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            DistributionSummary.builder("meditrack.http.sql.statements")
+                    .description("SQL statements executed by hibernate per HTTP request")
+                    .tag("method", request.getMethod())
+                    .tag("uri", pattern != null ? pattern.toString() : "UNKNOWN")
+                    .register(registry)
+                    .record(statements);
+            SqlStatementCounter.clear();
+        }
+    }
+
+    //headers can't change once the body is committed, so the count goes in just before anything is written
+    private static class CountHeaderResponse extends HttpServletResponseWrapper {
+
+        CountHeaderResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        private void setCountHeader() {
+            if (!isCommitted()) {
+                setHeader(HEADER, Long.toString(SqlStatementCounter.get()));
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            setCountHeader();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            setCountHeader();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            setCountHeader();
+            super.flushBuffer();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.airtribe.meditrack.monitoring;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+//counts the sql statements hibernate prepares on the current thread, registered as hibernate.session_factory.statement_inspector
+//statements sent through JdbcTemplate (COPY, pg_notify) don't go through hibernate and are not counted
+public class SqlStatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<long[]> COUNT = ThreadLocal.withInitial(() -> new long[1]);
+
+    @Override
+    public String inspect(String sql) {
+        COUNT.get()[0]++;
+        return sql;
+    }
+
+    public static void reset() {
+        COUNT.get()[0] = 0;
+    }
+
+    public static long get() {
+        return COUNT.get()[0];
+    }
+
+    public static void clear() {
+        COUNT.remove();
+    }
+}
@@ -0,0 +1,25 @@
+package com.airtribe.meditrack.notificationService;
+
+import com.airtribe.meditrack.entities.Appointment;
+import com.airtribe.meditrack.enums.AppointmentStatus;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+//what observers get instead of the entity: a copy taken on the request thread, so a listener running later on its own
+//thread never touches a lazy association or a persistence context that is already closed.
+//the contact fields are null for events written to the outbox before they existed
+public record AppointmentEvent(Long appointmentId, Long doctorId, String doctorName, String doctorEmail,
+                               Long patientId, String patientName, String patientPhone,
+                               LocalDate startDate, LocalTime startTime, LocalTime endTime, AppointmentStatus status,
+                               LocalDateTime occurredAt) {
+
+    public static AppointmentEvent of(Appointment appointment) {
+        return new AppointmentEvent(appointment.getId(),
+                appointment.getDoctor().getId(), appointment.getDoctor().getName(), appointment.getDoctor().getEmail(),
+                appointment.getPatient().getId(), appointment.getPatient().getName(), appointment.getPatient().getPhone(),
+                appointment.getStartDate(), appointment.getStartTime(), appointment.getEndTime(),
+                appointment.getStatus(), LocalDateTime.now());
+    }
+}
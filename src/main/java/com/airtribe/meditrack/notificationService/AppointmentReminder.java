@@ -0,0 +1,5 @@
+package com.airtribe.meditrack.notificationService;
+
+//a reminder minutesBefore the appointment starts, written to the outbox by ReminderScheduler
+public record AppointmentReminder(AppointmentEvent appointment, long minutesBefore) {
+}
@@ -0,0 +1,12 @@
+package com.airtribe.meditrack.notificationService;
+
+import com.airtribe.meditrack.enums.AppointmentStatus;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+//an APPOINTMENT_STATUS outbox event: a status set in bulk sql (AppointmentHousekeepingJobHandler builds the json),
+//just enough for the read models to find the appointment
+public record AppointmentStatusChange(Long appointmentId, Long doctorId, Long patientId, LocalDate startDate,
+                                      AppointmentStatus status, LocalDateTime occurredAt) {
+}
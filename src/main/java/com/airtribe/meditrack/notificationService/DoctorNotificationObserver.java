@@ -1,36 +1,41 @@
 package com.airtribe.meditrack.notificationService;
 
-import com.airtribe.meditrack.entities.Appointment;
-import com.airtribe.meditrack.entities.Doctor;
-import com.airtribe.meditrack.repositories.DoctorRepo;
-import org.springframework.beans.factory.annotation.Autowired;
+import com.airtribe.meditrack.enums.NotificationChannel;
+import com.airtribe.meditrack.notificationService.delivery.Notification;
+import com.airtribe.meditrack.notificationService.delivery.NotificationPipeline;
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.CompletableFuture;
 
+//doctors are notified by email, NotificationPipeline batches and sends them
 @Component
+@RequiredArgsConstructor
 public class DoctorNotificationObserver implements Observer {
 
-    @Autowired
-    private DoctorRepo doctorRepo;
+    private final NotificationPipeline notificationPipeline;
 
+    //everything needed is in the event, nothing is loaded again
     @Override
-    public void updateAppointment(Appointment appointment) {
-
-        Doctor doctor = doctorRepo.findById(appointment.getDoctor().getId()).orElseThrow(() -> new RuntimeException("Doctor not found"));
-        System.out.println("DOCTOR NOTIFICATION");
-        System.out.println("Doctor: " + doctor.getName());
-        System.out.println("Doctor ID: " + doctor.getId());
-        System.out.println("Appointment ID: " + appointment.getId());
-        System.out.println("Patient: " + appointment.getPatient().getName());
-        System.out.println("Patient: " + appointment.getPatient().getId());
-        System.out.println("Time: " + appointment.getStartTime()+" to "+appointment.getEndTime());
-        //appotment.getStatus() can be used to send different notifications for different status of appointment
-        System.out.println("Appointment Status:"+appointment.getStatus());
+    public CompletableFuture<Void> updateAppointment(AppointmentEvent event) {
+        String recipient = event.doctorEmail() != null ? event.doctorEmail() : "doctor:" + event.doctorId();
+        return notificationPipeline.submit(new Notification(
+                "doctor:" + event.appointmentId() + ":" + event.status() + ":" + event.occurredAt(),
+                NotificationChannel.EMAIL, recipient,
+                "DOCTOR NOTIFICATION"
+                        + "\nDoctor: " + event.doctorName()
+                        + "\nDoctor ID: " + event.doctorId()
+                        + "\nAppointment ID: " + event.appointmentId()
+                        + "\nPatient: " + event.patientName()
+                        + "\nPatient: " + event.patientId()
+                        + "\nTime: " + event.startTime() + " to " + event.endTime()
+                        //event.status() can be used to send different notifications for different status of appointment
+                        + "\nAppointment Status:" + event.status()));
     }
 
     @Override
-    public void updateDoctorMessage(String message) {
-        System.out.println("Doctor NOTIFICATION");
-        System.out.println("Message: " + message);
+    public CompletableFuture<Void> updateDoctorMessage(long eventId, String message) {
+        return notificationPipeline.submit(new Notification("doctor:message:" + eventId, NotificationChannel.EMAIL,
+                "all-doctors", "Doctor NOTIFICATION\nMessage: " + message));
     }
 }
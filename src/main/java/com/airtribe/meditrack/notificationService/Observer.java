@@ -1,9 +1,24 @@
 package com.airtribe.meditrack.notificationService;
 
-import com.airtribe.meditrack.entities.Appointment;
+import java.util.concurrent.CompletableFuture;
 
+//called by ObserverEventBus on the observer's own thread, one event at a time and in publishing order.
+//the returned future completes once the event is really taken care of (a notification accepted by its gateway), the
+//outbox only lets go of the event then. throwing NotificationBacklogException or a DataAccessException, or failing the
+//future with one, hands the event back to the outbox, it is delivered again later
 public interface Observer {
-    void updateAppointment(Appointment appointment);
+    CompletableFuture<Void> updateAppointment(AppointmentEvent event);
 
-    void updateDoctorMessage(String message);
+    //eventId is the outbox event's id, the same on every redelivery of the message
+    CompletableFuture<Void> updateDoctorMessage(long eventId, String message);
+
+    //only observers that send reminders implement it
+    default CompletableFuture<Void> remindAppointment(AppointmentReminder reminder) {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    //status changes nobody is notified about (housekeeping), only observers that keep read models implement it
+    default CompletableFuture<Void> updateAppointmentStatus(AppointmentStatusChange change) {
+        return CompletableFuture.completedFuture(null);
+    }
 }
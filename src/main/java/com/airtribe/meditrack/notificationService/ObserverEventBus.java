@@ -0,0 +1,209 @@
+package com.airtribe.meditrack.notificationService;
+
+import com.airtribe.meditrack.exceptions.NotificationBacklogException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionException;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiFunction;
+
+/**
+ * Delivers appointment events and doctor messages to the observers off the request thread, OutboxRelay feeds it
+ * with what was committed to the outbox.
+ * Every observer has its own bounded queue drained by one virtual thread, so it sees events in the order they were
+ * delivered and a slow observer only delays itself. The returned future completes once every observer handled the
+ * event and the future it returned completed (its notifications reached the gateway), the relay only removes it from
+ * the outbox then. The lane moves on to the next event meanwhile, it does not wait for the gateway. A retried event id an observer already handled is skipped
+ * (the last DEDUP_WINDOW ids per observer are remembered). The call gets the event id too, an observer can derive
+ * idempotency keys from it that stay the same when the event is delivered again.
+ * When an observer's queue is full the relay waits up to offer-timeout-ms, then the delivery fails and the batch is
+ * retried later. The same happens when an observer throws NotificationBacklogException (its notification buffer is full)
+ * or its future fails with it (the gateway gave up on the batch), and when it could not write to the database
+ * (DataAccessException or TransactionException, a read model like the dashboards).
+ * Per observer in /actuator/metrics: meditrack.observer.queue.size, meditrack.observer.lag (time spent queued),
+ * meditrack.observer.handle, meditrack.observer.dropped, meditrack.observer.duplicates and meditrack.observer.failed.
+ */
+@Slf4j
+@Component
+public class ObserverEventBus {
+
+    static final int DEDUP_WINDOW = 10_000;
+
+    private final List<Lane> lanes;
+    private final long offerTimeoutMs;
+    private volatile boolean stopping;
+
+    public ObserverEventBus(List<Observer> observers, MeterRegistry registry,
+                            @Value("${meditrack.observers.queue-capacity:1000}") int queueCapacity,
+                            @Value("${meditrack.observers.offer-timeout-ms:50}") long offerTimeoutMs) {
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.lanes = observers.stream().map(observer -> new Lane(observer, queueCapacity, registry)).toList();
+    }
+
+    public CompletableFuture<Void> deliver(long eventId, BiFunction<Observer, Long, CompletableFuture<Void>> call) {
+        if (stopping) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Observer event bus is shutting down"));
+        }
+        long queuedAt = System.nanoTime();
+        return CompletableFuture.allOf(lanes.stream()
+                .map(lane -> lane.offer(new Delivery(eventId, call, queuedAt, new CompletableFuture<>())))
+                .toArray(CompletableFuture[]::new));
+    }
+
+    //lets the queued events go out, observers still busy after 10 seconds are interrupted
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        stopping = true;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        for (Lane lane : lanes) {
+            lane.worker.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            if (lane.worker.isAlive()) {
+                log.warn("Observer {} still had {} events queued at shutdown", lane.name, lane.queue.size());
+                lane.worker.interrupt();
+            }
+        }
+    }
+
+    private record Delivery(long eventId, BiFunction<Observer, Long, CompletableFuture<Void>> call, long queuedAt, CompletableFuture<Void> done) {
+    }
+
+    private class Lane {
+
+        private final Observer observer;
+        private final String name;
+        private final BlockingQueue<Delivery> queue;
+        private final Thread worker;
+        private final Timer lag;
+        private final Timer handle;
+        private final Counter dropped;
+        private final Counter duplicates;
+        private final Counter failed;
+        //the worker adds, a failed acknowledgement removes from the dispatcher's thread
+        private final Set<Long> handled = Collections.synchronizedSet(Collections.newSetFromMap(new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+                return size() > DEDUP_WINDOW;
+            }
+        }));
+
+        Lane(Observer observer, int capacity, MeterRegistry registry) {
+            this.observer = observer;
+            this.name = observer.getClass().getSimpleName();
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            Gauge.builder("meditrack.observer.queue.size", queue, BlockingQueue::size)
+                    .tag("observer", name)
+                    .description("Events waiting for this observer")
+                    .register(registry);
+            this.lag = Timer.builder("meditrack.observer.lag").tag("observer", name)
+                    .description("Time from handing an event to the observer to it picking it up").register(registry);
+            this.handle = Timer.builder("meditrack.observer.handle").tag("observer", name)
+                    .description("Time the observer spent on one event").register(registry);
+            this.dropped = Counter.builder("meditrack.observer.dropped").tag("observer", name)
+                    .description("Deliveries refused because the observer's queue stayed full, its notifications backed up or it could not write").register(registry);
+            this.duplicates = Counter.builder("meditrack.observer.duplicates").tag("observer", name)
+                    .description("Redelivered events skipped because the observer already handled them").register(registry);
+            this.failed = Counter.builder("meditrack.observer.failed").tag("observer", name)
+                    .description("Events the observer threw on").register(registry);
+            this.worker = Thread.ofVirtual().name("observer-" + name).start(this::drain);
+        }
+
+        CompletableFuture<Void> offer(Delivery delivery) {
+            try {
+                if (!queue.offer(delivery, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                    dropped.increment();
+                    delivery.done().completeExceptionally(
+                            new IllegalStateException("Observer " + name + " is " + queue.size() + " events behind"));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                delivery.done().completeExceptionally(e);
+            }
+            return delivery.done();
+        }
+
+        private void drain() {
+            try {
+                while (!stopping || !queue.isEmpty()) {
+                    Delivery delivery = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (delivery == null) {
+                        continue;
+                    }
+                    if (!handled.add(delivery.eventId())) {
+                        duplicates.increment();
+                        delivery.done().complete(null);
+                        continue;
+                    }
+                    lag.record(System.nanoTime() - delivery.queuedAt(), TimeUnit.NANOSECONDS);
+                    long start = System.nanoTime();
+                    CompletableFuture<Void> acknowledged;
+                    try {
+                        acknowledged = delivery.call().apply(observer, delivery.eventId());
+                    } catch (RuntimeException e) {
+                        if (handedBack(e)) {
+                            backlogged(delivery, e);
+                            continue;
+                        }
+                        observerFailed(e);
+                        acknowledged = null;
+                    } finally {
+                        handle.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    }
+                    if (acknowledged == null) {
+                        delivery.done().complete(null);
+                        continue;
+                    }
+                    acknowledged.whenComplete((ignored, error) -> {
+                        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                        if (handedBack(cause)) {
+                            backlogged(delivery, cause);
+                            return;
+                        }
+                        if (cause != null) {
+                            observerFailed(cause);
+                        }
+                        delivery.done().complete(null);
+                    });
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        //the observer could not take it now, the outbox delivers the event again later
+        private void backlogged(Delivery delivery, Throwable e) {
+            handled.remove(delivery.eventId());
+            dropped.increment();
+            if (!(e instanceof NotificationBacklogException)) {
+                log.warn("Observer {} could not write an event, it is retried: {}", name, e.getMessage());
+            }
+            delivery.done().completeExceptionally(e);
+        }
+
+        private static boolean handedBack(Throwable e) {
+            return e instanceof NotificationBacklogException || e instanceof DataAccessException || e instanceof TransactionException;
+        }
+
+        //a failing observer is not retried, the event counts as handled
+        private void observerFailed(Throwable e) {
+            failed.increment();
+            log.error("Observer {} failed on an event", name, e);
+        }
+    }
+}
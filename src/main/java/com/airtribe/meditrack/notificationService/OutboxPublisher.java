@@ -0,0 +1,62 @@
+package com.airtribe.meditrack.notificationService;
+
+import com.airtribe.meditrack.entities.Appointment;
+import com.airtribe.meditrack.entities.OutboxEvent;
+import com.airtribe.meditrack.enums.OutboxEventType;
+import com.airtribe.meditrack.repositories.OutboxEventRepo;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+//writes notifications to the outbox, only inside the transaction of the change: they commit (and survive a crash)
+//together with it or not at all. after commit the local relay is woken up instead of waiting for its next poll
+@Component
+@RequiredArgsConstructor
+public class OutboxPublisher {
+
+    private final OutboxEventRepo outboxEventRepo;
+    private final ObjectMapper objectMapper;
+    private final OutboxRelay outboxRelay;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void appointmentChanged(Appointment appointment) {
+        append(OutboxEventType.APPOINTMENT, appointment.getId(), AppointmentEvent.of(appointment));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void appointmentReminder(Appointment appointment, Duration before) {
+        append(OutboxEventType.REMINDER, appointment.getId(), new AppointmentReminder(AppointmentEvent.of(appointment), before.toMinutes()));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void doctorMessage(String message) {
+        append(OutboxEventType.DOCTOR_MESSAGE, null, message);
+    }
+
+    private void append(OutboxEventType type, Long aggregateId, Object payload) {
+        try {
+            outboxEventRepo.save(OutboxEvent.builder()
+                    .type(type)
+                    .aggregateId(aggregateId)
+                    .payload(objectMapper.writeValueAsString(payload))
+                    .createdAt(LocalDateTime.now())
+                    .build());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize outbox event " + type, e);
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                outboxRelay.wakeUp();
+            }
+        });
+    }
+}
@@ -0,0 +1,242 @@
+package com.airtribe.meditrack.notificationService;
+
+import com.airtribe.meditrack.enums.OutboxEventType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains outbox_event into the observers, batch-size events at a time. A batch is claimed in one short statement: the
+ * rows get a lease of lease-ms (for update skip locked, so relays on several nodes never take the same rows) and no
+ * lock is held while they are delivered through ObserverEventBus. Once every observer handled every event, for the
+ * notifying observers once the gateway accepted the notification (a notification sitting in NotificationPipeline's
+ * buffer still has its event here), the batch is deleted. If delivery fails or times out the lease is given up and
+ * the batch comes again, if the node dies it comes again when the lease ran out: delivery is at-least-once. The bus
+ * skips event ids an observer already handled, so a retried batch does not notify twice.
+ * Runs when woken up by a local commit, and otherwise every poll-ms to pick up what other nodes left behind.
+ * Ordering per observer holds for events relayed by the same node. It also holds across nodes unless two relays are
+ * working on neighbouring batches at the same moment.
+ * The pending gauge is counted by the relay loop every pending-refresh-ms, not on every scrape.
+ */
+@Slf4j
+@Component
+public class OutboxRelay implements SmartLifecycle {
+
+    private static final String CLAIM_BATCH = """
+            update outbox_event set leased_until = localtimestamp + ? * interval '1 millisecond', lease_token = ?
+            where id in (
+                select id from outbox_event where leased_until is null or leased_until < localtimestamp
+                order by id limit ? for update skip locked)
+            returning id, type, payload, created_at
+            """;
+    private static final String DELETE_BATCH = "delete from outbox_event where lease_token = ?";
+    private static final String RELEASE_BATCH =
+            "update outbox_event set leased_until = null, lease_token = null where lease_token = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final ObserverEventBus observerEventBus;
+    private final int batchSize;
+    private final long pollMs;
+    private final long deliveryTimeoutMs;
+    private final long leaseMs;
+    private final long pendingRefreshNanos;
+    private final Counter relayed;
+    private final Timer delay;
+    private final AtomicLong pending = new AtomicLong();
+    private long pendingCountedAt;
+
+    private final Semaphore wakeUp = new Semaphore(0);
+    private volatile boolean running;
+    private Thread worker;
+
+    private record Row(long id, OutboxEventType type, String payload, LocalDateTime createdAt) {
+    }
+
+    public OutboxRelay(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper,
+                       ObserverEventBus observerEventBus, MeterRegistry registry,
+                       @Value("${meditrack.outbox.batch-size:100}") int batchSize,
+                       @Value("${meditrack.outbox.poll-ms:1000}") long pollMs,
+                       @Value("${meditrack.outbox.delivery-timeout-ms:30000}") long deliveryTimeoutMs,
+                       @Value("${meditrack.outbox.lease-ms:60000}") long leaseMs,
+                       @Value("${meditrack.outbox.pending-refresh-ms:15000}") long pendingRefreshMs) {
+        if (leaseMs <= deliveryTimeoutMs) {
+            throw new IllegalStateException("meditrack.outbox.lease-ms must be longer than delivery-timeout-ms");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.observerEventBus = observerEventBus;
+        this.batchSize = batchSize;
+        this.pollMs = pollMs;
+        this.deliveryTimeoutMs = deliveryTimeoutMs;
+        this.leaseMs = leaseMs;
+        this.pendingRefreshNanos = TimeUnit.MILLISECONDS.toNanos(pendingRefreshMs);
+        this.relayed = Counter.builder("meditrack.outbox.relayed")
+                .description("Outbox events delivered to the observers").register(registry);
+        this.delay = Timer.builder("meditrack.outbox.delay")
+                .description("Time from writing an outbox event to delivering it").register(registry);
+        Gauge.builder("meditrack.outbox.pending", pending, AtomicLong::get)
+                .description("Outbox events not delivered yet, as of the relay's last count")
+                .register(registry);
+    }
+
+    public void wakeUp() {
+        wakeUp.release();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        worker = Thread.ofPlatform().daemon().name("outbox-relay").start(this::relayLoop);
+    }
+
+    //lets the current batch finish, an interrupted one is released and relayed again
+    @Override
+    public void stop() {
+        running = false;
+        wakeUp.release();
+        if (worker != null) {
+            try {
+                worker.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            worker.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void relayLoop() {
+        while (running) {
+            try {
+                countPending();
+                //a full batch means there is probably more waiting
+                if (relayBatch() < batchSize) {
+                    wakeUp.tryAcquire(pollMs, TimeUnit.MILLISECONDS);
+                    wakeUp.drainPermits();
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Outbox relay failed, retrying in {} ms: {}", pollMs, e.getMessage());
+                try {
+                    Thread.sleep(pollMs);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+    //returns how many events were delivered, 0 when the batch was released
+    int relayBatch() {
+        String leaseToken = UUID.randomUUID().toString();
+        List<Row> rows = new ArrayList<>(jdbcTemplate.query(CLAIM_BATCH, (resultSet, rowNum) -> new Row(
+                resultSet.getLong("id"),
+                OutboxEventType.valueOf(resultSet.getString("type")),
+                resultSet.getString("payload"),
+                resultSet.getTimestamp("created_at").toLocalDateTime()), leaseMs, leaseToken, batchSize));
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        rows.sort(Comparator.comparingLong(Row::id));
+        List<CompletableFuture<Void>> deliveries = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            deliveries.add(deliver(row));
+        }
+        try {
+            CompletableFuture.allOf(deliveries.toArray(CompletableFuture[]::new)).get(deliveryTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            release(leaseToken);
+            return 0;
+        } catch (ExecutionException | TimeoutException e) {
+            log.warn("Outbox batch of {} events not fully delivered, it will be retried: {}", rows.size(),
+                    e instanceof ExecutionException ? e.getCause().getMessage() : "timed out");
+            release(leaseToken);
+            return 0;
+        }
+        //0 when the lease ran out and another relay took the batch, it is delivered (and skipped by the bus) there
+        int deleted = jdbcTemplate.update(DELETE_BATCH, leaseToken);
+        LocalDateTime now = LocalDateTime.now();
+        for (Row row : rows) {
+            delay.record(Duration.between(row.createdAt(), now));
+        }
+        relayed.increment(rows.size());
+        pending.updateAndGet(count -> Math.max(0, count - deleted));
+        return rows.size();
+    }
+
+    //if this fails too the lease runs out
+    private void release(String leaseToken) {
+        try {
+            jdbcTemplate.update(RELEASE_BATCH, leaseToken);
+        } catch (RuntimeException e) {
+            log.warn("Could not release outbox lease, the batch is retried in {} ms: {}", leaseMs, e.getMessage());
+        }
+    }
+
+    private void countPending() {
+        long now = System.nanoTime();
+        if (pendingCountedAt != 0 && now - pendingCountedAt < pendingRefreshNanos) {
+            return;
+        }
+        pendingCountedAt = now;
+        Long count = jdbcTemplate.queryForObject("select count(*) from outbox_event", Long.class);
+        pending.set(count == null ? 0 : count);
+    }
+
+    //an event that can't be read would block the outbox forever, it is logged and dropped
+    private CompletableFuture<Void> deliver(Row row) {
+        try {
+            return switch (row.type()) {
+                case APPOINTMENT -> {
+                    AppointmentEvent event = objectMapper.readValue(row.payload(), AppointmentEvent.class);
+                    yield observerEventBus.deliver(row.id(), (observer, eventId) -> observer.updateAppointment(event));
+                }
+                case REMINDER -> {
+                    AppointmentReminder reminder = objectMapper.readValue(row.payload(), AppointmentReminder.class);
+                    yield observerEventBus.deliver(row.id(), (observer, eventId) -> observer.remindAppointment(reminder));
+                }
+                case APPOINTMENT_STATUS -> {
+                    AppointmentStatusChange change = objectMapper.readValue(row.payload(), AppointmentStatusChange.class);
+                    yield observerEventBus.deliver(row.id(), (observer, eventId) -> observer.updateAppointmentStatus(change));
+                }
+                case DOCTOR_MESSAGE -> {
+                    String message = objectMapper.readValue(row.payload(), String.class);
+                    yield observerEventBus.deliver(row.id(), (observer, eventId) -> observer.updateDoctorMessage(eventId, message));
+                }
+            };
+        } catch (Exception e) {
+            log.error("Dropping unreadable outbox event {} ({}): {}", row.id(), row.type(), row.payload(), e);
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+}
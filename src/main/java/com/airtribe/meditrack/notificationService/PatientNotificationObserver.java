@@ -1,35 +1,55 @@
 package com.airtribe.meditrack.notificationService;
 
-import com.airtribe.meditrack.entities.Appointment;
-import com.airtribe.meditrack.entities.Patient;
-import com.airtribe.meditrack.repositories.PatientRepo;
-import org.springframework.beans.factory.annotation.Autowired;
+import com.airtribe.meditrack.enums.NotificationChannel;
+import com.airtribe.meditrack.notificationService.delivery.Notification;
+import com.airtribe.meditrack.notificationService.delivery.NotificationPipeline;
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.CompletableFuture;
+
+//patients are notified by sms, NotificationPipeline batches and sends them
 @Component
+@RequiredArgsConstructor
 public class PatientNotificationObserver implements Observer {
 
-    @Autowired
-    private PatientRepo patientRepo;
+    private final NotificationPipeline notificationPipeline;
 
+    //everything needed is in the event, nothing is loaded again
     @Override
-    public void updateAppointment(Appointment appointment) {
-
-        Patient patient=patientRepo.findById(appointment.getPatient().getId()).orElseThrow(() -> new RuntimeException("Patient not found"));
+    public CompletableFuture<Void> updateAppointment(AppointmentEvent event) {
+        String recipient = event.patientPhone() != null ? event.patientPhone() : "patient:" + event.patientId();
+        return notificationPipeline.submit(new Notification(
+                "patient:" + event.appointmentId() + ":" + event.status() + ":" + event.occurredAt(),
+                NotificationChannel.SMS, recipient,
+                "PATIENT NOTIFICATION"
+                        + "\nPatient: " + event.patientName()
+                        + "\nPatient ID: " + event.patientId()
+                        + "\nAppointment ID: " + event.appointmentId()
+                        + "\nDoctor: " + event.doctorName()
+                        + "\nDoctor ID: " + event.doctorId()
+                        + "\nTime: " + event.startTime() + " to " + event.endTime()
+                        + "\nAppointment Status:" + event.status()));
+    }
 
-        System.out.println("PATIENT NOTIFICATION");
-        System.out.println("Patient: " + appointment.getPatient().getName());
-        System.out.println("Patient ID: " + appointment.getPatient().getId());
-        System.out.println("Appointment ID: " + appointment.getId());
-        System.out.println("Doctor: " + appointment.getDoctor().getName());
-        System.out.println("Doctor ID: " + appointment.getDoctor().getId());
-        System.out.println("Time: " + appointment.getStartTime()+" to "+appointment.getEndTime());
-        System.out.println("Appointment Status:"+appointment.getStatus());
+    @Override
+    public CompletableFuture<Void> remindAppointment(AppointmentReminder reminder) {
+        AppointmentEvent event = reminder.appointment();
+        String recipient = event.patientPhone() != null ? event.patientPhone() : "patient:" + event.patientId();
+        return notificationPipeline.submit(new Notification(
+                "reminder:" + event.appointmentId() + ":" + reminder.minutesBefore(),
+                NotificationChannel.SMS, recipient,
+                "APPOINTMENT REMINDER"
+                        + "\nPatient: " + event.patientName()
+                        + "\nAppointment ID: " + event.appointmentId()
+                        + "\nDoctor: " + event.doctorName()
+                        + "\nDate: " + event.startDate()
+                        + "\nTime: " + event.startTime() + " to " + event.endTime()));
     }
 
     @Override
-    public void updateDoctorMessage(String message) {
-        System.out.println("Doctor NOTIFICATION");
-        System.out.println("Message: " + message);
+    public CompletableFuture<Void> updateDoctorMessage(long eventId, String message) {
+        return notificationPipeline.submit(new Notification("patient:message:" + eventId, NotificationChannel.SMS,
+                "all-patients", "Doctor NOTIFICATION\nMessage: " + message));
     }
 }
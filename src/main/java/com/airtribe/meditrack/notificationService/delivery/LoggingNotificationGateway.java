@@ -0,0 +1,32 @@
+package com.airtribe.meditrack.notificationService.delivery;
+
+import com.airtribe.meditrack.enums.NotificationChannel;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+
+/**
+ * Takes the place of a provider until one is wired: accepts every batch at once and logs it, nothing is kept.
+ */
+@Slf4j
+public class LoggingNotificationGateway implements NotificationGateway {
+
+    private final NotificationChannel channel;
+
+    public LoggingNotificationGateway(NotificationChannel channel) {
+        this.channel = channel;
+    }
+
+    @Override
+    public NotificationChannel channel() {
+        return channel;
+    }
+
+    @Override
+    public void send(List<Notification> batch) {
+        log.info("{} gateway sent a batch of {} notifications", channel, batch.size());
+        for (Notification notification : batch) {
+            log.debug("{} to {}: {}", channel, notification.recipient(), notification.message());
+        }
+    }
+}
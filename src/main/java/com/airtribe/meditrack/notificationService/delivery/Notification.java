@@ -0,0 +1,7 @@
+package com.airtribe.meditrack.notificationService.delivery;
+
+import com.airtribe.meditrack.enums.NotificationChannel;
+
+//key is the same for every delivery attempt of a notification, a gateway can pass it on to the provider as idempotency key
+public record Notification(String key, NotificationChannel channel, String recipient, String message) {
+}
@@ -0,0 +1,14 @@
+package com.airtribe.meditrack.notificationService.delivery;
+
+import com.airtribe.meditrack.enums.NotificationChannel;
+
+import java.util.List;
+
+//the sms / email provider of one channel. called from a single dispatcher thread per channel,
+//throwing fails the whole batch and NotificationPipeline sends it again
+public interface NotificationGateway {
+
+    NotificationChannel channel();
+
+    void send(List<Notification> batch);
+}
@@ -0,0 +1,233 @@
+package com.airtribe.meditrack.notificationService.delivery;
+
+import com.airtribe.meditrack.enums.NotificationChannel;
+import com.airtribe.meditrack.exceptions.NotificationBacklogException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sits between the observers and the sms / email gateways. submit() puts a notification in its channel's ring buffer
+ * and returns at once, it never waits for a gateway. One virtual thread per channel takes what accumulated and sends
+ * it as one batch: as soon as batch-size notifications are there, or batch-window-ms after the first one of the batch.
+ * A failed batch is sent again after an exponential backoff with full jitter (a random wait between 0 and
+ * retry-base-ms * 2^attempt, capped at retry-max-ms) so a recovering provider is not hit by every node at once.
+ * The future submit() returns completes once the gateway accepted the batch the notification went out in. It fails with
+ * NotificationBacklogException when the batch is given up on (max-attempts, shutdown), the observer hands that back to
+ * the outbox, so a notification is only off the outbox once a gateway has it, buffered ones survive a crash there.
+ * Meanwhile new notifications pile up in the buffer: ring-capacity per channel absorbs a burst like the morning
+ * reminders, only a full buffer makes submit() throw NotificationBacklogException and the event is retried from the outbox.
+ * Per channel in /actuator/metrics: meditrack.notifications.buffered, batch.size, send, sent, retries, failed, rejected.
+ */
+@Slf4j
+@Component
+public class NotificationPipeline {
+
+    private final Map<NotificationChannel, Dispatcher> dispatchers = new EnumMap<>(NotificationChannel.class);
+    private final int batchSize;
+    private final long batchWindowNanos;
+    private final int maxAttempts;
+    private final long retryBaseMs;
+    private final long retryMaxMs;
+    private volatile boolean stopping;
+
+    public NotificationPipeline(List<NotificationGateway> gateways, MeterRegistry registry,
+                                @Value("${meditrack.notifications.ring-capacity:8192}") int ringCapacity,
+                                @Value("${meditrack.notifications.batch-size:100}") int batchSize,
+                                @Value("${meditrack.notifications.batch-window-ms:200}") long batchWindowMs,
+                                @Value("${meditrack.notifications.max-attempts:5}") int maxAttempts,
+                                @Value("${meditrack.notifications.retry-base-ms:200}") long retryBaseMs,
+                                @Value("${meditrack.notifications.retry-max-ms:10000}") long retryMaxMs) {
+        this.batchSize = batchSize;
+        this.batchWindowNanos = TimeUnit.MILLISECONDS.toNanos(batchWindowMs);
+        this.maxAttempts = maxAttempts;
+        this.retryBaseMs = retryBaseMs;
+        this.retryMaxMs = retryMaxMs;
+        for (NotificationGateway gateway : gateways) {
+            if (dispatchers.containsKey(gateway.channel())) {
+                throw new IllegalStateException("More than one notification gateway for " + gateway.channel());
+            }
+            dispatchers.put(gateway.channel(), new Dispatcher(gateway, ringCapacity, registry));
+        }
+    }
+
+    public CompletableFuture<Void> submit(Notification notification) {
+        Dispatcher dispatcher = dispatchers.get(notification.channel());
+        if (dispatcher == null) {
+            throw new IllegalStateException("No notification gateway for " + notification.channel());
+        }
+        return dispatcher.submit(notification);
+    }
+
+    //sends what is still buffered without waiting for the batch window and without retrying, gives up after 10 seconds
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        stopping = true;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        for (Dispatcher dispatcher : dispatchers.values()) {
+            LockSupport.unpark(dispatcher.worker);
+            dispatcher.worker.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            if (dispatcher.worker.isAlive()) {
+                log.warn("{} notifications still had {} buffered at shutdown", dispatcher.channel, dispatcher.buffer.size());
+                dispatcher.worker.interrupt();
+            }
+        }
+    }
+
+    //a buffered notification and the future completed when a gateway accepted it
+    private record Pending(Notification notification, CompletableFuture<Void> acknowledged) {
+    }
+
+    private class Dispatcher {
+
+        private final NotificationChannel channel;
+        private final NotificationGateway gateway;
+        private final NotificationRingBuffer<Pending> buffer;
+        private final Thread worker;
+        private final DistributionSummary batchSizes;
+        private final Timer send;
+        private final Counter sent;
+        private final Counter retries;
+        private final Counter failed;
+        private final Counter rejected;
+        //set while the worker is parked waiting for notifications, producers only unpark it then
+        private volatile boolean parked;
+
+        Dispatcher(NotificationGateway gateway, int capacity, MeterRegistry registry) {
+            this.channel = gateway.channel();
+            this.gateway = gateway;
+            this.buffer = new NotificationRingBuffer<>(capacity);
+            String tag = channel.name().toLowerCase();
+            Gauge.builder("meditrack.notifications.buffered", buffer, NotificationRingBuffer::size)
+                    .tag("channel", tag)
+                    .description("Notifications waiting to be sent")
+                    .register(registry);
+            this.batchSizes = DistributionSummary.builder("meditrack.notifications.batch.size").tag("channel", tag)
+                    .description("Notifications per gateway call").register(registry);
+            this.send = Timer.builder("meditrack.notifications.send").tag("channel", tag)
+                    .description("Gateway calls, failed ones included").register(registry);
+            this.sent = Counter.builder("meditrack.notifications.sent").tag("channel", tag)
+                    .description("Notifications the gateway accepted").register(registry);
+            this.retries = Counter.builder("meditrack.notifications.retries").tag("channel", tag)
+                    .description("Batches sent again after a gateway failure").register(registry);
+            this.failed = Counter.builder("meditrack.notifications.failed").tag("channel", tag)
+                    .description("Notifications handed back to the outbox after max-attempts").register(registry);
+            this.rejected = Counter.builder("meditrack.notifications.rejected").tag("channel", tag)
+                    .description("Notifications refused because the buffer was full").register(registry);
+            this.worker = Thread.ofVirtual().name("notifications-" + tag).start(this::run);
+        }
+
+        CompletableFuture<Void> submit(Notification notification) {
+            if (stopping) {
+                throw new NotificationBacklogException(channel + " notifications are shutting down");
+            }
+            Pending pending = new Pending(notification, new CompletableFuture<>());
+            if (!buffer.offer(pending)) {
+                rejected.increment();
+                throw new NotificationBacklogException(channel + " notification buffer is full (" + buffer.capacity() + ")");
+            }
+            if (parked) {
+                LockSupport.unpark(worker);
+            }
+            return pending.acknowledged();
+        }
+
+        private void run() {
+            List<Pending> batch = new ArrayList<>(batchSize);
+            while (!Thread.currentThread().isInterrupted()) {
+                Pending first = buffer.poll();
+                if (first == null) {
+                    if (stopping) {
+                        return;
+                    }
+                    park(TimeUnit.MILLISECONDS.toNanos(100));
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + batchWindowNanos;
+                while (batch.size() < batchSize) {
+                    Pending next = buffer.poll();
+                    if (next != null) {
+                        batch.add(next);
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0 || stopping) {
+                        break;
+                    }
+                    park(remaining);
+                }
+                sendWithRetry(batch);
+                batch.clear();
+            }
+        }
+
+        private void park(long nanos) {
+            parked = true;
+            //a notification offered before parked was visible to its producer is seen here
+            if (buffer.isEmpty() && !stopping) {
+                LockSupport.parkNanos(nanos);
+            }
+            parked = false;
+        }
+
+        private void sendWithRetry(List<Pending> batch) {
+            List<Notification> copy = batch.stream().map(Pending::notification).toList();
+            batchSizes.record(copy.size());
+            for (int attempt = 1; ; attempt++) {
+                long start = System.nanoTime();
+                RuntimeException failure = null;
+                try {
+                    gateway.send(copy);
+                } catch (RuntimeException e) {
+                    failure = e;
+                }
+                send.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                if (failure == null) {
+                    sent.increment(copy.size());
+                    batch.forEach(pending -> pending.acknowledged().complete(null));
+                    return;
+                }
+                if (attempt >= maxAttempts || stopping) {
+                    log.error("Giving up on a batch of {} {} notifications after {} attempts, their events stay in the outbox",
+                            copy.size(), channel, attempt, failure);
+                    giveUp(batch, channel + " gateway failed " + attempt + " times: " + failure.getMessage());
+                    return;
+                }
+                long backoff = Math.min(retryMaxMs, retryBaseMs << Math.min(attempt - 1, 30));
+                long wait = ThreadLocalRandom.current().nextLong(backoff + 1);
+                log.warn("{} gateway failed on a batch of {} (attempt {}), retrying in {} ms: {}",
+                        channel, copy.size(), attempt, wait, failure.getMessage());
+                retries.increment();
+                try {
+                    Thread.sleep(wait);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    giveUp(batch, channel + " notifications were interrupted");
+                    return;
+                }
+            }
+        }
+
+        private void giveUp(List<Pending> batch, String reason) {
+            failed.increment(batch.size());
+            NotificationBacklogException error = new NotificationBacklogException(reason);
+            batch.forEach(pending -> pending.acknowledged().completeExceptionally(error));
+        }
+    }
+}
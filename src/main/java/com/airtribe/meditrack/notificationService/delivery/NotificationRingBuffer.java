@@ -0,0 +1,80 @@
+package com.airtribe.meditrack.notificationService.delivery;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock free queue between the observers (any number of producers) and one channel's dispatcher (the only
+ * consumer). Capacity is rounded up to a power of two. Every slot carries a sequence number: equal to the position a
+ * producer may write, position + 1 once written, position + capacity once the consumer took it. offer() never waits,
+ * it returns false when the buffer is full.
+ */
+class NotificationRingBuffer<T> {
+
+    private final Object[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    //only written by the consumer, volatile for size()
+    private volatile long head;
+
+    NotificationRingBuffer(int capacity) {
+        int size = capacity <= 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    boolean offer(T notification) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots[index] = notification;
+                    //publishes the slot write to the consumer
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                //the consumer has not taken this slot's previous notification yet
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    //consumer thread only
+    @SuppressWarnings("unchecked")
+    T poll() {
+        long position = head;
+        int index = (int) position & mask;
+        if (sequences.get(index) != position + 1) {
+            return null;
+        }
+        T notification = (T) slots[index];
+        slots[index] = null;
+        sequences.set(index, position + slots.length);
+        head = position + 1;
+        return notification;
+    }
+
+    //consumer thread only
+    boolean isEmpty() {
+        return sequences.get((int) head & mask) != head + 1;
+    }
+
+    int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    int capacity() {
+        return slots.length;
+    }
+}
@@ -0,0 +1,76 @@
+package com.airtribe.meditrack.notificationService.delivery;
+
+import com.airtribe.meditrack.enums.NotificationChannel;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stands in for a real provider offline and in tests (OfflineNotificationGatewayConfig): takes latencyMs per batch
+ * like a remote call would, logs it and keeps the last HISTORY batches. failNext(n) makes the next n batches throw.
+ */
+@Slf4j
+public class StubNotificationGateway implements NotificationGateway {
+
+    static final int HISTORY = 1000;
+
+    private final NotificationChannel channel;
+    private final long latencyMs;
+    private final AtomicInteger failures = new AtomicInteger();
+    private final AtomicLong delivered = new AtomicLong();
+    private final Deque<List<Notification>> batches = new ArrayDeque<>();
+
+    public StubNotificationGateway(NotificationChannel channel, long latencyMs) {
+        this.channel = channel;
+        this.latencyMs = latencyMs;
+    }
+
+    @Override
+    public NotificationChannel channel() {
+        return channel;
+    }
+
+    @Override
+    public void send(List<Notification> batch) {
+        if (latencyMs > 0) {
+            try {
+                Thread.sleep(latencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted sending " + channel + " batch", e);
+            }
+        }
+        if (failures.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+            throw new IllegalStateException("Stub " + channel + " gateway failure");
+        }
+        delivered.addAndGet(batch.size());
+        synchronized (batches) {
+            batches.addLast(List.copyOf(batch));
+            if (batches.size() > HISTORY) {
+                batches.removeFirst();
+            }
+        }
+        log.info("{} gateway sent a batch of {} notifications", channel, batch.size());
+        for (Notification notification : batch) {
+            log.debug("{} to {}: {}", channel, notification.recipient(), notification.message());
+        }
+    }
+
+    public void failNext(int batchCount) {
+        failures.set(batchCount);
+    }
+
+    public long delivered() {
+        return delivered.get();
+    }
+
+    public List<List<Notification>> batches() {
+        synchronized (batches) {
+            return List.copyOf(batches);
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package com.airtribe.meditrack.reminders;
+
+import com.airtribe.meditrack.dto.AppointmentStartDto;
+import com.airtribe.meditrack.entities.Appointment;
+import com.airtribe.meditrack.enums.AppointmentStatus;
+import com.airtribe.meditrack.notificationService.OutboxPublisher;
+import com.airtribe.meditrack.repositories.AppointmentRepo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Sends a reminder offsets before every SCHEDULED appointment (meditrack.reminders.offsets) without polling the
+ * appointment table.
+ * The appointments starting up to the largest offset + lookahead from now are held in memory, their reminders in a
+ * queue ordered by due time. One thread sleeps until the earliest is due, or until an earlier one is added.
+ * Bookings, confirmations, cancellations and completions update the queue after commit (other nodes' through the
+ * APPOINTMENT invalidation events). Every lookahead / 2 only the appointments that moved into the window are read.
+ * A reminder stale in memory does no harm: when it is due the appointment is checked again, and only if it is still
+ * SCHEDULED at that time is the reminder claimed in sent_reminder (the first node wins) and written to the outbox
+ * for the observers. After a restart, reminders missed by less than late-grace are still sent.
+ * In /actuator/metrics: meditrack.reminders.queued, meditrack.reminders.sent and meditrack.reminders.lateness.
+ */
+@Slf4j
+@Component
+public class ReminderScheduler implements SmartLifecycle {
+
+    private static final long RETRY_MS = 5000;
+
+    private static final String CLAIM = """
+            insert into sent_reminder (appointment_id, offset_minutes, sent_at) values (?, ?, ?)
+            on conflict do nothing
+            """;
+
+    private final AppointmentRepo appointmentRepo;
+    private final OutboxPublisher outboxPublisher;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final List<Duration> offsets;
+    private final Duration maxOffset;
+    private final Duration lookahead;
+    private final Duration lateGrace;
+    private final long refreshMs;
+    private final int batchSize;
+    private final Counter sent;
+    private final Timer lateness;
+
+    private final Object lock = new Object();
+    //guarded by lock
+    private final PriorityQueue<Reminder> queue = new PriorityQueue<>(Comparator.comparing(Reminder::dueAt));
+    //start of every appointment in the window, a queued reminder whose start differs is stale
+    private final Map<Long, LocalDateTime> starts = new HashMap<>();
+    //changes that arrive while the window is read are applied on top of it
+    private final List<AppointmentStartDto> changedDuringLoad = new ArrayList<>();
+    private boolean loading = true;
+    private LocalDateTime loadedUntil;
+
+    private final Semaphore wakeUp = new Semaphore(0);
+    private volatile boolean reloadAll = true;
+    private volatile boolean running;
+    private Thread worker;
+
+    private record Reminder(LocalDateTime dueAt, Long appointmentId, LocalDateTime start, Duration before) {
+    }
+
+    public ReminderScheduler(AppointmentRepo appointmentRepo, OutboxPublisher outboxPublisher, JdbcTemplate jdbcTemplate,
+                             TransactionTemplate transactionTemplate, MeterRegistry registry,
+                             @Value("${meditrack.reminders.offsets:24h,1h}") List<Duration> offsets,
+                             @Value("${meditrack.reminders.lookahead:1h}") Duration lookahead,
+                             @Value("${meditrack.reminders.late-grace:10m}") Duration lateGrace,
+                             @Value("${meditrack.reminders.batch-size:200}") int batchSize) {
+        if (offsets.isEmpty() || offsets.stream().anyMatch(offset -> offset.isNegative() || offset.isZero())) {
+            throw new IllegalArgumentException("meditrack.reminders.offsets must be positive durations, got " + offsets);
+        }
+        if (lookahead.toMillis() < 2000) {
+            throw new IllegalArgumentException("meditrack.reminders.lookahead must be at least 2s, got " + lookahead);
+        }
+        this.appointmentRepo = appointmentRepo;
+        this.outboxPublisher = outboxPublisher;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.offsets = List.copyOf(offsets);
+        this.maxOffset = Collections.max(offsets);
+        this.lookahead = lookahead;
+        this.lateGrace = lateGrace;
+        //the window is extended when half the lookahead is used up, an appointment is read before its first reminder is due
+        this.refreshMs = Math.max(1000, lookahead.toMillis() / 2);
+        this.batchSize = batchSize;
+        this.sent = Counter.builder("meditrack.reminders.sent")
+                .description("Reminders written to the outbox by this node").register(registry);
+        this.lateness = Timer.builder("meditrack.reminders.lateness")
+                .description("Time from a reminder being due to it being sent").register(registry);
+        Gauge.builder("meditrack.reminders.queued", this, ReminderScheduler::queuedCount)
+                .description("Reminders held in memory, stale ones included")
+                .register(registry);
+    }
+
+    //AppointmentService, after commit so the new state is what gets queued
+    public void appointmentChanged(Appointment appointment) {
+        AppointmentStartDto change = new AppointmentStartDto(appointment.getId(), appointment.getStatus(),
+                appointment.getStartDate(), appointment.getStartTime());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(change);
+                }
+            });
+        } else {
+            apply(change);
+        }
+    }
+
+    //changed on another node, only the id is known
+    public void appointmentChanged(Long appointmentId) {
+        AppointmentStartDto change = transactionTemplate.execute(status -> appointmentRepo.findStartById(appointmentId)
+                .orElse(new AppointmentStartDto(appointmentId, null, null, null)));
+        apply(change);
+    }
+
+    //events may have been missed, the whole window is read again
+    public void reloadAll() {
+        reloadAll = true;
+        wakeUp.release();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        worker = Thread.ofPlatform().daemon().name("reminder-scheduler").start(this::run);
+    }
+
+    //reminders not sent yet stay unclaimed, they go out after the restart (within late-grace)
+    @Override
+    public void stop() {
+        running = false;
+        wakeUp.release();
+        if (worker != null) {
+            try {
+                worker.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            worker.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void run() {
+        long nextRefresh = 0;
+        while (running) {
+            try {
+                if (reloadAll || System.currentTimeMillis() >= nextRefresh) {
+                    refresh();
+                    nextRefresh = System.currentTimeMillis() + refreshMs;
+                }
+                List<Reminder> due = takeDue(LocalDateTime.now());
+                if (!due.isEmpty()) {
+                    send(due);
+                    continue;
+                }
+                long waitMs = Math.min(Math.max(0, nextRefresh - System.currentTimeMillis()), millisUntilNextDue());
+                wakeUp.tryAcquire(Math.max(1, waitMs), TimeUnit.MILLISECONDS);
+                wakeUp.drainPermits();
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Reminder scheduler failed, retrying in {} ms: {}", RETRY_MS, e.getMessage());
+                try {
+                    Thread.sleep(RETRY_MS);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+    //reads the appointments that entered the window since the last refresh (all of them on start or after reloadAll)
+    private void refresh() {
+        boolean replace = reloadAll;
+        reloadAll = false;
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime until = now.plus(maxOffset).plus(lookahead);
+        LocalDateTime from;
+        synchronized (lock) {
+            loading = true;
+            from = replace || loadedUntil == null ? now : loadedUntil;
+        }
+        List<AppointmentStartDto> rows;
+        try {
+            rows = transactionTemplate.execute(status -> appointmentRepo.findStartsByStatusAndStartDateBetween(
+                    AppointmentStatus.SCHEDULED, from.toLocalDate(), until.toLocalDate()));
+            //claims are only needed while their appointment could still be reminded of
+            jdbcTemplate.update("delete from sent_reminder where sent_at < ?", now.minus(maxOffset).minusDays(1));
+        } catch (RuntimeException e) {
+            synchronized (lock) {
+                //before the first window there is nothing to apply the changes to, the next try reads them anyway
+                if (loadedUntil != null) {
+                    loading = false;
+                    applyChangedDuringLoad();
+                }
+            }
+            reloadAll = reloadAll || replace;
+            throw e;
+        }
+        synchronized (lock) {
+            if (replace) {
+                queue.clear();
+                starts.clear();
+            }
+            loadedUntil = until;
+            for (AppointmentStartDto row : rows) {
+                LocalDateTime start = startOf(row);
+                if (start != null && start.isAfter(from) && !start.isAfter(until)) {
+                    schedule(row.getId(), start, now);
+                }
+            }
+            starts.values().removeIf(start -> start.isBefore(now));
+            loading = false;
+            applyChangedDuringLoad();
+        }
+        log.debug("Reminder window now ends at {}, {} appointments read, {} reminders queued", until, rows.size(), queuedCount());
+    }
+
+    private void apply(AppointmentStartDto change) {
+        synchronized (lock) {
+            if (loading) {
+                changedDuringLoad.add(change);
+                return;
+            }
+            LocalDateTime start = startOf(change);
+            LocalDateTime now = LocalDateTime.now();
+            //outside the window the next refresh reads it
+            if (start == null || start.isBefore(now) || start.isAfter(loadedUntil)) {
+                starts.remove(change.getId());
+                return;
+            }
+            Reminder head = queue.peek();
+            schedule(change.getId(), start, now);
+            if (queue.peek() != head) {
+                wakeUp.release();
+            }
+        }
+    }
+
+    //guarded by lock
+    private void applyChangedDuringLoad() {
+        List<AppointmentStartDto> changes = new ArrayList<>(changedDuringLoad);
+        changedDuringLoad.clear();
+        changes.forEach(this::apply);
+    }
+
+    //guarded by lock. the reminders queued for an earlier start become stale and are skipped when they come up
+    private void schedule(Long appointmentId, LocalDateTime start, LocalDateTime now) {
+        if (start.equals(starts.put(appointmentId, start))) {
+            return;
+        }
+        for (Duration offset : offsets) {
+            LocalDateTime dueAt = start.minus(offset);
+            if (!dueAt.isBefore(now.minus(lateGrace))) {
+                queue.add(new Reminder(dueAt, appointmentId, start, offset));
+            }
+        }
+    }
+
+    private List<Reminder> takeDue(LocalDateTime now) {
+        List<Reminder> due = new ArrayList<>();
+        synchronized (lock) {
+            while (due.size() < batchSize && !queue.isEmpty() && !queue.peek().dueAt().isAfter(now)) {
+                Reminder reminder = queue.poll();
+                if (reminder.start().equals(starts.get(reminder.appointmentId()))) {
+                    due.add(reminder);
+                }
+            }
+        }
+        return due;
+    }
+
+    private long millisUntilNextDue() {
+        synchronized (lock) {
+            Reminder head = queue.peek();
+            return head == null ? Long.MAX_VALUE : Math.max(0, Duration.between(LocalDateTime.now(), head.dueAt()).toMillis());
+        }
+    }
+
+    //one transaction per batch: the appointments are checked again, claimed, and the reminders written to the outbox
+    private void send(List<Reminder> due) {
+        List<Reminder> written;
+        try {
+            written = transactionTemplate.execute(status -> {
+                Map<Long, Appointment> appointments = appointmentRepo.findWithParticipantsByIdIn(
+                                due.stream().map(Reminder::appointmentId).distinct().toList()).stream()
+                        .collect(Collectors.toMap(Appointment::getId, Function.identity()));
+                List<Reminder> valid = due.stream().filter(reminder -> {
+                    Appointment appointment = appointments.get(reminder.appointmentId());
+                    return appointment != null && reminder.start().equals(startOf(appointment));
+                }).toList();
+                LocalDateTime now = LocalDateTime.now();
+                int[] claimed = jdbcTemplate.batchUpdate(CLAIM, valid.stream()
+                        .map(reminder -> new Object[]{reminder.appointmentId(), (int) reminder.before().toMinutes(), now})
+                        .toList());
+                List<Reminder> claimedByUs = new ArrayList<>();
+                for (int i = 0; i < valid.size(); i++) {
+                    if (claimed[i] > 0) {
+                        Reminder reminder = valid.get(i);
+                        outboxPublisher.appointmentReminder(appointments.get(reminder.appointmentId()), reminder.before());
+                        claimedByUs.add(reminder);
+                    }
+                }
+                return claimedByUs;
+            });
+        } catch (RuntimeException e) {
+            //tried again on the next round
+            synchronized (lock) {
+                queue.addAll(due);
+            }
+            throw e;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (Reminder reminder : written) {
+            lateness.record(Duration.between(reminder.dueAt(), now).abs());
+        }
+        sent.increment(written.size());
+    }
+
+    private int queuedCount() {
+        synchronized (lock) {
+            return queue.size();
+        }
+    }
+
+    private static LocalDateTime startOf(AppointmentStartDto appointment) {
+        return startOf(appointment.getStatus(), appointment.getStartDate(), appointment.getStartTime());
+    }
+
+    private static LocalDateTime startOf(Appointment appointment) {
+        return startOf(appointment.getStatus(), appointment.getStartDate(), appointment.getStartTime());
+    }
+
+    //null unless the appointment is SCHEDULED and has a time
+    private static LocalDateTime startOf(AppointmentStatus status, LocalDate date, LocalTime time) {
+        return status == AppointmentStatus.SCHEDULED && date != null && time != null ? LocalDateTime.of(date, time) : null;
+    }
+}
@@ -0,0 +1,19 @@
+package com.airtribe.meditrack.repositories;
+
+import com.airtribe.meditrack.entities.AnalyticsSketch;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface AnalyticsSketchRepo extends JpaRepository<AnalyticsSketch, String> {
+
+    //row lock while a node merges its updates in, so two nodes flushing the same sketch don't lose each other's
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from AnalyticsSketch s where s.name = :name")
+    Optional<AnalyticsSketch> findForUpdate(String name);
+}
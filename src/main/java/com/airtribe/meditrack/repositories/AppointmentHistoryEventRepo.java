@@ -0,0 +1,21 @@
+package com.airtribe.meditrack.repositories;
+
+import com.airtribe.meditrack.entities.AppointmentHistoryEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+//append only, rows are inserted by AppointmentHistoryRecorder (and the housekeeping job) and never changed
+@Repository
+public interface AppointmentHistoryEventRepo extends JpaRepository<AppointmentHistoryEvent, Long> {
+
+    List<AppointmentHistoryEvent> findByAppointmentIdOrderByOccurredAtAscIdAsc(Long appointmentId);
+
+    List<AppointmentHistoryEvent> findByAppointmentIdAndOccurredAtLessThanEqualOrderByOccurredAtAscIdAsc(Long appointmentId, LocalDateTime at);
+
+    long countByOccurredAtGreaterThanEqualAndOccurredAtLessThan(LocalDateTime from, LocalDateTime to);
+
+    long countByOccurredAtLessThan(LocalDateTime to);
+}
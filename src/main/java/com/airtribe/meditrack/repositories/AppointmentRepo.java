@@ -1,24 +1,74 @@
 package com.airtribe.meditrack.repositories;
 
+import com.airtribe.meditrack.dto.AppointmentDTO;
+import com.airtribe.meditrack.dto.AppointmentStartDto;
 import com.airtribe.meditrack.entities.Appointment;
+import com.airtribe.meditrack.enums.AppointmentStatus;
 import jakarta.validation.constraints.NotNull;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface AppointmentRepo extends JpaRepository<Appointment,Long> {
+    //booking: only whether an overlapping appointment exists, nothing is loaded. cancelled ones keep their times but not the slot
     @Query("""
-            select a from Appointment a
+            select count(a) > 0 from Appointment a
             where a.doctor.id = :docId and a.startDate = :startDate
             and ((:startTime<a.endTime) and (:endTime >a.startTime))
+            and a.status <> com.airtribe.meditrack.enums.AppointmentStatus.CANCELLED
             """)
-    List<Appointment> findConflictsInAppointment(Long docId,@NotNull LocalDate startDate, @NotNull LocalTime startTime, @NotNull LocalTime endTime);
+    boolean existsConflictInAppointment(Long docId,@NotNull LocalDate startDate, @NotNull LocalTime startTime, @NotNull LocalTime endTime);
 
+    //confirm / complete / cancel and the notifications after them: appointment, doctor and patient in one join
+    @EntityGraph(Appointment.WITH_PARTICIPANTS)
+    Optional<Appointment> findWithParticipantsById(Long id);
 
-    List<Appointment> findByDoctorIdAndStartDate(Long doctorId, LocalDate date);
+    @EntityGraph(Appointment.WITH_PARTICIPANTS)
+    List<Appointment> findWithParticipantsByIdIn(Collection<Long> ids);
+
+    //slot listing: just the booked start times of the day
+    @Query("""
+            select a.startTime from Appointment a where a.doctor.id = :doctorId and a.startDate = :date
+            and a.status <> com.airtribe.meditrack.enums.AppointmentStatus.CANCELLED
+            """)
+    List<LocalTime> findStartTimesByDoctorIdAndStartDate(Long doctorId, LocalDate date);
+
+    //slot listing of many doctors in one query: (doctor id, booked start time) rows
+    @Query("""
+            select a.doctor.id, a.startTime from Appointment a where a.doctor.id in :doctorIds and a.startDate = :date
+            and a.status <> com.airtribe.meditrack.enums.AppointmentStatus.CANCELLED
+            """)
+    List<Object[]> findStartTimesByDoctorIdInAndStartDate(Collection<Long> doctorIds, LocalDate date);
+
+    //reminder scheduler: the appointments of a few days in one status, read through idx_appointment_day_status
+    @Query("""
+            select new com.airtribe.meditrack.dto.AppointmentStartDto(a.id, a.status, a.startDate, a.startTime)
+            from Appointment a
+            where a.status = :status and a.startDate between :fromDate and :toDate
+            """)
+    List<AppointmentStartDto> findStartsByStatusAndStartDateBetween(AppointmentStatus status, LocalDate fromDate, LocalDate toDate);
+
+    @Query("select new com.airtribe.meditrack.dto.AppointmentStartDto(a.id, a.status, a.startDate, a.startTime) from Appointment a where a.id = :id")
+    Optional<AppointmentStartDto> findStartById(Long id);
+
+    //one query, only the columns the dto needs, doctor and patient are joined just for id + name
+    @Query("""
+            select new com.airtribe.meditrack.dto.AppointmentDTO(
+                a.id, d.id, d.name, d.specialist, p.id, p.name,
+                a.startDate, a.startTime, a.endTime, a.status,
+                a.patientSymptoms, a.docObservations, a.paymentAmount, a.cancellationReason)
+            from Appointment a
+            join a.doctor d
+            join a.patient p
+            where a.id = :id
+            """)
+    Optional<AppointmentDTO> findDtoById(Long id);
 }
@@ -0,0 +1,20 @@
+package com.airtribe.meditrack.repositories;
+
+import com.airtribe.meditrack.entities.AppointmentSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface AppointmentSnapshotRepo extends JpaRepository<AppointmentSnapshot, Long> {
+
+    Optional<AppointmentSnapshot> findFirstByOrderByCoversBeforeDesc();
+
+    //the snapshot a replay up to a point in time starts from
+    Optional<AppointmentSnapshot> findFirstByCoversBeforeLessThanEqualOrderByCoversBeforeDesc(LocalDateTime at);
+
+    List<AppointmentSnapshot> findAllByOrderByCoversBeforeDesc();
+}
@@ -1,13 +1,20 @@
 package com.airtribe.meditrack.repositories;
 
+import com.airtribe.meditrack.dto.DoctorAppointmentCount;
+import com.airtribe.meditrack.dto.DoctorDto;
 import com.airtribe.meditrack.entities.Doctor;
 import com.airtribe.meditrack.enums.Specialist;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface DoctorRepo extends JpaRepository<Doctor,Long> {
@@ -17,23 +24,141 @@ public interface DoctorRepo extends JpaRepository<Doctor,Long> {
         SELECT d.*, p.address, p.created_at, p.email, p.phone, p.role, p.updated_at 
         FROM doctor d
         JOIN person p ON d.id = p.id
+        WHERE d.is_available
         ORDER BY d.embedding <-> CAST(:vector AS vector)
         LIMIT 5
     """, nativeQuery = true)
-    List<Doctor> findTop5Similar(@Param("vector") String vector);
+    List<Doctor> findTop5SimilarAvailable(@Param("vector") String vector);
 
+    //candidates for DoctorRecommendationService: the nearest available doctors and their distance, flat columns
+    //(id, name, email, phone, address, role, specialist, description, consultation_fee, distance), no embedding is loaded
+    @Query(value = """
+        SELECT d.id, d.name, p.email, p.phone, p.address, p.role, d.specialist, d.description, d.consultation_fee,
+               d.embedding <-> CAST(:vector AS vector) AS distance
+        FROM doctor d
+        JOIN person p ON d.id = p.id
+        WHERE d.is_available
+        ORDER BY distance
+        LIMIT :limit
+    """, nativeQuery = true)
+    List<Object[]> findNearestAvailable(@Param("vector") String vector, @Param("limit") int limit);
 
+
+    //query cache: the result ids are cached in "doctor-queries", the doctors themselves come from the "person" region
+    //any insert/update of doctor rows through hibernate invalidates these results automatically
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "doctor-queries")
+    })
     List<Doctor> findBySpecialist(Specialist specialist);
 
     //apointments per doctor,group by doctor id, count appointments, order by count desc
+    //served from doctor_stats (DoctorStatsService), one row per doctor
         @Query(value = """
-            SELECT d.id, d.name, COUNT(a.id) AS appointment_count
+            SELECT d.id, d.name, COALESCE(s.appointment_count, 0) AS appointment_count
             FROM doctor d
-            LEFT JOIN appointment a ON d.id = a.doctor_id
-            GROUP BY d.id
+            LEFT JOIN doctor_stats s ON s.doctor_id = d.id
             ORDER BY appointment_count DESC
         """, nativeQuery = true)
         List<Object[]> findDoctorsWithAppointmentCounts();
 
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "doctor-queries")
+    })
     List<Doctor> findBySpecialistAndIsAvailableTrue(Specialist specialist);
+
+    //flat projection straight from the query, no entity (and no 768 float embedding) is loaded
+    @Query("""
+            select new com.airtribe.meditrack.dto.DoctorDto(
+                d.id, d.name, d.email, d.phone, d.address, d.role, d.specialist, d.description, d.consultationFee)
+            from Doctor d
+            order by d.id
+            """)
+    List<DoctorDto> findAllDoctorDtos();
+
+    //keyset pagination: seek past the last id of the previous page, uses the primary key index instead of OFFSET
+    @Query("""
+            select new com.airtribe.meditrack.dto.DoctorDto(
+                d.id, d.name, d.email, d.phone, d.address, d.role, d.specialist, d.description, d.consultationFee)
+            from Doctor d
+            where d.id > :afterId
+            order by d.id
+            """)
+    List<DoctorDto> findDoctorDtosAfter(Long afterId, Limit limit);
+
+    //server side cursor, rows are fetched 500 at a time, must be consumed inside a transaction
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("""
+            select new com.airtribe.meditrack.dto.DoctorDto(
+                d.id, d.name, d.email, d.phone, d.address, d.role, d.specialist, d.description, d.consultationFee)
+            from Doctor d
+            order by d.id
+            """)
+    Stream<DoctorDto> streamAllDoctorDtos();
+
+    //analytics pages from doctor_stats (hot and archived appointments), one page of doctors at a time
+    @Query("""
+            select new com.airtribe.meditrack.dto.DoctorAppointmentCount(d.id, d.name, coalesce(s.appointmentCount, 0L))
+            from Doctor d
+            left join DoctorStats s on s.doctorId = d.id
+            where d.id > :afterId
+            order by d.id
+            """)
+    List<DoctorAppointmentCount> findAppointmentCountsAfter(Long afterId, Limit limit);
+
+    //appointments without a payment amount count as 0, same as getAverageFeePerDoctor
+    @Query("""
+            select d.id, d.name, case when coalesce(s.appointmentCount, 0) = 0 then 0.0 else s.feeSum / s.appointmentCount end
+            from Doctor d
+            left join DoctorStats s on s.doctorId = d.id
+            where d.id > :afterId
+            order by d.id
+            """)
+    List<Object[]> findAverageFeesAfter(Long afterId, Limit limit);
+
+    //analytics over all doctors, one doctor_stats row each instead of aggregating their appointments
+    @Query("""
+            select new com.airtribe.meditrack.dto.DoctorAppointmentCount(d.id, d.name, coalesce(s.appointmentCount, 0L))
+            from Doctor d
+            left join DoctorStats s on s.doctorId = d.id
+            order by coalesce(s.appointmentCount, 0) desc
+            """)
+    List<DoctorAppointmentCount> findAppointmentCounts();
+
+    @Query("""
+            select d.id, d.name, case when coalesce(s.appointmentCount, 0) = 0 then 0.0 else s.feeSum / s.appointmentCount end
+            from Doctor d
+            left join DoctorStats s on s.doctorId = d.id
+            """)
+    List<Object[]> findAverageFees();
+
+    //specialist, appointments, fee sum. grouped over the doctor_stats rows, same 0 for a missing amount as per doctor
+    @Query("""
+            select d.specialist, coalesce(sum(s.appointmentCount), 0L), coalesce(sum(s.feeSum), 0.0)
+            from Doctor d
+            left join DoctorStats s on s.doctorId = d.id
+            where d.specialist is not null
+            group by d.specialist
+            order by d.specialist
+            """)
+    List<Object[]> findFeeTotalsBySpecialist();
+
+    //fee distribution per specialization and status over hot and archived appointments, the second grouping set
+    //(specialist alone) gives the all-statuses row. columns in SpecializationFeeStats order
+    @Query(value = """
+            select d.specialist, a.status, count(*),
+                   avg(a.payment_amount), min(a.payment_amount), max(a.payment_amount),
+                   percentile_cont(0.5) within group (order by a.payment_amount),
+                   percentile_cont(0.9) within group (order by a.payment_amount),
+                   percentile_cont(0.99) within group (order by a.payment_amount)
+            from doctor d
+            join (select doctor_id, status, payment_amount from appointment
+                  union all
+                  select doctor_id, status, payment_amount from appointment_archive) a on a.doctor_id = d.id
+            where d.specialist is not null
+            group by grouping sets ((d.specialist, a.status), (d.specialist))
+            order by d.specialist, a.status nulls first
+            """, nativeQuery = true)
+    List<Object[]> findFeeStatsBySpecialist();
 }
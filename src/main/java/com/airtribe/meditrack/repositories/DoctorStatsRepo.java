@@ -0,0 +1,61 @@
+package com.airtribe.meditrack.repositories;
+
+import com.airtribe.meditrack.entities.DoctorStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+//increments are a single upsert, so concurrent bookings (on any node) never overwrite each other's counts
+@Repository
+public interface DoctorStatsRepo extends JpaRepository<DoctorStats, Long> {
+
+    @Transactional
+    @Modifying
+    @Query(value = """
+            insert into doctor_stats (doctor_id, appointment_count, completed_count, cancelled_count, fee_sum, updated_at)
+            values (:doctorId, :appointments, :completed, :cancelled, :fee, now())
+            on conflict (doctor_id) do update set
+                appointment_count = doctor_stats.appointment_count + excluded.appointment_count,
+                completed_count = doctor_stats.completed_count + excluded.completed_count,
+                cancelled_count = doctor_stats.cancelled_count + excluded.cancelled_count,
+                fee_sum = doctor_stats.fee_sum + excluded.fee_sum,
+                updated_at = excluded.updated_at
+            """, nativeQuery = true)
+    int add(Long doctorId, long appointments, long completed, long cancelled, double fee);
+
+    //recounts every doctor from the hot and archived appointments, only rows that drifted are written.
+    //returns how many doctors were corrected
+    @Transactional
+    @Modifying
+    @Query(value = """
+            insert into doctor_stats (doctor_id, appointment_count, completed_count, cancelled_count, fee_sum, updated_at)
+            select d.id,
+                   count(a.id),
+                   count(a.id) filter (where a.status = 'COMPLETED'),
+                   count(a.id) filter (where a.status = 'CANCELLED'),
+                   coalesce(sum(coalesce(a.payment_amount, 0)), 0),
+                   now()
+            from doctor d
+            left join (select id, doctor_id, status, payment_amount from appointment
+                       union all
+                       select id, doctor_id, status, payment_amount from appointment_archive) a on a.doctor_id = d.id
+            group by d.id
+            on conflict (doctor_id) do update set
+                appointment_count = excluded.appointment_count,
+                completed_count = excluded.completed_count,
+                cancelled_count = excluded.cancelled_count,
+                fee_sum = excluded.fee_sum,
+                updated_at = excluded.updated_at
+            where (doctor_stats.appointment_count, doctor_stats.completed_count, doctor_stats.cancelled_count)
+                      is distinct from (excluded.appointment_count, excluded.completed_count, excluded.cancelled_count)
+               or abs(doctor_stats.fee_sum - excluded.fee_sum) > 0.005
+            """, nativeQuery = true)
+    int reconcile();
+
+    @Transactional
+    @Modifying
+    @Query(value = "delete from doctor_stats s where not exists (select 1 from doctor d where d.id = s.doctor_id)", nativeQuery = true)
+    int deleteRemovedDoctors();
+}
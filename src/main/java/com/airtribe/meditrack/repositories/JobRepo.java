@@ -0,0 +1,68 @@
+package com.airtribe.meditrack.repositories;
+
+import com.airtribe.meditrack.entities.Job;
+import com.airtribe.meditrack.enums.JobStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+//updates are single statements so a job row is never overwritten with a stale copy of the entity.
+//once claimed, only the owner's updates match: a node that stalled and lost the job gets 0 rows back
+@Repository
+public interface JobRepo extends JpaRepository<Job, Long> {
+
+    //queued jobs and running jobs whose node stopped sending heartbeats
+    @Query("""
+            select j.id from Job j
+            where j.status = :queued or (j.status = :running and j.updatedAt < :staleBefore)
+            order by j.id
+            """)
+    List<Long> findResumable(JobStatus queued, JobStatus running, LocalDateTime staleBefore);
+
+    //a job of this type still waiting or running
+    Optional<Job> findFirstByTypeAndStatusInOrderByIdDesc(String type, Collection<JobStatus> statuses);
+
+    //returns 1 when this node got the job, 0 when it is already running somewhere else (or finished)
+    @Transactional
+    @Modifying
+    @Query("""
+            update Job j set j.status = :running, j.owner = :owner, j.startedAt = :now, j.updatedAt = :now,
+                j.processedAtStart = j.processedItems
+            where j.id = :id and (j.status = :queued or (j.status = :running and j.updatedAt < :staleBefore))
+            """)
+    int claim(Long id, String owner, LocalDateTime now, LocalDateTime staleBefore, JobStatus queued, JobStatus running);
+
+    @Transactional
+    @Modifying
+    @Query("""
+            update Job j set j.processedItems = :processedItems, j.checkpoint = :checkpoint, j.updatedAt = :now
+            where j.id = :id and j.owner = :owner
+            """)
+    int updateProgress(Long id, String owner, long processedItems, String checkpoint, LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("update Job j set j.updatedAt = :now where j.id in :ids and j.owner = :owner")
+    int heartbeat(Collection<Long> ids, String owner, LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("""
+            update Job j set j.status = :status, j.result = :result, j.error = :error, j.updatedAt = :now, j.finishedAt = :now
+            where j.id = :id and j.owner = :owner
+            """)
+    int finish(Long id, String owner, JobStatus status, String result, String error, LocalDateTime now);
+
+    //stopped by a shutdown, keeps its checkpoint and is picked up again without waiting for the heartbeat to go stale
+    @Transactional
+    @Modifying
+    @Query("update Job j set j.status = :queued, j.owner = null, j.updatedAt = :now where j.id = :id and j.owner = :owner")
+    int requeue(Long id, String owner, JobStatus queued, LocalDateTime now);
+}
@@ -0,0 +1,9 @@
+package com.airtribe.meditrack.repositories;
+
+import com.airtribe.meditrack.entities.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface OutboxEventRepo extends JpaRepository<OutboxEvent, Long> {
+}
@@ -1,9 +1,42 @@
 package com.airtribe.meditrack.repositories;
 
+import com.airtribe.meditrack.dto.PatientDto;
 import com.airtribe.meditrack.entities.Patient;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.stream.Stream;
+
 @Repository
 public interface PatientRepo extends JpaRepository<Patient,Long> {
+
+    @Query("""
+            select new com.airtribe.meditrack.dto.PatientDto(p.id, p.name, p.email, p.phone, p.address, p.age, p.role)
+            from Patient p
+            order by p.id
+            """)
+    List<PatientDto> findAllPatientDtos();
+
+    @Query("""
+            select new com.airtribe.meditrack.dto.PatientDto(p.id, p.name, p.email, p.phone, p.address, p.age, p.role)
+            from Patient p
+            where p.id > :afterId
+            order by p.id
+            """)
+    List<PatientDto> findPatientDtosAfter(Long afterId, Limit limit);
+
+    //server side cursor, rows are fetched 500 at a time, must be consumed inside a transaction
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("""
+            select new com.airtribe.meditrack.dto.PatientDto(p.id, p.name, p.email, p.phone, p.address, p.age, p.role)
+            from Patient p
+            order by p.id
+            """)
+    Stream<PatientDto> streamAllPatientDtos();
 }
@@ -0,0 +1,82 @@
+package com.airtribe.meditrack.repositories;
+
+import com.airtribe.meditrack.dto.RevenueBucketDto;
+import com.airtribe.meditrack.entities.RevenueBucket;
+import com.airtribe.meditrack.enums.RevenueGranularity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+//one bill touches its hour, day and month bucket, all three in a single upsert
+@Repository
+public interface RevenueBucketRepo extends JpaRepository<RevenueBucket, RevenueBucket.Key> {
+
+    @Transactional
+    @Modifying
+    @Query(value = """
+            insert into revenue_bucket (granularity, bucket_start, doctor_id, bill_type, payment_type,
+                                        bill_count, base_amount, tax_amount, final_amount, updated_at)
+            select g.granularity, date_trunc(g.unit, cast(:generatedAt as timestamp)),
+                   coalesce(:doctorId, 0), coalesce(:billType, 'unknown'), coalesce(:paymentType, 'unknown'),
+                   1, :baseAmount, :taxAmount, :finalAmount, now()
+            from (values ('HOUR', 'hour'), ('DAY', 'day'), ('MONTH', 'month')) g (granularity, unit)
+            on conflict (granularity, bucket_start, doctor_id, bill_type, payment_type) do update set
+                bill_count = revenue_bucket.bill_count + excluded.bill_count,
+                base_amount = revenue_bucket.base_amount + excluded.base_amount,
+                tax_amount = revenue_bucket.tax_amount + excluded.tax_amount,
+                final_amount = revenue_bucket.final_amount + excluded.final_amount,
+                updated_at = excluded.updated_at
+            """, nativeQuery = true)
+    int add(LocalDateTime generatedAt, Long doctorId, String billType, String paymentType,
+            double baseAmount, double taxAmount, double finalAmount);
+
+    //recomputes every bucket from the bills generated since :from (a month start, so month buckets are whole),
+    //only buckets that drifted are written. returns how many were corrected
+    @Transactional
+    @Modifying
+    @Query(value = """
+            insert into revenue_bucket (granularity, bucket_start, doctor_id, bill_type, payment_type,
+                                        bill_count, base_amount, tax_amount, final_amount, updated_at)
+            select g.granularity, date_trunc(g.unit, b.generated_at),
+                   coalesce(b.doctor_id, 0), coalesce(b.bill_type, 'unknown'), coalesce(b.payment_type, 'unknown'),
+                   count(*), sum(b.base_amount), sum(b.tax_amount), sum(b.final_amount), now()
+            from bill_summary b
+            cross join (values ('HOUR', 'hour'), ('DAY', 'day'), ('MONTH', 'month')) g (granularity, unit)
+            where b.generated_at >= :from
+            group by 1, 2, 3, 4, 5
+            on conflict (granularity, bucket_start, doctor_id, bill_type, payment_type) do update set
+                bill_count = excluded.bill_count,
+                base_amount = excluded.base_amount,
+                tax_amount = excluded.tax_amount,
+                final_amount = excluded.final_amount,
+                updated_at = excluded.updated_at
+            where revenue_bucket.bill_count <> excluded.bill_count
+               or abs(revenue_bucket.base_amount - excluded.base_amount) > 0.005
+               or abs(revenue_bucket.tax_amount - excluded.tax_amount) > 0.005
+               or abs(revenue_bucket.final_amount - excluded.final_amount) > 0.005
+            """, nativeQuery = true)
+    int reconcile(LocalDateTime from);
+
+    @Query(value = "select exists (select 1 from revenue_bucket)", nativeQuery = true)
+    boolean hasBuckets();
+
+    //a null filter sums over that dimension. uses idx_revenue_bucket_range, at most one row per bucket in the range
+    @Query("""
+            select new com.airtribe.meditrack.dto.RevenueBucketDto(
+                r.bucketStart, sum(r.billCount), sum(r.baseAmount), sum(r.taxAmount), sum(r.finalAmount))
+            from RevenueBucket r
+            where r.granularity = :granularity and r.bucketStart >= :from and r.bucketStart < :to
+              and (:doctorId is null or r.doctorId = :doctorId)
+              and (:billType is null or r.billType = :billType)
+              and (:paymentType is null or r.paymentType = :paymentType)
+            group by r.bucketStart
+            order by r.bucketStart
+            """)
+    List<RevenueBucketDto> findRevenue(RevenueGranularity granularity, LocalDateTime from, LocalDateTime to,
+                                       Long doctorId, String billType, String paymentType);
+}
@@ -0,0 +1,327 @@
+package com.airtribe.meditrack.services;
+
+import com.airtribe.meditrack.dto.DistinctPatientsDto;
+import com.airtribe.meditrack.dto.QuantileSummaryDto;
+import com.airtribe.meditrack.dto.SymptomCountDto;
+import com.airtribe.meditrack.entities.AnalyticsSketch;
+import com.airtribe.meditrack.entities.Appointment;
+import com.airtribe.meditrack.enums.Specialist;
+import com.airtribe.meditrack.repositories.AnalyticsSketchRepo;
+import com.airtribe.meditrack.sketches.CountMinSketch;
+import com.airtribe.meditrack.sketches.HyperLogLog;
+import com.airtribe.meditrack.sketches.KllSketch;
+import com.airtribe.meditrack.sketches.Sketch;
+import com.airtribe.meditrack.sketches.SketchType;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.Time;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Approximate analytics that would otherwise scan every appointment, each kept in a fixed size sketch:
+ * distinct patients per doctor (HyperLogLog, 4 KB per doctor), fee and consultation duration quantiles per
+ * specialization (KLL, a few KB each) and the most frequent symptom words (count-min, 64 KB).
+ * AppointmentService reports bookings, confirmations and completions, they go into the sketches this node serves
+ * from and into a pending copy. flush() merges the pending sketches into the persisted ones (row locked, so nodes can
+ * flush concurrently) and reloads what other nodes flushed. On the very first start the sketches are built once from
+ * the existing appointments.
+ * Which rows changed is told by the database, not by clocks: every write stores its transaction id, and each refresh
+ * reads, in the same statement, the oldest transaction still running (the snapshot's xmin). Everything older had
+ * finished by then, so the next refresh only needs the rows written from that id on, however late they committed
+ * and whatever the nodes' clocks say.
+ */
+@Slf4j
+@Service
+public class AnalyticsSketchService {
+
+    private static final Pattern NOT_LETTERS = Pattern.compile("[^\\p{L}]+");
+    private static final Set<String> STOP_WORDS = Set.of("and", "the", "with", "for", "from", "since", "have", "has",
+            "had", "been", "also", "some", "very", "after", "before", "when", "feel", "feeling", "day", "days",
+            "week", "weeks", "month", "months", "last", "not", "but", "this", "that", "like", "are", "was", "all");
+    private static final int FETCH_SIZE = 1000;
+    //pg_advisory_xact_lock key, only one node builds the initial sketches
+    private static final long BACKFILL_LOCK = 0x736b657463680001L;
+
+    //the horizon comes back on its own row when nothing changed
+    private static final String CHANGED_SKETCHES = """
+            select h.horizon, s.name, s.type, s.data
+            from (select pg_snapshot_xmin(pg_current_snapshot())::text::bigint as horizon) h
+            left join analytics_sketch s on s.written_by >= ?
+            """;
+
+    private static final String BACKFILL_ROWS = """
+            select a.doctor_id, a.patient_id, d.specialist, a.status, a.payment_amount, a.patient_symptoms,
+                   a.start_time, a.end_time
+            from (select doctor_id, patient_id, status, payment_amount, patient_symptoms, start_time, end_time from appointment
+                  union all
+                  select doctor_id, patient_id, status, payment_amount, patient_symptoms, start_time, end_time from appointment_archive) a
+            join doctor d on d.id = a.doctor_id
+            """;
+
+    private final AnalyticsSketchRepo analyticsSketchRepo;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+
+    //view: what this node answers from (persisted + local updates), pending: local updates not flushed yet
+    private final Object lock = new Object();
+    private final Map<String, Sketch> view = new HashMap<>();
+    private Map<String, Sketch> pending = new HashMap<>();
+    //transactions before this one had all finished at the last refresh
+    private long refreshedUpTo;
+
+    public AnalyticsSketchService(AnalyticsSketchRepo analyticsSketchRepo, TransactionTemplate transactionTemplate,
+                                  JdbcTemplate jdbcTemplate) {
+        this.analyticsSketchRepo = analyticsSketchRepo;
+        this.transactionTemplate = transactionTemplate;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void appointmentBooked(Appointment appointment) {
+        this.<HyperLogLog>update(patientsKey(appointment.getDoctor().getId()), SketchType.HYPER_LOG_LOG,
+                sketch -> sketch.add(appointment.getPatient().getId()));
+        Set<String> symptoms = symptomWords(appointment.getPatientSymptoms());
+        if (!symptoms.isEmpty()) {
+            this.<CountMinSketch>update(symptomsKey(), SketchType.COUNT_MIN, sketch -> symptoms.forEach(sketch::add));
+        }
+    }
+
+    //the billed amount, recorded once the appointment is paid
+    public void appointmentConfirmed(Appointment appointment) {
+        Specialist specialist = appointment.getDoctor().getSpecialist();
+        if (specialist != null && appointment.getPaymentAmount() != null) {
+            this.<KllSketch>update(feeKey(specialist), SketchType.KLL, sketch -> sketch.add(appointment.getPaymentAmount()));
+        }
+    }
+
+    public void appointmentCompleted(Appointment appointment) {
+        Specialist specialist = appointment.getDoctor().getSpecialist();
+        if (specialist != null && appointment.getStartTime() != null && appointment.getEndTime() != null) {
+            long minutes = Duration.between(appointment.getStartTime(), appointment.getEndTime()).toMinutes();
+            this.<KllSketch>update(durationKey(specialist), SketchType.KLL, sketch -> sketch.add(minutes));
+        }
+    }
+
+    public DistinctPatientsDto getDistinctPatients(Long doctorId) {
+        synchronized (lock) {
+            HyperLogLog sketch = (HyperLogLog) view.get(patientsKey(doctorId));
+            return new DistinctPatientsDto(doctorId, sketch == null ? 0 : sketch.estimate(), HyperLogLog.STANDARD_ERROR);
+        }
+    }
+
+    public QuantileSummaryDto getFeeQuantiles(Specialist specialist) {
+        return quantiles(specialist, "fee", feeKey(specialist));
+    }
+
+    public QuantileSummaryDto getDurationQuantiles(Specialist specialist) {
+        return quantiles(specialist, "durationMinutes", durationKey(specialist));
+    }
+
+    public List<SymptomCountDto> getTopSymptoms(int limit) {
+        synchronized (lock) {
+            CountMinSketch sketch = (CountMinSketch) view.get(symptomsKey());
+            if (sketch == null) {
+                return List.of();
+            }
+            long maxOverestimate = sketch.maxOverestimate();
+            return sketch.top(limit).stream()
+                    .map(entry -> new SymptomCountDto(entry.item(), entry.count(), maxOverestimate))
+                    .toList();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        backfillIfEmpty();
+        refresh();
+    }
+
+    @PreDestroy
+    @Scheduled(initialDelayString = "${meditrack.sketches.flush-ms:60000}", fixedDelayString = "${meditrack.sketches.flush-ms:60000}")
+    public synchronized void flush() {
+        Map<String, Sketch> delta;
+        synchronized (lock) {
+            delta = pending;
+            pending = new HashMap<>();
+        }
+        for (Map.Entry<String, Sketch> entry : delta.entrySet()) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> mergeIntoStored(entry.getKey(), entry.getValue()));
+            } catch (RuntimeException e) {
+                log.warn("Could not persist sketch {}, keeping it for the next flush", entry.getKey(), e);
+                synchronized (lock) {
+                    Sketch newer = pending.put(entry.getKey(), entry.getValue());
+                    if (newer != null) {
+                        entry.getValue().merge(newer);
+                    }
+                }
+            }
+        }
+        refresh();
+    }
+
+    //reloads the sketches changed since the last refresh (by any node) and adds this node's unflushed updates on top
+    private void refresh() {
+        long[] horizon = {refreshedUpTo};
+        jdbcTemplate.query(CHANGED_SKETCHES, (RowCallbackHandler) resultSet -> {
+            horizon[0] = resultSet.getLong("horizon");
+            String name = resultSet.getString("name");
+            if (name == null) {
+                return;
+            }
+            Sketch stored = Sketch.fromBytes(SketchType.valueOf(resultSet.getString("type")), resultSet.getBytes("data"));
+            synchronized (lock) {
+                Sketch unflushed = pending.get(name);
+                if (unflushed != null) {
+                    stored.merge(unflushed);
+                }
+                view.put(name, stored);
+            }
+        }, refreshedUpTo);
+        refreshedUpTo = horizon[0];
+    }
+
+    private void mergeIntoStored(String name, Sketch delta) {
+        Sketch merged = analyticsSketchRepo.findForUpdate(name)
+                .map(row -> Sketch.fromBytes(row.getType(), row.getData()))
+                .orElseGet(() -> Sketch.empty(delta.type()));
+        merged.merge(delta);
+        analyticsSketchRepo.save(AnalyticsSketch.builder()
+                .name(name)
+                .type(delta.type())
+                .data(merged.toBytes())
+                .updatedAt(LocalDateTime.now())
+                .writtenBy(jdbcTemplate.queryForObject("select pg_current_xact_id()::text::bigint", Long.class))
+                .build());
+    }
+
+    //streams the hot and archived appointments once, when no sketch was ever persisted. fees are counted for every
+    //appointment that got past payment, a cancelled one may have been paid too but there is no way to tell anymore
+    private void backfillIfEmpty() {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.query("select pg_advisory_xact_lock(?)", (RowCallbackHandler) resultSet -> {
+            }, BACKFILL_LOCK);
+            if (analyticsSketchRepo.count() > 0) {
+                return;
+            }
+            Map<String, Sketch> built = new HashMap<>();
+            long[] rows = new long[1];
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(BACKFILL_ROWS);
+                statement.setFetchSize(FETCH_SIZE);
+                return statement;
+            }, (RowCallbackHandler) resultSet -> {
+                rows[0]++;
+                long doctorId = resultSet.getLong("doctor_id");
+                ((HyperLogLog) built.computeIfAbsent(patientsKey(doctorId), key -> new HyperLogLog()))
+                        .add(resultSet.getLong("patient_id"));
+                Set<String> symptoms = symptomWords(resultSet.getString("patient_symptoms"));
+                if (!symptoms.isEmpty()) {
+                    CountMinSketch sketch = (CountMinSketch) built.computeIfAbsent(symptomsKey(), key -> new CountMinSketch());
+                    symptoms.forEach(sketch::add);
+                }
+                String specialistName = resultSet.getString("specialist");
+                if (specialistName == null) {
+                    return;
+                }
+                Specialist specialist = Specialist.valueOf(specialistName);
+                String appointmentStatus = resultSet.getString("status");
+                double fee = resultSet.getDouble("payment_amount");
+                if (!resultSet.wasNull() && !"PAYMENT_PENDING".equals(appointmentStatus)) {
+                    ((KllSketch) built.computeIfAbsent(feeKey(specialist), key -> new KllSketch())).add(fee);
+                }
+                Time start = resultSet.getTime("start_time");
+                Time end = resultSet.getTime("end_time");
+                if ("COMPLETED".equals(appointmentStatus) && start != null && end != null) {
+                    long minutes = Duration.between(start.toLocalTime(), end.toLocalTime()).toMinutes();
+                    ((KllSketch) built.computeIfAbsent(durationKey(specialist), key -> new KllSketch())).add(minutes);
+                }
+            });
+            built.forEach(this::mergeIntoStored);
+            if (rows[0] > 0) {
+                log.info("Analytics sketches built from {} existing appointments", rows[0]);
+            }
+        });
+    }
+
+    //a sketch can't take an update back, so it is only applied once the appointment change committed
+    @SuppressWarnings("unchecked")
+    private <T extends Sketch> void update(String name, SketchType type, Consumer<T> change) {
+        Runnable apply = () -> {
+            synchronized (lock) {
+                change.accept((T) view.computeIfAbsent(name, key -> Sketch.empty(type)));
+                change.accept((T) pending.computeIfAbsent(name, key -> Sketch.empty(type)));
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply.run();
+                }
+            });
+        } else {
+            apply.run();
+        }
+    }
+
+    private QuantileSummaryDto quantiles(Specialist specialist, String metric, String key) {
+        synchronized (lock) {
+            KllSketch sketch = (KllSketch) view.get(key);
+            if (sketch == null || sketch.count() == 0) {
+                return new QuantileSummaryDto(specialist, metric, 0, null, null, null, null, null, null, KllSketch.RANK_ERROR);
+            }
+            return new QuantileSummaryDto(specialist, metric, sketch.count(), sketch.min(), sketch.quantile(0.5),
+                    sketch.quantile(0.9), sketch.quantile(0.95), sketch.quantile(0.99), sketch.max(), KllSketch.RANK_ERROR);
+        }
+    }
+
+    //each word counted once per appointment, so "pain ... pain" doesn't weigh more than one mention
+    static Set<String> symptomWords(String symptoms) {
+        Set<String> words = new LinkedHashSet<>();
+        if (symptoms == null) {
+            return words;
+        }
+        for (String word : NOT_LETTERS.split(symptoms.toLowerCase(Locale.ROOT))) {
+            if (word.length() >= 3 && !STOP_WORDS.contains(word)) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    private static String patientsKey(Long doctorId) {
+        return "patients:doctor:" + doctorId;
+    }
+
+    private static String feeKey(Specialist specialist) {
+        return "fee:" + specialist.name();
+    }
+
+    private static String durationKey(Specialist specialist) {
+        return "duration:" + specialist.name();
+    }
+
+    private static String symptomsKey() {
+        return "symptoms";
+    }
+}
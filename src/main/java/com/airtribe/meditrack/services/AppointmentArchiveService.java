@@ -0,0 +1,180 @@
+package com.airtribe.meditrack.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Hot/cold split for appointments. The appointment table only keeps what booking, slots and status changes work on,
+ * COMPLETED, CANCELLED and NO_SHOW appointments older than the retention move to appointment_archive,
+ * which is range partitioned on start_date with one partition per year.
+ * The move runs nightly in batches of batchSize rows, each batch is one delete ... returning / insert in its own
+ * transaction, and skip locked lets several nodes run it at the same time without taking the same rows.
+ * An appointment's payment moves with it, into the payment_* columns of its archive row (payment_paid_amount is what the payment
+ * recorded, payment_amount stays the appointment's fee), so payment keeps its foreign
+ * key to appointment and never points at a row that is gone.
+ * The archive is not an entity but follows the entities' schema: with ddl-auto create or create-drop it is dropped
+ * and created again on startup (and dropped on shutdown with create-drop), so archived ids never meet the ids of a
+ * fresh appointment table.
+ * Archived rows keep counting in doctor_stats (DoctorStatsService reconciles over both tables). Postgres only, on other databases nothing is archived.
+ */
+@Slf4j
+@Service
+public class AppointmentArchiveService {
+
+    private static final String CREATE_ARCHIVE = """
+            create table if not exists appointment_archive (
+                id bigint not null,
+                doctor_id bigint not null,
+                patient_id bigint not null,
+                start_date date not null,
+                start_time time,
+                end_time time,
+                status varchar(255),
+                patient_symptoms text,
+                doc_observations text,
+                payment_amount float(53),
+                cancellation_reason varchar(255),
+                payment_id bigint,
+                payment_type varchar(255),
+                payment_status varchar(255),
+                payment_paid_amount float(53),
+                archived_at timestamp(6) not null,
+                primary key (id, start_date)
+            ) partition by range (start_date)
+            """;
+
+    //archives created before payments moved along
+    private static final String ADD_PAYMENT_COLUMNS = """
+            alter table appointment_archive add column if not exists payment_id bigint,
+                                            add column if not exists payment_type varchar(255),
+                                            add column if not exists payment_status varchar(255),
+                                            add column if not exists payment_paid_amount float(53)
+            """;
+
+    //the partitions go with it
+    private static final String DROP_ARCHIVE = "drop table if exists appointment_archive";
+
+    private static final String CREATE_ARCHIVE_INDEX =
+            "create index if not exists idx_appointment_archive_doctor_day on appointment_archive (doctor_id, start_date)";
+
+    private static final String ARCHIVE_YEARS = """
+            select distinct extract(year from start_date)::int from appointment
+            where start_date < ? and status in ('COMPLETED', 'CANCELLED', 'NO_SHOW')
+            """;
+
+    //payment's foreign key is checked at the end of the statement, when its row is gone too
+    private static final String MOVE_BATCH = """
+            with moved as (
+                delete from appointment where id in (
+                    select id from appointment
+                    where start_date < ? and status in ('COMPLETED', 'CANCELLED', 'NO_SHOW')
+                    order by start_date
+                    limit ?
+                    for update skip locked
+                )
+                returning id, doctor_id, patient_id, start_date, start_time, end_time, status,
+                          patient_symptoms, doc_observations, payment_amount, cancellation_reason
+            ), paid as (
+                delete from payment where appointment_id in (select id from moved)
+                returning id, appointment_id, payment_type, status, amount
+            )
+            insert into appointment_archive (id, doctor_id, patient_id, start_date, start_time, end_time, status,
+                                             patient_symptoms, doc_observations, payment_amount, cancellation_reason,
+                                             payment_id, payment_type, payment_status, payment_paid_amount, archived_at)
+            select m.id, m.doctor_id, m.patient_id, m.start_date, m.start_time, m.end_time, m.status,
+                   m.patient_symptoms, m.doc_observations, m.payment_amount, m.cancellation_reason,
+                   p.id, p.payment_type, p.status, p.amount, now()
+            from moved m
+            left join paid p on p.appointment_id = m.id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean postgres;
+    private final String ddlAuto;
+    private final boolean enabled;
+    private final int retentionDays;
+    private final int batchSize;
+
+    //the entity manager factory is only here so hibernate has created the appointment table before createArchive runs
+    public AppointmentArchiveService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                     DataSourceProperties dataSourceProperties, EntityManagerFactory entityManagerFactory,
+                                     @Value("${spring.jpa.hibernate.ddl-auto:none}") String ddlAuto,
+                                     @Value("${meditrack.archive.enabled:true}") boolean enabled,
+                                     @Value("${meditrack.archive.retention-days:365}") int retentionDays,
+                                     @Value("${meditrack.archive.batch-size:1000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.postgres = dataSourceProperties.getUrl() != null && dataSourceProperties.getUrl().startsWith("jdbc:postgresql:");
+        this.ddlAuto = ddlAuto;
+        this.enabled = enabled;
+        this.retentionDays = retentionDays;
+        this.batchSize = batchSize;
+    }
+
+    @PostConstruct
+    public void createArchive() {
+        if (!postgres) {
+            log.info("Not on postgres, appointments will not be archived");
+            return;
+        }
+        //hibernate just created the appointment table, its ids start over
+        if ("create".equals(ddlAuto) || "create-drop".equals(ddlAuto)) {
+            jdbcTemplate.execute(DROP_ARCHIVE);
+        }
+        jdbcTemplate.execute(CREATE_ARCHIVE);
+        jdbcTemplate.execute(ADD_PAYMENT_COLUMNS);
+        jdbcTemplate.execute(CREATE_ARCHIVE_INDEX);
+    }
+
+    //runs before hibernate drops the entities' tables
+    @PreDestroy
+    public void dropArchive() {
+        if (postgres && "create-drop".equals(ddlAuto)) {
+            jdbcTemplate.execute(DROP_ARCHIVE);
+        }
+    }
+
+    @Scheduled(cron = "${meditrack.archive.cron:0 30 2 * * *}")
+    public void archiveOnSchedule() {
+        if (enabled) {
+            archive(LocalDate.now().minusDays(retentionDays));
+        }
+    }
+
+    //moves finished appointments that started before the cutoff, returns how many were moved
+    public long archive(LocalDate cutoff) {
+        if (!postgres) {
+            return 0;
+        }
+        createPartitions(cutoff);
+        long moved = 0;
+        int batch;
+        do {
+            batch = transactionTemplate.execute(status -> jdbcTemplate.update(MOVE_BATCH, cutoff, batchSize));
+            moved += batch;
+        } while (batch == batchSize);
+        log.info("Archived {} appointments that started before {}", moved, cutoff);
+        return moved;
+    }
+
+    //one partition per year that has rows to move, partitions for years already there are left alone
+    private void createPartitions(LocalDate cutoff) {
+        List<Integer> years = jdbcTemplate.queryForList(ARCHIVE_YEARS, Integer.class, cutoff);
+        for (int year : years) {
+            jdbcTemplate.execute("create table if not exists appointment_archive_" + year
+                    + " partition of appointment_archive for values from ('" + year + "-01-01') to ('" + (year + 1) + "-01-01')");
+        }
+    }
+}
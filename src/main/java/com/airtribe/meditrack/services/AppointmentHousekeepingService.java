@@ -0,0 +1,84 @@
+package com.airtribe.meditrack.services;
+
+import com.airtribe.meditrack.dto.JobStatusDto;
+import com.airtribe.meditrack.enums.JobStatus;
+import com.airtribe.meditrack.jobs.AppointmentHousekeepingJobHandler;
+import com.airtribe.meditrack.jobs.JobService;
+import com.airtribe.meditrack.repositories.JobRepo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Starts the no-show / unpaid housekeeping (AppointmentHousekeepingJobHandler) on its schedule or on request.
+ * It runs as a background job, so it is checkpointed, resumes after a restart and reports progress on GET /jobs/{id}.
+ * While one is queued or running no second one is started, that one is returned instead. The lookup and the insert
+ * run in one transaction holding a postgres advisory lock, so nodes (or requests) submitting at the same time take
+ * turns and the later ones find the job the first one stored.
+ */
+@Slf4j
+@Service
+public class AppointmentHousekeepingService {
+
+    private static final List<JobStatus> ACTIVE = List.of(JobStatus.QUEUED, JobStatus.RUNNING);
+
+    //pg_advisory_xact_lock key, held from the lookup of an active job to the commit of a new one
+    private static final long SUBMIT_LOCK = 0x686f7573656b6565L;
+
+    private final JobService jobService;
+    private final JobRepo jobRepo;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean postgres;
+    private final boolean enabled;
+    private final Duration noShowAfter;
+    private final int partitions;
+
+    public AppointmentHousekeepingService(JobService jobService, JobRepo jobRepo, JdbcTemplate jdbcTemplate,
+                                          TransactionTemplate transactionTemplate, DataSourceProperties dataSourceProperties,
+                                          @Value("${meditrack.housekeeping.enabled:true}") boolean enabled,
+                                          @Value("${meditrack.housekeeping.no-show-after:2h}") Duration noShowAfter,
+                                          @Value("${meditrack.housekeeping.partitions:4}") int partitions) {
+        this.jobService = jobService;
+        this.jobRepo = jobRepo;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.postgres = dataSourceProperties.getUrl() != null && dataSourceProperties.getUrl().startsWith("jdbc:postgresql:");
+        this.enabled = enabled;
+        this.noShowAfter = noShowAfter;
+        this.partitions = Math.max(1, partitions);
+    }
+
+    @Scheduled(cron = "${meditrack.housekeeping.cron:0 15 * * * *}")
+    public void submitOnSchedule() {
+        if (enabled) {
+            JobStatusDto job = submit();
+            log.debug("Appointment housekeeping job {} is {}", job.getId(), job.getStatus());
+        }
+    }
+
+    public JobStatusDto submit() {
+        return transactionTemplate.execute(status -> {
+            if (postgres) {
+                jdbcTemplate.query("select pg_advisory_xact_lock(?)", (RowCallbackHandler) resultSet -> {
+                }, SUBMIT_LOCK);
+            }
+            return jobRepo.findFirstByTypeAndStatusInOrderByIdDesc(AppointmentHousekeepingJobHandler.TYPE, ACTIVE)
+                    .map(job -> jobService.getStatus(job.getId()))
+                    .orElseGet(() -> {
+                        LocalDateTime now = LocalDateTime.now();
+                        return jobService.submit(AppointmentHousekeepingJobHandler.TYPE,
+                                new AppointmentHousekeepingJobHandler.Input(now, now.minus(noShowAfter), partitions));
+                    });
+        });
+    }
+}
@@ -1,6 +1,7 @@
 package com.airtribe.meditrack.services;
 
 import com.airtribe.meditrack.billing.Bill;
+import com.airtribe.meditrack.cache.CacheInvalidationPublisher;
 import com.airtribe.meditrack.dto.AppointmentDTO;
 import com.airtribe.meditrack.dto.DocObservationDto;
 import com.airtribe.meditrack.dto.PaymentDto;
@@ -9,14 +10,17 @@ import com.airtribe.meditrack.enums.AppointmentStatus;
 import com.airtribe.meditrack.enums.BillType;
 import com.airtribe.meditrack.exceptions.AppointmentNotFoundException;
 import com.airtribe.meditrack.factory.BillFactory;
+import com.airtribe.meditrack.history.AppointmentHistoryRecorder;
+import com.airtribe.meditrack.mapper.AppointmentMapper;
 import com.airtribe.meditrack.notificationService.NotifySubject;
-import com.airtribe.meditrack.notificationService.Observer;
+import com.airtribe.meditrack.notificationService.OutboxPublisher;
+import com.airtribe.meditrack.reminders.ReminderScheduler;
 import com.airtribe.meditrack.repositories.*;
 import jakarta.validation.constraints.NotNull;
 import lombok.RequiredArgsConstructor;
 
-import org.modelmapper.ModelMapper;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -28,30 +32,37 @@ import java.util.Optional;
 @RequiredArgsConstructor//this autogenerates a constructor with all the final fields as parameters, which is useful for dependency injection in Spring. It eliminates the need to manually write a constructor to initialize these fields, making the code cleaner and more concise.
 public class AppointmentService implements NotifySubject {
 
-    private final ModelMapper modelMapper;
+    private final AppointmentMapper appointmentMapper;
     private final DoctorRepo doctorRepo;
     private final PatientRepo patientRepo;
     private final AppointmentRepo appointmentRepo;
     private final PaymentService paymentService;
     private final PaymentRepo paymentRepo;
-    private final List<Observer> observers;
+    private final OutboxPublisher outboxPublisher;
     private final BillRep billRepo;
-
-    //create notifyoberver method to notify the observers when an appointment is booked, confirmed, completed or cancelled
+    private final CacheInvalidationPublisher cacheInvalidationPublisher;
+    private final BulkWriteService bulkWriteService;
+    private final DoctorStatsService doctorStatsService;
+    private final RevenueRollupService revenueRollupService;
+    private final AnalyticsSketchService analyticsSketchService;
+    private final SlotPushService slotPushService;
+    private final AvailabilitySummaryService availabilitySummaryService;
+    private final ReminderScheduler reminderScheduler;
+    private final AppointmentHistoryRecorder appointmentHistoryRecorder;
+
+    //notifies the observers when an appointment is booked, confirmed, completed or cancelled. the event goes to the
+    //outbox in the same transaction as the change, OutboxRelay delivers it after commit, the request doesn't wait for it
     @Override
     public void notifyObserversPrivate(Appointment appointment) {
-        for (Observer observer : observers) {
-            observer.updateAppointment(appointment);
-        }
+        outboxPublisher.appointmentChanged(appointment);
     }
 
     @Override
     public void notifyAll(String message) {
-        for (Observer observer : observers) {
-            observer.updateDoctorMessage(message);
-        }
+        outboxPublisher.doctorMessage(message);
     }
 
+    @Transactional
     public AppointmentDTO bookAppointment(Long docid, Long patid, Appointment appointment) {
         Optional<Doctor> doctor = doctorRepo.findById(docid);
         Optional<Patient> patient = patientRepo.findById(patid);
@@ -83,18 +94,23 @@ public class AppointmentService implements NotifySubject {
                 .build();
 
         appointmentRepo.save(appoint);
+        appointmentHistoryRecorder.booked(appoint);
+        doctorStatsService.appointmentBooked(appoint);
+        analyticsSketchService.appointmentBooked(appoint);
+        publishChange(appoint);
         notifyObserversPrivate(appoint);
 
-        return modelMapper.map(appoint, AppointmentDTO.class);
+        return appointmentMapper.toDto(appoint);
     }
 
     private boolean isAvailableSlot(Long doctorId, @NotNull LocalDate startDate, @NotNull LocalTime startTime, @NotNull LocalTime endTime) {
 
-        return appointmentRepo.findConflictsInAppointment(doctorId, startDate, startTime, endTime).isEmpty();
+        return !appointmentRepo.existsConflictInAppointment(doctorId, startDate, startTime, endTime);
     }
 
+    @Transactional
     public String confirmAppointment(Long appointid, PaymentDto paymentDto) {
-        Optional<Appointment> appointment = appointmentRepo.findById(appointid);
+        Optional<Appointment> appointment = appointmentRepo.findWithParticipantsById(appointid);
 
         if (appointment.isEmpty()) {
             throw new AppointmentNotFoundException("Appointment not found. Please check the appointment ID."+ appointid);
@@ -113,6 +129,8 @@ public class AppointmentService implements NotifySubject {
 
         BillSummary summary = BillSummary.builder()
                 .appointmentId(appointment.get().getId())
+                .doctorId(appointment.get().getDoctor().getId())
+                .paymentType(paymentDto.getPaymentType())
                 .baseAmount(bill.getBaseAmount())
                 .billType(String.valueOf(paymentDto.getBillType()))
                 .patientName(appointment.get().getPatient().getName())
@@ -128,7 +146,7 @@ public class AppointmentService implements NotifySubject {
         }
 
         Appointment appointment1 = appointment.get();
-
+        Double previousFee = appointment1.getPaymentAmount();
 
 
 
@@ -147,20 +165,36 @@ public class AppointmentService implements NotifySubject {
         paymentRepo.save(payment);
         billRepo.save(summary);
         appointmentRepo.save(appointment1);
+        appointmentHistoryRecorder.confirmed(appointment1);
+        revenueRollupService.billGenerated(summary);
+        doctorStatsService.feeChanged(appointment1, previousFee);
+        analyticsSketchService.appointmentConfirmed(appointment1);
+        publishChange(appointment1);
         notifyObserversPrivate(appointment1);
         return "Appointment confirmed and payment processed successfully.";
     }
 
+    @Transactional
     public String doctorConsultationCompletion(Long AppointmentId, DocObservationDto docObservationDto) {
-        Optional<Appointment> appointment = appointmentRepo.findById(AppointmentId);
+        Optional<Appointment> appointment = appointmentRepo.findWithParticipantsById(AppointmentId);
         if (!appointment.isPresent()) {
             throw new AppointmentNotFoundException("Appointment not found with ID: " + AppointmentId);
         }
 
             Appointment appointment1 = appointment.get();
+            boolean newlyCompleted = appointment1.getStatus() != AppointmentStatus.COMPLETED;
             appointment1.setStatus(AppointmentStatus.COMPLETED);
             appointment1.setDocObservations(docObservationDto.getDocObservations());
             appointmentRepo.save(appointment1);
+            //completing again only edits the observations, no history event, stats or notifications for a no-op
+            if (!newlyCompleted) {
+                cacheInvalidationPublisher.appointmentChanged(appointment1.getId());
+                return "Doctor consultation completed successfully.";
+            }
+            appointmentHistoryRecorder.completed(appointment1);
+            doctorStatsService.appointmentCompleted(appointment1);
+            analyticsSketchService.appointmentCompleted(appointment1);
+            publishChange(appointment1);
 
             //notification
             notifyObserversPrivate(appointment1);
@@ -171,8 +205,9 @@ public class AppointmentService implements NotifySubject {
     }
 
     //Cancel the appointment by sending the appointment id and reason for cancellation
+    @Transactional
     public String cancelAppointment(Long AppointmentId, String reason) {
-        Optional<Appointment> appointment = appointmentRepo.findById(AppointmentId);
+        Optional<Appointment> appointment = appointmentRepo.findWithParticipantsById(AppointmentId);
         if (!appointment.isPresent()) {
             throw new AppointmentNotFoundException("Appointment not found with ID: " + AppointmentId);
         }
@@ -182,24 +217,59 @@ public class AppointmentService implements NotifySubject {
         }
 
             Appointment appointment1 = appointment.get();
+            //already cancelled is a no-op like in cancelAppointments, the first reason, history event and notifications stand
+            if (appointment1.getStatus() == AppointmentStatus.CANCELLED) {
+                return "Appointment cancelled successfully.";
+            }
+            //the times stay, a cancelled appointment no longer blocks its slot (see AppointmentRepo) and the history keeps when it was
             appointment1.setStatus(AppointmentStatus.CANCELLED);
-            appointment1.setStartTime(null);
-            appointment1.setEndTime(null);
             appointment1.setCancellationReason(reason);
             appointmentRepo.save(appointment1);
+            appointmentHistoryRecorder.cancelled(List.of(appointment1));
+            doctorStatsService.appointmentsCancelled(List.of(appointment1));
+            publishChange(appointment1);
 
             notifyObserversPrivate(appointment1);
             notifyAll(appointment.get().getDoctor().getName()+" is now available for new appointments between "+appointment.get().getStartTime()+" and "+appointment.get().getEndTime());
         return "Appointment cancelled successfully.";
     }
 
-    public AppointmentDTO getAppointmentById(Long id) {
-        Optional<Appointment> appointment = appointmentRepo.findById(id);
-        if (appointment.isPresent()) {
-            return modelMapper.map(appointment.get(), AppointmentDTO.class);
-        } else {
-            throw new RuntimeException("Appointment not found");
+    //Cancel many appointments at once (doctor on leave, clinic closed), updates go out in jdbc batches in one transaction
+    //completed and unknown appointments are skipped instead of failing the whole batch
+    @Transactional
+    public String cancelAppointments(List<Long> appointmentIds, String reason) {
+        List<Appointment> cancelled = bulkWriteService.updateAll(appointmentRepo::findWithParticipantsByIdIn, appointmentIds, appointment -> {
+            if (appointment.getStatus() == AppointmentStatus.COMPLETED || appointment.getStatus() == AppointmentStatus.CANCELLED) {
+                return false;
+            }
+            appointment.setStatus(AppointmentStatus.CANCELLED);
+            appointment.setCancellationReason(reason);
+            return true;
+        });
+        appointmentHistoryRecorder.cancelled(cancelled);
+        doctorStatsService.appointmentsCancelled(cancelled);
+
+        for (Appointment appointment : cancelled) {
+            publishChange(appointment);
+            notifyObserversPrivate(appointment);
+            notifyAll(appointment.getDoctor().getName()+" is now available for new appointments between "+appointment.getStartTime()+" and "+appointment.getEndTime());
         }
+        return cancelled.size() + " of " + appointmentIds.size() + " appointments cancelled successfully.";
+    }
+
+    //lets the other nodes drop cached data about this appointment and the doctor's day, updates slot subscribers, reminders
+    //and the availability summary
+    private void publishChange(Appointment appointment) {
+        cacheInvalidationPublisher.appointmentChanged(appointment.getId());
+        cacheInvalidationPublisher.scheduleChanged(appointment.getDoctor().getId(), appointment.getStartDate());
+        slotPushService.scheduleChanged(appointment.getDoctor().getId(), appointment.getStartDate());
+        availabilitySummaryService.scheduleChanged(appointment.getDoctor().getId());
+        reminderScheduler.appointmentChanged(appointment);
+    }
+
+    public AppointmentDTO getAppointmentById(Long id) {
+        return appointmentRepo.findDtoById(id)
+                .orElseThrow(() -> new RuntimeException("Appointment not found"));
     }
 
 }
@@ -0,0 +1,170 @@
+package com.airtribe.meditrack.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Precomputed availability of every doctor over the next horizon-days days, so many doctors can be ranked by their
+ * next free slot without a slot query each: per doctor, one bit mask per day of its booked working slots
+ * (bit i is SlotService.WORKING_SLOTS.get(i)). A doctor without bookings in the horizon has no entry, all its slots are free.
+ * Rebuilt from one query every refresh-ms, which also moves the horizon on. A booking or cancellation marks its doctor
+ * dirty after commit (AppointmentService here, AvailabilityInvalidationHandler for other nodes), the dirty doctors are
+ * read again together every dirty-refresh-ms.
+ * The next free slot is worked out from the masks when asked, so it is never a slot that has already started.
+ */
+@Slf4j
+@Service
+public class AvailabilitySummaryService {
+
+    private static final String BOOKED = """
+            select doctor_id, start_date, start_time from appointment
+            where start_date >= ? and start_date < ? and status <> 'CANCELLED'
+            """;
+
+    private static final int DIRTY_BATCH = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int horizonDays;
+
+    private volatile Map<Long, Booked> summaries = Map.of();
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+
+    //a doctor's booked slots, masks[d] is the day from + d
+    private record Booked(LocalDate from, long[] masks) {
+
+        long mask(LocalDate date) {
+            long offset = date.toEpochDay() - from.toEpochDay();
+            return offset >= 0 && offset < masks.length ? masks[(int) offset] : 0;
+        }
+    }
+
+    //the first slot still free and how many are free in the whole horizon
+    public record Availability(LocalDate date, LocalTime time, int freeSlots) {
+    }
+
+    public AvailabilitySummaryService(JdbcTemplate jdbcTemplate,
+                                      @Value("${meditrack.recommend.horizon-days:14}") int horizonDays) {
+        if (SlotService.WORKING_SLOTS.size() > Long.SIZE) {
+            throw new IllegalStateException("A working day has more than " + Long.SIZE + " slots");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.horizonDays = horizonDays;
+    }
+
+    public int getHorizonDays() {
+        return horizonDays;
+    }
+
+    //null when the doctor has no free slot left in the horizon
+    public Availability nextAvailable(Long doctorId, LocalDateTime now) {
+        Booked booked = summaries.get(doctorId);
+        LocalDate today = now.toLocalDate();
+        LocalDate firstDate = null;
+        LocalTime firstTime = null;
+        int free = 0;
+        for (int day = 0; day < horizonDays; day++) {
+            LocalDate date = today.plusDays(day);
+            long mask = booked == null ? 0 : booked.mask(date);
+            for (int slot = 0; slot < SlotService.WORKING_SLOTS.size(); slot++) {
+                LocalTime time = SlotService.WORKING_SLOTS.get(slot);
+                if ((mask & (1L << slot)) != 0 || (day == 0 && !time.isAfter(now.toLocalTime()))) {
+                    continue;
+                }
+                free++;
+                if (firstDate == null) {
+                    firstDate = date;
+                    firstTime = time;
+                }
+            }
+        }
+        return firstDate == null ? null : new Availability(firstDate, firstTime, free);
+    }
+
+    //like SlotPushService, a change only counts once it committed
+    public void scheduleChanged(Long doctorId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dirty.add(doctorId);
+                }
+            });
+        } else {
+            dirty.add(doctorId);
+        }
+    }
+
+    //events may have been missed (lost NOTIFY connection)
+    public void allChanged() {
+        refreshAll();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${meditrack.recommend.refresh-ms:300000}", fixedDelayString = "${meditrack.recommend.refresh-ms:300000}")
+    public synchronized void refreshAll() {
+        long start = System.nanoTime();
+        LocalDate from = LocalDate.now();
+        Map<Long, Booked> rebuilt = new HashMap<>();
+        jdbcTemplate.query(BOOKED, resultSet -> {
+            add(rebuilt, from, resultSet.getLong("doctor_id"), resultSet.getObject("start_date", LocalDate.class),
+                    resultSet.getObject("start_time", LocalTime.class));
+        }, from, from.plusDays(horizonDays));
+        summaries = Collections.unmodifiableMap(rebuilt);
+        log.debug("Availability of {} booked doctors summarized in {} ms", rebuilt.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Scheduled(initialDelayString = "${meditrack.recommend.dirty-refresh-ms:1000}", fixedDelayString = "${meditrack.recommend.dirty-refresh-ms:1000}")
+    public synchronized void refreshDirty() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        //a doctor marked again after it was taken here is read again next time
+        List<Long> doctorIds = new ArrayList<>();
+        for (Long doctorId : dirty) {
+            dirty.remove(doctorId);
+            doctorIds.add(doctorId);
+        }
+        LocalDate from = LocalDate.now();
+        Map<Long, Booked> updated = new HashMap<>(summaries);
+        doctorIds.forEach(updated::remove);
+        for (int i = 0; i < doctorIds.size(); i += DIRTY_BATCH) {
+            List<Long> batch = doctorIds.subList(i, Math.min(i + DIRTY_BATCH, doctorIds.size()));
+            List<Object> args = new ArrayList<>(List.of(from, from.plusDays(horizonDays)));
+            args.addAll(batch);
+            jdbcTemplate.query(BOOKED + " and doctor_id in (" + String.join(", ", Collections.nCopies(batch.size(), "?")) + ")",
+                    resultSet -> {
+                        add(updated, from, resultSet.getLong("doctor_id"), resultSet.getObject("start_date", LocalDate.class),
+                                resultSet.getObject("start_time", LocalTime.class));
+                    }, args.toArray());
+        }
+        summaries = Collections.unmodifiableMap(updated);
+    }
+
+    private void add(Map<Long, Booked> booked, LocalDate from, long doctorId, LocalDate date, LocalTime time) {
+        int slot = SlotService.WORKING_SLOTS.indexOf(time);
+        if (slot < 0) {
+            return;
+        }
+        //rebuilt maps start without the doctor, so an entry found here was created by this refresh
+        Booked doctor = booked.computeIfAbsent(doctorId, id -> new Booked(from, new long[horizonDays]));
+        doctor.masks()[(int) (date.toEpochDay() - from.toEpochDay())] |= 1L << slot;
+    }
+}
@@ -0,0 +1,72 @@
+package com.airtribe.meditrack.services;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Writes many rows in one transaction, flushing and clearing the persistence context every batch.
+ * With hibernate.jdbc.batch_size set, each flush goes to the db as one jdbc batch per table,
+ * and clearing keeps the session from growing (and dirty checking from slowing down) on big imports.
+ */
+@Service
+public class BulkWriteService {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final int batchSize;
+
+    public BulkWriteService(@Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}") int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    //inserts all entities, ids are assigned from the pooled sequence on persist. returned entities are detached
+    @Transactional
+    public <T> List<T> persistAll(List<T> entities) {
+        for (int i = 0; i < entities.size(); i++) {
+            entityManager.persist(entities.get(i));
+            if ((i + 1) % batchSize == 0) {
+                flushAndClear();
+            }
+        }
+        flushAndClear();
+        return entities;
+    }
+
+    //loads the rows batch by batch and applies the change, rows where change returns false are left alone
+    //missing ids are skipped. returns the changed entities (detached)
+    @Transactional
+    public <T, ID> List<T> updateAll(JpaRepository<T, ID> repository, List<ID> ids, Predicate<T> change) {
+        return updateAll(repository::findAllById, ids, change);
+    }
+
+    //same, with a custom loader for one batch of ids (e.g. an entity graph finder, so the detached results have their associations)
+    @Transactional
+    public <T, ID> List<T> updateAll(Function<List<ID>, List<T>> loader, List<ID> ids, Predicate<T> change) {
+        List<T> changed = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            List<ID> chunk = ids.subList(from, Math.min(from + batchSize, ids.size()));
+            for (T entity : loader.apply(chunk)) {
+                if (change.test(entity)) {
+                    changed.add(entity);
+                }
+            }
+            flushAndClear();
+        }
+        return changed;
+    }
+
+    private void flushAndClear() {
+        entityManager.flush();
+        entityManager.clear();
+    }
+}
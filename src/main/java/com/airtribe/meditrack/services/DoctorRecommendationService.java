@@ -0,0 +1,130 @@
+package com.airtribe.meditrack.services;
+
+import com.airtribe.meditrack.dto.DoctorDto;
+import com.airtribe.meditrack.dto.DoctorRecommendationDto;
+import com.airtribe.meditrack.enums.Role;
+import com.airtribe.meditrack.enums.Specialist;
+import com.airtribe.meditrack.repositories.DoctorRepo;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Recommends doctors for a set of symptoms (GET /recommend) that can actually be booked.
+ * One query returns the candidates: the nearest available doctors by embedding. Each one is scored on similarity,
+ * how soon its next free slot is and its fee, with the next free slot taken from AvailabilitySummaryService
+ * (no slot query per candidate). Doctors with no free slot in the horizon are left out.
+ * Every part is scaled to 0..1 (similarity and fee against the other candidates, the wait against the horizon),
+ * the score is their weighted sum with the meditrack.recommend.weight.* weights.
+ * The symptoms are embedded before the candidate query's read-only transaction starts, so no connection is held
+ * while the embedding model is called.
+ */
+@Service
+public class DoctorRecommendationService {
+
+    private final DoctorRepo doctorRepo;
+    private final EmbeddingModel embeddingModel;
+    private final AvailabilitySummaryService availabilitySummaryService;
+    private final TransactionTemplate readOnly;
+    private final int candidates;
+    private final int results;
+    private final double similarityWeight;
+    private final double availabilityWeight;
+    private final double feeWeight;
+
+    record Candidate(DoctorDto doctor, Double fee, double distance, AvailabilitySummaryService.Availability availability) {
+    }
+
+    public DoctorRecommendationService(DoctorRepo doctorRepo,
+                                       @Qualifier("ollamaEmbeddingModel") EmbeddingModel embeddingModel,
+                                       AvailabilitySummaryService availabilitySummaryService,
+                                       PlatformTransactionManager transactionManager,
+                                       @Value("${meditrack.recommend.candidates:50}") int candidates,
+                                       @Value("${meditrack.recommend.results:5}") int results,
+                                       @Value("${meditrack.recommend.weight.similarity:0.5}") double similarityWeight,
+                                       @Value("${meditrack.recommend.weight.availability:0.35}") double availabilityWeight,
+                                       @Value("${meditrack.recommend.weight.fee:0.15}") double feeWeight) {
+        this.doctorRepo = doctorRepo;
+        this.embeddingModel = embeddingModel;
+        this.availabilitySummaryService = availabilitySummaryService;
+        //read-only, so the candidates are read from a replica when there is one
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.candidates = candidates;
+        this.results = results;
+        this.similarityWeight = similarityWeight;
+        this.availabilityWeight = availabilityWeight;
+        this.feeWeight = feeWeight;
+    }
+
+    public List<DoctorRecommendationDto> recommendDoctors(String symptoms) {
+        // Format: [1.234,5.678,9.012] without spaces
+        String vector = Arrays.toString(embeddingModel.embed(symptoms)).replace(" ", "");
+
+        LocalDateTime now = LocalDateTime.now();
+        return rank(readOnly.execute(status -> bookable(vector, now)), now);
+    }
+
+    //the nearest available doctors that still have a free slot
+    private List<Candidate> bookable(String vector, LocalDateTime now) {
+        List<Candidate> bookable = new ArrayList<>();
+        for (Object[] row : doctorRepo.findNearestAvailable(vector, candidates)) {
+            Long doctorId = ((Number) row[0]).longValue();
+            AvailabilitySummaryService.Availability availability = availabilitySummaryService.nextAvailable(doctorId, now);
+            if (availability == null) {
+                continue;
+            }
+            Double fee = row[8] == null ? null : ((Number) row[8]).doubleValue();
+            DoctorDto doctor = new DoctorDto(doctorId, (String) row[1], (String) row[2], (String) row[3], (String) row[4],
+                    row[5] == null ? null : Role.valueOf((String) row[5]),
+                    row[6] == null ? null : Specialist.valueOf((String) row[6]),
+                    (String) row[7], fee);
+            bookable.add(new Candidate(doctor, fee, ((Number) row[9]).doubleValue(), availability));
+        }
+        return bookable;
+    }
+
+    //the best results candidates, best first
+    List<DoctorRecommendationDto> rank(List<Candidate> bookable, LocalDateTime now) {
+        if (bookable.isEmpty()) {
+            return List.of();
+        }
+
+        double minDistance = bookable.stream().mapToDouble(Candidate::distance).min().orElse(0);
+        double maxDistance = bookable.stream().mapToDouble(Candidate::distance).max().orElse(0);
+        double minFee = bookable.stream().filter(c -> c.fee() != null).mapToDouble(Candidate::fee).min().orElse(0);
+        double maxFee = bookable.stream().filter(c -> c.fee() != null).mapToDouble(Candidate::fee).max().orElse(0);
+        double horizonMinutes = Duration.ofDays(availabilitySummaryService.getHorizonDays()).toMinutes();
+
+        return bookable.stream()
+                .map(candidate -> {
+                    double similarity = scaleDown(candidate.distance(), minDistance, maxDistance);
+                    //a doctor whose fee is unknown is scored like the most expensive one
+                    double fee = candidate.fee() == null ? 0 : scaleDown(candidate.fee(), minFee, maxFee);
+                    AvailabilitySummaryService.Availability availability = candidate.availability();
+                    long waitMinutes = Duration.between(now, availability.date().atTime(availability.time())).toMinutes();
+                    double soon = 1 - Math.min(1, Math.max(0, waitMinutes) / horizonMinutes);
+                    double score = similarityWeight * similarity + availabilityWeight * soon + feeWeight * fee;
+                    return new DoctorRecommendationDto(candidate.doctor(), score, candidate.distance(),
+                            availability.date(), availability.time(), availability.freeSlots());
+                })
+                .sorted(Comparator.comparingDouble(DoctorRecommendationDto::getScore).reversed())
+                .limit(results)
+                .toList();
+    }
+
+    //1 for the lowest value of the candidates, 0 for the highest
+    private static double scaleDown(double value, double min, double max) {
+        return max > min ? (max - value) / (max - min) : 1;
+    }
+}
@@ -1,85 +1,94 @@
 package com.airtribe.meditrack.services;
 
+import com.airtribe.meditrack.cache.CacheInvalidationPublisher;
+import com.airtribe.meditrack.config.AnalyticsCacheConfig;
+import com.airtribe.meditrack.dto.CursorPage;
 import com.airtribe.meditrack.dto.DoctorAppointmentCount;
 import com.airtribe.meditrack.dto.DoctorDto;
+import com.airtribe.meditrack.dto.SpecializationFeeStats;
 import com.airtribe.meditrack.entities.Doctor;
+import com.airtribe.meditrack.enums.AppointmentStatus;
 import com.airtribe.meditrack.enums.Specialist;
+import com.airtribe.meditrack.exceptions.ResourceNotFoundException;
 import com.airtribe.meditrack.repositories.DoctorRepo;
-import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
-import org.springframework.ai.embedding.EmbeddingModel;
-import org.springframework.beans.factory.annotation.Qualifier;
+import com.airtribe.meditrack.mapper.DoctorMapper;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Transactional(readOnly = true)
 public class DoctorService {
     private final DoctorRepo doctorRepo;
-    private final ModelMapper modelMapper;
-    private final EmbeddingModel embeddingModel;
-    // Manual constructor to use @Qualifier
+    private final DoctorMapper doctorMapper;
+    private final NdjsonWriter ndjsonWriter;
+    private final CacheInvalidationPublisher cacheInvalidationPublisher;
     public DoctorService(
             DoctorRepo doctorRepo,
-            ModelMapper modelMapper,
-            @Qualifier("ollamaEmbeddingModel") EmbeddingModel embeddingModel) {
+            DoctorMapper doctorMapper,
+            NdjsonWriter ndjsonWriter,
+            CacheInvalidationPublisher cacheInvalidationPublisher) {
         this.doctorRepo = doctorRepo;
-        this.modelMapper = modelMapper;
-        this.embeddingModel = embeddingModel;
+        this.doctorMapper = doctorMapper;
+        this.ndjsonWriter = ndjsonWriter;
+        this.cacheInvalidationPublisher = cacheInvalidationPublisher;
     }
 
     public DoctorDto getDocById(Integer id) {
         Optional<Doctor> doctor = doctorRepo.findById(id.longValue());
 
         if (doctor.isPresent()) {
-            return modelMapper.map(doctor.get(), DoctorDto.class);
+            return doctorMapper.toDto(doctor.get());
         }
         return null;
 
     }
 
+    //goes through the entity so hibernate updates the cached doctor and invalidates the specialist query cache
+    @Transactional
+    public DoctorDto updateAvailability(Long id, boolean available) {
+        Doctor doctor = doctorRepo.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Doctor not found with ID: " + id));
+        doctor.setIsAvailable(available);
+        //sent inside the transaction, postgres delivers it to the other nodes only after commit
+        cacheInvalidationPublisher.doctorChanged(id);
+        return doctorMapper.toDto(doctor);
+    }
+
     public List<DoctorDto> getAllDoctors() {
+        //projection query, builds the dtos directly without loading Doctor entities
+        return doctorRepo.findAllDoctorDtos();
+    }
 
-        List<Doctor> doctors = doctorRepo.findAll();
+    public CursorPage<DoctorDto> getDoctorPage(String cursor, int size) {
+        int pageSize = CursorPage.pageSize(size);
+        List<DoctorDto> rows = doctorRepo.findDoctorDtosAfter(CursorPage.decodeCursor(cursor), Limit.of(pageSize + 1));
+        return CursorPage.of(rows, pageSize, DoctorDto::getId);
+    }
 
-        if (doctors.isEmpty()) {
-           return new ArrayList<>();
+    //called from the StreamingResponseBody thread, the class level read-only transaction keeps the cursor open while writing
+    public void streamAllDoctors(OutputStream out) throws IOException {
+        try (Stream<DoctorDto> doctors = doctorRepo.streamAllDoctorDtos()) {
+            ndjsonWriter.write(doctors, out);
         }
-        return doctors.stream()
-                .map(d -> modelMapper.map(d, DoctorDto.class))
-                .collect(Collectors.toList());
     }
 
 
 
-    public List<DoctorDto> recommendDoctors(String symptoms) {
-
-        float[] embedding = embeddingModel.embed(symptoms);
-
-        // Format: [1.234,5.678,9.012] without spaces
-        String vector = Arrays.toString(embedding)
-                .replace(" ", "");  // Remove spaces between numbers
-
-        return doctorRepo.findTop5Similar(vector)
-                .stream()
-                .map(d -> modelMapper.map(d, DoctorDto.class))
-                .toList();
-
-    }
-
-
     public List<DoctorDto> searchBySpecialization(Specialist specialist) {
         List<Doctor> doctors = doctorRepo.findBySpecialist(specialist);
 
         if (doctors.isEmpty()) {
             return new ArrayList<>();
         }
-        return doctors.stream()
-                .map(d -> modelMapper.map(d, DoctorDto.class))
-                .collect(Collectors.toList());
+        return doctorMapper.toDtos(doctors);
     }
 
     //apointments per doctor using using streams analytics
@@ -101,48 +110,71 @@ public class DoctorService {
     }
 
     public List<DoctorAppointmentCount> getAppointmentsPerDoctor() {
-        List<Doctor> doctors = doctorRepo.findAll();
+        return doctorRepo.findAppointmentCounts();
 
-        return doctors.stream()
-                .map(d -> new DoctorAppointmentCount(d.getId(), d.getName(), (long) d.getAppointments().size()))
-                .sorted(Comparator.comparingLong(DoctorAppointmentCount::getAppointmentCount).reversed())
-                .collect(Collectors.toList());
+    }
 
+    public CursorPage<DoctorAppointmentCount> getAppointmentsPerDoctorPage(String cursor, int size) {
+        int pageSize = CursorPage.pageSize(size);
+        List<DoctorAppointmentCount> rows =
+                doctorRepo.findAppointmentCountsAfter(CursorPage.decodeCursor(cursor), Limit.of(pageSize + 1));
+        return CursorPage.of(rows, pageSize, DoctorAppointmentCount::getDoctorId);
     }
 
     //average fee per doctor
     public List<Map<String, Object>> getAverageFeePerDoctor() {
-        List<Doctor> doctors = doctorRepo.findAll();
-        return doctors.stream().map(d -> {
+        return doctorRepo.findAverageFees().stream().map(row -> {
             Map<String, Object> map = new HashMap<>();
-            map.put("id", d.getId());
-            map.put("name", d.getName());
-            double averageFee = d.getAppointments().stream()
-                    .mapToDouble(a -> a.getPaymentAmount() != null ? a.getPaymentAmount() : 0.0)
-                    .average()
-                    .orElse(0.0);
-            map.put("averageFee", averageFee);
+            map.put("id", row[0]);
+            map.put("name", row[1]);
+            map.put("averageFee", row[2]);
             return map;
         }).collect(Collectors.toList());
     }
 
+    public CursorPage<Map<String, Object>> getAverageFeePerDoctorPage(String cursor, int size) {
+        int pageSize = CursorPage.pageSize(size);
+        List<Map<String, Object>> rows = doctorRepo.findAverageFeesAfter(CursorPage.decodeCursor(cursor), Limit.of(pageSize + 1))
+                .stream()
+                .map(row -> {
+                    Map<String, Object> map = new HashMap<>();
+                    map.put("id", row[0]);
+                    map.put("name", row[1]);
+                    map.put("averageFee", row[2]);
+                    return map;
+                })
+                .collect(Collectors.toList());
+        return CursorPage.of(rows, pageSize, m -> (Long) m.get("id"));
+    }
 
+    //one row per specialization: fee sum over the number of appointments of all its doctors (a missing amount counts as 0)
     public List<Map<String, Object>> getAverageFeePerDoctorSpecialization() {
-        List<Doctor> doctors = doctorRepo.findAll();
-        return doctors.stream().map(d -> {
+        return doctorRepo.findFeeTotalsBySpecialist().stream().map(row -> {
+            long appointments = ((Number) row[1]).longValue();
+            double feeSum = ((Number) row[2]).doubleValue();
             Map<String, Object> map = new HashMap<>();
-            map.put("Specialization", d.getSpecialist());
-            double averageFee = d.getAppointments().stream()
-                    .mapToDouble(a -> a.getPaymentAmount() != null ? a.getPaymentAmount() : 0.0)
-                    .average()
-                    .orElse(0.0);
-            map.put("averageFee", averageFee);
+            map.put("Specialization", row[0]);
+            map.put("appointmentCount", appointments);
+            map.put("averageFee", appointments == 0 ? 0.0 : feeSum / appointments);
             return map;
-        })//Sort by specialization alphabetically
-                .sorted(Comparator.comparing(
-                        m -> ((Specialist) m.get("Specialization")).name()
-                ))
+        }).collect(Collectors.toList());
+    }
 
-                .collect(Collectors.toList());
+    //scans every appointment for the percentiles, so the report is shared for a few seconds (its ehcache.xml region)
+    //sync: when it expires one caller recomputes it and the others wait for that result instead of querying too
+    @Cacheable(cacheNames = AnalyticsCacheConfig.SPECIALIZATION_STATS, key = "'all'", sync = true)
+    public List<SpecializationFeeStats> getFeeStatsBySpecialization() {
+        return doctorRepo.findFeeStatsBySpecialist().stream()
+                .map(row -> new SpecializationFeeStats(
+                        Specialist.valueOf((String) row[0]),
+                        row[1] == null ? null : AppointmentStatus.valueOf((String) row[1]),
+                        ((Number) row[2]).longValue(),
+                        toDouble(row[3]), toDouble(row[4]), toDouble(row[5]),
+                        toDouble(row[6]), toDouble(row[7]), toDouble(row[8])))
+                .toList();
+    }
+
+    private static Double toDouble(Object value) {
+        return value == null ? null : ((Number) value).doubleValue();
     }
 }
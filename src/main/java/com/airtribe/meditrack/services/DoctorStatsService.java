@@ -0,0 +1,64 @@
+package com.airtribe.meditrack.services;
+
+import com.airtribe.meditrack.entities.Appointment;
+import com.airtribe.meditrack.repositories.DoctorStatsRepo;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps doctor_stats in step with the appointments: AppointmentService reports each state change right after saving it,
+ * so the analytics read one row per doctor instead of aggregating every appointment.
+ * The increments join the transaction of the appointment change, a row changed behind the service's back (bulk sql,
+ * the archive job) is corrected by reconcile(), at startup and on a schedule.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DoctorStatsService {
+
+    private final DoctorStatsRepo doctorStatsRepo;
+
+    public void appointmentBooked(Appointment appointment) {
+        doctorStatsRepo.add(appointment.getDoctor().getId(), 1, 0, 0, fee(appointment.getPaymentAmount()));
+    }
+
+    //confirming replaces the consultation fee with the billed amount
+    public void feeChanged(Appointment appointment, Double previousFee) {
+        double delta = fee(appointment.getPaymentAmount()) - fee(previousFee);
+        if (delta != 0) {
+            doctorStatsRepo.add(appointment.getDoctor().getId(), 0, 0, 0, delta);
+        }
+    }
+
+    public void appointmentCompleted(Appointment appointment) {
+        doctorStatsRepo.add(appointment.getDoctor().getId(), 0, 1, 0, 0);
+    }
+
+    public void appointmentsCancelled(Collection<Appointment> appointments) {
+        Map<Long, Long> perDoctor = appointments.stream()
+                .collect(Collectors.groupingBy(a -> a.getDoctor().getId(), Collectors.counting()));
+        perDoctor.forEach((doctorId, cancelled) -> doctorStatsRepo.add(doctorId, 0, 0, cancelled, 0));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${meditrack.analytics.reconcile-cron:0 0 * * * *}")
+    public void reconcile() {
+        int corrected = doctorStatsRepo.reconcile();
+        int removed = doctorStatsRepo.deleteRemovedDoctors();
+        if (corrected > 0 || removed > 0) {
+            log.info("Doctor stats reconciled: {} doctors corrected, {} removed", corrected, removed);
+        }
+    }
+
+    private static double fee(Double amount) {
+        return amount == null ? 0.0 : amount;
+    }
+}
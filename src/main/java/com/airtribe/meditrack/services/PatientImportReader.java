@@ -0,0 +1,204 @@
+package com.airtribe.meditrack.services;
+
+import com.airtribe.meditrack.dto.PatientDetailDTO;
+import com.airtribe.meditrack.enums.Role;
+import com.airtribe.meditrack.exceptions.InvalidImportException;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads a patient upload one row at a time, the body is never loaded as a whole.
+ * JSON: a top level array of PatientDetailDTO objects, or newline delimited objects.
+ * CSV: a header row (name,email,phone,address,age,role in any order, email required) and one patient per line.
+ * A row that can't be mapped comes back with an error instead of ending the import, only broken json syntax does.
+ */
+@Component
+@RequiredArgsConstructor
+public class PatientImportReader {
+
+    public static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+
+    private final ObjectMapper objectMapper;
+
+    //row is the 1 based record number in the upload (for csv, the header is not counted)
+    public record Row(long row, PatientDetailDTO patient, String error) {
+    }
+
+    public interface RowIterator extends Closeable {
+        boolean hasNext() throws IOException;
+
+        Row next() throws IOException;
+    }
+
+    public RowIterator open(InputStream body, String contentType) throws IOException {
+        MediaType mediaType;
+        try {
+            mediaType = MediaType.parseMediaType(contentType == null ? "" : contentType);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidImportException("Content-Type must be application/json or text/csv");
+        }
+        if (MediaType.APPLICATION_JSON.isCompatibleWith(mediaType) || MediaType.APPLICATION_NDJSON.isCompatibleWith(mediaType)) {
+            return new JsonRows(objectMapper.readerFor(PatientDetailDTO.class).readValues(body));
+        }
+        if (TEXT_CSV.isCompatibleWith(mediaType)) {
+            return new CsvRows(new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8)));
+        }
+        throw new InvalidImportException("Content-Type must be application/json or text/csv, got " + contentType);
+    }
+
+    private static class JsonRows implements RowIterator {
+
+        private final MappingIterator<PatientDetailDTO> values;
+        private long row;
+
+        JsonRows(MappingIterator<PatientDetailDTO> values) {
+            this.values = values;
+        }
+
+        @Override
+        public boolean hasNext() throws IOException {
+            return values.hasNextValue();
+        }
+
+        @Override
+        public Row next() throws IOException {
+            row++;
+            try {
+                return new Row(row, values.nextValue(), null);
+            } catch (JsonProcessingException e) {
+                //a wrong type inside one object, the iterator skips to the next object on the following hasNext
+                if (e instanceof JsonParseException) {
+                    throw e;
+                }
+                return new Row(row, null, e.getOriginalMessage());
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            values.close();
+        }
+    }
+
+    private static class CsvRows implements RowIterator {
+
+        private final BufferedReader reader;
+        private final Map<String, Integer> columns = new HashMap<>();
+        private String nextLine;
+        private long row;
+
+        CsvRows(BufferedReader reader) throws IOException {
+            this.reader = reader;
+            String header = reader.readLine();
+            if (header == null) {
+                throw new InvalidImportException("CSV upload is empty, expected a header row");
+            }
+            List<String> names = split(header.startsWith("\uFEFF") ? header.substring(1) : header);
+            for (int i = 0; i < names.size(); i++) {
+                columns.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+            }
+            if (!columns.containsKey("email")) {
+                throw new InvalidImportException("CSV header must contain an email column");
+            }
+        }
+
+        @Override
+        public boolean hasNext() throws IOException {
+            while (nextLine == null) {
+                nextLine = reader.readLine();
+                if (nextLine == null) {
+                    return false;
+                }
+                if (nextLine.isBlank()) {
+                    nextLine = null;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Row next() throws IOException {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            row++;
+            List<String> fields = split(nextLine);
+            nextLine = null;
+            PatientDetailDTO patient = new PatientDetailDTO();
+            patient.setName(field(fields, "name"));
+            patient.setEmail(field(fields, "email"));
+            patient.setPhone(field(fields, "phone"));
+            patient.setAddress(field(fields, "address"));
+            try {
+                String age = field(fields, "age");
+                patient.setAge(age == null ? null : Integer.valueOf(age.trim()));
+                String role = field(fields, "role");
+                patient.setRole(role == null ? null : Role.valueOf(role.trim().toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                return new Row(row, null, "bad age or role: " + e.getMessage());
+            }
+            return new Row(row, patient, null);
+        }
+
+        private String field(List<String> fields, String column) {
+            Integer index = columns.get(column);
+            if (index == null || index >= fields.size()) {
+                return null;
+            }
+            String value = fields.get(index);
+            return value.isEmpty() ? null : value;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+
+        //rfc 4180 style: commas inside "quoted" fields, "" is an escaped quote. quoted line breaks are not supported
+        static List<String> split(String line) {
+            List<String> fields = new ArrayList<>();
+            StringBuilder current = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        current.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        current.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(current.toString());
+                    current.setLength(0);
+                } else {
+                    current.append(c);
+                }
+            }
+            fields.add(current.toString());
+            return fields;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.airtribe.meditrack.services;
+
+import com.airtribe.meditrack.dto.PatientDetailDTO;
+import com.airtribe.meditrack.dto.PatientImportReport;
+import com.airtribe.meditrack.enums.ImportStatus;
+import com.airtribe.meditrack.enums.Role;
+import com.airtribe.meditrack.exceptions.ResourceNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Bulk patient onboarding: POST /register/patient/bulk.
+ * The request thread parses and validates rows and hands chunks of CHUNK_SIZE to a writer thread through a queue
+ * of QUEUE_CHUNKS. When the database is slower than the upload the queue fills up and parsing waits,
+ * so memory stays at a few chunks whatever the file size. Each chunk commits on its own,
+ * progress of running and recent imports is available from GET /register/patient/bulk/{importId}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PatientImportService {
+
+    static final int CHUNK_SIZE = 5000;
+    private static final int QUEUE_CHUNKS = 4;
+    private static final int MAX_ERRORS = 100;
+    private static final int KEEP_IMPORTS = 50;
+    private static final List<PatientDetailDTO> END = List.of();
+
+    //same rules as the Person / Patient entity annotations, COPY bypasses bean validation
+    private static final Pattern EMAIL = Pattern.compile("^[a-zA-Z0-9._%+-]+@[a-zA-Z0-9.-]+\\.[a-zA-Z]{2,}$");
+
+    private final PatientImportReader patientImportReader;
+    private final PatientImportWriter patientImportWriter;
+
+    private final Map<String, Progress> imports = Collections.synchronizedMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Progress> eldest) {
+            return size() > KEEP_IMPORTS && eldest.getValue().status != ImportStatus.RUNNING;
+        }
+    });
+
+    public PatientImportReport importPatients(InputStream body, String contentType) throws IOException {
+        Progress progress = new Progress(UUID.randomUUID().toString());
+        BlockingQueue<List<PatientDetailDTO>> queue = new ArrayBlockingQueue<>(QUEUE_CHUNKS);
+
+        try (PatientImportReader.RowIterator rows = patientImportReader.open(body, contentType)) {
+            imports.put(progress.importId, progress);
+            log.info("Patient import {} started ({})", progress.importId, contentType);
+            Thread writer = Thread.ofVirtual().name("patient-import-" + progress.importId).start(() -> drain(queue, progress));
+            try {
+                List<PatientDetailDTO> chunk = new ArrayList<>(CHUNK_SIZE);
+                while (progress.status == ImportStatus.RUNNING && rows.hasNext()) {
+                    PatientImportReader.Row row = rows.next();
+                    progress.rowsRead.incrementAndGet();
+                    String error = row.error() != null ? row.error() : validate(row.patient());
+                    if (error != null) {
+                        progress.reject(1, "row " + row.row() + ": " + error);
+                        continue;
+                    }
+                    chunk.add(row.patient());
+                    if (chunk.size() == CHUNK_SIZE) {
+                        hand(queue, chunk, writer);
+                        chunk = new ArrayList<>(CHUNK_SIZE);
+                    }
+                }
+                if (!chunk.isEmpty()) {
+                    hand(queue, chunk, writer);
+                }
+            } catch (IOException | RuntimeException e) {
+                progress.fail("upload could not be read: " + e.getMessage());
+            } finally {
+                hand(queue, END, writer);
+                join(writer);
+            }
+        }
+
+        progress.finish();
+        log.info("Patient import {} {}: {} imported, {} rejected of {} rows", progress.importId, progress.status,
+                progress.imported.get(), progress.rejected.get(), progress.rowsRead.get());
+        return progress.toReport();
+    }
+
+    public PatientImportReport getImport(String importId) {
+        Progress progress = imports.get(importId);
+        if (progress == null) {
+            throw new ResourceNotFoundException("No patient import with id " + importId);
+        }
+        return progress.toReport();
+    }
+
+    public List<PatientImportReport> getImports() {
+        synchronized (imports) {
+            return imports.values().stream().map(Progress::toReport).toList();
+        }
+    }
+
+    private void drain(BlockingQueue<List<PatientDetailDTO>> queue, Progress progress) {
+        try {
+            while (true) {
+                List<PatientDetailDTO> chunk = queue.take();
+                if (chunk == END) {
+                    return;
+                }
+                int inserted = patientImportWriter.write(chunk);
+                progress.imported.addAndGet(inserted);
+                if (inserted < chunk.size()) {
+                    progress.reject(chunk.size() - inserted, (chunk.size() - inserted) + " rows skipped, email already registered");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            progress.fail("import interrupted");
+        } catch (RuntimeException e) {
+            log.error("Patient import {} failed writing a chunk", progress.importId, e);
+            progress.fail("writing to the database failed: " + e.getMessage());
+        }
+    }
+
+    //blocks while the queue is full, gives up once the writer is gone (it failed, nothing will take from the queue)
+    private void hand(BlockingQueue<List<PatientDetailDTO>> queue, List<PatientDetailDTO> chunk, Thread writer) {
+        try {
+            while (writer.isAlive() && !queue.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+                //waiting for the writer
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void join(Thread writer) {
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //fills in role, returns null when the row can be imported
+    private String validate(PatientDetailDTO patient) {
+        if (patient == null) {
+            return "empty row";
+        }
+        if (patient.getEmail() == null || patient.getEmail().length() > 100 || !EMAIL.matcher(patient.getEmail()).matches()) {
+            return "invalid email";
+        }
+        if (patient.getPhone() == null || patient.getPhone().isBlank() || patient.getPhone().length() > 15) {
+            return "phone is required, max 15 characters";
+        }
+        if (patient.getName() == null || patient.getName().isBlank() || patient.getName().length() > 50) {
+            return "name is required, max 50 characters";
+        }
+        if (patient.getAddress() != null && patient.getAddress().length() > 255) {
+            return "address is longer than 255 characters";
+        }
+        if (patient.getAge() != null && (patient.getAge() < 1 || patient.getAge() > 50)) {
+            return "age must be between 1 and 50";
+        }
+        if (patient.getRole() == null) {
+            patient.setRole(Role.PATIENT);
+        } else if (patient.getRole() != Role.PATIENT) {
+            return "role must be PATIENT";
+        }
+        return null;
+    }
+
+    private static class Progress {
+
+        private final String importId;
+        private final long startedAt = System.nanoTime();
+        private final AtomicLong rowsRead = new AtomicLong();
+        private final AtomicLong imported = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+        private volatile ImportStatus status = ImportStatus.RUNNING;
+        private volatile long finishedAt;
+
+        Progress(String importId) {
+            this.importId = importId;
+        }
+
+        void reject(long rows, String error) {
+            rejected.addAndGet(rows);
+            if (errors.size() < MAX_ERRORS) {
+                errors.add(error);
+            }
+        }
+
+        void fail(String error) {
+            status = ImportStatus.FAILED;
+            errors.add(error);
+        }
+
+        void finish() {
+            if (status == ImportStatus.RUNNING) {
+                status = ImportStatus.COMPLETED;
+            }
+            finishedAt = System.nanoTime();
+        }
+
+        PatientImportReport toReport() {
+            long end = finishedAt == 0 ? System.nanoTime() : finishedAt;
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(end - startedAt);
+            double rowsPerSecond = elapsedMs == 0 ? 0 : rowsRead.get() * 1000.0 / elapsedMs;
+            List<String> errorsCopy;
+            synchronized (errors) {
+                errorsCopy = List.copyOf(errors);
+            }
+            return new PatientImportReport(importId, status, rowsRead.get(), imported.get(), rejected.get(),
+                    elapsedMs, rowsPerSecond, errorsCopy);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.airtribe.meditrack.services;
+
+import com.airtribe.meditrack.dto.PatientDetailDTO;
+import com.airtribe.meditrack.entities.Patient;
+import com.airtribe.meditrack.entities.Person;
+import org.hibernate.exception.ConstraintViolationException;
+import org.postgresql.PGConnection;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Loads one chunk of validated patients into person + patient, in its own transaction.
+ * On postgres the chunk is COPYed into a temp table and moved over with two set based inserts,
+ * ids come from person_seq blocks the same way hibernate's pooled-lo optimizer uses them.
+ * Rows whose email is already registered are skipped (on conflict do nothing), the return value is what got inserted.
+ * On other databases it falls back to hibernate jdbc batches through BulkWriteService, the registered emails are
+ * looked up first and those rows left out the same way.
+ */
+@Component
+public class PatientImportWriter {
+
+    private static final String CREATE_STAGING = """
+            create temp table if not exists patient_import (
+                id bigint, email varchar(100), phone varchar(15), address varchar(255),
+                role varchar(255), name varchar(50), age integer
+            ) on commit delete rows
+            """;
+
+    private static final String COPY_STAGING =
+            "copy patient_import (id, email, phone, address, role, name, age) from stdin with (format csv)";
+
+    //the person rows that really got inserted decide which patient rows follow
+    private static final String MOVE_STAGING = """
+            with inserted as (
+                insert into person (id, email, phone, address, role, created_at, updated_at)
+                select id, email, phone, address, role, now(), now() from patient_import
+                on conflict (email) do nothing
+                returning id
+            )
+            insert into patient (id, name, age)
+            select s.id, s.name, s.age from patient_import s join inserted i on i.id = s.id
+            """;
+
+    private static final int EMAIL_LOOKUP_BATCH = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BulkWriteService bulkWriteService;
+    private final boolean postgres;
+
+    public PatientImportWriter(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                               BulkWriteService bulkWriteService, DataSourceProperties dataSourceProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.bulkWriteService = bulkWriteService;
+        this.postgres = dataSourceProperties.getUrl() != null && dataSourceProperties.getUrl().startsWith("jdbc:postgresql:");
+    }
+
+    public int write(List<PatientDetailDTO> patients) {
+        return postgres ? copy(patients) : batch(patients);
+    }
+
+    private int copy(List<PatientDetailDTO> patients) {
+        Integer inserted = transactionTemplate.execute(status -> jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(CREATE_STAGING);
+            }
+            long[] ids = allocateIds(connection, patients.size());
+            StringBuilder csv = new StringBuilder(patients.size() * 96);
+            for (int i = 0; i < patients.size(); i++) {
+                PatientDetailDTO patient = patients.get(i);
+                csv.append(ids[i]).append(',');
+                appendText(csv, patient.getEmail()).append(',');
+                appendText(csv, patient.getPhone()).append(',');
+                appendText(csv, patient.getAddress()).append(',');
+                appendText(csv, patient.getRole() == null ? null : patient.getRole().name()).append(',');
+                appendText(csv, patient.getName()).append(',');
+                if (patient.getAge() != null) {
+                    csv.append(patient.getAge());
+                }
+                csv.append('\n');
+            }
+            try {
+                connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_STAGING, new StringReader(csv.toString()));
+            } catch (IOException e) {
+                throw new SQLException("COPY into patient_import failed", e);
+            }
+            try (Statement statement = connection.createStatement()) {
+                return statement.executeUpdate(MOVE_STAGING);
+            }
+        }));
+        return inserted == null ? 0 : inserted;
+    }
+
+    //each nextval reserves ID_ALLOCATION_SIZE ids starting at the returned value (pooled-lo), so hibernate never hands them out again
+    private long[] allocateIds(Connection connection, int count) throws SQLException {
+        int blocks = (count + Person.ID_ALLOCATION_SIZE - 1) / Person.ID_ALLOCATION_SIZE;
+        long[] ids = new long[count];
+        try (PreparedStatement statement = connection.prepareStatement("select nextval('person_seq') from generate_series(1, ?)")) {
+            statement.setInt(1, blocks);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                int i = 0;
+                while (resultSet.next() && i < count) {
+                    long blockStart = resultSet.getLong(1);
+                    for (int offset = 0; offset < Person.ID_ALLOCATION_SIZE && i < count; offset++) {
+                        ids[i++] = blockStart + offset;
+                    }
+                }
+            }
+        }
+        return ids;
+    }
+
+    //quoted csv field, an unquoted empty field is NULL for COPY
+    private static StringBuilder appendText(StringBuilder csv, String value) {
+        if (value == null) {
+            return csv;
+        }
+        return csv.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+
+    //no COPY outside postgres. hibernate's ConstraintViolationException is not translated here (BulkWriteService is
+    //no @Repository): a row registered by another import since the lookup fails the chunk, it is looked up again once
+    private int batch(List<PatientDetailDTO> patients) {
+        try {
+            return persistNew(patients);
+        } catch (ConstraintViolationException e) {
+            return persistNew(patients);
+        }
+    }
+
+    private int persistNew(List<PatientDetailDTO> patients) {
+        Set<String> taken = registeredEmails(patients);
+        List<Patient> entities = patients.stream()
+                .filter(dto -> taken.add(dto.getEmail()))
+                .<Patient>map(dto -> Patient.builder()
+                        .name(dto.getName())
+                        .email(dto.getEmail())
+                        .phone(dto.getPhone())
+                        .address(dto.getAddress())
+                        .role(dto.getRole())
+                        .age(dto.getAge())
+                        .build())
+                .toList();
+        bulkWriteService.persistAll(entities);
+        return entities.size();
+    }
+
+    private Set<String> registeredEmails(List<PatientDetailDTO> patients) {
+        List<String> emails = patients.stream().map(PatientDetailDTO::getEmail).distinct().toList();
+        Set<String> registered = new HashSet<>();
+        for (int i = 0; i < emails.size(); i += EMAIL_LOOKUP_BATCH) {
+            List<String> batch = emails.subList(i, Math.min(i + EMAIL_LOOKUP_BATCH, emails.size()));
+            registered.addAll(jdbcTemplate.queryForList("select email from person where email in ("
+                    + String.join(", ", Collections.nCopies(batch.size(), "?")) + ")", String.class, batch.toArray()));
+        }
+        return registered;
+    }
+}
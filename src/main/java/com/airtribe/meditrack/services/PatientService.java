@@ -1,24 +1,28 @@
 package com.airtribe.meditrack.services;
 
+import com.airtribe.meditrack.dto.CursorPage;
 import com.airtribe.meditrack.dto.PatientDto;
 import com.airtribe.meditrack.entities.Patient;
-import com.airtribe.meditrack.repositories.DoctorRepo;
+import com.airtribe.meditrack.mapper.PatientMapper;
 import com.airtribe.meditrack.repositories.PatientRepo;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
-import org.springframework.http.ResponseEntity;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class PatientService {
 
     private final PatientRepo patientRepo;
-    private final ModelMapper modelMapper;
+    private final PatientMapper patientMapper;
+    private final NdjsonWriter ndjsonWriter;
 
     public PatientDto getPatientById(Long id) {
 
@@ -28,21 +32,32 @@ public class PatientService {
         if (!patient.isPresent()) {
             throw new RuntimeException("Patient not found");
         }
-            return modelMapper.map(patient.get(), PatientDto.class);
+            return patientMapper.toDto(patient.get());
     }
 
     public List<PatientDto> getAllPatient() {
 
 
-        List<Patient> patient = patientRepo.findAll();
+        List<PatientDto> patients = patientRepo.findAllPatientDtos();
 
-        if (patient.isEmpty()) {
+        if (patients.isEmpty()) {
             throw new RuntimeException("No patient found");
         }
 
+            return patients;
+    }
+
+    public CursorPage<PatientDto> getPatientPage(String cursor, int size) {
+        int pageSize = CursorPage.pageSize(size);
+        List<PatientDto> rows = patientRepo.findPatientDtosAfter(CursorPage.decodeCursor(cursor), Limit.of(pageSize + 1));
+        return CursorPage.of(rows, pageSize, PatientDto::getId);
+    }
 
-            return patient.stream()
-                    .map(p->modelMapper.map(p,PatientDto.class))
-                    .collect(Collectors.toList());
+    //the stream is a jdbc cursor, it only works inside a transaction
+    @Transactional(readOnly = true)
+    public void streamAllPatients(OutputStream out) throws IOException {
+        try (Stream<PatientDto> patients = patientRepo.streamAllPatientDtos()) {
+            ndjsonWriter.write(patients, out);
+        }
     }
 }
@@ -1,5 +1,6 @@
 package com.airtribe.meditrack.services;
 
+import com.airtribe.meditrack.cache.CacheInvalidationPublisher;
 import com.airtribe.meditrack.dto.DoctorDetailDTO;
 import com.airtribe.meditrack.dto.PatientDetailDTO;
 import com.airtribe.meditrack.entities.Doctor;
@@ -7,7 +8,6 @@ import com.airtribe.meditrack.entities.Patient;
 import com.airtribe.meditrack.entities.Person;
 import com.airtribe.meditrack.repositories.PersonRepository;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
 import org.springframework.ai.embedding.EmbeddingModel;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.ResponseEntity;
@@ -20,12 +20,13 @@ import java.util.List;
 public class PersonService {
 
     private final PersonRepository personRepository;
-    private final ModelMapper modelMapper;
     private final EmbeddingModel embeddingModel;
-    public PersonService(PersonRepository personRepository, ModelMapper modelMapper,  @Qualifier("ollamaEmbeddingModel")EmbeddingModel embeddingModel) {
+    private final CacheInvalidationPublisher cacheInvalidationPublisher;
+    public PersonService(PersonRepository personRepository, @Qualifier("ollamaEmbeddingModel")EmbeddingModel embeddingModel,
+                         CacheInvalidationPublisher cacheInvalidationPublisher) {
         this.personRepository = personRepository;
-        this.modelMapper = modelMapper;
         this.embeddingModel = embeddingModel;
+        this.cacheInvalidationPublisher = cacheInvalidationPublisher;
     }
 
     public Person createDoctor(DoctorDetailDTO dto) {
@@ -47,6 +48,7 @@ public class PersonService {
         float[] vector = embeddingModel.embed(textToEmbed);
 
         Person person = personRepository.save(doctor);
+        cacheInvalidationPublisher.doctorChanged(person.getId());
         return person;
     }
 
@@ -66,10 +68,11 @@ public class PersonService {
         return person;
     }
 
-    public String addAllDoc(List<DoctorDetailDTO> docdto) {
+    //builds the doctors of one import chunk with one embedding call for the whole list instead of one per doctor
+    //slow (model call), so callers do it before opening the transaction that saves them
+    public List<Doctor> toDoctorsWithEmbeddings(List<DoctorDetailDTO> docdto) {
 
-        docdto.stream().forEach(dto -> {
-            Doctor doctor = Doctor.builder()
+        List<Doctor> doctors = docdto.stream().<Doctor>map(dto -> Doctor.builder()
                     .name(dto.getName())            // goes to doctor table
                     .email(dto.getEmail())
                     .phone(dto.getPhone())
@@ -79,17 +82,16 @@ public class PersonService {
                     .specialist(dto.getSpecialist())
                     .description(dto.getDescription())
                     .isAvailable(true)
-                    .build();
-
-            // Generate embedding - added String.valueOf to prevent NullPointer if specialist is missing
-            String textToEmbed = String.valueOf(doctor.getSpecialist()) + " " + doctor.getDescription();
-            float[] vector = embeddingModel.embed(textToEmbed);
-
-            personRepository.save(doctor);
-        });
-
-        Long count=personRepository.findAll().stream().count();
-
-        return "All doctors added successfully. Total doctors in the system: " + count;
+                    .build())
+                .toList();
+
+        // String.valueOf to prevent NullPointer if specialist is missing
+        List<float[]> vectors = embeddingModel.embed(doctors.stream()
+                .map(doctor -> String.valueOf(doctor.getSpecialist()) + " " + doctor.getDescription())
+                .toList());
+        for (int i = 0; i < doctors.size(); i++) {
+            doctors.get(i).setEmbedding(vectors.get(i));
+        }
+        return doctors;
     }
 }
@@ -0,0 +1,109 @@
+package com.airtribe.meditrack.services;
+
+import com.airtribe.meditrack.dto.RevenueBucketDto;
+import com.airtribe.meditrack.entities.BillSummary;
+import com.airtribe.meditrack.enums.RevenueGranularity;
+import com.airtribe.meditrack.exceptions.InvalidRangeException;
+import com.airtribe.meditrack.repositories.RevenueBucketRepo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Hourly, daily and monthly revenue per doctor, bill type and payment type (revenue_bucket).
+ * AppointmentService reports every bill right after saving it, each bill adds to its three buckets in one upsert,
+ * and GET /bill-summary/revenue reads the buckets of a range instead of summing bill_summary.
+ * The upsert joins the transaction that saves the bill, so both commit or roll back together, like the doctor_stats
+ * increments. reconcile() recomputes buckets from bill_summary for bills written any other way. On a schedule it covers
+ * the last reconcile-days (from the start of that month). At startup it does the same, or all bills when revenue_bucket
+ * is still empty.
+ */
+@Slf4j
+@Service
+public class RevenueRollupService {
+
+    static final int MAX_BUCKETS = 10_000;
+    private static final LocalDateTime BEGINNING = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final RevenueBucketRepo revenueBucketRepo;
+    private final int reconcileDays;
+
+    public RevenueRollupService(RevenueBucketRepo revenueBucketRepo,
+                                @Value("${meditrack.revenue.reconcile-days:2}") int reconcileDays) {
+        this.revenueBucketRepo = revenueBucketRepo;
+        this.reconcileDays = reconcileDays;
+    }
+
+    public void billGenerated(BillSummary bill) {
+        revenueBucketRepo.add(bill.getGeneratedAt(), bill.getDoctorId(), bill.getBillType(), bill.getPaymentType(),
+                bill.getBaseAmount(), bill.getTaxAmount(), bill.getFinalAmount());
+    }
+
+    //from is rounded down and to up to whole buckets, so the first and last bucket are complete
+    public List<RevenueBucketDto> getRevenue(RevenueGranularity granularity, LocalDateTime from, LocalDateTime to,
+                                             Long doctorId, String billType, String paymentType) {
+        if (!from.isBefore(to)) {
+            throw new InvalidRangeException("from must be before to");
+        }
+        LocalDateTime start = truncate(from, granularity);
+        LocalDateTime end = truncate(to, granularity);
+        if (end.isBefore(to)) {
+            end = next(end, granularity);
+        }
+        long buckets = switch (granularity) {
+            case HOUR -> ChronoUnit.HOURS.between(start, end);
+            case DAY -> ChronoUnit.DAYS.between(start, end);
+            case MONTH -> ChronoUnit.MONTHS.between(start, end);
+        };
+        if (buckets > MAX_BUCKETS) {
+            throw new InvalidRangeException("Range covers " + buckets + " " + granularity + " buckets, at most "
+                    + MAX_BUCKETS + " allowed. Use a larger granularity");
+        }
+        return revenueBucketRepo.findRevenue(granularity, start, end, doctorId, billType, paymentType);
+    }
+
+    //a full scan of bill_summary only for the first start with the rollup
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (revenueBucketRepo.hasBuckets()) {
+            reconcileRecent();
+        } else {
+            reconcile(BEGINNING);
+        }
+    }
+
+    @Scheduled(cron = "${meditrack.analytics.reconcile-cron:0 0 * * * *}")
+    public void reconcileRecent() {
+        reconcile(truncate(LocalDateTime.now().minusDays(reconcileDays), RevenueGranularity.MONTH));
+    }
+
+    private void reconcile(LocalDateTime from) {
+        int corrected = revenueBucketRepo.reconcile(from);
+        if (corrected > 0) {
+            log.info("Revenue buckets reconciled since {}: {} buckets corrected", from, corrected);
+        }
+    }
+
+    private static LocalDateTime truncate(LocalDateTime time, RevenueGranularity granularity) {
+        return switch (granularity) {
+            case HOUR -> time.truncatedTo(ChronoUnit.HOURS);
+            case DAY -> time.truncatedTo(ChronoUnit.DAYS);
+            case MONTH -> time.truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1);
+        };
+    }
+
+    private static LocalDateTime next(LocalDateTime bucketStart, RevenueGranularity granularity) {
+        return switch (granularity) {
+            case HOUR -> bucketStart.plusHours(1);
+            case DAY -> bucketStart.plusDays(1);
+            case MONTH -> bucketStart.plusMonths(1);
+        };
+    }
+}
@@ -0,0 +1,247 @@
+package com.airtribe.meditrack.services;
+
+import com.airtribe.meditrack.dto.SlotDelta;
+import com.airtribe.meditrack.dto.SlotSnapshot;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Pushes slot changes to the booking UIs subscribed to /topic/slots/{doctorId}/{date}, instead of them polling.
+ * A change only marks its (doctor, day) dirty: AppointmentService after commit, CacheInvalidation for changes made on
+ * other nodes. Every push-interval-ms each dirty day that has subscribers is read once (SlotService), compared with
+ * what was last pushed and the difference goes out as one SlotDelta, however many bookings and cancellations
+ * happened in between. The broker serializes it once for all subscribers of the day.
+ * Days nobody is watching are not tracked, and cost nothing.
+ * A snapshot is taken from the same tracked state the deltas are computed against, so its version is the one the next
+ * delta follows. A day tracked for a snapshot whose client never subscribes is dropped after unsubscribed-keep-ms.
+ */
+@Slf4j
+@Service
+public class SlotPushService {
+
+    public static final String TOPIC_PREFIX = "/topic/slots/";
+    private static final Pattern TOPIC = Pattern.compile("^/topic/slots/(\\d+)/(\\d{4}-\\d{2}-\\d{2})$");
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final SlotService slotService;
+    private final long unsubscribedKeepNanos;
+
+    private final Map<Day, Watched> watched = new ConcurrentHashMap<>();
+    private final Set<Day> dirty = ConcurrentHashMap.newKeySet();
+    //session id -> subscription id -> day, to undo a subscription on UNSUBSCRIBE or disconnect
+    private final Map<String, Map<String, Day>> sessions = new ConcurrentHashMap<>();
+
+    private record Day(Long doctorId, LocalDate date) {
+
+        String destination() {
+            return TOPIC_PREFIX + doctorId + "/" + date;
+        }
+    }
+
+    //the slots last pushed for a day and how many subscriptions are watching it, guarded by its own monitor
+    private static class Watched {
+        private final long created = System.nanoTime();
+        private int subscribers;
+        private long version;
+        private Set<LocalTime> available;
+    }
+
+    public SlotPushService(SimpMessagingTemplate messagingTemplate, SlotService slotService,
+                           @Value("${meditrack.slots.unsubscribed-keep-ms:30000}") long unsubscribedKeepMs) {
+        this.messagingTemplate = messagingTemplate;
+        this.slotService = slotService;
+        this.unsubscribedKeepNanos = unsubscribedKeepMs * 1_000_000;
+    }
+
+    //after commit, so the push reads the new state
+    public void scheduleChanged(Long doctorId, LocalDate date) {
+        Day day = new Day(doctorId, date);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    markDirty(day);
+                }
+            });
+        } else {
+            markDirty(day);
+        }
+    }
+
+    //events may have been missed (lost NOTIFY connection), every watched day is checked again
+    public void allChanged() {
+        dirty.addAll(watched.keySet());
+    }
+
+    //the client may ask before its /topic subscription arrives, the day is tracked from here so no change falls in between
+    public SlotSnapshot snapshot(Long doctorId, LocalDate date) {
+        Day day = new Day(doctorId, date);
+        Watched state = watched.computeIfAbsent(day, d -> new Watched());
+        synchronized (state) {
+            load(day, state);
+            return new SlotSnapshot(doctorId, date, state.version, state.available.stream().sorted().toList());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${meditrack.slots.push-interval-ms:250}")
+    public void pushChanges() {
+        for (Day day : List.copyOf(dirty)) {
+            dirty.remove(day);
+            Watched state = watched.get(day);
+            if (state == null) {
+                continue;
+            }
+            try {
+                push(day, state);
+            } catch (RuntimeException e) {
+                log.warn("Could not push slot changes for doctor {} on {}, retrying", day.doctorId(), day.date(), e);
+                dirty.add(day);
+            }
+        }
+    }
+
+    private void push(Day day, Watched state) {
+        Set<LocalTime> available = new HashSet<>(slotService.getAvailableSlots(day.doctorId(), day.date()));
+        SlotDelta delta;
+        synchronized (state) {
+            //not loaded yet by its subscription or snapshot, this read is its first state
+            if (state.available == null) {
+                state.available = available;
+                return;
+            }
+            List<LocalTime> taken = new ArrayList<>();
+            List<LocalTime> freed = new ArrayList<>();
+            for (LocalTime slot : state.available) {
+                if (!available.contains(slot)) {
+                    taken.add(slot);
+                }
+            }
+            for (LocalTime slot : available) {
+                if (!state.available.contains(slot)) {
+                    freed.add(slot);
+                }
+            }
+            if (taken.isEmpty() && freed.isEmpty()) {
+                return;
+            }
+            taken.sort(null);
+            freed.sort(null);
+            state.available = available;
+            state.version++;
+            delta = new SlotDelta(day.doctorId(), day.date(), state.version, taken, freed);
+            //sent under the monitor so versions leave in order
+            messagingTemplate.convertAndSend(day.destination(), delta);
+        }
+    }
+
+    //days tracked for a snapshot that no subscription followed
+    @Scheduled(fixedDelayString = "${meditrack.slots.unsubscribed-keep-ms:30000}")
+    public void dropUnsubscribed() {
+        long now = System.nanoTime();
+        for (Day day : List.copyOf(watched.keySet())) {
+            watched.computeIfPresent(day, (d, state) -> {
+                synchronized (state) {
+                    return state.subscribers == 0 && now - state.created > unsubscribedKeepNanos ? null : state;
+                }
+            });
+        }
+    }
+
+    //the first read of a day, under its monitor
+    private void load(Day day, Watched state) {
+        if (state.available == null) {
+            state.available = new HashSet<>(slotService.getAvailableSlots(day.doctorId(), day.date()));
+        }
+    }
+
+    private void markDirty(Day day) {
+        if (watched.containsKey(day)) {
+            dirty.add(day);
+        }
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor headers = StompHeaderAccessor.wrap(event.getMessage());
+        Day day = parse(headers.getDestination());
+        if (day == null || headers.getSessionId() == null || headers.getSubscriptionId() == null) {
+            return;
+        }
+        sessions.computeIfAbsent(headers.getSessionId(), id -> new ConcurrentHashMap<>()).put(headers.getSubscriptionId(), day);
+        //counted inside compute, so a release of the last subscription can't drop the state in between
+        Watched state = watched.compute(day, (d, current) -> {
+            Watched counted = current == null ? new Watched() : current;
+            synchronized (counted) {
+                counted.subscribers++;
+            }
+            return counted;
+        });
+        synchronized (state) {
+            load(day, state);
+        }
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor headers = StompHeaderAccessor.wrap(event.getMessage());
+        Map<String, Day> subscriptions = headers.getSessionId() == null ? null : sessions.get(headers.getSessionId());
+        if (subscriptions != null && headers.getSubscriptionId() != null) {
+            release(subscriptions.remove(headers.getSubscriptionId()));
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        Map<String, Day> subscriptions = sessions.remove(event.getSessionId());
+        if (subscriptions != null) {
+            subscriptions.values().forEach(this::release);
+        }
+    }
+
+    private void release(Day day) {
+        if (day == null) {
+            return;
+        }
+        watched.computeIfPresent(day, (d, state) -> {
+            synchronized (state) {
+                return --state.subscribers == 0 ? null : state;
+            }
+        });
+    }
+
+    private static Day parse(String destination) {
+        if (destination == null) {
+            return null;
+        }
+        Matcher matcher = TOPIC.matcher(destination);
+        if (!matcher.matches()) {
+            return null;
+        }
+        try {
+            return new Day(Long.valueOf(matcher.group(1)), LocalDate.parse(matcher.group(2)));
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package com.airtribe.meditrack.services;
 
 import com.airtribe.meditrack.Constants.DoctorWorkingHours;
-import com.airtribe.meditrack.entities.Appointment;
 import com.airtribe.meditrack.repositories.AppointmentRepo;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
@@ -9,24 +8,63 @@ import org.springframework.stereotype.Service;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class SlotService {
 
+    //every slot start of a working day, in order (lunch break left out)
+    public static final List<LocalTime> WORKING_SLOTS = workingSlots();
+
+    private static final int DOCTOR_BATCH = 1000;
+
     private final AppointmentRepo appointmentRepo;
 
     public List<LocalTime> getAvailableSlots(Long doctorId, LocalDate date) {
 
-        List<Appointment> booked =
-                appointmentRepo.findByDoctorIdAndStartDate(doctorId, date);
+        Set<LocalTime> bookedTimes =
+                new HashSet<>(appointmentRepo.findStartTimesByDoctorIdAndStartDate(doctorId, date));
+
+        List<LocalTime> slots = new ArrayList<>();
+
+        for (LocalTime t : WORKING_SLOTS) {
+            if (!bookedTimes.contains(t)) {
+                slots.add(t);
+            }
+        }
+
+        return slots;
+    }
+
+    //the free slots of every doctor, read DOCTOR_BATCH doctors per query
+    public Map<Long, List<LocalTime>> getAvailableSlots(Collection<Long> doctorIds, LocalDate date) {
+
+        List<Long> ids = List.copyOf(new HashSet<>(doctorIds));
+        Map<Long, Set<LocalTime>> bookedTimes = new HashMap<>();
+        for (int i = 0; i < ids.size(); i += DOCTOR_BATCH) {
+            for (Object[] row : appointmentRepo.findStartTimesByDoctorIdInAndStartDate(
+                    ids.subList(i, Math.min(i + DOCTOR_BATCH, ids.size())), date)) {
+                bookedTimes.computeIfAbsent((Long) row[0], id -> new HashSet<>()).add((LocalTime) row[1]);
+            }
+        }
 
-        Set<LocalTime> bookedTimes = booked.stream()
-                .map(Appointment::getStartTime)
-                .collect(Collectors.toSet());
+        Map<Long, List<LocalTime>> slots = new LinkedHashMap<>();
+        for (Long doctorId : doctorIds) {
+            Set<LocalTime> booked = bookedTimes.getOrDefault(doctorId, Set.of());
+            slots.put(doctorId, WORKING_SLOTS.stream().filter(t -> !booked.contains(t)).toList());
+        }
+
+        return slots;
+    }
+
+    private static List<LocalTime> workingSlots() {
 
         List<LocalTime> slots = new ArrayList<>();
 
@@ -38,14 +76,13 @@ public class SlotService {
                     !t.isBefore(LocalTime.of(13,0)) &&
                             t.isBefore(LocalTime.of(14,0));
 
-            if (!inBreak && !bookedTimes.contains(t)) {
+            if (!inBreak) {
                 slots.add(t);
             }
 
             t = t.plusMinutes(DoctorWorkingHours.SLOT_MINUTES);
         }
 
-        return slots;
+        return List.copyOf(slots);
     }
 }
-
@@ -0,0 +1,228 @@
+package com.airtribe.meditrack.services;
+
+import com.airtribe.meditrack.entities.Doctor;
+import com.airtribe.meditrack.enums.Specialist;
+import com.airtribe.meditrack.repositories.DoctorRepo;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Suggests doctors and their free slots for a set of symptoms (GET /smart/suggest-slots) as a pipeline of futures,
+ * none of it on the request thread:
+ * the LLM classifies the symptoms while, speculatively, the symptoms are embedded and the most similar doctors looked up.
+ * Once the specialist is known its available doctors are loaded, then the slots of all of them in one query, so the
+ * connections a request takes don't grow with the number of doctors it finds.
+ * When the classification fails, times out or is not a specialist, the similar available doctors are used instead.
+ * Every stage has its own deadline, a missed one leaves its part out (listed in "degraded") instead of failing the
+ * request, so the latency is the classification (or the fallback) plus the doctor and slot lookups.
+ * The stages run on virtual threads, a cancelled or late stage still finishes its call in the background.
+ * Per stage in /actuator/metrics: meditrack.suggest.stage, tagged with its outcome (ok, timeout or error).
+ */
+@Slf4j
+@Service
+public class SlotSuggestionService {
+
+    private static final String TRIAGE_PROMPT = """
+You are a medical triage classifier.
+
+Return ONLY ONE WORD.
+Return ONLY the ENUM value exactly as written.
+ALL CAPS.
+NO explanation.
+NO sentence.
+NO punctuation.
+
+Valid values:
+CARDIOLOGIST, DERMATOLOGIST, NEUROLOGIST, PEDIATRICIAN,
+ORTHOPEDIC, GYNECOLOGIST, PSYCHIATRIST, ENDOCRINOLOGIST,
+ONCOLOGIST, GASTROENTEROLOGIST, PULMONOLOGIST,
+RHEUMATOLOGIST, UROLOGIST, HEMATOLOGIST,
+INFECTIOUS_DISEASE_SPECIALIST, ALLERGIST,
+IMMUNOLOGIST, NEPHROLOGIST, OTOLARYNGOLOGIST,
+OPHTHALMOLOGIST, DENTIST, GENERAL_PRACTITIONER
+
+Strictly follow instructions.
+One word only.
+Return ONLY ONE WORD from the list.
+Example input: "I have chest pain and shortness of breath"
+Example output: "CARDIOLOGIST"
+example input: "I have a skin rash and itching"
+example output: "DERMATOLOGIST"
+example input: "I have frequent headaches and dizziness"
+example output: "NEUROLOGIST"
+example input: "My child has a fever and cough"
+example output: "PEDIATRICIAN"
+""";
+
+    private final ChatClient ollamaChatClient;
+    private final EmbeddingModel embeddingModel;
+    private final DoctorRepo doctorRepo;
+    private final SlotService slotService;
+    private final MeterRegistry registry;
+    private final ExecutorService executor;
+    private final long classifyTimeoutMs;
+    private final long fallbackTimeoutMs;
+    private final long doctorsTimeoutMs;
+    private final long slotsTimeoutMs;
+
+    //the doctors to suggest and where they came from
+    private record Candidates(Specialist specialist, String source, List<Doctor> doctors) {
+    }
+
+    public SlotSuggestionService(@Qualifier("ollamaChatClient") ChatClient ollamaChatClient,
+                                 @Qualifier("ollamaEmbeddingModel") EmbeddingModel embeddingModel,
+                                 DoctorRepo doctorRepo, SlotService slotService, MeterRegistry registry,
+                                 @Value("${meditrack.suggest.classify-timeout-ms:5000}") long classifyTimeoutMs,
+                                 @Value("${meditrack.suggest.fallback-timeout-ms:5000}") long fallbackTimeoutMs,
+                                 @Value("${meditrack.suggest.doctors-timeout-ms:1000}") long doctorsTimeoutMs,
+                                 @Value("${meditrack.suggest.slots-timeout-ms:1000}") long slotsTimeoutMs) {
+        this.ollamaChatClient = ollamaChatClient;
+        this.embeddingModel = embeddingModel;
+        this.doctorRepo = doctorRepo;
+        this.slotService = slotService;
+        this.registry = registry;
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("suggest-", 0).factory());
+        this.classifyTimeoutMs = classifyTimeoutMs;
+        this.fallbackTimeoutMs = fallbackTimeoutMs;
+        this.doctorsTimeoutMs = doctorsTimeoutMs;
+        this.slotsTimeoutMs = slotsTimeoutMs;
+    }
+
+    public CompletableFuture<Map<String, Object>> suggestSlots(String symptoms, LocalDate date) {
+        List<String> degraded = Collections.synchronizedList(new ArrayList<>());
+
+        CompletableFuture<Specialist> classified = stage("classify", classifyTimeoutMs, () -> classify(symptoms));
+        CompletableFuture<List<Doctor>> similar = stage("similar-doctors", fallbackTimeoutMs, () -> similarDoctors(symptoms));
+
+        CompletableFuture<Candidates> candidates = classified
+                .thenCompose(specialist -> stage("doctors", doctorsTimeoutMs,
+                        () -> doctorRepo.findBySpecialistAndIsAvailableTrue(specialist))
+                        .thenApply(doctors -> new Candidates(specialist, "specialist", doctors)))
+                .handle((found, error) -> {
+                    if (error == null) {
+                        similar.cancel(false);
+                        return CompletableFuture.completedFuture(found);
+                    }
+                    degraded.add(classified.isDone() && !classified.isCompletedExceptionally() ? "doctors" : "classify");
+                    return similar.handle((doctors, fallbackError) -> {
+                        if (fallbackError != null) {
+                            degraded.add("similar-doctors");
+                            return new Candidates(null, "none", List.of());
+                        }
+                        return new Candidates(null, "similarity", doctors);
+                    });
+                })
+                .thenCompose(next -> next);
+
+        return candidates.thenCompose(found -> withSlots(found.doctors(), date, degraded)
+                .thenApply(doctors -> {
+                    Map<String, Object> response = new LinkedHashMap<>();
+                    response.put("specialist", found.specialist());
+                    response.put("source", found.source());
+                    response.put("doctors", doctors);
+                    response.put("degraded", List.copyOf(degraded));
+                    return response;
+                }));
+    }
+
+    //one lookup for all the doctors. when it missed the deadline they are listed without slots
+    private CompletableFuture<List<Map<String, Object>>> withSlots(List<Doctor> doctors, LocalDate date, List<String> degraded) {
+        if (doctors.isEmpty()) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        List<Long> doctorIds = doctors.stream().map(Doctor::getId).toList();
+        return stage("slots", slotsTimeoutMs, () -> slotService.getAvailableSlots(doctorIds, date))
+                .handle((slots, error) -> {
+                    if (error != null) {
+                        degraded.add("slots");
+                    }
+                    return doctors.stream()
+                            .map(doctor -> docInfo(doctor, slots == null ? null : slots.get(doctor.getId())))
+                            .toList();
+                });
+    }
+
+    private Specialist classify(String symptoms) {
+        String specialistStr = ollamaChatClient.prompt(TRIAGE_PROMPT)
+                .user(symptoms)
+                .options(OllamaOptions.builder()
+                        .temperature(0.0)
+                        .build()) // Deterministic output
+                .call()
+                .content()
+                .trim();
+        return Specialist.valueOf(specialistStr);
+    }
+
+    //same nearest neighbour search as /recommend, only doctors that can be booked
+    private List<Doctor> similarDoctors(String symptoms) {
+        String vector = Arrays.toString(embeddingModel.embed(symptoms)).replace(" ", "");
+        return doctorRepo.findTop5SimilarAvailable(vector);
+    }
+
+    //runs call on its own virtual thread, fails with a TimeoutException after timeoutMs
+    private <T> CompletableFuture<T> stage(String name, long timeoutMs, Supplier<T> call) {
+        long start = System.nanoTime();
+        return CompletableFuture.supplyAsync(call, executor)
+                .orTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                .whenComplete((result, error) -> {
+                    Throwable cause = unwrap(error);
+                    String outcome = cause == null ? "ok" : cause instanceof TimeoutException ? "timeout" : "error";
+                    if (cause != null) {
+                        log.warn("Slot suggestion stage {} failed ({}): {}", name, outcome, cause.toString());
+                    }
+                    Timer.builder("meditrack.suggest.stage")
+                            .description("Time spent in one stage of a slot suggestion")
+                            .tag("stage", name)
+                            .tag("outcome", outcome)
+                            .register(registry)
+                            .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                });
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    private static Map<String, Object> docInfo(Doctor doctor, List<LocalTime> slots) {
+        Map<String, Object> docInfo = new LinkedHashMap<>();
+        docInfo.put("doctorId", doctor.getId());
+        docInfo.put("doctorName", doctor.getName());
+        docInfo.put("specialist", doctor.getSpecialist());
+        docInfo.put("availableSlots", slots);
+        return docInfo;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,38 @@
+package com.airtribe.meditrack.services.offlineai;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+//adds artificial latency and random failures to the offline AI models so load tests see realistic timings
+//latencyMs is the fixed part, jitterMs is a random extra on top of it, errorRate is between 0.0 and 1.0
+public class FaultInjector {
+
+    private final String name;
+    private final long latencyMs;
+    private final long jitterMs;
+    private final double errorRate;
+
+    public FaultInjector(String name, long latencyMs, long jitterMs, double errorRate) {
+        this.name = name;
+        this.latencyMs = Math.max(0, latencyMs);
+        this.jitterMs = Math.max(0, jitterMs);
+        this.errorRate = Math.min(1.0, Math.max(0.0, errorRate));
+    }
+
+    public void apply() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        long delay = latencyMs + (jitterMs > 0 ? random.nextLong(jitterMs + 1) : 0);
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(name + " call interrupted", e);
+            }
+        }
+
+        if (errorRate > 0 && random.nextDouble() < errorRate) {
+            throw new IllegalStateException("Injected failure from offline " + name + " model");
+        }
+    }
+}
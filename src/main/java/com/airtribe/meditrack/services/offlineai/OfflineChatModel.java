@@ -0,0 +1,82 @@
+package com.airtribe.meditrack.services.offlineai;
+
+import com.airtribe.meditrack.enums.Specialist;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+//in-process stand-in for the chat models, used with the "offline" profile
+//it does not generate text, it only maps symptom keywords to a Specialist so the triage endpoints keep working
+public class OfflineChatModel implements ChatModel {
+
+    //order matters, the first specialist with a matching keyword wins
+    //e.g. "my child has a cough" should go to PEDIATRICIAN and not PULMONOLOGIST
+    private static final Map<Specialist, List<String>> RULES = new LinkedHashMap<>();
+
+    static {
+        RULES.put(Specialist.PEDIATRICIAN, List.of("child", "baby", "infant", "kid", "toddler"));
+        RULES.put(Specialist.CARDIOLOGIST, List.of("chest", "heart", "palpitation", "blood pressure"));
+        RULES.put(Specialist.DERMATOLOGIST, List.of("skin", "rash", "itch", "acne", "eczema"));
+        RULES.put(Specialist.NEUROLOGIST, List.of("headache", "migraine", "dizz", "seizure", "numb"));
+        RULES.put(Specialist.ORTHOPEDIC, List.of("bone", "joint", "fracture", "knee", "back pain"));
+        RULES.put(Specialist.GYNECOLOGIST, List.of("pregnan", "period", "menstrua"));
+        RULES.put(Specialist.PSYCHIATRIST, List.of("anxiety", "depress", "stress", "insomnia"));
+        RULES.put(Specialist.ENDOCRINOLOGIST, List.of("thyroid", "diabet", "sugar"));
+        RULES.put(Specialist.GASTROENTEROLOGIST, List.of("stomach", "abdominal", "diarrh", "vomit", "acidity"));
+        RULES.put(Specialist.PULMONOLOGIST, List.of("breath", "cough", "asthma", "wheez"));
+        RULES.put(Specialist.UROLOGIST, List.of("urin", "bladder"));
+        RULES.put(Specialist.OPHTHALMOLOGIST, List.of("eye", "vision"));
+        RULES.put(Specialist.OTOLARYNGOLOGIST, List.of("earache", "ear pain", "hearing", "throat", "sinus"));
+        RULES.put(Specialist.DENTIST, List.of("tooth", "teeth", "gum"));
+        RULES.put(Specialist.ALLERGIST, List.of("allerg", "sneez"));
+    }
+
+    private final FaultInjector faults;
+
+    public OfflineChatModel(FaultInjector faults) {
+        this.faults = faults;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        faults.apply();
+
+        //ChatClient puts both the instructions and the symptoms in user messages, the symptoms are always the last one
+        List<UserMessage> userMessages = prompt.getUserMessages();
+        String symptoms = userMessages.isEmpty() ? "" : userMessages.get(userMessages.size() - 1).getText();
+
+        Specialist specialist = classify(symptoms);
+
+        String answer;
+        if (prompt.getContents().toUpperCase(Locale.ROOT).contains("ONE WORD")) {
+            answer = specialist.name();
+        } else {
+            answer = specialist.name() + "\n"
+                    + "Offline triage: the symptoms matched the keyword rules for " + specialist.name()
+                    + ". This answer comes from the local stand-in model, not from a real LLM.";
+        }
+
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(answer))));
+    }
+
+    public static Specialist classify(String symptoms) {
+        String text = symptoms == null ? "" : symptoms.toLowerCase(Locale.ROOT);
+
+        for (Map.Entry<Specialist, List<String>> rule : RULES.entrySet()) {
+            for (String keyword : rule.getValue()) {
+                if (text.contains(keyword)) {
+                    return rule.getKey();
+                }
+            }
+        }
+        return Specialist.GENERAL_PRACTITIONER;
+    }
+}
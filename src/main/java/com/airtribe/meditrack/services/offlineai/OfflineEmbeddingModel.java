@@ -0,0 +1,100 @@
+package com.airtribe.meditrack.services.offlineai;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+//in-process stand-in for the ollama embedding model, used with the "offline" profile
+//every word is hashed into one of the vector positions (feature hashing), so the same text always gives the same vector
+//and texts sharing words end up close to each other, which keeps /recommend meaningful without a real model
+public class OfflineEmbeddingModel implements EmbeddingModel {
+
+    private final int dimensions;
+    private final FaultInjector faults;
+
+    public OfflineEmbeddingModel(int dimensions, FaultInjector faults) {
+        this.dimensions = dimensions;
+        this.faults = faults;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        faults.apply();
+
+        List<Embedding> embeddings = new ArrayList<>();
+        List<String> texts = request.getInstructions();
+        for (int i = 0; i < texts.size(); i++) {
+            embeddings.add(new Embedding(vectorFor(texts.get(i)), i));
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        faults.apply();
+        return vectorFor(document.getText());
+    }
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+
+    float[] vectorFor(String text) {
+        float[] vector = new float[dimensions];
+        String normalized = text == null ? "" : text.toLowerCase(Locale.ROOT);
+
+        boolean anyToken = false;
+        for (String token : normalized.split("[^a-z0-9]+")) {
+            if (token.isEmpty()) {
+                continue;
+            }
+            anyToken = true;
+            addFeature(vector, token, 1.0f);
+            //short prefix acts as a cheap stemmer, so "itching" and "itchy" still share a feature
+            if (token.length() > 4) {
+                addFeature(vector, token.substring(0, 4) + "#", 0.5f);
+            }
+        }
+
+        if (!anyToken) {
+            addFeature(vector, normalized, 1.0f);
+        }
+
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        norm = Math.sqrt(norm);
+        if (norm > 0) {
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] = (float) (vector[i] / norm);
+            }
+        }
+        return vector;
+    }
+
+    private void addFeature(float[] vector, String feature, float weight) {
+        int hash = mix(feature.hashCode());
+        int index = Math.floorMod(hash, dimensions);
+        //one extra bit decides the sign so collisions cancel out instead of piling up
+        float sign = (hash & 0x40000000) == 0 ? 1f : -1f;
+        vector[index] += sign * weight;
+    }
+
+    //murmur3 finalizer, spreads String.hashCode over all bits
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -0,0 +1,158 @@
+package com.airtribe.meditrack.sketches;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Frequency estimate (count-min): DEPTH rows of WIDTH counters, an item adds to one counter per row and its estimate is
+ * the smallest of them. Estimates never undercount and overcount by at most e / WIDTH (0.13%) of the total with
+ * probability 1 - e^-DEPTH (98%). 64 KB of counters plus the TRACKED items with the highest estimates, which is where
+ * top() comes from. Merging adds the counters and keeps the best TRACKED of both candidate lists.
+ */
+public final class CountMinSketch implements Sketch {
+
+    static final int WIDTH = 2048;
+    static final int DEPTH = 4;
+    static final int TRACKED = 50;
+
+    public record Entry(String item, long count) {
+    }
+
+    private final long[][] counters = new long[DEPTH][WIDTH];
+    private final Map<String, Long> candidates = new HashMap<>();
+    private long total;
+
+    public void add(String item) {
+        long hash = hash(item);
+        for (int row = 0; row < DEPTH; row++) {
+            counters[row][index(hash, row)]++;
+        }
+        total++;
+        track(item, estimate(item));
+    }
+
+    public long estimate(String item) {
+        long hash = hash(item);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, counters[row][index(hash, row)]);
+        }
+        return estimate;
+    }
+
+    public long total() {
+        return total;
+    }
+
+    //bound on how much estimate() overcounts (with probability 1 - e^-DEPTH)
+    public long maxOverestimate() {
+        return (long) Math.ceil(Math.E / WIDTH * total);
+    }
+
+    public List<Entry> top(int limit) {
+        return candidates.entrySet().stream()
+                .map(entry -> new Entry(entry.getKey(), entry.getValue()))
+                .sorted(Comparator.comparingLong(Entry::count).reversed().thenComparing(Entry::item))
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public SketchType type() {
+        return SketchType.COUNT_MIN;
+    }
+
+    @Override
+    public void merge(Sketch other) {
+        CountMinSketch sketch = (CountMinSketch) other;
+        for (int row = 0; row < DEPTH; row++) {
+            for (int column = 0; column < WIDTH; column++) {
+                counters[row][column] += sketch.counters[row][column];
+            }
+        }
+        total += sketch.total;
+        List<String> items = new ArrayList<>(candidates.keySet());
+        items.addAll(sketch.candidates.keySet());
+        candidates.clear();
+        for (String item : items) {
+            track(item, estimate(item));
+        }
+    }
+
+    //keeps the TRACKED items with the highest estimates
+    private void track(String item, long estimate) {
+        if (candidates.containsKey(item) || candidates.size() < TRACKED) {
+            candidates.put(item, estimate);
+            return;
+        }
+        Map.Entry<String, Long> lowest = null;
+        for (Map.Entry<String, Long> entry : candidates.entrySet()) {
+            if (lowest == null || entry.getValue() < lowest.getValue()) {
+                lowest = entry;
+            }
+        }
+        if (estimate > lowest.getValue()) {
+            candidates.remove(lowest.getKey());
+            candidates.put(item, estimate);
+        }
+    }
+
+    //two hashes combined per row (Kirsch-Mitzenmacher) instead of DEPTH independent hash functions
+    private static int index(long hash, int row) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        return Math.floorMod(h1 + row * h2, WIDTH);
+    }
+
+    //64 bit FNV-1a over the utf-8 bytes, then mixed
+    private static long hash(String item) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : item.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        return Sketch.mix(hash);
+    }
+
+    @Override
+    public byte[] toBytes() {
+        List<byte[]> items = candidates.keySet().stream().map(item -> item.getBytes(StandardCharsets.UTF_8)).toList();
+        int itemBytes = items.stream().mapToInt(item -> Integer.BYTES + item.length).sum();
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES + DEPTH * WIDTH * Long.BYTES + Integer.BYTES + itemBytes);
+        buffer.putLong(total);
+        for (long[] row : counters) {
+            for (long counter : row) {
+                buffer.putLong(counter);
+            }
+        }
+        buffer.putInt(items.size());
+        for (byte[] item : items) {
+            buffer.putInt(item.length).put(item);
+        }
+        return buffer.array();
+    }
+
+    static CountMinSketch fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        CountMinSketch sketch = new CountMinSketch();
+        sketch.total = buffer.getLong();
+        for (long[] row : sketch.counters) {
+            for (int column = 0; column < WIDTH; column++) {
+                row[column] = buffer.getLong();
+            }
+        }
+        int items = buffer.getInt();
+        for (int i = 0; i < items; i++) {
+            byte[] item = new byte[buffer.getInt()];
+            buffer.get(item);
+            String value = new String(item, StandardCharsets.UTF_8);
+            sketch.candidates.put(value, sketch.estimate(value));
+        }
+        return sketch;
+    }
+}
@@ -0,0 +1,82 @@
+package com.airtribe.meditrack.sketches;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Distinct count estimate: 2^PRECISION one byte registers (4 KB), standard error 1.04 / sqrt(2^PRECISION) = 1.6%.
+ * Adding an id that was already seen changes nothing, so merging is a register wise max.
+ */
+public final class HyperLogLog implements Sketch {
+
+    static final int PRECISION = 12;
+    private static final int REGISTERS = 1 << PRECISION;
+    public static final double STANDARD_ERROR = 1.04 / Math.sqrt(REGISTERS);
+
+    private final byte[] registers;
+
+    public HyperLogLog() {
+        this(new byte[REGISTERS]);
+    }
+
+    private HyperLogLog(byte[] registers) {
+        this.registers = registers;
+    }
+
+    public void add(long value) {
+        long hash = Sketch.mix(value);
+        int register = (int) (hash >>> (Long.SIZE - PRECISION));
+        //rank = position of the first 1 bit in the remaining bits, the marker bit caps it when they are all 0
+        int rank = Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1;
+        if (rank > registers[register]) {
+            registers[register] = (byte) rank;
+        }
+    }
+
+    public long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double alpha = 0.7213 / (1 + 1.079 / REGISTERS);
+        double estimate = alpha * REGISTERS * REGISTERS / sum;
+        //small counts: linear counting on the empty registers is more accurate
+        if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+            estimate = REGISTERS * Math.log((double) REGISTERS / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    @Override
+    public SketchType type() {
+        return SketchType.HYPER_LOG_LOG;
+    }
+
+    @Override
+    public void merge(Sketch other) {
+        byte[] otherRegisters = ((HyperLogLog) other).registers;
+        for (int i = 0; i < REGISTERS; i++) {
+            if (otherRegisters[i] > registers[i]) {
+                registers[i] = otherRegisters[i];
+            }
+        }
+    }
+
+    @Override
+    public byte[] toBytes() {
+        return ByteBuffer.allocate(1 + REGISTERS).put((byte) PRECISION).put(registers).array();
+    }
+
+    static HyperLogLog fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (buffer.get() != PRECISION) {
+            throw new IllegalArgumentException("HyperLogLog was stored with a different precision");
+        }
+        byte[] registers = new byte[REGISTERS];
+        buffer.get(registers);
+        return new HyperLogLog(registers);
+    }
+}
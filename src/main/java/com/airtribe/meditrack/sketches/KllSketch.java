@@ -0,0 +1,206 @@
+package com.airtribe.meditrack.sketches;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Quantile estimate (KLL): values go into level 0, a level that is full is sorted and every other value moves up one
+ * level with twice the weight. Level capacities shrink by 2/3 going down from the top, so with K = 200 the sketch keeps
+ * about 3K values whatever the stream length and the rank error stays around 1.7%.
+ * Merging appends the other sketch's levels and compacts the same way.
+ */
+public final class KllSketch implements Sketch {
+
+    static final int K = 200;
+    private static final double DECAY = 2.0 / 3;
+    //normalized rank error for K = 200 (99% confidence)
+    public static final double RANK_ERROR = 0.017;
+
+    private double[][] levels = {new double[K]};
+    private int[] sizes = new int[1];
+    private long count;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public void add(double value) {
+        count++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        append(0, value);
+        compress();
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public double min() {
+        return min;
+    }
+
+    public double max() {
+        return max;
+    }
+
+    //value below which a fraction q of the stream falls, NaN while the sketch is empty
+    public double quantile(double q) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (q <= 0) {
+            return min;
+        }
+        if (q >= 1) {
+            return max;
+        }
+        int retained = retained();
+        double[] values = new double[retained];
+        long[] weights = new long[retained];
+        Integer[] order = new Integer[retained];
+        int i = 0;
+        for (int level = 0; level < levels.length; level++) {
+            for (int j = 0; j < sizes[level]; j++) {
+                values[i] = levels[level][j];
+                weights[i] = 1L << level;
+                order[i] = i;
+                i++;
+            }
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(values[a], values[b]));
+        double target = q * count;
+        long cumulative = 0;
+        for (int index : order) {
+            cumulative += weights[index];
+            if (cumulative >= target) {
+                return values[index];
+            }
+        }
+        return max;
+    }
+
+    @Override
+    public SketchType type() {
+        return SketchType.KLL;
+    }
+
+    @Override
+    public void merge(Sketch other) {
+        KllSketch sketch = (KllSketch) other;
+        if (sketch.count == 0) {
+            return;
+        }
+        for (int level = 0; level < sketch.levels.length; level++) {
+            for (int j = 0; j < sketch.sizes[level]; j++) {
+                append(level, sketch.levels[level][j]);
+            }
+        }
+        count += sketch.count;
+        min = Math.min(min, sketch.min);
+        max = Math.max(max, sketch.max);
+        compress();
+    }
+
+    private void append(int level, double value) {
+        if (level >= levels.length) {
+            addLevels(level + 1);
+        }
+        if (sizes[level] == levels[level].length) {
+            levels[level] = Arrays.copyOf(levels[level], levels[level].length * 2);
+        }
+        levels[level][sizes[level]++] = value;
+    }
+
+    private void addLevels(int count) {
+        int old = levels.length;
+        levels = Arrays.copyOf(levels, count);
+        sizes = Arrays.copyOf(sizes, count);
+        for (int level = old; level < count; level++) {
+            levels[level] = new double[capacity(level)];
+        }
+    }
+
+    private int capacity(int level) {
+        int depth = levels.length - level - 1;
+        return Math.max(2, (int) Math.ceil(K * Math.pow(DECAY, depth)));
+    }
+
+    private int retained() {
+        int retained = 0;
+        for (int size : sizes) {
+            retained += size;
+        }
+        return retained;
+    }
+
+    private int totalCapacity() {
+        int total = 0;
+        for (int level = 0; level < levels.length; level++) {
+            total += capacity(level);
+        }
+        return total;
+    }
+
+    //compacts the lowest full level until the sketch is back within its total capacity
+    private void compress() {
+        while (retained() > totalCapacity()) {
+            for (int level = 0; level < levels.length; level++) {
+                if (sizes[level] >= capacity(level)) {
+                    compact(level);
+                    break;
+                }
+            }
+        }
+    }
+
+    //sorts the level and promotes the values at even or odd positions (coin flip), an odd one out stays behind
+    private void compact(int level) {
+        if (level + 1 == levels.length) {
+            addLevels(levels.length + 1);
+        }
+        double[] values = levels[level];
+        int size = sizes[level];
+        Arrays.sort(values, 0, size);
+        int pairs = size / 2;
+        int offset = ThreadLocalRandom.current().nextInt(2);
+        for (int i = 0; i < pairs; i++) {
+            append(level + 1, values[2 * i + offset]);
+        }
+        if (size % 2 == 1) {
+            values[0] = values[size - 1];
+            sizes[level] = 1;
+        } else {
+            sizes[level] = 0;
+        }
+    }
+
+    @Override
+    public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES + 2 * Double.BYTES + Integer.BYTES
+                + levels.length * Integer.BYTES + retained() * Double.BYTES);
+        buffer.putLong(count).putDouble(min).putDouble(max).putInt(levels.length);
+        for (int level = 0; level < levels.length; level++) {
+            buffer.putInt(sizes[level]);
+            for (int j = 0; j < sizes[level]; j++) {
+                buffer.putDouble(levels[level][j]);
+            }
+        }
+        return buffer.array();
+    }
+
+    static KllSketch fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        KllSketch sketch = new KllSketch();
+        sketch.count = buffer.getLong();
+        sketch.min = buffer.getDouble();
+        sketch.max = buffer.getDouble();
+        sketch.addLevels(buffer.getInt());
+        for (int level = 0; level < sketch.levels.length; level++) {
+            int size = buffer.getInt();
+            for (int j = 0; j < size; j++) {
+                sketch.append(level, buffer.getDouble());
+            }
+        }
+        return sketch;
+    }
+}
@@ -0,0 +1,42 @@
+package com.airtribe.meditrack.sketches;
+
+/**
+ * A fixed size summary of a stream that can be merged with another summary of the same kind and size:
+ * merging the sketches of two streams gives the sketch of both streams together. That is what lets every node keep
+ * its own updates and add them to the persisted sketch later.
+ */
+public interface Sketch {
+
+    SketchType type();
+
+    //adds other's stream to this one, other is left unchanged
+    void merge(Sketch other);
+
+    byte[] toBytes();
+
+    static Sketch empty(SketchType type) {
+        return switch (type) {
+            case HYPER_LOG_LOG -> new HyperLogLog();
+            case KLL -> new KllSketch();
+            case COUNT_MIN -> new CountMinSketch();
+        };
+    }
+
+    static Sketch fromBytes(SketchType type, byte[] bytes) {
+        return switch (type) {
+            case HYPER_LOG_LOG -> HyperLogLog.fromBytes(bytes);
+            case KLL -> KllSketch.fromBytes(bytes);
+            case COUNT_MIN -> CountMinSketch.fromBytes(bytes);
+        };
+    }
+
+    //murmur3's 64 bit finalizer, spreads ids that are close together over the whole hash space
+    static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
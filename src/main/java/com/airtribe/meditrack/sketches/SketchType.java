@@ -0,0 +1,7 @@
+package com.airtribe.meditrack.sketches;
+
+public enum SketchType {
+    HYPER_LOG_LOG,
+    KLL,
+    COUNT_MIN
+}
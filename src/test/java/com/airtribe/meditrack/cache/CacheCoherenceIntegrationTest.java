@@ -0,0 +1,99 @@
+package com.airtribe.meditrack.cache;
+
+import com.airtribe.meditrack.MeditrackApplication;
+import com.airtribe.meditrack.dto.DoctorDetailDTO;
+import com.airtribe.meditrack.entities.Doctor;
+import com.airtribe.meditrack.enums.Role;
+import com.airtribe.meditrack.enums.Specialist;
+import com.airtribe.meditrack.repositories.DoctorRepo;
+import com.airtribe.meditrack.services.DoctorService;
+import com.airtribe.meditrack.services.PersonService;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Starts two MediTrack nodes against the same local postgres (the one in application.properties)
+ * and checks that a doctor change on node A evicts the doctor from node B's second level cache.
+ */
+class CacheCoherenceIntegrationTest {
+
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+
+    @BeforeAll
+    static void startNodes() throws IOException {
+        nodeA = startNode("node-a");
+        nodeB = startNode("node-b");
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        if (nodeB != null) {
+            nodeB.close();
+        }
+        if (nodeA != null) {
+            nodeA.close();
+        }
+    }
+
+    private static ConfigurableApplicationContext startNode(String nodeId) throws IOException {
+        //jcache hands out one CacheManager per config uri and jvm, so each node gets its own copy of ehcache.xml
+        //otherwise both nodes would share one second level cache (and spring caches) and close it under each other
+        Path ehcacheConfig = Files.createTempFile("ehcache-" + nodeId, ".xml");
+        try (InputStream in = new ClassPathResource("ehcache.xml").getInputStream()) {
+            Files.copy(in, ehcacheConfig, StandardCopyOption.REPLACE_EXISTING);
+        }
+        ehcacheConfig.toFile().deleteOnExit();
+        //command line args, builder properties() are only defaults and lose against application.properties
+        return new SpringApplicationBuilder(MeditrackApplication.class)
+                .profiles("offline")
+                .run("--server.port=0",
+                        "--meditrack.node-id=" + nodeId,
+                        "--spring.jpa.properties.hibernate.javax.cache.uri=" + ehcacheConfig.toUri(),
+                        "--spring.cache.jcache.config=" + ehcacheConfig.toUri(),
+                        //both nodes share one schema, create-drop on the second node would wipe the first one's tables
+                        "--spring.jpa.hibernate.ddl-auto=update");
+    }
+
+    @Test
+    void availabilityChangeOnOneNodeEvictsDoctorOnTheOther() throws Exception {
+        DoctorDetailDTO dto = new DoctorDetailDTO("Dr. Coherence", "coherence-" + UUID.randomUUID() + "@meditrack.com",
+                "9000000001", "Pune", Role.DOCTOR, 700.0, Specialist.CARDIOLOGIST, "cache coherence test doctor");
+        //created on B, so the "doctor created" notification (ignored by its own sender) can't race the cache warm-up below
+        Long id = nodeB.getBean(PersonService.class).createDoctor(dto).getId();
+
+        //load it once on node B so it sits in B's second level cache
+        assertTrue(nodeB.getBean(DoctorRepo.class).findById(id).orElseThrow().getIsAvailable());
+        assertTrue(cachedOnNodeB(id));
+
+        nodeA.getBean(DoctorService.class).updateAvailability(id, false);
+
+        long deadline = System.currentTimeMillis() + 2000;
+        while (cachedOnNodeB(id) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse(cachedOnNodeB(id), "node B still serves the stale doctor from its cache");
+
+        Doctor reloaded = nodeB.getBean(DoctorRepo.class).findById(id).orElseThrow();
+        assertFalse(reloaded.getIsAvailable());
+    }
+
+    private boolean cachedOnNodeB(Long doctorId) {
+        return nodeB.getBean(EntityManagerFactory.class).getCache().contains(Doctor.class, doctorId);
+    }
+}
@@ -0,0 +1,128 @@
+package com.airtribe.meditrack.controller;
+
+import com.airtribe.meditrack.dto.DoctorDetailDTO;
+import com.airtribe.meditrack.dto.PatientDetailDTO;
+import com.airtribe.meditrack.entities.Appointment;
+import com.airtribe.meditrack.enums.AppointmentStatus;
+import com.airtribe.meditrack.enums.Role;
+import com.airtribe.meditrack.enums.Specialist;
+import com.airtribe.meditrack.repositories.AppointmentHistoryEventRepo;
+import com.airtribe.meditrack.repositories.AppointmentRepo;
+import com.airtribe.meditrack.services.AppointmentService;
+import com.airtribe.meditrack.services.PersonService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Calls the appointment endpoints through MockMvc against the local postgres (the one in application.properties).
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class AppointmentControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PersonService personService;
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private AppointmentRepo appointmentRepo;
+
+    @Autowired
+    private AppointmentHistoryEventRepo appointmentHistoryEventRepo;
+
+    @Test
+    void batchCancellationKeepsTheTimesAndSkipsCancelledAppointments() throws Exception {
+        String suffix = UUID.randomUUID().toString();
+        Long doctorId = personService.createDoctor(new DoctorDetailDTO("Dr. Cancel", "cancel-" + suffix + "@meditrack.com",
+                "9000000002", "Pune", Role.DOCTOR, 500.0, Specialist.DERMATOLOGIST, "batch cancellation test doctor")).getId();
+        Long patientId = personService.createPatient(new PatientDetailDTO("cancel-patient-" + suffix + "@meditrack.com",
+                "9000000003", "Pune", Role.PATIENT, "Cancel Patient", 30)).getId();
+        LocalDate day = LocalDate.now().plusDays(30);
+        Long first = book(doctorId, patientId, day, LocalTime.of(10, 0));
+        Long second = book(doctorId, patientId, day, LocalTime.of(11, 0));
+
+        mockMvc.perform(post("/appointments/cancel")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"appointmentIds\": [" + first + ", " + second + "], \"reason\": \"clinic closed\"}"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("2 of 2 appointments cancelled successfully."));
+
+        Appointment cancelled = appointmentRepo.findById(first).orElseThrow();
+        assertEquals(AppointmentStatus.CANCELLED, cancelled.getStatus());
+        assertEquals("clinic closed", cancelled.getCancellationReason());
+        assertEquals(LocalTime.of(10, 0), cancelled.getStartTime());
+        assertEquals(LocalTime.of(10, 30), cancelled.getEndTime());
+
+        //already cancelled ones are skipped, not cancelled twice
+        mockMvc.perform(post("/appointments/cancel")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"appointmentIds\": [" + first + "], \"reason\": \"again\"}"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("0 of 1 appointments cancelled successfully."));
+        assertEquals("clinic closed", appointmentRepo.findById(first).orElseThrow().getCancellationReason());
+    }
+
+    @Test
+    void cancellingOrCompletingTwiceRecordsOneEvent() throws Exception {
+        String suffix = UUID.randomUUID().toString();
+        Long doctorId = personService.createDoctor(new DoctorDetailDTO("Dr. Twice", "twice-" + suffix + "@meditrack.com",
+                "9000000004", "Pune", Role.DOCTOR, 500.0, Specialist.DERMATOLOGIST, "repeated status change test doctor")).getId();
+        Long patientId = personService.createPatient(new PatientDetailDTO("twice-patient-" + suffix + "@meditrack.com",
+                "9000000005", "Pune", Role.PATIENT, "Twice Patient", 30)).getId();
+        LocalDate day = LocalDate.now().plusDays(30);
+        Long cancelled = book(doctorId, patientId, day, LocalTime.of(10, 0));
+        Long completed = book(doctorId, patientId, day, LocalTime.of(11, 0));
+        int booked = appointmentHistoryEventRepo.findByAppointmentIdOrderByOccurredAtAscIdAsc(cancelled).size();
+
+        for (String reason : new String[]{"sick", "again"}) {
+            mockMvc.perform(get("/appointments/" + cancelled + "/cancel").param("reason", reason))
+                    .andExpect(status().isOk());
+        }
+        assertEquals(booked + 1, appointmentHistoryEventRepo.findByAppointmentIdOrderByOccurredAtAscIdAsc(cancelled).size());
+        assertEquals("sick", appointmentRepo.findById(cancelled).orElseThrow().getCancellationReason());
+
+        for (String observations : new String[]{"rest", "rest and fluids"}) {
+            mockMvc.perform(post("/appointments/doc/" + completed)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"docObservations\": \"" + observations + "\"}"))
+                    .andExpect(status().isOk());
+        }
+        assertEquals(booked + 1, appointmentHistoryEventRepo.findByAppointmentIdOrderByOccurredAtAscIdAsc(completed).size());
+        assertEquals("rest and fluids", appointmentRepo.findById(completed).orElseThrow().getDocObservations());
+    }
+
+    @Test
+    void batchCancellationNeedsAppointmentIds() throws Exception {
+        mockMvc.perform(post("/appointments/cancel")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"appointmentIds\": [], \"reason\": \"clinic closed\"}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private Long book(Long doctorId, Long patientId, LocalDate day, LocalTime start) {
+        return appointmentService.bookAppointment(doctorId, patientId, Appointment.builder()
+                .startDate(day)
+                .startTime(start)
+                .endTime(start.plusMinutes(30))
+                .build()).getId();
+    }
+}
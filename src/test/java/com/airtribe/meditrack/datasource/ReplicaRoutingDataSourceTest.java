@@ -0,0 +1,182 @@
+package com.airtribe.meditrack.datasource;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Wires ReplicaRoutingDataSource the way ReadReplicaConfig does, with in-memory h2 databases standing in for
+ * the primary and the replicas. Each database has a one row table naming it, so a query shows where it was routed.
+ */
+class ReplicaRoutingDataSourceTest {
+
+    private final DataSource primary = database("primary");
+    private final DataSource replica1 = database("replica-1");
+    private final DataSource replica2 = database("replica-2");
+
+    @AfterEach
+    void clearRequest() {
+        RequestContextHolder.resetRequestAttributes();
+        ReadYourWrites.clear();
+    }
+
+    @Test
+    void readOnlyTransactionsGoToTheReplicasRoundRobin() {
+        Setup setup = new Setup(List.of(replica1, replica2));
+
+        Set<String> readFrom = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            readFrom.add(setup.readOnly());
+        }
+
+        assertEquals(Set.of("replica-1", "replica-2"), readFrom);
+        assertEquals("primary", setup.readWrite());
+    }
+
+    @Test
+    void unreachableReplicaIsSkippedAndReadsFallBackToThePrimary() {
+        DataSource down = new DriverManagerDataSource("jdbc:h2:tcp://localhost:1/nowhere", "sa", "");
+        Setup setup = new Setup(List.of(down));
+
+        setup.routing.checkLag();
+
+        assertFalse(setup.routing.getReplicas().get(0).isHealthy());
+        assertEquals(-1, setup.routing.getReplicas().get(0).getLagMs());
+        assertEquals("primary", setup.readOnly());
+    }
+
+    @Test
+    void laggingReplicaIsSkippedUntilItCatchesUp() {
+        //a negative max lag makes the 0 ms measured on h2 count as too far behind
+        Setup lagging = new Setup(List.of(replica1), -1);
+        lagging.routing.checkLag();
+        assertEquals("primary", lagging.readOnly());
+
+        Setup caughtUp = new Setup(List.of(replica1), 1000);
+        caughtUp.routing.checkLag();
+        assertEquals("replica-1", caughtUp.readOnly());
+    }
+
+    @Test
+    void readsAfterAWriteInTheSameRequestStayOnThePrimary() {
+        Setup setup = new Setup(List.of(replica1));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest(), response));
+
+        assertEquals("replica-1", setup.readOnly());
+        setup.readWrite();
+
+        assertEquals("primary", setup.readOnly());
+        Cookie cookie = response.getCookie(ReadYourWrites.COOKIE);
+        assertNotNull(cookie);
+        assertTrue(Long.parseLong(cookie.getValue()) > System.currentTimeMillis());
+    }
+
+    @Test
+    void writeOutsideARequestDoesNotPinTheThread() {
+        Setup setup = new Setup(List.of(replica1));
+
+        setup.readWrite();
+
+        assertEquals("replica-1", setup.readOnly());
+    }
+
+    @Test
+    void stickyCookieKeepsTheNextRequestOnThePrimary() throws Exception {
+        Setup setup = new Setup(List.of(replica1));
+        ReadYourWritesFilter filter = new ReadYourWritesFilter();
+
+        MockHttpServletRequest afterWrite = new MockHttpServletRequest();
+        afterWrite.setCookies(new Cookie(ReadYourWrites.COOKIE, Long.toString(System.currentTimeMillis() + 5000)));
+        assertEquals("primary", readInside(filter, afterWrite, setup));
+
+        MockHttpServletRequest expired = new MockHttpServletRequest();
+        expired.setCookies(new Cookie(ReadYourWrites.COOKIE, Long.toString(System.currentTimeMillis() - 1)));
+        assertEquals("replica-1", readInside(filter, expired, setup));
+
+        assertFalse(ReadYourWrites.isPinnedToPrimary());
+    }
+
+    private static String readInside(ReadYourWritesFilter filter, MockHttpServletRequest request, Setup setup) throws Exception {
+        AtomicReference<String> readFrom = new AtomicReference<>();
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain(
+                new HttpServlet() {
+                    @Override
+                    protected void service(HttpServletRequest req, HttpServletResponse res) {
+                        readFrom.set(setup.readOnly());
+                    }
+                }));
+        return readFrom.get();
+    }
+
+    private static DataSource database(String name) {
+        DataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table node (name varchar(20))");
+        jdbcTemplate.update("insert into node values (?)", name);
+        return dataSource;
+    }
+
+    private class Setup {
+
+        private final ReplicaRoutingDataSource routing;
+        private final JdbcTemplate jdbcTemplate;
+        private final TransactionTemplate readOnly;
+        private final TransactionTemplate readWrite;
+
+        Setup(List<DataSource> replicas) {
+            this(replicas, 1000);
+        }
+
+        Setup(List<DataSource> replicas, long maxLagMs) {
+            List<ReplicaRoutingDataSource.Replica> named = new ArrayList<>();
+            for (int i = 0; i < replicas.size(); i++) {
+                named.add(new ReplicaRoutingDataSource.Replica("replica-" + (i + 1), replicas.get(i)));
+            }
+            routing = new ReplicaRoutingDataSource(primary, named, maxLagMs);
+            LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(routing);
+
+            DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(proxy);
+            transactionManager.addListener(new ReadYourWrites(5000));
+            jdbcTemplate = new JdbcTemplate(proxy);
+            readOnly = new TransactionTemplate(transactionManager);
+            readOnly.setReadOnly(true);
+            readWrite = new TransactionTemplate(transactionManager);
+        }
+
+        String readOnly() {
+            return readOnly.execute(status -> jdbcTemplate.queryForObject("select name from node", String.class));
+        }
+
+        String readWrite() {
+            return readWrite.execute(status -> {
+                jdbcTemplate.update("update node set name = name");
+                return jdbcTemplate.queryForObject("select name from node", String.class);
+            });
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.airtribe.meditrack.jobs;
+
+import com.airtribe.meditrack.dto.DoctorDetailDTO;
+import com.airtribe.meditrack.dto.PatientDetailDTO;
+import com.airtribe.meditrack.entities.Appointment;
+import com.airtribe.meditrack.entities.Job;
+import com.airtribe.meditrack.enums.AppointmentStatus;
+import com.airtribe.meditrack.enums.JobStatus;
+import com.airtribe.meditrack.enums.Role;
+import com.airtribe.meditrack.enums.Specialist;
+import com.airtribe.meditrack.repositories.AppointmentRepo;
+import com.airtribe.meditrack.repositories.DoctorRepo;
+import com.airtribe.meditrack.repositories.DoctorStatsRepo;
+import com.airtribe.meditrack.repositories.JobRepo;
+import com.airtribe.meditrack.repositories.PatientRepo;
+import com.airtribe.meditrack.services.PersonService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the housekeeping handler against the local postgres (the one in application.properties) with chunks of two
+ * rows, so the keyset has to move past chunks in which nothing is due.
+ * The scheduled submission is off, and that also gives the class a context of its own (see PatientImportWriterTest).
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = "meditrack.housekeeping.enabled=false")
+class AppointmentHousekeepingJobHandlerTest {
+
+    private static final String OWNER = "housekeeping-test";
+    //far enough back that no other test's appointments are candidates
+    private static final LocalDate DAY = LocalDate.of(2001, 6, 10);
+    private static final LocalDateTime AS_OF = DAY.atTime(12, 0);
+    private static final LocalDateTime NO_SHOW_BEFORE = DAY.atTime(10, 0);
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private DoctorStatsRepo doctorStatsRepo;
+
+    @Autowired
+    private JobRepo jobRepo;
+
+    @Autowired
+    private PersonService personService;
+
+    @Autowired
+    private AppointmentRepo appointmentRepo;
+
+    @Autowired
+    private DoctorRepo doctorRepo;
+
+    @Autowired
+    private PatientRepo patientRepo;
+
+    @Test
+    @Timeout(60)
+    void resumedRunClosesEveryDueAppointmentOnce() throws Exception {
+        String suffix = UUID.randomUUID().toString();
+        Long doctorId = personService.createDoctor(new DoctorDetailDTO("Dr. Housekeeping", "housekeeping-" + suffix + "@meditrack.com",
+                "9000000006", "Pune", Role.DOCTOR, 500.0, Specialist.DERMATOLOGIST, "housekeeping test doctor")).getId();
+        Long patientId = personService.createPatient(new PatientDetailDTO("housekeeping-patient-" + suffix + "@meditrack.com",
+                "9000000007", "Pune", Role.PATIENT, "Housekeeping Patient", 30)).getId();
+
+        //in key order: (day before) due, due | not due at the cut-offs, not due | due, due | not due at the cut-off, not due
+        Long noShow = appointment(doctorId, patientId, DAY.minusDays(1), LocalTime.of(9, 0), AppointmentStatus.SCHEDULED);
+        Long unpaid = appointment(doctorId, patientId, DAY.minusDays(1), LocalTime.of(10, 0), AppointmentStatus.PAYMENT_PENDING);
+        Long endsAtNoShowCutoff = appointment(doctorId, patientId, DAY, LocalTime.of(9, 30), AppointmentStatus.SCHEDULED);
+        Long endsAfterNoShowCutoff = appointment(doctorId, patientId, DAY, LocalTime.of(10, 30), AppointmentStatus.SCHEDULED);
+        Long endsBeforeNoShowCutoff = appointment(doctorId, patientId, DAY, LocalTime.of(9, 0), AppointmentStatus.SCHEDULED);
+        Long startedUnpaid = appointment(doctorId, patientId, DAY, LocalTime.of(11, 0), AppointmentStatus.PAYMENT_PENDING);
+        Long startsAtAsOf = appointment(doctorId, patientId, DAY, LocalTime.of(12, 0), AppointmentStatus.PAYMENT_PENDING);
+        Long startsAfterAsOf = appointment(doctorId, patientId, DAY, LocalTime.of(13, 0), AppointmentStatus.PAYMENT_PENDING);
+        Long completed = appointment(doctorId, patientId, DAY.minusDays(1), LocalTime.of(8, 0), AppointmentStatus.COMPLETED);
+
+        AppointmentHousekeepingJobHandler handler = new AppointmentHousekeepingJobHandler(objectMapper, jdbcTemplate,
+                transactionTemplate, doctorStatsRepo, new SimpleMeterRegistry(), 2, 1.0, 0);
+        String payload = objectMapper.writeValueAsString(new AppointmentHousekeepingJobHandler.Input(AS_OF, NO_SHOW_BEFORE, 1));
+        Long jobId = jobRepo.save(Job.builder()
+                .type(AppointmentHousekeepingJobHandler.TYPE)
+                .status(JobStatus.RUNNING)
+                .payload(payload)
+                .owner(OWNER)
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build()).getId();
+
+        //stops after the first chunk committed, like a shutdown
+        handler.run(payload, context(jobId, () -> jobRepo.findById(jobId).orElseThrow().getCheckpoint() != null));
+        assertEquals(AppointmentStatus.NO_SHOW, status(noShow));
+        assertEquals(AppointmentStatus.CANCELLED, status(unpaid));
+        assertEquals(AppointmentStatus.SCHEDULED, status(endsBeforeNoShowCutoff));
+        assertEquals(1, cancelledCount(doctorId));
+
+        String result = handler.run(payload, context(jobId, () -> false));
+
+        //the resumed run only did the chunks after the checkpoint
+        assertEquals("Marked 1 appointments NO_SHOW and cancelled 1 unpaid ones (as of " + AS_OF + ", 1 partitions)", result);
+        assertEquals(8, jobRepo.findById(jobId).orElseThrow().getProcessedItems());
+        assertEquals(AppointmentStatus.NO_SHOW, status(endsBeforeNoShowCutoff));
+        assertEquals(AppointmentStatus.CANCELLED, status(startedUnpaid));
+        assertEquals(AppointmentStatus.SCHEDULED, status(endsAtNoShowCutoff));
+        assertEquals(AppointmentStatus.SCHEDULED, status(endsAfterNoShowCutoff));
+        assertEquals(AppointmentStatus.PAYMENT_PENDING, status(startsAtAsOf));
+        assertEquals(AppointmentStatus.PAYMENT_PENDING, status(startsAfterAsOf));
+        assertEquals(AppointmentStatus.COMPLETED, status(completed));
+        assertEquals(AppointmentHousekeepingJobHandler.UNPAID_REASON,
+                appointmentRepo.findById(startedUnpaid).orElseThrow().getCancellationReason());
+        assertEquals(2, cancelledCount(doctorId));
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "select count(*) from appointment_history where appointment_id = ? and type = 'CANCELLED'", Long.class, unpaid));
+    }
+
+    //a fresh context per run, like JobService builds after a restart
+    private JobContext context(Long jobId, BooleanSupplier stopping) {
+        return new JobContext(jobRepo.findById(jobId).orElseThrow(), OWNER, jobRepo, stopping);
+    }
+
+    private Long appointment(Long doctorId, Long patientId, LocalDate day, LocalTime start, AppointmentStatus status) {
+        return appointmentRepo.save(Appointment.builder()
+                .doctor(doctorRepo.getReferenceById(doctorId))
+                .patient(patientRepo.getReferenceById(patientId))
+                .startDate(day)
+                .startTime(start)
+                .endTime(start.plusMinutes(30))
+                .status(status)
+                .build()).getId();
+    }
+
+    private AppointmentStatus status(Long appointmentId) {
+        return appointmentRepo.findById(appointmentId).orElseThrow().getStatus();
+    }
+
+    private long cancelledCount(Long doctorId) {
+        return jdbcTemplate.queryForObject("select coalesce(sum(cancelled_count), 0) from doctor_stats where doctor_id = ?",
+                Long.class, doctorId);
+    }
+}
@@ -0,0 +1,86 @@
+package com.airtribe.meditrack.notificationService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs ObserverEventBus with one observer that fails the first time it handles an event, no spring context.
+ */
+class ObserverEventBusTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private ObserverEventBus bus;
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        if (bus != null) {
+            bus.shutdown();
+        }
+    }
+
+    @Test
+    void databaseFailureHandsTheEventBackForRedelivery() throws Exception {
+        FailingOnce observer = new FailingOnce(new CannotAcquireLockException("dashboard row locked"));
+        bus = new ObserverEventBus(List.of(observer), registry, 10, 50);
+
+        ExecutionException failed = assertThrows(ExecutionException.class,
+                () -> bus.deliver(1, (o, eventId) -> o.updateDoctorMessage(eventId, "hello")).get(5, TimeUnit.SECONDS));
+        assertInstanceOf(CannotAcquireLockException.class, failed.getCause());
+
+        //the outbox delivers it again, it is handled instead of skipped as a duplicate
+        bus.deliver(1, (o, eventId) -> o.updateDoctorMessage(eventId, "hello")).get(5, TimeUnit.SECONDS);
+        assertEquals(2, observer.calls.get());
+        assertEquals(1, counter("meditrack.observer.dropped"));
+        assertEquals(0, counter("meditrack.observer.duplicates"));
+    }
+
+    @Test
+    void otherFailureCountsAsHandled() throws Exception {
+        FailingOnce observer = new FailingOnce(new IllegalStateException("bug"));
+        bus = new ObserverEventBus(List.of(observer), registry, 10, 50);
+
+        bus.deliver(1, (o, eventId) -> o.updateDoctorMessage(eventId, "hello")).get(5, TimeUnit.SECONDS);
+        bus.deliver(1, (o, eventId) -> o.updateDoctorMessage(eventId, "hello")).get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, observer.calls.get());
+        assertEquals(1, counter("meditrack.observer.failed"));
+        assertEquals(1, counter("meditrack.observer.duplicates"));
+    }
+
+    private double counter(String name) {
+        return registry.get(name).counter().count();
+    }
+
+    private static class FailingOnce implements Observer {
+
+        private final RuntimeException failure;
+        private final AtomicInteger calls = new AtomicInteger();
+
+        FailingOnce(RuntimeException failure) {
+            this.failure = failure;
+        }
+
+        @Override
+        public CompletableFuture<Void> updateAppointment(AppointmentEvent event) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public CompletableFuture<Void> updateDoctorMessage(long eventId, String message) {
+            if (calls.getAndIncrement() == 0) {
+                throw failure;
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+}
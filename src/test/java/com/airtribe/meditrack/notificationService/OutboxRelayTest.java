@@ -0,0 +1,135 @@
+package com.airtribe.meditrack.notificationService;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Relays batches from an outbox_event table in a schema of its own on the local postgres (the one in
+ * application.properties), so the relays of the application contexts other tests started never see its rows.
+ * No spring context, the relay and the bus are wired by hand and relayBatch is called directly.
+ */
+class OutboxRelayTest {
+
+    private static final String SCHEMA = "outbox_relay_test";
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+            "jdbc:postgresql://localhost:5433/meditrack?currentSchema=" + SCHEMA, "postgres", "postgres"));
+    private ObserverEventBus bus;
+
+    @BeforeEach
+    void createOutbox() {
+        jdbcTemplate.execute("drop schema if exists " + SCHEMA + " cascade");
+        jdbcTemplate.execute("create schema " + SCHEMA);
+        jdbcTemplate.execute("""
+                create table outbox_event (
+                    id bigint primary key,
+                    type varchar(255) not null,
+                    aggregate_id bigint,
+                    payload text not null,
+                    created_at timestamp(6) not null,
+                    leased_until timestamp(6),
+                    lease_token varchar(255)
+                )
+                """);
+    }
+
+    @AfterEach
+    void dropOutbox() throws InterruptedException {
+        if (bus != null) {
+            bus.shutdown();
+        }
+        jdbcTemplate.execute("drop schema if exists " + SCHEMA + " cascade");
+    }
+
+    @Test
+    void failingObserverReleasesTheBatchAndTheRetryIsSkippedWhereItWasHandled() {
+        Recording handles = new Recording(Set.of());
+        Recording failsOnce = new Recording(Set.of(2L));
+        OutboxRelay relay = relay(handles, failsOnce);
+        message(1);
+        message(2);
+
+        assertEquals(0, relay.relayBatch());
+        //released, the next relay (on any node) can take the rows right away
+        assertEquals(List.of(1L, 2L), jdbcTemplate.queryForList(
+                "select id from outbox_event where leased_until is null and lease_token is null order by id", Long.class));
+
+        assertEquals(2, relay.relayBatch());
+        assertEquals(0, count());
+        //the observer that already had both events did not get them again, the failing one got its event a second time
+        assertEquals(List.of(1L, 2L), handles.eventIds);
+        assertEquals(List.of(1L, 2L, 2L), failsOnce.eventIds);
+    }
+
+    @Test
+    void expiredLeaseLetsAnotherRelayTakeTheRows() {
+        Recording observer = new Recording(Set.of());
+        OutboxRelay relay = relay(observer);
+        //a relay that died while holding 1, and one that is still delivering 2
+        message(1);
+        message(2);
+        jdbcTemplate.update("update outbox_event set leased_until = localtimestamp - interval '1 second', lease_token = 'dead' where id = 1");
+        jdbcTemplate.update("update outbox_event set leased_until = localtimestamp + interval '1 minute', lease_token = 'live' where id = 2");
+
+        assertEquals(1, relay.relayBatch());
+
+        assertEquals(List.of(1L), observer.eventIds);
+        assertEquals(List.of(2L), jdbcTemplate.queryForList("select id from outbox_event", Long.class));
+        //the dead relay's token no longer holds anything, a late delete from it is a no-op
+        assertEquals(0, jdbcTemplate.update("delete from outbox_event where lease_token = 'dead'"));
+    }
+
+    private OutboxRelay relay(Observer... observers) {
+        bus = new ObserverEventBus(List.of(observers), registry, 10, 50);
+        return new OutboxRelay(jdbcTemplate, new ObjectMapper(), bus, registry, 100, 1000, 5000, 60000, 15000);
+    }
+
+    private void message(long id) {
+        jdbcTemplate.update("insert into outbox_event (id, type, payload, created_at) values (?, 'DOCTOR_MESSAGE', '\"hello\"', localtimestamp)", id);
+    }
+
+    private long count() {
+        return jdbcTemplate.queryForObject("select count(*) from outbox_event", Long.class);
+    }
+
+    //records the events it handled, hands the ones in failOnce back to the outbox the first time it sees them
+    private static class Recording implements Observer {
+
+        private final Set<Long> failOnce;
+        private final Set<Long> failed = ConcurrentHashMap.newKeySet();
+        private final List<Long> eventIds = new CopyOnWriteArrayList<>();
+
+        Recording(Set<Long> failOnce) {
+            this.failOnce = failOnce;
+        }
+
+        @Override
+        public CompletableFuture<Void> updateAppointment(AppointmentEvent event) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public CompletableFuture<Void> updateDoctorMessage(long eventId, String message) {
+            eventIds.add(eventId);
+            if (failOnce.contains(eventId) && failed.add(eventId)) {
+                throw new CannotAcquireLockException("dashboard row locked");
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.airtribe.meditrack.notificationService.delivery;
+
+import com.airtribe.meditrack.enums.NotificationChannel;
+import com.airtribe.meditrack.exceptions.NotificationBacklogException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs NotificationPipeline against StubNotificationGateway, no spring context.
+ */
+class NotificationPipelineTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private NotificationPipeline pipeline;
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        if (pipeline != null) {
+            pipeline.shutdown();
+        }
+    }
+
+    @Test
+    void fullBatchesAreSentWithoutWaitingForTheWindow() throws InterruptedException {
+        StubNotificationGateway sms = new StubNotificationGateway(NotificationChannel.SMS, 0);
+        pipeline = pipeline(sms, 1024, 10, 60_000, 3);
+
+        for (int i = 0; i < 25; i++) {
+            pipeline.submit(sms(i));
+        }
+
+        await(() -> sms.delivered() == 20);
+        assertEquals(List.of(10, 10), sizes(sms));
+        //the last 5 wait for the window, shutdown sends them right away
+        pipeline.shutdown();
+        assertEquals(List.of(10, 10, 5), sizes(sms));
+    }
+
+    @Test
+    void partialBatchIsSentOnceTheWindowIsOver() {
+        StubNotificationGateway sms = new StubNotificationGateway(NotificationChannel.SMS, 0);
+        pipeline = pipeline(sms, 1024, 100, 100, 3);
+
+        for (int i = 0; i < 3; i++) {
+            pipeline.submit(sms(i));
+        }
+
+        await(() -> sms.delivered() == 3);
+        assertEquals(List.of(3), sizes(sms));
+    }
+
+    @Test
+    void failedBatchIsRetriedUntilTheGatewayAcceptsIt() {
+        StubNotificationGateway sms = new StubNotificationGateway(NotificationChannel.SMS, 0);
+        sms.failNext(2);
+        pipeline = pipeline(sms, 1024, 10, 50, 5);
+
+        for (int i = 0; i < 10; i++) {
+            pipeline.submit(sms(i));
+        }
+
+        await(() -> sms.delivered() == 10);
+        assertEquals(2.0, counter("meditrack.notifications.retries"));
+        assertEquals(10.0, counter("meditrack.notifications.sent"));
+        assertEquals(0.0, counter("meditrack.notifications.failed"));
+    }
+
+    @Test
+    void notificationIsAcknowledgedOnceTheGatewayAcceptedIt() throws Exception {
+        StubNotificationGateway sms = new StubNotificationGateway(NotificationChannel.SMS, 0);
+        sms.failNext(1);
+        pipeline = pipeline(sms, 1024, 10, 50, 3);
+
+        CompletableFuture<Void> acknowledged = pipeline.submit(sms(0));
+
+        acknowledged.get(10, TimeUnit.SECONDS);
+        assertEquals(1, sms.delivered());
+    }
+
+    @Test
+    void batchIsHandedBackAfterMaxAttempts() {
+        StubNotificationGateway sms = new StubNotificationGateway(NotificationChannel.SMS, 0);
+        sms.failNext(100);
+        pipeline = pipeline(sms, 1024, 10, 50, 3);
+
+        List<CompletableFuture<Void>> acknowledged = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            acknowledged.add(pipeline.submit(sms(i)));
+        }
+
+        await(() -> counter("meditrack.notifications.failed") == 10.0);
+        assertEquals(2.0, counter("meditrack.notifications.retries"));
+        assertEquals(0, sms.delivered());
+        //the observer hands the event back to the outbox
+        for (CompletableFuture<Void> future : acknowledged) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(NotificationBacklogException.class, e.getCause());
+        }
+    }
+
+    @Test
+    void fullBufferRejectsInsteadOfBlockingTheProducer() {
+        //the gateway holds the dispatcher on the first batch until the producer is done, a producer that waited for
+        //room would never finish
+        CountDownLatch release = new CountDownLatch(1);
+        NotificationGateway blocked = new NotificationGateway() {
+            @Override
+            public NotificationChannel channel() {
+                return NotificationChannel.SMS;
+            }
+
+            @Override
+            public void send(List<Notification> batch) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        pipeline = new NotificationPipeline(List.of(blocked), registry, 8, 1, 0, 1, 1, 10);
+
+        int accepted = 0;
+        int rejected = 0;
+        try {
+            for (int i = 0; i < 100; i++) {
+                try {
+                    pipeline.submit(sms(i));
+                    accepted++;
+                } catch (NotificationBacklogException e) {
+                    rejected++;
+                }
+            }
+        } finally {
+            release.countDown();
+        }
+
+        //8 buffered, at most one more already taken by the dispatcher
+        assertTrue(accepted >= 8 && accepted <= 9, "accepted " + accepted);
+        assertEquals(100 - accepted, rejected);
+        assertEquals(rejected, counter("meditrack.notifications.rejected"));
+    }
+
+    @Test
+    void channelsAreBatchedSeparately() {
+        StubNotificationGateway sms = new StubNotificationGateway(NotificationChannel.SMS, 0);
+        StubNotificationGateway email = new StubNotificationGateway(NotificationChannel.EMAIL, 0);
+        pipeline = new NotificationPipeline(List.of(sms, email), registry, 1024, 10, 50, 3, 1, 10);
+
+        for (int i = 0; i < 4; i++) {
+            pipeline.submit(sms(i));
+            pipeline.submit(new Notification("email-" + i, NotificationChannel.EMAIL, "doctor" + i + "@meditrack.test", "hello"));
+        }
+
+        await(() -> sms.delivered() == 4 && email.delivered() == 4);
+        assertTrue(sms.batches().stream().flatMap(List::stream).allMatch(n -> n.channel() == NotificationChannel.SMS));
+        assertTrue(email.batches().stream().flatMap(List::stream).allMatch(n -> n.channel() == NotificationChannel.EMAIL));
+    }
+
+    @Test
+    void ringBufferHandsEveryNotificationToTheConsumerOnce() throws InterruptedException {
+        NotificationRingBuffer<Notification> buffer = new NotificationRingBuffer<>(64);
+        int producers = 4;
+        int perProducer = 5_000;
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            threads[p] = Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    Notification notification = new Notification(producer + "-" + i, NotificationChannel.SMS, "x", "m");
+                    while (!buffer.offer(notification)) {
+                        Thread.yield();
+                    }
+                }
+            });
+        }
+
+        Set<String> seen = new HashSet<>();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(20);
+        while (seen.size() < producers * perProducer && System.nanoTime() < deadline) {
+            Notification notification = buffer.poll();
+            if (notification != null) {
+                assertTrue(seen.add(notification.key()), "received twice: " + notification.key());
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(producers * perProducer, seen.size());
+        assertNull(buffer.poll());
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    void ringBufferRefusesWhenFull() {
+        NotificationRingBuffer<Notification> buffer = new NotificationRingBuffer<>(8);
+        for (int i = 0; i < 8; i++) {
+            assertTrue(buffer.offer(sms(i)));
+        }
+
+        assertFalse(buffer.offer(sms(8)));
+        assertEquals("sms-0", buffer.poll().key());
+        assertTrue(buffer.offer(sms(8)));
+    }
+
+    private NotificationPipeline pipeline(StubNotificationGateway gateway, int capacity, int batchSize, long windowMs, int maxAttempts) {
+        return new NotificationPipeline(List.of(gateway), registry, capacity, batchSize, windowMs, maxAttempts, 1, 10);
+    }
+
+    private static Notification sms(int i) {
+        return new Notification("sms-" + i, NotificationChannel.SMS, "+9100000" + i, "reminder " + i);
+    }
+
+    private static List<Integer> sizes(StubNotificationGateway gateway) {
+        return gateway.batches().stream().map(List::size).toList();
+    }
+
+    private double counter(String name) {
+        return registry.get(name).counter().count();
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met within 10 seconds");
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.airtribe.meditrack.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Builds the masks from an in-memory h2 appointment table (only the columns the summary reads) with a three day horizon.
+ */
+class AvailabilitySummaryServiceTest {
+
+    private static final int HORIZON_DAYS = 3;
+    private static final List<LocalTime> SLOTS = SlotService.WORKING_SLOTS;
+
+    private final JdbcTemplate jdbcTemplate = appointments();
+    private final AvailabilitySummaryService service = new AvailabilitySummaryService(jdbcTemplate, HORIZON_DAYS);
+    private final LocalDate today = LocalDate.now();
+
+    @Test
+    void doctorWithoutBookingsHasEverySlotFree() {
+        service.refreshAll();
+
+        AvailabilitySummaryService.Availability availability = service.nextAvailable(1L, today.atStartOfDay());
+
+        assertEquals(new AvailabilitySummaryService.Availability(today, SLOTS.get(0), HORIZON_DAYS * SLOTS.size()), availability);
+    }
+
+    @Test
+    void slotThatAlreadyStartedIsNotOffered() {
+        service.refreshAll();
+
+        AvailabilitySummaryService.Availability availability = service.nextAvailable(1L, today.atTime(SLOTS.get(2)));
+
+        assertEquals(today, availability.date());
+        assertEquals(SLOTS.get(3), availability.time());
+        assertEquals(HORIZON_DAYS * SLOTS.size() - 3, availability.freeSlots());
+    }
+
+    @Test
+    void afterTheLastSlotTheNextOneIsTomorrowMorning() {
+        service.refreshAll();
+
+        AvailabilitySummaryService.Availability availability = service.nextAvailable(1L, today.atTime(LocalTime.MAX));
+
+        assertEquals(new AvailabilitySummaryService.Availability(today.plusDays(1), SLOTS.get(0),
+                (HORIZON_DAYS - 1) * SLOTS.size()), availability);
+    }
+
+    @Test
+    void dayBookedUpMovesToTheNextDay() {
+        bookWholeDay(1L, today);
+        service.refreshAll();
+
+        AvailabilitySummaryService.Availability availability = service.nextAvailable(1L, today.atStartOfDay());
+
+        assertEquals(new AvailabilitySummaryService.Availability(today.plusDays(1), SLOTS.get(0),
+                (HORIZON_DAYS - 1) * SLOTS.size()), availability);
+    }
+
+    @Test
+    void fullyBookedDoctorHasNoAvailability() {
+        for (int day = 0; day < HORIZON_DAYS; day++) {
+            bookWholeDay(1L, today.plusDays(day));
+        }
+        //the other doctor's bookings don't count
+        book(2L, today, SLOTS.get(0), "BOOKED");
+        service.refreshAll();
+
+        assertNull(service.nextAvailable(1L, today.atStartOfDay()));
+        assertEquals(SLOTS.get(1), service.nextAvailable(2L, today.atStartOfDay()).time());
+    }
+
+    @Test
+    void lastSlotOfTheHorizonIsStillOffered() {
+        for (int day = 0; day < HORIZON_DAYS; day++) {
+            bookWholeDay(1L, today.plusDays(day));
+        }
+        jdbcTemplate.update("delete from appointment where start_date = ? and start_time = ?",
+                today.plusDays(HORIZON_DAYS - 1), SLOTS.get(SLOTS.size() - 1));
+        //beyond the horizon, left out of the masks
+        book(1L, today.plusDays(HORIZON_DAYS), SLOTS.get(0), "BOOKED");
+        service.refreshAll();
+
+        assertEquals(new AvailabilitySummaryService.Availability(today.plusDays(HORIZON_DAYS - 1), SLOTS.get(SLOTS.size() - 1), 1),
+                service.nextAvailable(1L, today.atStartOfDay()));
+    }
+
+    @Test
+    void cancelledAndOffScheduleAppointmentsLeaveTheSlotsFree() {
+        book(1L, today, SLOTS.get(0), "CANCELLED");
+        book(1L, today, LocalTime.of(13, 15), "BOOKED");
+        service.refreshAll();
+
+        AvailabilitySummaryService.Availability availability = service.nextAvailable(1L, today.atStartOfDay());
+
+        assertEquals(SLOTS.get(0), availability.time());
+        assertEquals(HORIZON_DAYS * SLOTS.size(), availability.freeSlots());
+    }
+
+    @Test
+    void dirtyDoctorIsReadAgain() {
+        service.refreshAll();
+        book(1L, today, SLOTS.get(0), "BOOKED");
+        assertEquals(SLOTS.get(0), service.nextAvailable(1L, today.atStartOfDay()).time());
+
+        service.scheduleChanged(1L);
+        service.refreshDirty();
+
+        assertEquals(SLOTS.get(1), service.nextAvailable(1L, today.atStartOfDay()).time());
+    }
+
+    private void bookWholeDay(Long doctorId, LocalDate date) {
+        SLOTS.forEach(time -> book(doctorId, date, time, "BOOKED"));
+    }
+
+    private void book(Long doctorId, LocalDate date, LocalTime time, String status) {
+        jdbcTemplate.update("insert into appointment (doctor_id, start_date, start_time, status) values (?, ?, ?, ?)",
+                doctorId, date, time, status);
+    }
+
+    private static JdbcTemplate appointments() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:availability-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate.execute("create table appointment (doctor_id bigint, start_date date, start_time time, status varchar(20))");
+        return jdbcTemplate;
+    }
+}
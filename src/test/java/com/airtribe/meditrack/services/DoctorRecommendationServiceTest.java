@@ -0,0 +1,97 @@
+package com.airtribe.meditrack.services;
+
+import com.airtribe.meditrack.dto.DoctorDto;
+import com.airtribe.meditrack.dto.DoctorRecommendationDto;
+import com.airtribe.meditrack.enums.Role;
+import com.airtribe.meditrack.enums.Specialist;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The ranking of the candidates, with the default weights (similarity 0.5, availability 0.35, fee 0.15) and the
+ * default 14 day horizon. The candidate query and the embedding are left out, so no repository or model is wired.
+ */
+class DoctorRecommendationServiceTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 3, 2, 8, 0);
+
+    private final DoctorRecommendationService service = new DoctorRecommendationService(null, null,
+            new AvailabilitySummaryService(null, 14), null, 50, 5, 0.5, 0.35, 0.15);
+
+    @Test
+    void closestDoctorComesFirstWhenTheRestIsEqual() {
+        List<DoctorRecommendationDto> ranked = service.rank(List.of(
+                candidate(1L, 0.9, 500.0, 1), candidate(2L, 0.1, 500.0, 1), candidate(3L, 0.5, 500.0, 1)), NOW);
+
+        assertEquals(List.of(2L, 3L, 1L), ids(ranked));
+    }
+
+    @Test
+    void soonerSlotWinsBetweenEquallySimilarDoctors() {
+        List<DoctorRecommendationDto> ranked = service.rank(List.of(
+                candidate(1L, 0.3, 500.0, 10), candidate(2L, 0.3, 500.0, 0), candidate(3L, 0.3, 500.0, 3)), NOW);
+
+        assertEquals(List.of(2L, 3L, 1L), ids(ranked));
+    }
+
+    @Test
+    void similarityOutweighsAShortWait() {
+        //a day's wait costs 0.35 / 14 of the score, the furthest candidate loses all 0.5 of the similarity
+        List<DoctorRecommendationDto> ranked = service.rank(List.of(
+                candidate(1L, 0.8, 500.0, 0), candidate(2L, 0.2, 500.0, 1)), NOW);
+
+        assertEquals(List.of(2L, 1L), ids(ranked));
+    }
+
+    @Test
+    void cheaperDoctorWinsAndAnUnknownFeeCountsAsTheHighest() {
+        List<DoctorRecommendationDto> ranked = service.rank(List.of(
+                candidate(1L, 0.3, null, 1), candidate(2L, 0.3, 900.0, 1), candidate(3L, 0.3, 300.0, 1)), NOW);
+
+        assertEquals(3L, ids(ranked).get(0));
+        assertEquals(ranked.get(1).getScore(), ranked.get(2).getScore(), 1e-9);
+    }
+
+    @Test
+    void onlyTheBestResultsAreReturnedBestFirst() {
+        List<DoctorRecommendationService.Candidate> candidates = new ArrayList<>();
+        for (long id = 1; id <= 8; id++) {
+            candidates.add(candidate(id, id / 10.0, 500.0, 1));
+        }
+
+        List<DoctorRecommendationDto> ranked = service.rank(candidates, NOW);
+
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), ids(ranked));
+        for (int i = 1; i < ranked.size(); i++) {
+            assertTrue(ranked.get(i - 1).getScore() >= ranked.get(i).getScore());
+        }
+        DoctorRecommendationDto best = ranked.get(0);
+        assertEquals(NOW.toLocalDate().plusDays(1), best.getNextAvailableDate());
+        assertEquals(LocalTime.of(9, 0), best.getNextAvailableTime());
+    }
+
+    @Test
+    void noCandidatesNoRecommendations() {
+        assertTrue(service.rank(List.of(), NOW).isEmpty());
+    }
+
+    //next free slot at 9:00 daysAway days after NOW
+    private static DoctorRecommendationService.Candidate candidate(Long id, double distance, Double fee, int daysAway) {
+        LocalDate date = NOW.toLocalDate().plusDays(daysAway);
+        DoctorDto doctor = new DoctorDto(id, "Dr. " + id, "doctor" + id + "@meditrack.com", "9000000000", "Pune",
+                Role.DOCTOR, Specialist.CARDIOLOGIST, "test doctor", fee);
+        return new DoctorRecommendationService.Candidate(doctor, fee, distance,
+                new AvailabilitySummaryService.Availability(date, LocalTime.of(9, 0), 10));
+    }
+
+    private static List<Long> ids(List<DoctorRecommendationDto> ranked) {
+        return ranked.stream().map(recommendation -> recommendation.getDoctor().getId()).toList();
+    }
+}
@@ -0,0 +1,80 @@
+package com.airtribe.meditrack.services;
+
+import com.airtribe.meditrack.dto.PatientDetailDTO;
+import com.airtribe.meditrack.enums.Role;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Writes chunks with duplicate emails against the local postgres (the one in application.properties), through COPY
+ * and through the hibernate batch fallback the writer uses on other databases.
+ * No web environment, which also gives it a context of its own: one shared with a test class that ran before another
+ * context re-created the schema would still hand out ids from its old sequence blocks.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+class PatientImportWriterTest {
+
+    @Autowired
+    private PatientImportWriter patientImportWriter;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private BulkWriteService bulkWriteService;
+
+    @Autowired
+    private PersonService personService;
+
+    @Test
+    void copySkipsRegisteredAndRepeatedEmails() {
+        assertSkipsDuplicates(patientImportWriter);
+    }
+
+    @Test
+    void batchFallbackSkipsRegisteredAndRepeatedEmails() {
+        DataSourceProperties otherDatabase = new DataSourceProperties();
+        otherDatabase.setUrl("jdbc:h2:mem:other");
+        assertSkipsDuplicates(new PatientImportWriter(jdbcTemplate, transactionTemplate, bulkWriteService, otherDatabase));
+    }
+
+    private void assertSkipsDuplicates(PatientImportWriter writer) {
+        String suffix = UUID.randomUUID().toString();
+        String registered = "registered-" + suffix + "@meditrack.com";
+        personService.createPatient(patient(registered, "Registered Patient"));
+        String repeated = "repeated-" + suffix + "@meditrack.com";
+        String fresh = "fresh-" + suffix + "@meditrack.com";
+
+        int inserted = writer.write(List.of(
+                patient(registered, "Imported Again"),
+                patient(repeated, "First Row"),
+                patient(fresh, "Fresh Patient"),
+                patient(repeated, "Second Row")));
+
+        assertEquals(2, inserted);
+        assertEquals(List.of("Registered Patient"), names(registered));
+        assertEquals(List.of("First Row"), names(repeated));
+        assertEquals(List.of("Fresh Patient"), names(fresh));
+    }
+
+    private List<String> names(String email) {
+        return jdbcTemplate.queryForList("select pa.name from person p join patient pa on pa.id = p.id where p.email = ?",
+                String.class, email);
+    }
+
+    private static PatientDetailDTO patient(String email, String name) {
+        return new PatientDetailDTO(email, "9000000004", "Pune", Role.PATIENT, name, 30);
+    }
+}
@@ -0,0 +1,97 @@
+package com.airtribe.meditrack.sketches;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CountMinSketchTest {
+
+    @Test
+    void estimatesNeverUndercountAndStayWithinTheBound() {
+        Map<String, Long> exact = new HashMap<>();
+        CountMinSketch sketch = new CountMinSketch();
+        Random random = new Random(1);
+        for (int i = 0; i < 200_000; i++) {
+            //a long tail of words with a few frequent ones
+            String word = "word" + (int) Math.floor(Math.pow(random.nextDouble(), 3) * 20_000);
+            sketch.add(word);
+            exact.merge(word, 1L, Long::sum);
+        }
+
+        assertEquals(200_000, sketch.total());
+        int overBound = 0;
+        for (Map.Entry<String, Long> entry : exact.entrySet()) {
+            long estimate = sketch.estimate(entry.getKey());
+            assertTrue(estimate >= entry.getValue(), entry.getKey());
+            if (estimate - entry.getValue() > sketch.maxOverestimate()) {
+                overBound++;
+            }
+        }
+        //the bound holds with probability 1 - e^-4 per item
+        assertTrue(overBound <= exact.size() * 0.02, overBound + " of " + exact.size() + " over the bound");
+    }
+
+    @Test
+    void topListsTheMostFrequentItems() {
+        CountMinSketch sketch = new CountMinSketch();
+        for (int i = 0; i < 100; i++) {
+            sketch.add("fever");
+        }
+        for (int i = 0; i < 60; i++) {
+            sketch.add("cough");
+        }
+        for (int i = 0; i < 1_000; i++) {
+            sketch.add("rare" + i);
+        }
+
+        List<CountMinSketch.Entry> top = sketch.top(2);
+
+        assertEquals(List.of("fever", "cough"), top.stream().map(CountMinSketch.Entry::item).toList());
+        assertTrue(top.get(0).count() >= 100);
+        assertTrue(top.get(1).count() >= 60);
+    }
+
+    @Test
+    void mergeAddsTheCountsOfBothStreams() {
+        CountMinSketch first = new CountMinSketch();
+        CountMinSketch second = new CountMinSketch();
+        for (int i = 0; i < 30; i++) {
+            first.add("headache");
+            second.add("headache");
+        }
+        for (int i = 0; i < 50; i++) {
+            second.add("rash");
+        }
+        long secondTotal = second.total();
+
+        first.merge(second);
+
+        assertEquals(110, first.total());
+        assertTrue(first.estimate("headache") >= 60);
+        assertTrue(first.estimate("rash") >= 50);
+        //an item only the other sketch tracked shows up in top()
+        assertEquals(List.of("headache", "rash"), first.top(2).stream().map(CountMinSketch.Entry::item).toList());
+        assertEquals(secondTotal, second.total());
+    }
+
+    @Test
+    void bytesRoundTrip() {
+        CountMinSketch sketch = new CountMinSketch();
+        for (int i = 0; i < 5_000; i++) {
+            sketch.add("symptom" + (i % 97));
+            sketch.add("ünïcödé");
+        }
+
+        CountMinSketch restored = (CountMinSketch) Sketch.fromBytes(SketchType.COUNT_MIN, sketch.toBytes());
+
+        assertEquals(sketch.total(), restored.total());
+        assertEquals(sketch.top(CountMinSketch.TRACKED), restored.top(CountMinSketch.TRACKED));
+        assertEquals(sketch.estimate("ünïcödé"), restored.estimate("ünïcödé"));
+        assertEquals(sketch.estimate("symptom5"), restored.estimate("symptom5"));
+    }
+}
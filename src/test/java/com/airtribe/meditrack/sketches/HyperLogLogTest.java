@@ -0,0 +1,82 @@
+package com.airtribe.meditrack.sketches;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HyperLogLogTest {
+
+    @Test
+    void estimateStaysWithinThreeStandardErrors() {
+        for (int distinct : new int[]{10, 1_000, 100_000, 1_000_000}) {
+            HyperLogLog sketch = new HyperLogLog();
+            for (long id = 0; id < distinct; id++) {
+                sketch.add(id);
+            }
+
+            assertWithin(distinct, sketch.estimate());
+        }
+    }
+
+    @Test
+    void repeatedIdsAreCountedOnce() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int round = 0; round < 5; round++) {
+            for (long id = 0; id < 10_000; id++) {
+                sketch.add(id);
+            }
+        }
+
+        assertWithin(10_000, sketch.estimate());
+    }
+
+    @Test
+    void mergeCountsTheUnionOfBothStreams() {
+        HyperLogLog first = new HyperLogLog();
+        HyperLogLog second = new HyperLogLog();
+        //50k shared ids
+        for (long id = 0; id < 100_000; id++) {
+            first.add(id);
+        }
+        for (long id = 50_000; id < 150_000; id++) {
+            second.add(id);
+        }
+        long secondBefore = second.estimate();
+
+        first.merge(second);
+
+        assertWithin(150_000, first.estimate());
+        assertEquals(secondBefore, second.estimate());
+    }
+
+    @Test
+    void bytesRoundTrip() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (long id = 0; id < 5_000; id++) {
+            sketch.add(id * 7);
+        }
+
+        HyperLogLog restored = (HyperLogLog) Sketch.fromBytes(SketchType.HYPER_LOG_LOG, sketch.toBytes());
+
+        assertEquals(sketch.estimate(), restored.estimate());
+        assertArrayEquals(sketch.toBytes(), restored.toBytes());
+    }
+
+    @Test
+    void bytesOfAnotherPrecisionAreRefused() {
+        byte[] bytes = new HyperLogLog().toBytes();
+        bytes[0] = HyperLogLog.PRECISION + 1;
+
+        assertThrows(IllegalArgumentException.class, () -> Sketch.fromBytes(SketchType.HYPER_LOG_LOG, bytes));
+    }
+
+    @Test
+    void emptySketchEstimatesZero() {
+        assertEquals(0, new HyperLogLog().estimate());
+    }
+
+    private static void assertWithin(long actual, long estimate) {
+        double error = Math.abs(estimate - actual) / (double) actual;
+        assertTrue(error <= 3 * HyperLogLog.STANDARD_ERROR, "estimated " + estimate + " for " + actual);
+    }
+}
@@ -0,0 +1,118 @@
+package com.airtribe.meditrack.sketches;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KllSketchTest {
+
+    private static final double[] QUANTILES = {0.1, 0.25, 0.5, 0.75, 0.9, 0.95, 0.99};
+
+    @Test
+    void quantilesStayWithinTheRankError() {
+        double[] values = shuffled(200_000, 1);
+        KllSketch sketch = new KllSketch();
+        for (double value : values) {
+            sketch.add(value);
+        }
+
+        assertEquals(values.length, sketch.count());
+        assertEquals(0, sketch.min());
+        assertEquals(values.length - 1, sketch.max());
+        assertRanks(sketch, values.length);
+    }
+
+    @Test
+    void sizeStaysBoundedWhateverTheStreamLength() {
+        KllSketch sketch = new KllSketch();
+        for (double value : shuffled(1_000_000, 2)) {
+            sketch.add(value);
+        }
+
+        //count, min, max and the levels take a few dozen bytes, the rest are retained values
+        assertTrue(sketch.toBytes().length < 4 * KllSketch.K * Double.BYTES, sketch.toBytes().length + " bytes");
+    }
+
+    @Test
+    void mergeGivesTheQuantilesOfBothStreams() {
+        double[] values = shuffled(200_000, 3);
+        KllSketch first = new KllSketch();
+        KllSketch second = new KllSketch();
+        for (int i = 0; i < values.length; i++) {
+            (i % 3 == 0 ? first : second).add(values[i]);
+        }
+        long secondCount = second.count();
+
+        first.merge(second);
+
+        assertEquals(values.length, first.count());
+        assertEquals(0, first.min());
+        assertEquals(values.length - 1, first.max());
+        assertRanks(first, values.length);
+        assertEquals(secondCount, second.count());
+    }
+
+    @Test
+    void mergingAnEmptySketchChangesNothing() {
+        KllSketch sketch = new KllSketch();
+        for (double value : shuffled(10_000, 4)) {
+            sketch.add(value);
+        }
+        byte[] before = sketch.toBytes();
+
+        sketch.merge(new KllSketch());
+
+        assertArrayEquals(before, sketch.toBytes());
+    }
+
+    @Test
+    void bytesRoundTrip() {
+        KllSketch sketch = new KllSketch();
+        for (double value : shuffled(50_000, 5)) {
+            sketch.add(value);
+        }
+
+        KllSketch restored = (KllSketch) Sketch.fromBytes(SketchType.KLL, sketch.toBytes());
+
+        assertEquals(sketch.count(), restored.count());
+        assertEquals(sketch.min(), restored.min());
+        assertEquals(sketch.max(), restored.max());
+        for (double q : QUANTILES) {
+            assertEquals(sketch.quantile(q), restored.quantile(q));
+        }
+        assertArrayEquals(sketch.toBytes(), restored.toBytes());
+    }
+
+    @Test
+    void emptySketchHasNoQuantiles() {
+        KllSketch sketch = (KllSketch) Sketch.fromBytes(SketchType.KLL, new KllSketch().toBytes());
+
+        assertEquals(0, sketch.count());
+        assertTrue(Double.isNaN(sketch.quantile(0.5)));
+    }
+
+    //the values are 0 .. n - 1, so a value is its own rank
+    private static void assertRanks(KllSketch sketch, int n) {
+        for (double q : QUANTILES) {
+            double rank = sketch.quantile(q) / n;
+            //twice the 99% bound, the compactions flip coins
+            assertEquals(q, rank, 2 * KllSketch.RANK_ERROR, "quantile " + q);
+        }
+    }
+
+    private static double[] shuffled(int n, long seed) {
+        double[] values = new double[n];
+        Arrays.setAll(values, i -> i);
+        Random random = new Random(seed);
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            double swap = values[i];
+            values[i] = values[j];
+            values[j] = swap;
+        }
+        return values;
+    }
+}